@@ -0,0 +1,306 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.benchmarks;
+
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.PojoCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.participants.GxLegalParticipantCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.participants.GxLegalRegistrationNumberCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.serviceofferings.GxServiceOfferingCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.merlot.participants.MerlotLegalParticipantCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.merlot.serviceofferings.MerlotCoopContractServiceOfferingCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.merlot.serviceofferings.MerlotDataDeliveryServiceOfferingCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.merlot.serviceofferings.MerlotSaasServiceOfferingCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.merlot.serviceofferings.MerlotServiceOfferingCredentialSubject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Generated catalog responses of configurable size for the benchmarks.
+ */
+public final class CatalogFixtures {
+
+    /**
+     * Generators of a single credential subject by the POJO class it maps to.
+     */
+    public static final Map<Class<? extends PojoCredentialSubject>, IntFunction<String>> CREDENTIAL_SUBJECTS;
+
+    static {
+        Map<Class<? extends PojoCredentialSubject>, IntFunction<String>> subjects = new LinkedHashMap<>();
+        subjects.put(GxLegalParticipantCredentialSubject.class, CatalogFixtures::gxLegalParticipant);
+        subjects.put(GxLegalRegistrationNumberCredentialSubject.class, CatalogFixtures::gxLegalRegistrationNumber);
+        subjects.put(MerlotLegalParticipantCredentialSubject.class, CatalogFixtures::merlotLegalParticipant);
+        subjects.put(GxServiceOfferingCredentialSubject.class, CatalogFixtures::gxServiceOffering);
+        subjects.put(MerlotServiceOfferingCredentialSubject.class, CatalogFixtures::merlotServiceOffering);
+        subjects.put(MerlotSaasServiceOfferingCredentialSubject.class, CatalogFixtures::merlotSaasServiceOffering);
+        subjects.put(MerlotDataDeliveryServiceOfferingCredentialSubject.class,
+                CatalogFixtures::merlotDataDeliveryServiceOffering);
+        subjects.put(MerlotCoopContractServiceOfferingCredentialSubject.class,
+                CatalogFixtures::merlotCoopContractServiceOffering);
+        CREDENTIAL_SUBJECTS = Collections.unmodifiableMap(subjects);
+    }
+
+    private CatalogFixtures() {
+    }
+
+    /**
+     * Generate a self-description list page as returned by the catalog, i.e. with the verifiable presentations
+     * embedded as escaped JSON strings.
+     *
+     * @param items number of self-descriptions on the page
+     * @return response body
+     */
+    public static String selfDescriptionListPage(int items) {
+        StringBuilder page = new StringBuilder("{\"totalCount\": ").append(items).append(", \"items\": [");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                page.append(',');
+            }
+            page.append("{\"meta\": {")
+                    .append("\"expirationTime\": null, ")
+                    .append("\"content\": \"").append(escape(verifiablePresentation(i))).append("\", ")
+                    .append("\"validators\": [], ")
+                    .append("\"subjectId\": \"did:web:example.com:offering:").append(i).append("\", ")
+                    .append("\"sdHash\": \"").append(String.format("%064x", i)).append("\", ")
+                    .append("\"id\": \"http://example.edu/verifiablePresentation/self-description").append(i)
+                    .append("\", ")
+                    .append("\"status\": \"active\", ")
+                    .append("\"issuer\": \"did:web:example.com:participant:1\", ")
+                    .append("\"validatorDids\": [], ")
+                    .append("\"uploadDatetime\": \"2024-01-01T00:00:00.000Z\", ")
+                    .append("\"statusDatetime\": \"2024-01-01T00:00:00.000Z\"")
+                    .append("}}");
+        }
+        return page.append("]}").toString();
+    }
+
+    /**
+     * Generate a page of MERLOT service offering credential subjects with their JSON-LD typed values, split into
+     * the gx, MERLOT and MERLOT SaaS subjects of each offering.
+     *
+     * @param items number of offerings on the page
+     * @return page as JSON object with the fields gx, merlot and saas
+     */
+    public static String offeringCredentialSubjectsPage(int items) {
+        StringBuilder gx = new StringBuilder();
+        StringBuilder merlot = new StringBuilder();
+        StringBuilder saas = new StringBuilder();
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                gx.append(',');
+                merlot.append(',');
+                saas.append(',');
+            }
+            gx.append(gxServiceOffering(i));
+            merlot.append(merlotServiceOffering(i));
+            saas.append(merlotSaasServiceOffering(i));
+        }
+        return "{\"gx\": [" + gx + "], \"merlot\": [" + merlot + "], \"saas\": [" + saas + "]}";
+    }
+
+    /**
+     * Generate a JSON array of credential subjects of the given class.
+     *
+     * @param type class of the credential subjects, one of the keys of {@link #CREDENTIAL_SUBJECTS}
+     * @param items number of credential subjects
+     * @return JSON array
+     */
+    public static String credentialSubjects(Class<? extends PojoCredentialSubject> type, int items) {
+        IntFunction<String> subject = CREDENTIAL_SUBJECTS.get(type);
+        if (subject == null) {
+            throw new IllegalArgumentException("No fixture for " + type.getName());
+        }
+        StringBuilder subjects = new StringBuilder("[");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                subjects.append(',');
+            }
+            subjects.append(subject.apply(i));
+        }
+        return subjects.append(']').toString();
+    }
+
+    /**
+     * Generate a verifiable presentation with the given number of credentials. The credential subjects cycle through
+     * all credential subject types of {@link #CREDENTIAL_SUBJECTS}, hence presentations of three credentials
+     * resemble a participant and presentations of more credentials a bundle of offerings.
+     *
+     * @param credentials number of credentials of the presentation
+     * @return presentation as JSON
+     */
+    public static String credentialSubjectPresentation(int credentials) {
+        List<IntFunction<String>> subjects = new ArrayList<>(CREDENTIAL_SUBJECTS.values());
+        StringBuilder presentation = new StringBuilder("{\"@context\": [\"https://www.w3.org/2018/credentials/v1\"], ")
+                .append("\"id\": \"http://example.edu/verifiablePresentation/bundle").append(credentials).append("\", ")
+                .append("\"type\": [\"VerifiablePresentation\"], ")
+                .append("\"verifiableCredential\": [");
+        for (int i = 0; i < credentials; i++) {
+            if (i > 0) {
+                presentation.append(',');
+            }
+            presentation.append(verifiableCredential(subjects.get(i % subjects.size()).apply(i),
+                    "did:web:example.com:credential:" + i, i));
+        }
+        return presentation.append("]}").toString();
+    }
+
+    private static String gxLegalParticipant(int i) {
+        String address = "{\"gx:countryCode\": " + typedString("DE") + ", "
+                + "\"gx:countrySubdivisionCode\": " + typedString("DE-HH") + ", "
+                + "\"vcard:street-address\": " + typedString("Musterstra\u00dfe " + i) + ", "
+                + "\"vcard:locality\": " + typedString("Hamburg") + ", "
+                + "\"vcard:postal-code\": " + typedString("20095") + "}";
+        return "{\"id\": \"did:web:example.com:participant:" + i + "\", \"type\": \"gx:LegalParticipant\", "
+                + "\"gx:legalRegistrationNumber\": [{\"@id\": \"did:web:example.com:participant:" + i
+                + "#registrationNumber\"}], "
+                + "\"gx:legalAddress\": " + address + ", "
+                + "\"gx:headquarterAddress\": " + address + ", "
+                + "\"gx:name\": " + typedString("Organisation " + i) + ", "
+                + "\"gx:description\": " + typedString("Eine Bildungseinrichtung f\u00fcr Lehrende") + "}";
+    }
+
+    private static String gxLegalRegistrationNumber(int i) {
+        return "{\"id\": \"did:web:example.com:participant:" + i + "#registrationNumber\", "
+                + "\"type\": \"gx:legalRegistrationNumber\", "
+                + "\"gx:taxID\": " + typedString("DE" + String.format("%09d", i)) + ", "
+                + "\"gx:leiCode\": " + typedString(String.format("%020d", i)) + "}";
+    }
+
+    private static String merlotLegalParticipant(int i) {
+        return "{\"id\": \"did:web:example.com:participant:" + i + "\", "
+                + "\"type\": \"merlot:MerlotLegalParticipant\", "
+                + "\"merlot:legalName\": " + typedString("Organisation " + i + " GmbH") + ", "
+                + "\"merlot:legalForm\": " + typedString("GmbH") + ", "
+                + "\"merlot:termsAndConditions\": {"
+                + "\"merlot:URL\": " + typedString("https://example.com/tnc/" + i) + ", "
+                + "\"merlot:hash\": " + typedString(String.format("%064x", i)) + "}}";
+    }
+
+    private static String gxServiceOffering(int i) {
+        return "{\"id\": \"" + offeringId(i) + "\", \"type\": \"gx:ServiceOffering\", "
+                + "\"gx:name\": " + typedString("Offering " + i) + ", "
+                + "\"gx:description\": " + typedString("Ein Kurs f\u00fcr Lehrende " + i) + ", "
+                + "\"gx:providedBy\": {\"@id\": \"did:web:example.com:participant:1\"}, "
+                + "\"gx:policy\": [" + typedString("default: allow") + "], "
+                + "\"gx:dataProtectionRegime\": [" + typedString("GDPR2016") + "], "
+                + "\"gx:termsAndConditions\": [{"
+                + "\"gx:URL\": " + typedString("https://example.com/tnc/" + i) + ", "
+                + "\"gx:hash\": " + typedString(String.format("%064x", i)) + "}], "
+                + "\"gx:dataAccountExport\": [{"
+                + "\"gx:requestType\": " + typedString("API") + ", "
+                + "\"gx:accessType\": " + typedString("digital") + ", "
+                + "\"gx:formatType\": " + typedString("application/json") + "}]}";
+    }
+
+    private static String merlotServiceOffering(int i) {
+        return "{\"id\": \"" + offeringId(i) + "\", \"type\": \"merlot:MerlotServiceOffering\", "
+                + "\"merlot:creationDate\": " + typedString("2024-01-01T00:00:00Z") + ", "
+                + "\"merlot:exampleCosts\": " + typedString(i + " EUR") + ", "
+                + "\"merlot:runtimeOption\": ["
+                + "{\"@type\": \"merlot:Runtime\", \"merlot:runtimeCount\": " + typedInteger(i % 12)
+                + ", \"merlot:runtimeMeasurement\": " + typedString("month") + "}, "
+                + "{\"@type\": \"merlot:Runtime\", \"merlot:runtimeCount\": " + typedInteger(0)
+                + ", \"merlot:runtimeMeasurement\": " + typedString("unlimited") + "}], "
+                + "\"merlot:merlotTermsAndConditionsAccepted\": true}";
+    }
+
+    private static String merlotSaasServiceOffering(int i) {
+        return "{\"id\": \"" + offeringId(i) + "\", "
+                + "\"type\": \"merlot:MerlotSaasServiceOffering\", "
+                + "\"merlot:hardwareRequirements\": " + typedString("4 GB RAM") + ", "
+                + "\"merlot:userCountOption\": ["
+                + "{\"@type\": \"merlot:AllowedUserCount\", \"merlot:userCountUpTo\": "
+                + typedInteger(10 * i) + "}, "
+                + "{\"@type\": \"merlot:AllowedUserCount\", \"merlot:userCountUpTo\": "
+                + typedInteger(0) + "}]}";
+    }
+
+    private static String merlotDataDeliveryServiceOffering(int i) {
+        return "{\"id\": \"" + offeringId(i) + "\", "
+                + "\"type\": \"merlot:MerlotDataDeliveryServiceOffering\", "
+                + "\"merlot:dataAccessType\": " + typedString("Download") + ", "
+                + "\"merlot:dataTransferType\": " + typedString("Push") + ", "
+                + "\"merlot:exchangeCountOption\": ["
+                + "{\"@type\": \"merlot:DataExchangeCount\", \"merlot:exchangeCountUpTo\": "
+                + typedInteger(i % 100) + "}, "
+                + "{\"@type\": \"merlot:DataExchangeCount\", \"merlot:exchangeCountUpTo\": "
+                + typedInteger(0) + "}]}";
+    }
+
+    private static String merlotCoopContractServiceOffering(int i) {
+        return "{\"id\": \"" + offeringId(i) + "\", "
+                + "\"type\": \"merlot:MerlotCoopContractServiceOffering\"}";
+    }
+
+    private static String offeringId(int i) {
+        return "did:web:example.com:offering:" + i;
+    }
+
+    private static String typedString(String value) {
+        return "{\"@type\": \"xsd:string\", \"@value\": \"" + value + "\"}";
+    }
+
+    private static String typedInteger(int value) {
+        return "{\"@type\": \"xsd:integer\", \"@value\": " + value + "}";
+    }
+
+    private static String verifiablePresentation(int i) {
+        String subjectId = "did:web:example.com:offering:" + i;
+        String credentialSubject = "{"
+                + "\"id\": \"" + subjectId + "\", "
+                + "\"type\": \"gx:ServiceOffering\", "
+                + "\"gx:name\": {\"@type\": \"xsd:string\", \"@value\": \"Offering " + i + " \\\"Premium\\\"\"}, "
+                + "\"gx:description\": {\"@type\": \"xsd:string\", \"@value\": \"Ein Kurs f\\u00fcr Lehrende\"}, "
+                + "\"gx:providedBy\": {\"@id\": \"did:web:example.com:participant:1\"}, "
+                + "\"gx:policy\": [{\"@type\": \"xsd:string\", \"@value\": \"default: allow\"}], "
+                + "\"gx:termsAndConditions\": [{\"gx:URL\": {\"@type\": \"xsd:string\", "
+                + "\"@value\": \"https://example.com/tnc\"}, \"gx:hash\": {\"@type\": \"xsd:string\", "
+                + "\"@value\": \"1234\"}}], "
+                + "\"gx:dataAccountExport\": [{\"gx:requestType\": \"API\", \"gx:accessType\": \"digital\", "
+                + "\"gx:formatType\": \"application/json\"}]"
+                + "}";
+        return "{\"@context\": [\"https://www.w3.org/2018/credentials/v1\"], "
+                + "\"id\": \"http://example.edu/verifiablePresentation/self-description" + i + "\", "
+                + "\"type\": [\"VerifiablePresentation\"], "
+                + "\"verifiableCredential\": [" + verifiableCredential(credentialSubject, subjectId + "#vc", i) + "]}";
+    }
+
+    private static String verifiableCredential(String credentialSubject, String id, int i) {
+        return "{"
+                + "\"@context\": [\"https://www.w3.org/2018/credentials/v1\", "
+                + "\"https://w3id.org/security/suites/jws-2020/v1\", "
+                + "\"https://registry.lab.gaia-x.eu/development/api/trusted-shape-registry/v1/shapes/jsonld/trustframework#\"], "
+                + "\"id\": \"" + id + "\", "
+                + "\"type\": [\"VerifiableCredential\"], "
+                + "\"issuer\": \"did:web:example.com:participant:1\", "
+                + "\"issuanceDate\": \"2024-01-01T00:00:00.000Z\", "
+                + "\"credentialSubject\": " + credentialSubject + ", "
+                + "\"proof\": {\"type\": \"JsonWebSignature2020\", \"created\": \"2024-01-01T00:00:00Z\", "
+                + "\"proofPurpose\": \"assertionMethod\", "
+                + "\"verificationMethod\": \"did:web:example.com#JWK2020\", "
+                + "\"jws\": \"eyJhbGciOiJQUzI1NiIsImI2NCI6ZmFsc2UsImNyaXQiOlsiYjY0Il19..c2lnbmF0dXJl" + i + "\"}"
+                + "}";
+    }
+
+    private static String escape(String json) {
+        return json.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package eu.merloteducation.gxfscataloglibrary.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.merloteducation.gxfscataloglibrary.models.credentials.CastableCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiableCredential;
+import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiablePresentation;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.CredentialSubjectTypeRegistry;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.PojoCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.serviceofferings.GxServiceOfferingCredentialSubject;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Access to the credential subjects of a presentation with credentials of all gx and MERLOT subject types. Looking up
+ * the subjects of a type is measured on a fresh presentation, which has to build its credential index first, and on
+ * a presentation whose index is already built. Converting the subjects to POJOs is measured with the class given by
+ * the caller and with the class resolved from the type registry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CredentialSubjectBenchmark {
+
+    @Param({"3", "30", "300"})
+    private int credentials;
+
+    private Map<String, Object> presentationJson;
+
+    private ExtendedVerifiablePresentation presentation;
+
+    private List<CastableCredentialSubject> subjects;
+
+    private List<Class<? extends PojoCredentialSubject>> subjectTypes;
+
+    @Setup
+    public void setUp() throws IOException {
+        presentationJson = new ObjectMapper().readValue(CatalogFixtures.credentialSubjectPresentation(credentials),
+                new TypeReference<>() {
+                });
+        presentation = ExtendedVerifiablePresentation.fromMap(presentationJson);
+        presentation.findAllCredentialSubjectsByType(GxServiceOfferingCredentialSubject.class);
+        subjects = presentation.getVerifiableCredentials().stream()
+                .map(ExtendedVerifiableCredential::getCredentialSubject)
+                .toList();
+        subjectTypes = subjects.stream()
+                .<Class<? extends PojoCredentialSubject>>map(subject ->
+                        CredentialSubjectTypeRegistry.getPojoClass(subject.getType()))
+                .toList();
+    }
+
+    @Benchmark
+    public List<GxServiceOfferingCredentialSubject> findAllCredentialSubjectsByType() {
+        return ExtendedVerifiablePresentation.fromMap(presentationJson)
+                .findAllCredentialSubjectsByType(GxServiceOfferingCredentialSubject.class);
+    }
+
+    @Benchmark
+    public List<GxServiceOfferingCredentialSubject> findAllCredentialSubjectsByTypeIndexed() {
+        return presentation.findAllCredentialSubjectsByType(GxServiceOfferingCredentialSubject.class);
+    }
+
+    @Benchmark
+    public void toPojoByClass(Blackhole blackhole) {
+        for (int i = 0; i < subjects.size(); i++) {
+            blackhole.consume(subjects.get(i).toPojo(subjectTypes.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void toPojoByRegisteredType(Blackhole blackhole) {
+        for (CastableCredentialSubject subject : subjects) {
+            blackhole.consume(subject.toPojo());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package eu.merloteducation.gxfscataloglibrary.benchmarks;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.PojoCredentialSubject;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson round trips of lists of each gx and MERLOT credential subject, i.e. reading the JSON-LD typed values into
+ * the POJOs and writing the POJOs again as done when creating credentials. Run with {@code -prof gc} to see the
+ * allocation per list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CredentialSubjectRoundTripBenchmark {
+
+    @Param({
+            "GxLegalParticipantCredentialSubject",
+            "GxLegalRegistrationNumberCredentialSubject",
+            "MerlotLegalParticipantCredentialSubject",
+            "GxServiceOfferingCredentialSubject",
+            "MerlotServiceOfferingCredentialSubject",
+            "MerlotSaasServiceOfferingCredentialSubject",
+            "MerlotDataDeliveryServiceOfferingCredentialSubject",
+            "MerlotCoopContractServiceOfferingCredentialSubject"})
+    private String subjectType;
+
+    @Param({"1", "100"})
+    private int subjects;
+
+    private byte[] json;
+
+    private List<PojoCredentialSubject> pojos;
+
+    private ObjectReader reader;
+
+    private ObjectWriter writer;
+
+    @Setup
+    public void setUp() throws IOException {
+        Class<? extends PojoCredentialSubject> type = CatalogFixtures.CREDENTIAL_SUBJECTS.keySet().stream()
+                .filter(cls -> cls.getSimpleName().equals(subjectType))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No fixture for " + subjectType));
+        ObjectMapper mapper = new ObjectMapper();
+        JavaType listType = mapper.getTypeFactory().constructCollectionType(List.class, type);
+        json = CatalogFixtures.credentialSubjects(type, subjects).getBytes(StandardCharsets.UTF_8);
+        reader = mapper.readerFor(listType);
+        writer = mapper.writerFor(listType);
+        pojos = reader.readValue(json);
+    }
+
+    @Benchmark
+    public List<PojoCredentialSubject> read() throws IOException {
+        return reader.readValue(json);
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        return writer.writeValueAsBytes(pojos);
+    }
+
+    @Benchmark
+    public byte[] roundTrip() throws IOException {
+        return writer.writeValueAsBytes(reader.<List<PojoCredentialSubject>>readValue(json));
+    }
+}
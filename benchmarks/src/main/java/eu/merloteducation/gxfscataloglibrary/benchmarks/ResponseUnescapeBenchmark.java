@@ -0,0 +1,79 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.benchmarks;
+
+import eu.merloteducation.gxfscataloglibrary.config.NestedJsonUnescaper;
+import org.apache.commons.text.StringEscapeUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the former whole-body String rewriting of catalog responses with the streaming
+ * {@link NestedJsonUnescaper} on a self-description list page. Run with {@code -prof gc} to see the allocation per
+ * page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseUnescapeBenchmark {
+
+    // size of the buffers handed out by reactor netty
+    private static final int CHUNK_SIZE = 8192;
+
+    @Param({"10", "100", "1000"})
+    private int itemsPerPage;
+
+    private byte[] page;
+
+    @Setup
+    public void setUp() {
+        page = CatalogFixtures.selfDescriptionListPage(itemsPerPage).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void legacyStringRewrite(Blackhole blackhole) {
+        // mirrors the previous response filter: aggregate, unescape everything, strip the quotes around objects
+        String response = new String(page, StandardCharsets.UTF_8);
+        response = StringEscapeUtils.unescapeJson(response)
+                .replace("\"{", "{")
+                .replace("}\"", "}");
+        blackhole.consume(response.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public void streamingUnescape(Blackhole blackhole) {
+        NestedJsonUnescaper unescaper = new NestedJsonUnescaper();
+        for (int offset = 0; offset < page.length; offset += CHUNK_SIZE) {
+            int length = Math.min(CHUNK_SIZE, page.length - offset);
+            DataBuffer chunk = DefaultDataBufferFactory.sharedInstance.allocateBuffer(length)
+                    .write(page, offset, length);
+            DataBuffer result = unescaper.transform(chunk);
+            blackhole.consume(result);
+            DataBufferUtils.release(result);
+        }
+        blackhole.consume(unescaper.finish());
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package eu.merloteducation.gxfscataloglibrary.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiableCredential;
+import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiablePresentation;
+import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialPresentationException;
+import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialSignatureException;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.PojoCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.serviceofferings.GxServiceOfferingCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.service.CachedDocumentLoader;
+import eu.merloteducation.gxfscataloglibrary.service.GxfsCatalogMetrics;
+import eu.merloteducation.gxfscataloglibrary.service.GxfsSignerService;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creation and signature of credentials and presentations with {@link GxfsSignerService}, using a generated RSA key
+ * and a self-signed certificate. The credentials to sign only use the JSON-LD contexts bundled with the library, so
+ * the benchmark does not depend on the network. Presentations are signed with a varying number of signed
+ * credentials, as the whole presentation is canonicalized for its proof. Run with {@code -prof gc} to see the
+ * allocation per signature.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SignerBenchmark {
+
+    private static final String VERIFICATION_METHOD = "did:web:example.com#JWK2020";
+
+    private static final URI ISSUER = URI.create("did:web:example.com:participant:1");
+
+    @Param({"ALWAYS", "LEAF"})
+    private GxfsSignerService.VerificationPolicy verificationPolicy;
+
+    @Param({"1", "10"})
+    private int credentialsPerPresentation;
+
+    private GxfsSignerService signerService;
+
+    private PrivateKey privateKey;
+
+    private List<X509Certificate> certificates;
+
+    private GxServiceOfferingCredentialSubject offeringSubject;
+
+    private List<ExtendedVerifiableCredential> signedCredentials;
+
+    private ExtendedVerifiableCredential unsignedCredential;
+
+    private ExtendedVerifiablePresentation unsignedPresentation;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException, OperatorCreationException, IOException,
+            CredentialPresentationException, CredentialSignatureException {
+        signerService = new GxfsSignerService(new ObjectMapper(),
+                new CachedDocumentLoader(null, false, 3600000, new ObjectMapper()), verificationPolicy, 1.0,
+                GxfsCatalogMetrics.NOOP);
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        privateKey = keyPair.getPrivate();
+        certificates = List.of(selfSignedCertificate(keyPair));
+
+        offeringSubject = new ObjectMapper().readValue(
+                CatalogFixtures.credentialSubjects(GxServiceOfferingCredentialSubject.class, 1),
+                GxServiceOfferingCredentialSubject[].class)[0];
+
+        signedCredentials = new ArrayList<>();
+        for (int i = 0; i < credentialsPerPresentation; i++) {
+            ExtendedVerifiableCredential credential = createCredential(i);
+            signerService.signVerifiableCredential(credential, VERIFICATION_METHOD, privateKey, certificates);
+            signedCredentials.add(credential);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() throws CredentialPresentationException {
+        // signing adds the proof to the given object, hence every invocation signs a fresh one
+        unsignedCredential = createCredential(0);
+        unsignedPresentation = signerService.createVerifiablePresentation(signedCredentials,
+                URI.create("http://example.edu/verifiablePresentation/bundle"));
+    }
+
+    @Benchmark
+    public ExtendedVerifiableCredential createVerifiableCredential() throws CredentialPresentationException {
+        return signerService.createVerifiableCredential(offeringSubject, ISSUER,
+                URI.create(offeringSubject.getId() + "#vc"));
+    }
+
+    @Benchmark
+    public ExtendedVerifiableCredential signVerifiableCredential() throws CredentialSignatureException {
+        signerService.signVerifiableCredential(unsignedCredential, VERIFICATION_METHOD, privateKey, certificates);
+        return unsignedCredential;
+    }
+
+    @Benchmark
+    public ExtendedVerifiablePresentation signVerifiablePresentation() throws CredentialSignatureException {
+        signerService.signVerifiablePresentation(unsignedPresentation, VERIFICATION_METHOD, privateKey, certificates);
+        return unsignedPresentation;
+    }
+
+    private ExtendedVerifiableCredential createCredential(int i) throws CredentialPresentationException {
+        PojoCredentialSubject subject = new PojoCredentialSubject();
+        subject.setId("did:web:example.com:offering:" + i);
+        return signerService.createVerifiableCredential(subject, ISSUER, URI.create(subject.getId() + "#vc"));
+    }
+
+    private static X509Certificate selfSignedCertificate(KeyPair keyPair)
+            throws OperatorCreationException, GeneralSecurityException {
+        X500Name name = new X500Name("CN=benchmark.example.com");
+        Instant now = Instant.now();
+        JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(name, BigInteger.ONE,
+                Date.from(now), Date.from(now.plus(Duration.ofDays(1))), name, keyPair.getPublic());
+        return new JcaX509CertificateConverter().getCertificate(builder.build(
+                new JcaContentSignerBuilder("SHA256withRSA").build(keyPair.getPrivate())));
+    }
+}
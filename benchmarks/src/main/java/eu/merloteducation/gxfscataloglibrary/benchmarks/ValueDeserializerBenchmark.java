@@ -0,0 +1,170 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package eu.merloteducation.gxfscataloglibrary.benchmarks;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.cfg.HandlerInstantiator;
+import com.fasterxml.jackson.databind.cfg.MapperConfig;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.jsontype.TypeIdResolver;
+import com.fasterxml.jackson.databind.jsontype.TypeResolverBuilder;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.serviceofferings.GxServiceOfferingCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.merlot.serviceofferings.MerlotSaasServiceOfferingCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.merlot.serviceofferings.MerlotServiceOfferingCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.serialization.IntegerDeserializer;
+import eu.merloteducation.gxfscataloglibrary.models.serialization.StringDeserializer;
+import eu.merloteducation.gxfscataloglibrary.models.serialization.UriDeserializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the former tree based JSON-LD value deserializers with the streaming ones of the library when reading a
+ * page of MERLOT offering credential subjects. The former deserializers are swapped in through a
+ * {@link HandlerInstantiator}, so both variants read the same annotated POJOs. Run with {@code -prof gc} to see the
+ * allocation per page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValueDeserializerBenchmark {
+
+    public static class OfferingPage {
+        public List<GxServiceOfferingCredentialSubject> gx;
+
+        public List<MerlotServiceOfferingCredentialSubject> merlot;
+
+        public List<MerlotSaasServiceOfferingCredentialSubject> saas;
+    }
+
+    @Param({"10", "100", "1000"})
+    private int itemsPerPage;
+
+    private byte[] page;
+
+    private ObjectReader streamingReader;
+
+    private ObjectReader treeReader;
+
+    @Setup
+    public void setUp() {
+        page = CatalogFixtures.offeringCredentialSubjectsPage(itemsPerPage).getBytes(StandardCharsets.UTF_8);
+        streamingReader = new ObjectMapper().readerFor(OfferingPage.class);
+        ObjectMapper treeMapper = new ObjectMapper();
+        treeMapper.setHandlerInstantiator(new TreeDeserializerInstantiator());
+        treeReader = treeMapper.readerFor(OfferingPage.class);
+    }
+
+    @Benchmark
+    public OfferingPage treeDeserializers() throws IOException {
+        return treeReader.readValue(page);
+    }
+
+    @Benchmark
+    public OfferingPage streamingDeserializers() throws IOException {
+        return streamingReader.readValue(page);
+    }
+
+    /**
+     * Replaces the deserializers of the library by the former implementations reading a tree per value.
+     */
+    private static final class TreeDeserializerInstantiator extends HandlerInstantiator {
+
+        @Override
+        public JsonDeserializer<?> deserializerInstance(DeserializationConfig config, Annotated annotated,
+                                                        Class<?> deserClass) {
+            if (deserClass == StringDeserializer.class) {
+                return new TreeTextDeserializer("xsd:string");
+            } else if (deserClass == UriDeserializer.class) {
+                return new TreeTextDeserializer("xsd:anyURI");
+            } else if (deserClass == IntegerDeserializer.class) {
+                return new TreeIntegerDeserializer();
+            }
+            return null;
+        }
+
+        @Override
+        public KeyDeserializer keyDeserializerInstance(DeserializationConfig config, Annotated annotated,
+                                                       Class<?> keyDeserClass) {
+            return null;
+        }
+
+        @Override
+        public JsonSerializer<?> serializerInstance(SerializationConfig config, Annotated annotated,
+                                                    Class<?> serClass) {
+            return null;
+        }
+
+        @Override
+        public TypeResolverBuilder<?> typeResolverBuilderInstance(MapperConfig<?> config, Annotated annotated,
+                                                                  Class<?> builderClass) {
+            return null;
+        }
+
+        @Override
+        public TypeIdResolver typeIdResolverInstance(MapperConfig<?> config, Annotated annotated,
+                                                     Class<?> resolverClass) {
+            return null;
+        }
+    }
+
+    private static final class TreeTextDeserializer extends StdDeserializer<String> {
+
+        private final String type;
+
+        private TreeTextDeserializer(String type) {
+            super(String.class);
+            this.type = type;
+        }
+
+        @Override
+        public String deserialize(JsonParser jsonParser, DeserializationContext deserializationContext)
+                throws IOException {
+            JsonNode node = jsonParser.getCodec().readTree(jsonParser);
+            if (node.get("@type") != null &&
+                    node.get("@type").textValue().equals(type)) {
+                return node.get("@value").textValue();
+            }
+            return node.textValue();
+        }
+    }
+
+    private static final class TreeIntegerDeserializer extends StdDeserializer<Integer> {
+
+        private TreeIntegerDeserializer() {
+            super(Integer.class);
+        }
+
+        @Override
+        public Integer deserialize(JsonParser jsonParser, DeserializationContext deserializationContext)
+                throws IOException {
+            JsonNode node = jsonParser.getCodec().readTree(jsonParser);
+            if (node.get("@type") != null &&
+                    node.get("@type").textValue().equals("xsd:integer")) {
+                return node.get("@value").intValue();
+            }
+            return node.intValue();
+        }
+    }
+}
@@ -16,11 +16,67 @@
 
 package eu.merloteducation.gxfscataloglibrary;
 
+import eu.merloteducation.gxfscataloglibrary.config.GxfsCatalogMeterBinder;
+import eu.merloteducation.gxfscataloglibrary.config.MicrometerGxfsCatalogMetrics;
+import eu.merloteducation.gxfscataloglibrary.service.DidWebResolverService;
+import eu.merloteducation.gxfscataloglibrary.service.EndpointHealthManager;
+import eu.merloteducation.gxfscataloglibrary.service.GxComplianceClient;
+import eu.merloteducation.gxfscataloglibrary.service.GxNotaryClient;
+import eu.merloteducation.gxfscataloglibrary.service.GxfsCatalogMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
 
-@AutoConfiguration
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+// ordered after the metrics auto-configuration of the actuator, so its meter registry is known to the conditions
+@AutoConfiguration(afterName = {
+        "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration",
+        "org.springframework.boot.actuate.autoconfigure.observation.ObservationAutoConfiguration"})
 @ComponentScan
 public class AutoConfigure {
-    // intentionally left empty
+
+    /**
+     * Publishes the metrics of the library if Micrometer is on the classpath and a meter registry is available.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    @ConditionalOnBean(type = "io.micrometer.core.instrument.MeterRegistry")
+    static class MicrometerMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(GxfsCatalogMetrics.class)
+        public GxfsCatalogMetrics gxfsCatalogMetrics(@Autowired MeterRegistry meterRegistry,
+                                                     @Autowired ObjectProvider<ObservationRegistry> observationRegistry) {
+            return new MicrometerGxfsCatalogMetrics(meterRegistry, observationRegistry.getIfAvailable());
+        }
+
+        @Bean
+        public GxfsCatalogMeterBinder gxfsCatalogMeterBinder(
+                @Autowired DidWebResolverService didWebResolverService,
+                @Autowired EndpointHealthManager endpointHealthManager,
+                @Autowired @Qualifier("gxComplianceClients") Map<String, GxComplianceClient> gxComplianceClients,
+                @Autowired @Qualifier("gxNotaryClients") Map<String, GxNotaryClient> gxNotaryClients) {
+            Set<String> endpoints = new LinkedHashSet<>(gxComplianceClients.keySet());
+            endpoints.addAll(gxNotaryClients.keySet());
+            return new GxfsCatalogMeterBinder(didWebResolverService, endpointHealthManager, endpoints);
+        }
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(GxfsCatalogMetrics.class)
+    public GxfsCatalogMetrics noOpGxfsCatalogMetrics() {
+        return GxfsCatalogMetrics.NOOP;
+    }
 }
@@ -16,18 +16,22 @@
 
 package eu.merloteducation.gxfscataloglibrary.config;
 
+import eu.merloteducation.gxfscataloglibrary.models.serialization.LazyVerifiablePresentationDeserializer;
 import eu.merloteducation.gxfscataloglibrary.service.*;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
-import org.apache.commons.text.StringEscapeUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.reactive.function.client.ClientRequest;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
@@ -35,15 +39,17 @@ import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.support.WebClientAdapter;
 import org.springframework.web.service.invoker.HttpServiceProxyFactory;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.netty.http.client.HttpClient;
 
 import javax.net.ssl.SSLException;
 import java.time.Duration;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @Configuration
 @PropertySource("classpath:application.yml")
@@ -65,44 +71,118 @@ public class GxfsCatalogLibConfig {
     @Value("${gxdch-services.notary-base-uris:}")
     private List<String> notaryServiceUris;
 
+    @Value("${gxfscatalog-library.lazy-content.soft-cache:#{false}}")
+    private boolean lazyContentSoftCache;
+
     private static final int EXCHANGE_STRATEGY_SIZE = 16 * 1024 * 1024;
     private static final ExchangeStrategies EXCHANGE_STRATEGIES = ExchangeStrategies.builder()
             .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(EXCHANGE_STRATEGY_SIZE))
             .build();
 
     @Bean
-    public GxfsCatalogClient gxfsCatalogClient(@Autowired GxfsCatalogAuthService gxfsCatalogAuthService) {
-        WebClient webClient = WebClient.builder()
+    public GxfsCatalogClient gxfsCatalogClient(@Autowired GxfsCatalogAuthService gxfsCatalogAuthService,
+                                               @Autowired GxfsCatalogMetrics gxfsCatalogMetrics) {
+        HttpServiceProxyFactory httpServiceProxyFactory = HttpServiceProxyFactory
+                .builderFor(WebClientAdapter.create(getGxfsCatalogWebClient(gxfsCatalogAuthService,
+                        gxfsCatalogMetrics)))
+                .build();
+        return httpServiceProxyFactory.createClient(GxfsCatalogClient.class);
+    }
+
+    @Bean
+    public ReactiveGxfsCatalogClient reactiveGxfsCatalogClient(
+            @Autowired GxfsCatalogAuthService gxfsCatalogAuthService,
+            @Autowired GxfsCatalogMetrics gxfsCatalogMetrics) {
+        HttpServiceProxyFactory httpServiceProxyFactory = HttpServiceProxyFactory
+                .builderFor(WebClientAdapter.create(getGxfsCatalogWebClient(gxfsCatalogAuthService,
+                        gxfsCatalogMetrics)))
+                .build();
+        return httpServiceProxyFactory.createClient(ReactiveGxfsCatalogClient.class);
+    }
+
+    private WebClient getGxfsCatalogWebClient(GxfsCatalogAuthService gxfsCatalogAuthService,
+                                              GxfsCatalogMetrics gxfsCatalogMetrics) {
+        WebClient.Builder builder = WebClient.builder()
                 .exchangeStrategies(EXCHANGE_STRATEGIES)
+                .codecs(codecs -> codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(
+                        LazyVerifiablePresentationDeserializer.withSoftCaching(
+                                Jackson2ObjectMapperBuilder.json().build(), lazyContentSoftCache))))
                 .defaultHeader("Content-Type", MediaType.APPLICATION_JSON.toString())
                 .defaultHeader("Accept", MediaType.APPLICATION_JSON.toString())
                 .baseUrl(gxfsCatalogBaseUri)
-                .filter(ExchangeFilterFunction.ofRequestProcessor( // add auth header
-                        (ClientRequest request) -> Mono.just(
-                                ClientRequest.from(request)
-                                        .headers(h -> h.setBearerAuth(gxfsCatalogAuthService.getAuthToken()))
-                                        .build()
-                        )
-                ))
+                .filter(authenticate(gxfsCatalogAuthService)) // add auth header
                 .filter(ExchangeFilterFunction.ofResponseProcessor(clientResponse -> { // fix escaped nested json
                     if (clientResponse.statusCode().is2xxSuccessful()) {
-                        return clientResponse.bodyToMono(String.class)
-                                .switchIfEmpty(Mono.just(""))
-                                .flatMap(response -> {
-                            response = StringEscapeUtils.unescapeJson(response)
-                                    .replace("\"{", "{")
-                                    .replace("}\"", "}");
-                            return Mono.just(clientResponse.mutate().body(response).build());
-                        });
+                        return Mono.just(clientResponse.mutate()
+                                .body(body -> unescape(body, gxfsCatalogMetrics))
+                                .build());
                     } else {
                         return Mono.just(clientResponse);
                     }
-                }))
-                .build();
-        HttpServiceProxyFactory httpServiceProxyFactory = HttpServiceProxyFactory
-                .builderFor(WebClientAdapter.create(webClient))
+                }));
+        addMetricsFilter(builder, gxfsCatalogMetrics, "catalog", gxfsCatalogBaseUri);
+        return builder.build();
+    }
+
+    /**
+     * Add a valid access token to the requests. If the catalog rejects the token nonetheless, e.g. as the session was
+     * ended in the identity provider, the request is repeated once with a refreshed token.
+     *
+     * @param gxfsCatalogAuthService token source
+     * @return filter function
+     */
+    private static ExchangeFilterFunction authenticate(GxfsCatalogAuthService gxfsCatalogAuthService) {
+        return (request, next) -> Mono.defer(() -> {
+            String token = gxfsCatalogAuthService.getAuthToken();
+            Mono<String> validToken = gxfsCatalogAuthService.isAuthTokenExpired()
+                    ? gxfsCatalogAuthService.refreshAuthToken(token)
+                    : Mono.justOrEmpty(token);
+            return validToken
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .flatMap(usedToken -> next.exchange(withBearerAuth(request, usedToken.orElse(null)))
+                            .flatMap(response -> {
+                                if (response.statusCode().value() != HttpStatus.UNAUTHORIZED.value()
+                                        || usedToken.isEmpty()) {
+                                    return Mono.just(response);
+                                }
+                                return gxfsCatalogAuthService.refreshAuthToken(usedToken.get())
+                                        .onErrorResume(e -> response.releaseBody().then(Mono.error(e)))
+                                        .flatMap(refreshedToken -> response.releaseBody()
+                                                .then(next.exchange(withBearerAuth(request, refreshedToken))))
+                                        .switchIfEmpty(Mono.just(response));
+                            }));
+        });
+    }
+
+    private static ClientRequest withBearerAuth(ClientRequest request, String token) {
+        if (token == null) {
+            return request;
+        }
+        return ClientRequest.from(request)
+                .headers(h -> h.setBearerAuth(token))
                 .build();
-        return httpServiceProxyFactory.createClient(GxfsCatalogClient.class);
+    }
+
+    private static Flux<DataBuffer> unescape(Flux<DataBuffer> body, GxfsCatalogMetrics gxfsCatalogMetrics) {
+        if (!gxfsCatalogMetrics.isEnabled()) {
+            return NestedJsonUnescaper.unescape(body);
+        }
+        // the unescaper releases the incoming buffers, hence they are counted before
+        return NestedJsonUnescaper.unescape(body.doOnNext(buffer -> gxfsCatalogMetrics.count(
+                        GxfsCatalogMetrics.RESPONSE_FILTER_BYTES, buffer.readableByteCount(),
+                        GxfsCatalogMetrics.DIRECTION, "in")))
+                .doOnNext(buffer -> gxfsCatalogMetrics.count(
+                        GxfsCatalogMetrics.RESPONSE_FILTER_BYTES, buffer.readableByteCount(),
+                        GxfsCatalogMetrics.DIRECTION, "out"));
+    }
+
+    private static void addMetricsFilter(WebClient.Builder builder, GxfsCatalogMetrics gxfsCatalogMetrics,
+                                         String service, String endpoint) {
+        if (gxfsCatalogMetrics.isEnabled()) {
+            // added last, so the recorded duration only covers the exchange itself
+            builder.filter(gxfsCatalogMetrics.exchangeFilter(service, endpoint));
+        }
     }
 
     @Bean
@@ -133,44 +213,72 @@ public class GxfsCatalogLibConfig {
     }
 
     @Bean
-    public Map<String, GxComplianceClient> gxComplianceClients() {
-        Map<String, GxComplianceClient> clients = new HashMap<>();
+    public Map<String, GxComplianceClient> gxComplianceClients(@Autowired GxfsCatalogMetrics gxfsCatalogMetrics) {
+        Map<String, GxComplianceClient> clients = new LinkedHashMap<>();
         for (String clientUri : complianceServiceUris) {
-            HttpServiceProxyFactory httpServiceProxyFactory = getHttpServiceProxyFactory(clientUri);
+            HttpServiceProxyFactory httpServiceProxyFactory = getHttpServiceProxyFactory(clientUri, "compliance",
+                    gxfsCatalogMetrics);
             clients.put(clientUri, httpServiceProxyFactory.createClient(GxComplianceClient.class));
         }
         return clients;
     }
 
     @Bean
-    public Map<String, GxRegistryClient> gxRegistryClients() {
-        Map<String, GxRegistryClient> clients = new HashMap<>();
+    public Map<String, GxRegistryClient> gxRegistryClients(@Autowired GxfsCatalogMetrics gxfsCatalogMetrics) {
+        Map<String, GxRegistryClient> clients = new LinkedHashMap<>();
         for (String clientUri : registryServiceUris) {
-            HttpServiceProxyFactory httpServiceProxyFactory = getHttpServiceProxyFactory(clientUri);
+            HttpServiceProxyFactory httpServiceProxyFactory = getHttpServiceProxyFactory(clientUri, "registry",
+                    gxfsCatalogMetrics);
             clients.put(clientUri, httpServiceProxyFactory.createClient(GxRegistryClient.class));
         }
         return clients;
     }
 
     @Bean
-    public Map<String, GxNotaryClient> gxNotaryClients() {
-        Map<String, GxNotaryClient> clients = new HashMap<>();
+    public Map<String, GxNotaryClient> gxNotaryClients(@Autowired GxfsCatalogMetrics gxfsCatalogMetrics) {
+        Map<String, GxNotaryClient> clients = new LinkedHashMap<>();
         for (String clientUri : notaryServiceUris) {
-            HttpServiceProxyFactory httpServiceProxyFactory = getHttpServiceProxyFactory(clientUri);
+            HttpServiceProxyFactory httpServiceProxyFactory = getHttpServiceProxyFactory(clientUri, "notary",
+                    gxfsCatalogMetrics);
             clients.put(clientUri, httpServiceProxyFactory.createClient(GxNotaryClient.class));
         }
         return clients;
     }
 
-    private HttpServiceProxyFactory getHttpServiceProxyFactory(String uri) {
-        WebClient webClient = WebClient.builder()
+    @Bean
+    public Map<String, ReactiveGxComplianceClient> reactiveGxComplianceClients(
+            @Autowired GxfsCatalogMetrics gxfsCatalogMetrics) {
+        Map<String, ReactiveGxComplianceClient> clients = new LinkedHashMap<>();
+        for (String clientUri : complianceServiceUris) {
+            HttpServiceProxyFactory httpServiceProxyFactory = getHttpServiceProxyFactory(clientUri, "compliance",
+                    gxfsCatalogMetrics);
+            clients.put(clientUri, httpServiceProxyFactory.createClient(ReactiveGxComplianceClient.class));
+        }
+        return clients;
+    }
+
+    @Bean
+    public Map<String, ReactiveGxNotaryClient> reactiveGxNotaryClients(
+            @Autowired GxfsCatalogMetrics gxfsCatalogMetrics) {
+        Map<String, ReactiveGxNotaryClient> clients = new LinkedHashMap<>();
+        for (String clientUri : notaryServiceUris) {
+            HttpServiceProxyFactory httpServiceProxyFactory = getHttpServiceProxyFactory(clientUri, "notary",
+                    gxfsCatalogMetrics);
+            clients.put(clientUri, httpServiceProxyFactory.createClient(ReactiveGxNotaryClient.class));
+        }
+        return clients;
+    }
+
+    private HttpServiceProxyFactory getHttpServiceProxyFactory(String uri, String service,
+                                                               GxfsCatalogMetrics gxfsCatalogMetrics) {
+        WebClient.Builder builder = WebClient.builder()
                 .exchangeStrategies(EXCHANGE_STRATEGIES)
                 .baseUrl(uri)
                 // Set connection and read timeouts
-                .clientConnector(new ReactorClientHttpConnector(HttpClient.create().responseTimeout(Duration.ofSeconds(30))))
-                .build();
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create().responseTimeout(Duration.ofSeconds(30))));
+        addMetricsFilter(builder, gxfsCatalogMetrics, service, uri);
         return HttpServiceProxyFactory
-                .builderFor(WebClientAdapter.create(webClient))
+                .builderFor(WebClientAdapter.create(builder.build()))
                 .build();
     }
 
@@ -0,0 +1,106 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package eu.merloteducation.gxfscataloglibrary.config;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import eu.merloteducation.gxfscataloglibrary.models.client.ClearingHouseEndpointState;
+import eu.merloteducation.gxfscataloglibrary.service.DidWebResolverService;
+import eu.merloteducation.gxfscataloglibrary.service.EndpointHealthManager;
+import eu.merloteducation.gxfscataloglibrary.service.GxfsCatalogMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Binds the statistics of the did:web caches and the health of the clearing house endpoints. Endpoints that have not
+ * been contacted yet are reported as closed circuits without latency and errors.
+ */
+public class GxfsCatalogMeterBinder implements MeterBinder {
+
+    private final DidWebResolverService didWebResolverService;
+
+    private final EndpointHealthManager endpointHealthManager;
+
+    private final Collection<String> endpoints;
+
+    public GxfsCatalogMeterBinder(DidWebResolverService didWebResolverService,
+                                  EndpointHealthManager endpointHealthManager,
+                                  Collection<String> endpoints) {
+        this.didWebResolverService = didWebResolverService;
+        this.endpointHealthManager = endpointHealthManager;
+        this.endpoints = endpoints;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindCacheStats(registry, "did-document", didWebResolverService::getDidDocumentCacheStats);
+        bindCacheStats(registry, "certificate", didWebResolverService::getCertificateCacheStats);
+
+        for (String endpoint : endpoints) {
+            for (ClearingHouseEndpointState.CircuitState state : ClearingHouseEndpointState.CircuitState.values()) {
+                Gauge.builder(MicrometerGxfsCatalogMetrics.PREFIX + "endpoint.circuit.state", endpointHealthManager,
+                                manager -> getCircuitState(manager, endpoint) == state ? 1 : 0)
+                        .description("Whether the circuit of the clearing house endpoint is in the given state")
+                        .tag(GxfsCatalogMetrics.ENDPOINT, endpoint)
+                        .tag("state", state.name())
+                        .register(registry);
+            }
+            bindEndpointGauge(registry, endpoint, "endpoint.latency", "milliseconds",
+                    ClearingHouseEndpointState::getLatencyMs);
+            bindEndpointGauge(registry, endpoint, "endpoint.error.rate", null,
+                    ClearingHouseEndpointState::getErrorRate);
+        }
+    }
+
+    private static void bindCacheStats(MeterRegistry registry, String cache, Supplier<CacheStats> stats) {
+        FunctionCounter.builder(MicrometerGxfsCatalogMetrics.PREFIX + "did-web.cache.gets", stats,
+                        s -> s.get().hitCount())
+                .tag("cache", cache)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder(MicrometerGxfsCatalogMetrics.PREFIX + "did-web.cache.gets", stats,
+                        s -> s.get().missCount())
+                .tag("cache", cache)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder(MicrometerGxfsCatalogMetrics.PREFIX + "did-web.cache.evictions", stats,
+                        s -> s.get().evictionCount())
+                .tag("cache", cache)
+                .register(registry);
+    }
+
+    private void bindEndpointGauge(MeterRegistry registry, String endpoint, String name, String baseUnit,
+                                   ToDoubleFunction<ClearingHouseEndpointState> value) {
+        Gauge.builder(MicrometerGxfsCatalogMetrics.PREFIX + name, endpointHealthManager, manager -> {
+                    ClearingHouseEndpointState state = manager.getEndpointStates().get(endpoint);
+                    return state == null ? 0 : value.applyAsDouble(state);
+                })
+                .baseUnit(baseUnit)
+                .tag(GxfsCatalogMetrics.ENDPOINT, endpoint)
+                .register(registry);
+    }
+
+    private static ClearingHouseEndpointState.CircuitState getCircuitState(EndpointHealthManager manager,
+                                                                            String endpoint) {
+        ClearingHouseEndpointState state = manager.getEndpointStates().get(endpoint);
+        return state == null ? ClearingHouseEndpointState.CircuitState.CLOSED : state.getCircuitState();
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package eu.merloteducation.gxfscataloglibrary.config;
+
+import eu.merloteducation.gxfscataloglibrary.service.GxfsCatalogMetrics;
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Publishes the recordings of the library as Micrometer observations, which the observation handlers of the
+ * application turn into timers and, if tracing is set up, spans. Without an observation registry in the application
+ * context, a registry that only creates timers in the given meter registry is used. All names are prefixed with
+ * {@value #PREFIX}.
+ */
+public class MicrometerGxfsCatalogMetrics implements GxfsCatalogMetrics {
+
+    static final String PREFIX = "gxfscatalog.";
+
+    static final String SUCCESS = "success";
+
+    static final String ERROR = "error";
+
+    static final String CANCELLED = "cancelled";
+
+    static final String UNKNOWN = "unknown";
+
+    // set by the web client when a request is built from a uri template, e.g. by the http service proxies
+    private static final String URI_TEMPLATE_ATTRIBUTE = WebClient.class.getName() + ".uriTemplate";
+
+    private final MeterRegistry meterRegistry;
+
+    private final ObservationRegistry observationRegistry;
+
+    public MicrometerGxfsCatalogMetrics(MeterRegistry meterRegistry, ObservationRegistry observationRegistry) {
+        this.meterRegistry = meterRegistry;
+        if (observationRegistry == null) {
+            observationRegistry = ObservationRegistry.create();
+            observationRegistry.observationConfig()
+                    .observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+        }
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public Timing start(String name, String... tags) {
+        Observation observation = createObservation(name, tags).start();
+        Observation.Scope scope = observation.openScope();
+        return new Timing() {
+            private boolean successful;
+
+            @Override
+            public void success() {
+                successful = true;
+            }
+
+            @Override
+            public void close() {
+                scope.close();
+                observation.lowCardinalityKeyValue(OUTCOME, successful ? SUCCESS : ERROR);
+                observation.stop();
+            }
+        };
+    }
+
+    @Override
+    public <T> Mono<T> record(String name, Mono<T> call, String... tags) {
+        return Mono.defer(() -> observe(createObservation(name, tags), call, value -> SUCCESS));
+    }
+
+    @Override
+    public void count(String name, long amount, String... tags) {
+        Counter.builder(PREFIX + name)
+                .tags(sanitize(tags))
+                .register(meterRegistry)
+                .increment(amount);
+    }
+
+    @Override
+    public ExchangeFilterFunction exchangeFilter(String service, String endpoint) {
+        return (request, next) -> Mono.defer(() -> {
+            String operation = request.method().name() + " " + request.attribute(URI_TEMPLATE_ATTRIBUTE)
+                    .map(Object::toString)
+                    .orElse(request.url().getPath());
+            Observation observation = createObservation(CLIENT_REQUESTS,
+                    SERVICE, service, ENDPOINT, endpoint, OPERATION, operation);
+            return observe(observation, next.exchange(request), MicrometerGxfsCatalogMetrics::getOutcome);
+        });
+    }
+
+    private Observation createObservation(String name, String... tags) {
+        return Observation.createNotStarted(PREFIX + name, observationRegistry)
+                .lowCardinalityKeyValues(KeyValues.of(sanitize(tags)));
+    }
+
+    private static <T> Mono<T> observe(Observation observation, Mono<T> call, Function<T, String> outcomeOf) {
+        AtomicReference<String> outcome = new AtomicReference<>(SUCCESS);
+        observation.start();
+        return call
+                .doOnNext(value -> outcome.set(outcomeOf.apply(value)))
+                .doOnError(observation::error)
+                .doFinally(signal -> {
+                    if (signal == SignalType.ON_ERROR) {
+                        outcome.set(ERROR);
+                    } else if (signal == SignalType.CANCEL) {
+                        outcome.set(CANCELLED);
+                    }
+                    observation.lowCardinalityKeyValue(OUTCOME, outcome.get());
+                    observation.stop();
+                });
+    }
+
+    private static String getOutcome(ClientResponse response) {
+        if (response.statusCode().is2xxSuccessful() || response.statusCode().is3xxRedirection()) {
+            return SUCCESS;
+        }
+        return response.statusCode().is4xxClientError() ? "client_error" : "server_error";
+    }
+
+    /**
+     * Replace missing tag values, as Micrometer rejects null values.
+     *
+     * @param tags alternating tag keys and values
+     * @return alternating tag keys and values without null values
+     */
+    private static String[] sanitize(String... tags) {
+        if (tags.length % 2 != 0) {
+            throw new IllegalArgumentException("Tags must be given as pairs of keys and values");
+        }
+        String[] sanitized = tags.clone();
+        for (int i = 1; i < sanitized.length; i += 2) {
+            if (sanitized[i] == null) {
+                sanitized[i] = UNKNOWN;
+            }
+        }
+        return sanitized;
+    }
+}
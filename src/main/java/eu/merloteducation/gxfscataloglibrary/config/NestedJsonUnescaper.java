@@ -0,0 +1,313 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.config;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Streaming rewrite of catalog responses that embeds self-descriptions as escaped JSON strings, e.g.
+ * {@code "content": "{\"id\": ...}"}, into plain nested JSON, e.g. {@code "content": {"id": ...}}.
+ * The body is processed buffer by buffer with a small state machine, only the string values of the known
+ * self-description fields are unescaped and everything else is copied unchanged. Hence, memory usage is bounded by the
+ * size of the incoming buffers instead of several copies of the whole body.
+ * <p>
+ * An instance keeps the parser state of a single body and must not be shared between bodies.
+ */
+public final class NestedJsonUnescaper {
+
+    // fields of catalog responses that contain a self-description as escaped JSON
+    private static final byte[][] NESTED_JSON_FIELDS = Stream.of("content", "selfDescription")
+            .map(field -> field.getBytes(StandardCharsets.US_ASCII))
+            .toArray(byte[][]::new);
+
+    private static final int MAX_FIELD_NAME_LENGTH = Arrays.stream(NESTED_JSON_FIELDS)
+            .mapToInt(field -> field.length).max().orElse(0);
+
+    private static final int REPLACEMENT_CHARACTER = 0xFFFD;
+
+    private enum State {
+        STRUCTURE, STRING, STRING_ESCAPE, NESTED_START, NESTED, NESTED_ESCAPE, NESTED_UNICODE
+    }
+
+    private State state = State.STRUCTURE;
+
+    // field name tracking, only names that may be one of the nested fields are captured
+    private final byte[] fieldName = new byte[MAX_FIELD_NAME_LENGTH];
+    private int fieldNameLength;
+    private boolean fieldNameCaptured;
+    private boolean afterNestedFieldName;
+    private boolean expectNestedValue;
+
+    // unicode escape decoding within nested values
+    private int unicodeValue;
+    private int unicodeDigits;
+    private char pendingHighSurrogate;
+
+    private byte[] in = new byte[0];
+
+    private byte[] out = new byte[0];
+    private int outLength;
+
+    private DataBufferFactory lastFactory;
+
+    /**
+     * Rewrite the given response body. Every subscription uses a fresh parser state.
+     *
+     * @param body response body
+     * @return rewritten response body
+     */
+    public static Flux<DataBuffer> unescape(Flux<DataBuffer> body) {
+        return Flux.defer(() -> {
+            NestedJsonUnescaper unescaper = new NestedJsonUnescaper();
+            return body.map(unescaper::transform)
+                    .concatWith(Mono.fromSupplier(unescaper::finish));
+        });
+    }
+
+    /**
+     * Rewrite the next buffer of the body. The given buffer is released.
+     *
+     * @param buffer next buffer of the body
+     * @return rewritten buffer
+     */
+    public DataBuffer transform(DataBuffer buffer) {
+        try {
+            lastFactory = buffer.factory();
+            int length = buffer.readableByteCount();
+            if (in.length < length) {
+                in = new byte[length];
+            }
+            buffer.read(in, 0, length);
+            outLength = 0;
+            ensureCapacity(length + 8);
+            for (int i = 0; i < length; i++) {
+                process(in[i]);
+            }
+            return lastFactory.allocateBuffer(outLength).write(out, 0, outLength);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    /**
+     * Flush the state at the end of the body.
+     *
+     * @return remaining output or null if there is none
+     */
+    public DataBuffer finish() {
+        outLength = 0;
+        if (state == State.NESTED_START) {
+            // the body ended right after the opening quote, hand it out unchanged
+            write('"');
+        }
+        state = State.STRUCTURE;
+        if (outLength == 0 || lastFactory == null) {
+            return null;
+        }
+        return lastFactory.allocateBuffer(outLength).write(out, 0, outLength);
+    }
+
+    private void process(byte b) {
+        switch (state) {
+            case STRUCTURE -> processStructure(b);
+            case STRING -> processString(b);
+            case STRING_ESCAPE -> {
+                write(b);
+                state = State.STRING;
+            }
+            case NESTED_START -> {
+                if (b == '{') {
+                    // drop the opening quote, the value is written as plain JSON
+                    write(b);
+                    state = State.NESTED;
+                } else {
+                    // a regular string value, hand it out unchanged
+                    write('"');
+                    fieldNameCaptured = false;
+                    state = State.STRING;
+                    processString(b);
+                }
+            }
+            case NESTED -> processNested(b);
+            case NESTED_ESCAPE -> processNestedEscape(b);
+            case NESTED_UNICODE -> processNestedUnicode(b);
+        }
+    }
+
+    private void processStructure(byte b) {
+        switch (b) {
+            case ' ', '\t', '\n', '\r' -> write(b);
+            case ':' -> {
+                write(b);
+                expectNestedValue = afterNestedFieldName;
+                afterNestedFieldName = false;
+            }
+            case '"' -> {
+                if (expectNestedValue) {
+                    // hold back the quote until we know whether this string contains JSON
+                    state = State.NESTED_START;
+                } else {
+                    write(b);
+                    fieldNameLength = 0;
+                    fieldNameCaptured = true;
+                    state = State.STRING;
+                }
+                expectNestedValue = false;
+                afterNestedFieldName = false;
+            }
+            default -> {
+                write(b);
+                expectNestedValue = false;
+                afterNestedFieldName = false;
+            }
+        }
+    }
+
+    private void processString(byte b) {
+        write(b);
+        if (b == '"') {
+            afterNestedFieldName = fieldNameCaptured && isNestedJsonField();
+            state = State.STRUCTURE;
+        } else if (b == '\\') {
+            // none of the nested fields contains escapes
+            fieldNameCaptured = false;
+            state = State.STRING_ESCAPE;
+        } else if (fieldNameCaptured) {
+            if (fieldNameLength < MAX_FIELD_NAME_LENGTH) {
+                fieldName[fieldNameLength++] = b;
+            } else {
+                fieldNameCaptured = false;
+            }
+        }
+    }
+
+    private boolean isNestedJsonField() {
+        for (byte[] field : NESTED_JSON_FIELDS) {
+            if (Arrays.equals(fieldName, 0, fieldNameLength, field, 0, field.length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void processNested(byte b) {
+        if (b == '\\') {
+            state = State.NESTED_ESCAPE;
+            return;
+        }
+        flushPendingSurrogate();
+        if (b == '"') {
+            // drop the closing quote
+            state = State.STRUCTURE;
+        } else {
+            write(b);
+        }
+    }
+
+    private void processNestedEscape(byte b) {
+        if (b == 'u') {
+            unicodeValue = 0;
+            unicodeDigits = 0;
+            state = State.NESTED_UNICODE;
+            return;
+        }
+        flushPendingSurrogate();
+        switch (b) {
+            case 'b' -> write('\b');
+            case 'f' -> write('\f');
+            case 'n' -> write('\n');
+            case 'r' -> write('\r');
+            case 't' -> write('\t');
+            default -> write(b); // quote, backslash and solidus
+        }
+        state = State.NESTED;
+    }
+
+    private void processNestedUnicode(byte b) {
+        int digit = Character.digit(b, 16);
+        if (digit < 0) {
+            throw new IllegalArgumentException("Invalid unicode escape in nested JSON of catalog response.");
+        }
+        unicodeValue = unicodeValue * 16 + digit;
+        if (++unicodeDigits < 4) {
+            return;
+        }
+        state = State.NESTED;
+        char c = (char) unicodeValue;
+        if (Character.isLowSurrogate(c) && pendingHighSurrogate != 0) {
+            writeCodePoint(Character.toCodePoint(pendingHighSurrogate, c));
+            pendingHighSurrogate = 0;
+            return;
+        }
+        flushPendingSurrogate();
+        if (Character.isHighSurrogate(c)) {
+            pendingHighSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            writeCodePoint(REPLACEMENT_CHARACTER);
+        } else {
+            writeCodePoint(c);
+        }
+    }
+
+    private void flushPendingSurrogate() {
+        if (pendingHighSurrogate != 0) {
+            pendingHighSurrogate = 0;
+            writeCodePoint(REPLACEMENT_CHARACTER);
+        }
+    }
+
+    private void writeCodePoint(int codePoint) {
+        if (codePoint < 0x80) {
+            write(codePoint);
+        } else if (codePoint < 0x800) {
+            write(0xC0 | (codePoint >> 6));
+            write(0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            write(0xE0 | (codePoint >> 12));
+            write(0x80 | ((codePoint >> 6) & 0x3F));
+            write(0x80 | (codePoint & 0x3F));
+        } else {
+            write(0xF0 | (codePoint >> 18));
+            write(0x80 | ((codePoint >> 12) & 0x3F));
+            write(0x80 | ((codePoint >> 6) & 0x3F));
+            write(0x80 | (codePoint & 0x3F));
+        }
+    }
+
+    private void write(int b) {
+        if (outLength == out.length) {
+            ensureCapacity(out.length * 2 + 8);
+        }
+        out[outLength++] = (byte) b;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (out.length < capacity) {
+            byte[] grown = new byte[capacity];
+            System.arraycopy(out, 0, grown, 0, outLength);
+            out = grown;
+        }
+    }
+}
@@ -16,13 +16,23 @@
 
 package eu.merloteducation.gxfscataloglibrary.models.client;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.Map;
+
 @Getter
 @Setter
 @AllArgsConstructor
 public class QueryRequest {
     private String statement;
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private Map<String, Object> parameters;
+
+    public QueryRequest(String statement) {
+        this(statement, null);
+    }
 }
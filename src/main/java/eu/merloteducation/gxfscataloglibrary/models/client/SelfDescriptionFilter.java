@@ -0,0 +1,37 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.models.client;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Filter for listing self-descriptions of the catalog. Fields that are not set are not sent to the catalog.
+ */
+@Getter
+@Setter
+public class SelfDescriptionFilter {
+    private String uploadTimerange;
+    private String statusTimerange;
+    private String[] issuers;
+    private String[] validators;
+    private SelfDescriptionStatus[] statuses;
+    private String[] ids;
+    private String[] hashes;
+    private boolean withMeta = true;
+    private boolean withContent = true;
+}
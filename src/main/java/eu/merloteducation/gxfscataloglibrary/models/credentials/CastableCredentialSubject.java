@@ -20,6 +20,7 @@ import com.danubetech.verifiablecredentials.CredentialSubject;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.CredentialSubjectTypeRegistry;
 import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.PojoCredentialSubject;
 import foundation.identity.jsonld.JsonLDObject;
 
@@ -59,6 +60,20 @@ public class CastableCredentialSubject extends CredentialSubject {
         return objectMapper.convertValue(getJsonObject(), cls);
     }
 
+    /**
+     * Method to cast a generic CastableCredentialSubject to the POJO class registered for its type in the
+     * {@link CredentialSubjectTypeRegistry}.
+     *
+     * @return POJO form of the CastableCredentialSubject or null if its type is not registered
+     */
+    public PojoCredentialSubject toPojo() {
+        Class<? extends PojoCredentialSubject> cls = CredentialSubjectTypeRegistry.getPojoClass(getType());
+        if (cls == null) {
+            return null;
+        }
+        return toPojo(cls);
+    }
+
     /**
      * Method to create a generic CastableCredentialSubject from a given PojoCredentialSubject, e.g. for
      * storing it in a catalog.
@@ -19,16 +19,21 @@ package eu.merloteducation.gxfscataloglibrary.models.credentials;
 import com.danubetech.verifiablecredentials.VerifiableCredential;
 import com.danubetech.verifiablecredentials.VerifiablePresentation;
 import com.fasterxml.jackson.annotation.JsonCreator;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.CredentialSubjectTypeRegistry;
 import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.PojoCredentialSubject;
 import foundation.identity.jsonld.JsonLDObject;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ExtendedVerifiablePresentation extends VerifiablePresentation {
 
+    /**
+     * Credentials and credential subjects of the VP, built on first access and dropped whenever the credentials are
+     * replaced.
+     */
+    private volatile CredentialIndex credentialIndex;
+
     @JsonCreator
     public ExtendedVerifiablePresentation() {
     }
@@ -44,29 +49,7 @@ public class ExtendedVerifiablePresentation extends VerifiablePresentation {
      * @return list of VCs
      */
     public List<ExtendedVerifiableCredential> getVerifiableCredentials() {
-        // get credential object
-        Object credentials = getJsonObject().get(VerifiableCredential.DEFAULT_JSONLD_PREDICATE);
-        if (credentials == null) {
-            return Collections.emptyList();
-        }
-
-        // check if we have multiple credentials
-        if (credentials instanceof List<?> credentialList) {
-            return credentialList.stream()
-                    .filter(Map.class::isInstance)
-                    .map(c -> {
-                        try {
-                            return ExtendedVerifiableCredential.fromMap((Map<String, Object>) c);
-                        } catch (Exception ignored) {
-                            return null;
-                        }
-                    })
-                    .filter(Objects::nonNull)
-                    .toList();
-        } else if (credentials instanceof Map<?, ?> credMap) {
-            return List.of(ExtendedVerifiableCredential.fromMap((Map<String, Object>) credMap));
-        }
-        return Collections.emptyList();
+        return getCredentialIndex().credentials;
     }
 
     /**
@@ -80,34 +63,39 @@ public class ExtendedVerifiablePresentation extends VerifiablePresentation {
                 credentials.stream().map(JsonLDObject::getJsonObject).toList());
     }
 
+    @Override
+    public void setJsonObjectKeyValue(String key, Object value) {
+        super.setJsonObjectKeyValue(key, value);
+        if (VerifiableCredential.DEFAULT_JSONLD_PREDICATE.equals(key)) {
+            credentialIndex = null;
+        }
+    }
+
     /**
      * Allows for easy access of the credential subjects within the VP in the form of plain old java objects (POJO)
      * for convenience. The method will check all VCs within the VP for their CS and return them as POJO if
      * they match the given type.
+     * The POJOs are converted once per type and shared between calls until the credentials of the VP are replaced,
+     * hence they should not be modified. Changes made to the credential maps in place are not picked up.
      *
      * @param type type class to search for
      * @return list of pojo credential subjects
      * @param <T> type of the class to search for must extend pojo credential subjects and have a TYPE attribute
      */
+    @SuppressWarnings("unchecked")
     public <T extends PojoCredentialSubject> List<T> findAllCredentialSubjectsByType(Class<T> type) {
-        String typeString;
-        try {
-            typeString = (String) type.getField("TYPE").get(null);
-        } catch (NoSuchFieldException | IllegalAccessException ignored) {
+        String typeString = CredentialSubjectTypeRegistry.getType(type);
+        if (typeString == null) {
             return Collections.emptyList();
         }
 
-        return getVerifiableCredentials().stream()
-                .map(vc -> {
-                    try {
-                        return vc.getCredentialSubject();
-                    } catch (Exception e) {
-                        return null;
-                    }
-                })
-                .filter(Objects::nonNull)
-                .filter(cs -> cs.getType().equals(typeString))
-                .map(cs -> cs.toPojo(type)).toList();
+        CredentialIndex index = getCredentialIndex();
+        List<CastableCredentialSubject> credentialSubjects = index.subjectsByType.get(typeString);
+        if (credentialSubjects == null) {
+            return Collections.emptyList();
+        }
+        return (List<T>) index.pojosByType.computeIfAbsent(type, t -> credentialSubjects.stream()
+                .map(cs -> cs.toPojo(type)).toList());
     }
 
     /**
@@ -130,4 +118,65 @@ public class ExtendedVerifiablePresentation extends VerifiablePresentation {
     public static ExtendedVerifiablePresentation fromMap(Map<String, Object> jsonObject) {
         return new ExtendedVerifiablePresentation(jsonObject);
     }
+
+    private CredentialIndex getCredentialIndex() {
+        Object credentials = getJsonObject().get(VerifiableCredential.DEFAULT_JSONLD_PREDICATE);
+        CredentialIndex index = credentialIndex;
+        // also rebuild if the credentials were put into the json object directly instead of using the setters
+        if (index == null || index.source != credentials) {
+            index = new CredentialIndex(credentials, readVerifiableCredentials(credentials));
+            credentialIndex = index;
+        }
+        return index;
+    }
+
+    private static List<ExtendedVerifiableCredential> readVerifiableCredentials(Object credentials) {
+        if (credentials == null) {
+            return Collections.emptyList();
+        }
+
+        // check if we have multiple credentials
+        if (credentials instanceof List<?> credentialList) {
+            return credentialList.stream()
+                    .filter(Map.class::isInstance)
+                    .map(c -> {
+                        try {
+                            return ExtendedVerifiableCredential.fromMap((Map<String, Object>) c);
+                        } catch (Exception ignored) {
+                            return null;
+                        }
+                    })
+                    .filter(Objects::nonNull)
+                    .toList();
+        } else if (credentials instanceof Map<?, ?> credMap) {
+            return List.of(ExtendedVerifiableCredential.fromMap((Map<String, Object>) credMap));
+        }
+        return Collections.emptyList();
+    }
+
+    private static final class CredentialIndex {
+        private final Object source;
+
+        private final List<ExtendedVerifiableCredential> credentials;
+
+        private final Map<String, List<CastableCredentialSubject>> subjectsByType = new HashMap<>();
+
+        private final Map<Class<?>, List<?>> pojosByType = new ConcurrentHashMap<>();
+
+        private CredentialIndex(Object source, List<ExtendedVerifiableCredential> credentials) {
+            this.source = source;
+            this.credentials = credentials;
+            for (ExtendedVerifiableCredential vc : credentials) {
+                CastableCredentialSubject cs;
+                try {
+                    cs = vc.getCredentialSubject();
+                } catch (Exception e) {
+                    cs = null;
+                }
+                if (cs != null && cs.getType() != null) {
+                    subjectsByType.computeIfAbsent(cs.getType(), t -> new ArrayList<>()).add(cs);
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package eu.merloteducation.gxfscataloglibrary.models.credentials;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import eu.merloteducation.gxfscataloglibrary.models.serialization.LazyVerifiablePresentationDeserializer;
+import eu.merloteducation.gxfscataloglibrary.models.serialization.LazyVerifiablePresentationSerializer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
+
+/**
+ * Verifiable presentation that is kept as compact JSON bytes and only parsed on first access, so list responses of
+ * the catalog do not hold a map representation of every presentation while callers only read the metadata.
+ * Once parsed, the presentation is kept and the bytes are dropped, hence changes made to the presentation are
+ * retained. If soft caching is enabled, the bytes are kept instead and the parsed presentation is only softly
+ * referenced, so it may be parsed again after memory ran low. Changes made to the presentation may then be lost,
+ * i.e. it should be treated as read-only.
+ */
+@JsonSerialize(using = LazyVerifiablePresentationSerializer.class)
+@JsonDeserialize(using = LazyVerifiablePresentationDeserializer.class)
+public final class LazyVerifiablePresentation {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final boolean softCaching;
+
+    private byte[] json;
+
+    private ExtendedVerifiablePresentation presentation;
+
+    private SoftReference<ExtendedVerifiablePresentation> softPresentation;
+
+    private LazyVerifiablePresentation(byte[] json, ExtendedVerifiablePresentation presentation,
+                                       boolean softCaching) {
+        this.json = json;
+        this.presentation = presentation;
+        this.softCaching = softCaching;
+    }
+
+    /**
+     * Wrap an already parsed presentation.
+     *
+     * @param presentation presentation to wrap
+     * @return wrapper returning the given presentation
+     */
+    public static LazyVerifiablePresentation of(ExtendedVerifiablePresentation presentation) {
+        return new LazyVerifiablePresentation(null, presentation, false);
+    }
+
+    /**
+     * Wrap the JSON of a presentation that is parsed on first access.
+     *
+     * @param json UTF-8 encoded JSON of the presentation, must not be modified afterwards
+     * @return wrapper parsing the given JSON on first access
+     */
+    public static LazyVerifiablePresentation fromJson(byte[] json) {
+        return fromJson(json, false);
+    }
+
+    /**
+     * Wrap the JSON of a presentation that is parsed on first access.
+     *
+     * @param json UTF-8 encoded JSON of the presentation, must not be modified afterwards
+     * @param softCaching true to keep the JSON and only softly reference the parsed presentation
+     * @return wrapper parsing the given JSON on first access
+     */
+    public static LazyVerifiablePresentation fromJson(byte[] json, boolean softCaching) {
+        return new LazyVerifiablePresentation(json, null, softCaching);
+    }
+
+    /**
+     * Return the presentation, parsing it if necessary.
+     *
+     * @return presentation
+     */
+    public synchronized ExtendedVerifiablePresentation get() {
+        if (presentation != null) {
+            return presentation;
+        }
+        ExtendedVerifiablePresentation parsed = softPresentation == null ? null : softPresentation.get();
+        if (parsed != null) {
+            return parsed;
+        }
+
+        try {
+            parsed = objectMapper.readValue(json, ExtendedVerifiablePresentation.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to parse verifiable presentation", e);
+        }
+        if (softCaching) {
+            softPresentation = new SoftReference<>(parsed);
+        } else {
+            presentation = parsed;
+            json = null;
+        }
+        return parsed;
+    }
+
+    /**
+     * Return whether the presentation is held in parsed form.
+     *
+     * @return true if the presentation does not need to be parsed on access
+     */
+    public synchronized boolean isParsed() {
+        return presentation != null || (softPresentation != null && softPresentation.get() != null);
+    }
+
+    /**
+     * Return the JSON the presentation was read from as long as it is not held in parsed form, so it can be written
+     * without parsing it. A parsed presentation may have been changed, hence its JSON is not returned.
+     *
+     * @return UTF-8 encoded JSON that must not be modified, or null if the presentation is held in parsed form
+     */
+    public synchronized byte[] getUnparsedJson() {
+        return isParsed() ? null : json;
+    }
+}
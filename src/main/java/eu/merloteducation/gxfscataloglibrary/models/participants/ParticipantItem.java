@@ -16,7 +16,11 @@
 
 package eu.merloteducation.gxfscataloglibrary.models.participants;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiablePresentation;
+import eu.merloteducation.gxfscataloglibrary.models.credentials.LazyVerifiablePresentation;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -26,5 +30,21 @@ public class ParticipantItem {
     private String id;
     private String name;
     private PublicKey publicKey;
-    private ExtendedVerifiablePresentation selfDescription;
+    /**
+     * Self-description of the participant, only parsed from its JSON on first access.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @JsonProperty("selfDescription")
+    private LazyVerifiablePresentation selfDescription;
+
+    @JsonIgnore
+    public ExtendedVerifiablePresentation getSelfDescription() {
+        return selfDescription == null ? null : selfDescription.get();
+    }
+
+    @JsonIgnore
+    public void setSelfDescription(ExtendedVerifiablePresentation selfDescription) {
+        this.selfDescription = selfDescription == null ? null : LazyVerifiablePresentation.of(selfDescription);
+    }
 }
@@ -0,0 +1,164 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package eu.merloteducation.gxfscataloglibrary.models.selfdescriptions;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AssignableTypeFilter;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the {@link PojoCredentialSubject} classes and their TYPE and CONTEXT constants. The classes of the
+ * library are registered once when the registry is first used, classes of other modules can be added with
+ * {@link #register(Class)} or {@link #registerPackage(String)}. The constants are read reflectively once per class,
+ * lookups are plain map accesses afterwards.
+ */
+public final class CredentialSubjectTypeRegistry {
+
+    private static final ClassValue<Metadata> METADATA = new ClassValue<>() {
+        @Override
+        protected Metadata computeValue(Class<?> type) {
+            return readMetadata(type);
+        }
+    };
+
+    private static final Map<String, Class<? extends PojoCredentialSubject>> CLASSES_BY_TYPE =
+            new ConcurrentHashMap<>();
+
+    static {
+        registerPackage(PojoCredentialSubject.class.getPackageName());
+    }
+
+    private record Metadata(String type, Map<String, String> context) {
+    }
+
+    private CredentialSubjectTypeRegistry() {
+    }
+
+    /**
+     * Register a credential subject class, so its type can be resolved to the class. A class registered for a type
+     * that is already known replaces the previous one.
+     *
+     * @param pojoClass class to register, must declare a TYPE constant
+     */
+    public static void register(Class<? extends PojoCredentialSubject> pojoClass) {
+        if (!declaresConstant(pojoClass, "TYPE")) {
+            throw new IllegalArgumentException(pojoClass.getName() + " does not declare a TYPE constant");
+        }
+        CLASSES_BY_TYPE.put(METADATA.get(pojoClass).type(), pojoClass);
+    }
+
+    /**
+     * Register all concrete credential subject classes declaring a TYPE constant within the given package and its
+     * sub-packages.
+     *
+     * @param basePackage package to scan
+     */
+    public static void registerPackage(String basePackage) {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter(new AssignableTypeFilter(PojoCredentialSubject.class));
+        ClassLoader classLoader = CredentialSubjectTypeRegistry.class.getClassLoader();
+        for (BeanDefinition candidate : scanner.findCandidateComponents(basePackage)) {
+            Class<?> candidateClass = ClassUtils.resolveClassName(candidate.getBeanClassName(), classLoader);
+            if (candidateClass != PojoCredentialSubject.class && declaresConstant(candidateClass, "TYPE")) {
+                register(candidateClass.asSubclass(PojoCredentialSubject.class));
+            }
+        }
+    }
+
+    /**
+     * Return the class registered for the given type.
+     *
+     * @param type credential subject type, e.g. gx:LegalParticipant
+     * @return registered class or null if the type is unknown
+     */
+    public static Class<? extends PojoCredentialSubject> getPojoClass(String type) {
+        return type == null ? null : CLASSES_BY_TYPE.get(type);
+    }
+
+    /**
+     * Return the TYPE constant of the given class, which does not need to be registered.
+     *
+     * @param pojoClass credential subject class
+     * @return type or null if the class has no TYPE constant
+     */
+    public static String getType(Class<?> pojoClass) {
+        return METADATA.get(pojoClass).type();
+    }
+
+    /**
+     * Return the JSON-LD context of the given class, i.e. the CONTEXT constants of the class and its superclasses
+     * merged, where the constants of subclasses take precedence.
+     *
+     * @param pojoClass credential subject class
+     * @return unmodifiable merged context
+     */
+    public static Map<String, String> getContext(Class<?> pojoClass) {
+        return METADATA.get(pojoClass).context();
+    }
+
+    /**
+     * Return all registered types and their classes.
+     *
+     * @return unmodifiable copy of the registered types
+     */
+    public static Map<String, Class<? extends PojoCredentialSubject>> getRegisteredTypes() {
+        return Map.copyOf(CLASSES_BY_TYPE);
+    }
+
+    private static Metadata readMetadata(Class<?> pojoClass) {
+        String type = null;
+        try {
+            if (pojoClass.getField("TYPE").get(null) instanceof String typeString) {
+                type = typeString;
+            }
+        } catch (NoSuchFieldException | IllegalAccessException | NullPointerException ignored) {
+            // no (static) type constant
+        }
+
+        Deque<Class<?>> hierarchy = new ArrayDeque<>();
+        for (Class<?> c = pojoClass; c != null && c != Object.class; c = c.getSuperclass()) {
+            hierarchy.push(c);
+        }
+        Map<String, String> context = new LinkedHashMap<>();
+        for (Class<?> c : hierarchy) {
+            if (declaresConstant(c, "CONTEXT")) {
+                try {
+                    if (c.getDeclaredField("CONTEXT").get(null) instanceof Map<?, ?> map) {
+                        map.forEach((key, value) -> context.put(String.valueOf(key), String.valueOf(value)));
+                    }
+                } catch (NoSuchFieldException | IllegalAccessException ignored) {
+                    // not accessible
+                }
+            }
+        }
+        return new Metadata(type, Collections.unmodifiableMap(context));
+    }
+
+    private static boolean declaresConstant(Class<?> c, String name) {
+        try {
+            Field field = c.getDeclaredField(name);
+            return Modifier.isStatic(field.getModifiers()) && Modifier.isPublic(field.getModifiers());
+        } catch (NoSuchFieldException e) {
+            return false;
+        }
+    }
+}
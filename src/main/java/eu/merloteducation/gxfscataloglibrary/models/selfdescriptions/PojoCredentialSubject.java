@@ -43,14 +43,26 @@ public class PojoCredentialSubject {
     @Getter(AccessLevel.NONE)
     public static final Map<String, String> CONTEXT = Map.of();
 
+    /**
+     * Type of the credential subject. Subclasses only need to declare a TYPE constant, which is resolved via the
+     * {@link CredentialSubjectTypeRegistry}.
+     *
+     * @return type of the credential subject
+     */
     @JsonProperty("type")
     public String getType() {
-        return TYPE;
+        return CredentialSubjectTypeRegistry.getType(getClass());
     }
 
+    /**
+     * JSON-LD context of the credential subject. Subclasses only need to declare a CONTEXT constant, the constants
+     * of the class hierarchy are merged via the {@link CredentialSubjectTypeRegistry}.
+     *
+     * @return context of the credential subject
+     */
     @JsonProperty("@context")
     public Map<String, String> getContext() {
-        return CONTEXT;
+        return CredentialSubjectTypeRegistry.getContext(getClass());
     }
 
 }
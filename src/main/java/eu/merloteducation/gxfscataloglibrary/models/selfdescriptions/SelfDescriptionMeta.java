@@ -16,7 +16,11 @@
 
 package eu.merloteducation.gxfscataloglibrary.models.selfdescriptions;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiablePresentation;
+import eu.merloteducation.gxfscataloglibrary.models.credentials.LazyVerifiablePresentation;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -26,7 +30,13 @@ import java.util.List;
 @Setter
 public class SelfDescriptionMeta {
     private String expirationTime;
-    private ExtendedVerifiablePresentation content;
+    /**
+     * Content of the self-description, only parsed from its JSON on first access.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @JsonProperty("content")
+    private LazyVerifiablePresentation content;
     private List<String> validators;
     private String subjectId;
     private String sdHash;
@@ -36,4 +46,14 @@ public class SelfDescriptionMeta {
     private List<String> validatorDids;
     private String uploadDatetime;
     private String statusDatetime;
+
+    @JsonIgnore
+    public ExtendedVerifiablePresentation getContent() {
+        return content == null ? null : content.get();
+    }
+
+    @JsonIgnore
+    public void setContent(ExtendedVerifiablePresentation content) {
+        this.content = content == null ? null : LazyVerifiablePresentation.of(content);
+    }
 }
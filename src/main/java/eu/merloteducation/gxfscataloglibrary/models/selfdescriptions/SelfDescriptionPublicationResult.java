@@ -0,0 +1,36 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.models.selfdescriptions;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Result of publishing a single self-description as part of a bulk publication. Either the catalog metadata of
+ * the created self-description or the error that prevented its publication is set.
+ */
+@Getter
+@Setter
+public class SelfDescriptionPublicationResult {
+    private long index;
+    private SelfDescriptionMeta meta;
+    private Exception error;
+
+    public boolean isSuccessful() {
+        return error == null;
+    }
+}
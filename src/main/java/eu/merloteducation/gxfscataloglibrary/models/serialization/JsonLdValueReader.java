@@ -0,0 +1,131 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package eu.merloteducation.gxfscataloglibrary.models.serialization;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Reads JSON-LD values, i.e. either plain scalars or value objects like {"@type": "xsd:string", "@value": "abc"},
+ * directly from the token stream of the parser. Apart from the resulting String no objects are allocated, in
+ * particular no tree is built for the value. Values of unexpected shape result in null or 0 like reading the
+ * textValue or intValue of the corresponding tree node did.
+ */
+final class JsonLdValueReader {
+
+    private static final String TYPE = "@type";
+
+    private static final String VALUE = "@value";
+
+    private JsonLdValueReader() {
+    }
+
+    /**
+     * Read a text value.
+     *
+     * @param parser parser positioned at the start of the value
+     * @param expectedType type of value objects whose value is returned, e.g. xsd:string
+     * @return text of a plain string or of a value object of the expected type, null otherwise
+     * @throws IOException on parsing errors
+     */
+    static String readText(JsonParser parser, String expectedType) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        if (token != JsonToken.START_OBJECT && token != JsonToken.FIELD_NAME) {
+            parser.skipChildren();
+            return null;
+        }
+
+        boolean typeMatches = false;
+        String value = null;
+        for (token = nextField(parser, token); token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            String name = parser.currentName();
+            JsonToken valueToken = parser.nextToken();
+            if (TYPE.equals(name)) {
+                typeMatches = valueToken == JsonToken.VALUE_STRING && textEquals(parser, expectedType);
+            } else if (VALUE.equals(name) && valueToken == JsonToken.VALUE_STRING) {
+                value = parser.getText();
+            }
+            parser.skipChildren();
+        }
+        return typeMatches ? value : null;
+    }
+
+    /**
+     * Read an integer value.
+     *
+     * @param parser parser positioned at the start of the value
+     * @param expectedType type of value objects whose value is returned, e.g. xsd:integer
+     * @return number, truncated to an int, of a plain number or of a value object of the expected type, 0 otherwise
+     * @throws IOException on parsing errors
+     */
+    static int readInt(JsonParser parser, String expectedType) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token != null && token.isNumeric()) {
+            return intValue(parser);
+        }
+        if (token != JsonToken.START_OBJECT && token != JsonToken.FIELD_NAME) {
+            parser.skipChildren();
+            return 0;
+        }
+
+        boolean typeMatches = false;
+        int value = 0;
+        for (token = nextField(parser, token); token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            String name = parser.currentName();
+            JsonToken valueToken = parser.nextToken();
+            if (TYPE.equals(name)) {
+                typeMatches = valueToken == JsonToken.VALUE_STRING && textEquals(parser, expectedType);
+            } else if (VALUE.equals(name) && valueToken.isNumeric()) {
+                value = intValue(parser);
+            }
+            parser.skipChildren();
+        }
+        return typeMatches ? value : 0;
+    }
+
+    private static JsonToken nextField(JsonParser parser, JsonToken token) throws IOException {
+        // deserializers may be called on the start of the object or, e.g. for buffered content, on its first field
+        return token == JsonToken.START_OBJECT ? parser.nextToken() : token;
+    }
+
+    private static int intValue(JsonParser parser) throws IOException {
+        if (parser.getNumberType() == JsonParser.NumberType.INT) {
+            return parser.getIntValue();
+        }
+        // narrowing like JsonNode.intValue() instead of failing on overflow
+        return parser.getNumberValue().intValue();
+    }
+
+    private static boolean textEquals(JsonParser parser, String expected) throws IOException {
+        int length = parser.getTextLength();
+        if (length != expected.length()) {
+            return false;
+        }
+        char[] text = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        for (int i = 0; i < length; i++) {
+            if (text[offset + i] != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
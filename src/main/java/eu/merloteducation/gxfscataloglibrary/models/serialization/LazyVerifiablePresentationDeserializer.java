@@ -0,0 +1,79 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package eu.merloteducation.gxfscataloglibrary.models.serialization;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import eu.merloteducation.gxfscataloglibrary.models.credentials.LazyVerifiablePresentation;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Copies the tokens of a verifiable presentation into compact JSON bytes without building the map representation
+ * of the presentation. Presentations that are still embedded as JSON string are kept as they are.
+ * Soft caching of the parsed presentations is enabled per object mapper by setting the
+ * {@link #SOFT_CACHING_ATTRIBUTE} attribute, see {@link #withSoftCaching(ObjectMapper, boolean)}.
+ */
+public class LazyVerifiablePresentationDeserializer extends StdDeserializer<LazyVerifiablePresentation> {
+
+    public static final String SOFT_CACHING_ATTRIBUTE = LazyVerifiablePresentationDeserializer.class.getName()
+            + ".softCaching";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    public LazyVerifiablePresentationDeserializer() {
+        this(null);
+    }
+
+    public LazyVerifiablePresentationDeserializer(Class<?> vc) {
+        super(vc);
+    }
+
+    @Override
+    public LazyVerifiablePresentation deserialize(JsonParser jsonParser,
+                                                  DeserializationContext deserializationContext)
+            throws IOException {
+        boolean softCaching = Boolean.TRUE.equals(deserializationContext.getAttribute(SOFT_CACHING_ATTRIBUTE));
+        if (jsonParser.currentToken() == JsonToken.VALUE_STRING) {
+            return LazyVerifiablePresentation.fromJson(jsonParser.getText().getBytes(StandardCharsets.UTF_8),
+                    softCaching);
+        }
+        try (ByteArrayBuilder json = new ByteArrayBuilder();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(json)) {
+            generator.copyCurrentStructure(jsonParser);
+            generator.flush();
+            return LazyVerifiablePresentation.fromJson(json.toByteArray(), softCaching);
+        }
+    }
+
+    /**
+     * Configure whether presentations read by the given mapper only softly reference their parsed form.
+     *
+     * @param mapper mapper to configure
+     * @param softCaching true to enable soft caching
+     * @return the given mapper
+     */
+    public static ObjectMapper withSoftCaching(ObjectMapper mapper, boolean softCaching) {
+        mapper.setConfig(mapper.getDeserializationConfig().withAttribute(SOFT_CACHING_ATTRIBUTE, softCaching));
+        return mapper;
+    }
+}
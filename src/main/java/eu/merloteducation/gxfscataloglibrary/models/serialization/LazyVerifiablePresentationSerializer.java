@@ -0,0 +1,48 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package eu.merloteducation.gxfscataloglibrary.models.serialization;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import eu.merloteducation.gxfscataloglibrary.models.credentials.LazyVerifiablePresentation;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class LazyVerifiablePresentationSerializer extends StdSerializer<LazyVerifiablePresentation> {
+
+    public LazyVerifiablePresentationSerializer() {
+        this(null);
+    }
+
+    public LazyVerifiablePresentationSerializer(Class<LazyVerifiablePresentation> t) {
+        super(t);
+    }
+
+    @Override
+    public void serialize(LazyVerifiablePresentation value, JsonGenerator jsonGenerator,
+                          SerializerProvider serializerProvider) throws IOException {
+        byte[] json = value.getUnparsedJson();
+        if (json != null) {
+            // not parsed yet, hence there are no changes and the JSON it was read from can be written as it is
+            jsonGenerator.writeRawValue(new String(json, StandardCharsets.UTF_8));
+            return;
+        }
+        // serialize the parsed form, so changes made to the presentation are reflected
+        serializerProvider.defaultSerializeValue(value.get(), jsonGenerator);
+    }
+}
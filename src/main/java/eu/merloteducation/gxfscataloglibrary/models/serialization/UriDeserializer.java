@@ -18,7 +18,6 @@ package eu.merloteducation.gxfscataloglibrary.models.serialization;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 
 import java.io.IOException;
@@ -36,11 +35,6 @@ public class UriDeserializer extends StdDeserializer<String> {
     @Override
     public String deserialize(JsonParser jsonParser, DeserializationContext deserializationContext)
             throws IOException {
-        JsonNode node = jsonParser.getCodec().readTree(jsonParser);
-        if (node.get("@type") != null &&
-                node.get("@type").textValue().equals("xsd:anyURI")) {
-            return node.get("@value").textValue();
-        }
-        return node.textValue();
+        return JsonLdValueReader.readText(jsonParser, "xsd:anyURI");
     }
 }
@@ -0,0 +1,272 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import com.apicatalog.jsonld.JsonLdError;
+import com.apicatalog.jsonld.JsonLdErrorCode;
+import com.apicatalog.jsonld.document.Document;
+import com.apicatalog.jsonld.document.JsonDocument;
+import com.apicatalog.jsonld.http.media.MediaType;
+import com.apicatalog.jsonld.loader.DocumentLoader;
+import com.apicatalog.jsonld.loader.DocumentLoaderOptions;
+import com.danubetech.verifiablecredentials.jsonld.VerifiableCredentialContexts;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import foundation.identity.jsonld.ConfigurableDocumentLoader;
+import io.netty.util.internal.StringUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JSON-LD document loader used for canonicalization during signing and verification of credentials.
+ * Contexts are preloaded from the contexts bundled with the credential library, the Gaia-X trustframework, MERLOT and
+ * vcard contexts bundled with this library, an optional classpath index and an optional local directory and kept
+ * parsed in memory. Contexts that are not known locally are only fetched if remote loading was enabled, once for all
+ * concurrent requests, and are afterward served from memory, with refreshes happening in the background.
+ */
+@Service
+@Slf4j
+public class CachedDocumentLoader implements DocumentLoader {
+
+    static final String CLASSPATH_CONTEXT_DIRECTORY = "jsonld-contexts/";
+
+    static final String CONTEXT_INDEX_FILE = "index.json";
+
+    enum ContextSource {
+        BUILTIN,
+        CLASSPATH,
+        DIRECTORY,
+        REMOTE
+    }
+
+    private record CachedContext(Document document, ContextSource source, Instant loadedAt) {
+    }
+
+    private final Map<URI, CachedContext> contexts = new ConcurrentHashMap<>();
+
+    private final Map<URI, CompletableFuture<Document>> pendingFetches = new ConcurrentHashMap<>();
+
+    private final String contextDirectory;
+
+    private final boolean allowRemote;
+
+    private final long refreshIntervalMs;
+
+    private final ObjectMapper objectMapper;
+
+    private final DocumentLoader remoteLoader;
+
+    @Autowired
+    public CachedDocumentLoader(@Value("${gxfscatalog-library.jsonld-contexts.directory:#{null}}") String contextDirectory,
+                                @Value("${gxfscatalog-library.jsonld-contexts.allow-remote:#{false}}") boolean allowRemote,
+                                @Value("${gxfscatalog-library.jsonld-contexts.refresh-interval-ms:#{3600000}}") long refreshIntervalMs,
+                                ObjectMapper objectMapper) {
+        this(contextDirectory, allowRemote, refreshIntervalMs, objectMapper, createRemoteLoader(allowRemote));
+    }
+
+    CachedDocumentLoader(String contextDirectory, boolean allowRemote, long refreshIntervalMs,
+                         ObjectMapper objectMapper, DocumentLoader remoteLoader) {
+        this.contextDirectory = contextDirectory;
+        this.allowRemote = allowRemote;
+        this.refreshIntervalMs = refreshIntervalMs;
+        this.objectMapper = objectMapper;
+        this.remoteLoader = remoteLoader;
+
+        VerifiableCredentialContexts.CONTEXTS.forEach((uri, document) ->
+                contexts.put(uri, new CachedContext(document, ContextSource.BUILTIN, Instant.now())));
+        loadLocalContexts();
+    }
+
+    /**
+     * Serve the requested context from memory. If the context is not known locally and remote loading is allowed,
+     * it is fetched once and cached for all subsequent requests. Concurrent requests for the same missing context
+     * wait for a single fetch.
+     *
+     * @param url url of the requested context
+     * @param options loader options
+     * @return parsed context document
+     * @throws JsonLdError the context is not available
+     */
+    @Override
+    public Document loadDocument(URI url, DocumentLoaderOptions options) throws JsonLdError {
+        CachedContext cached = lookup(url);
+        if (cached != null) {
+            return cached.document();
+        }
+
+        if (!allowRemote) {
+            throw new JsonLdError(JsonLdErrorCode.LOADING_DOCUMENT_FAILED,
+                    "Context " + url + " is not available locally and remote loading is disabled.");
+        }
+
+        URI key = stripFragment(url);
+        CompletableFuture<Document> fetch = new CompletableFuture<>();
+        CompletableFuture<Document> pending = pendingFetches.putIfAbsent(key, fetch);
+        if (pending != null) {
+            return awaitFetch(url, pending);
+        }
+        try {
+            // another thread may have finished fetching between the lookup and registering the fetch
+            cached = lookup(url);
+            Document document = cached != null ? cached.document() : fetchRemote(url, key, options);
+            fetch.complete(document);
+            return document;
+        } catch (JsonLdError | RuntimeException e) {
+            fetch.completeExceptionally(e);
+            throw e;
+        } finally {
+            pendingFetches.remove(key, fetch);
+        }
+    }
+
+    private Document fetchRemote(URI url, URI key, DocumentLoaderOptions options) throws JsonLdError {
+        log.info("Context {} is not available locally, fetching it once.", url);
+        Document document = remoteLoader.loadDocument(url, options);
+        contexts.put(key, new CachedContext(document, ContextSource.REMOTE, Instant.now()));
+        return document;
+    }
+
+    private static Document awaitFetch(URI url, CompletableFuture<Document> pending) throws JsonLdError {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof JsonLdError jsonLdError) {
+                throw jsonLdError;
+            }
+            throw new JsonLdError(JsonLdErrorCode.LOADING_DOCUMENT_FAILED,
+                    "Failed to fetch context " + url + ": " + e.getCause().getMessage());
+        }
+    }
+
+    private static DocumentLoader createRemoteLoader(boolean allowRemote) {
+        ConfigurableDocumentLoader loader = new ConfigurableDocumentLoader();
+        loader.setEnableHttp(allowRemote);
+        loader.setEnableHttps(allowRemote);
+        return loader;
+    }
+
+    /**
+     * Periodically reload the local contexts and refresh remotely fetched contexts whose time to live has passed.
+     * This never happens on the signing path, hence slow context hosts do not affect signing latency.
+     */
+    @Scheduled(fixedDelayString = "${gxfscatalog-library.jsonld-contexts.refresh-interval-ms:3600000}",
+            initialDelayString = "${gxfscatalog-library.jsonld-contexts.refresh-interval-ms:3600000}")
+    public void refreshContexts() {
+        loadLocalContexts();
+
+        Instant expiry = Instant.now().minusMillis(refreshIntervalMs);
+        for (Map.Entry<URI, CachedContext> entry : contexts.entrySet()) {
+            if (entry.getValue().source() != ContextSource.REMOTE || entry.getValue().loadedAt().isAfter(expiry)) {
+                continue;
+            }
+            try {
+                Document document = remoteLoader.loadDocument(entry.getKey(), new DocumentLoaderOptions());
+                contexts.put(entry.getKey(), new CachedContext(document, ContextSource.REMOTE, Instant.now()));
+            } catch (JsonLdError e) {
+                log.warn("Failed to refresh context {}, keeping previous version: {}", entry.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Check whether the given context is currently held in memory.
+     *
+     * @param url url of the context
+     * @return true if the context can be served without network access
+     */
+    public boolean isCached(URI url) {
+        return lookup(url) != null;
+    }
+
+    private CachedContext lookup(URI url) {
+        CachedContext cached = contexts.get(url);
+        return cached != null ? cached : contexts.get(stripFragment(url));
+    }
+
+    private void loadLocalContexts() {
+        // classpath contexts are loaded first so that the local directory can override them, every classpath entry
+        // may provide an index, e.g. the one bundled with this library and one of the application
+        Resource[] classPathIndexes;
+        try {
+            classPathIndexes = new PathMatchingResourcePatternResolver()
+                    .getResources("classpath*:" + CLASSPATH_CONTEXT_DIRECTORY + CONTEXT_INDEX_FILE);
+        } catch (IOException e) {
+            log.warn("Failed to find JSON-LD contexts on classpath: {}", e.getMessage());
+            classPathIndexes = new Resource[0];
+        }
+        for (Resource classPathIndex : classPathIndexes) {
+            try (InputStream indexStream = classPathIndex.getInputStream()) {
+                for (Map.Entry<String, String> entry : readIndex(indexStream).entrySet()) {
+                    try (InputStream contextStream = classPathIndex.createRelative(entry.getValue()).getInputStream()) {
+                        putLocalContext(entry.getKey(), contextStream, ContextSource.CLASSPATH);
+                    }
+                }
+            } catch (IOException | JsonLdError e) {
+                log.warn("Failed to load JSON-LD contexts from classpath index {}: {}", classPathIndex,
+                        e.getMessage());
+            }
+        }
+
+        if (StringUtil.isNullOrEmpty(contextDirectory)) {
+            return;
+        }
+        Path directory = Path.of(contextDirectory);
+        try (InputStream indexStream = Files.newInputStream(directory.resolve(CONTEXT_INDEX_FILE))) {
+            for (Map.Entry<String, String> entry : readIndex(indexStream).entrySet()) {
+                try (InputStream contextStream = Files.newInputStream(directory.resolve(entry.getValue()))) {
+                    putLocalContext(entry.getKey(), contextStream, ContextSource.DIRECTORY);
+                }
+            }
+        } catch (IOException | JsonLdError e) {
+            log.warn("Failed to load JSON-LD contexts from directory {}: {}", contextDirectory, e.getMessage());
+        }
+    }
+
+    private Map<String, String> readIndex(InputStream indexStream) throws IOException {
+        return objectMapper.readValue(indexStream, new TypeReference<>() {
+        });
+    }
+
+    private void putLocalContext(String url, InputStream contextStream, ContextSource source) throws JsonLdError {
+        JsonDocument document = JsonDocument.of(MediaType.JSON_LD, contextStream);
+        contexts.put(stripFragment(URI.create(url)), new CachedContext(document, source, Instant.now()));
+    }
+
+    private static URI stripFragment(URI url) {
+        if (url.getFragment() == null) {
+            return url;
+        }
+        String uri = url.toString();
+        return URI.create(uri.substring(0, uri.indexOf('#')));
+    }
+}
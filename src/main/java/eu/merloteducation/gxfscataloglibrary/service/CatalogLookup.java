@@ -0,0 +1,119 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.GXFSCatalogListResponse;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.SelfDescriptionItem;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.SelfDescriptionLookupResponse;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.SelfDescriptionMeta;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Looks up self-descriptions by a large number of ids or hashes. The keys are split into chunks that are requested
+ * concurrently, so neither the query string nor the response of a single request grows with the number of keys.
+ * The merged result follows the order of the given keys and lists the keys without a match.
+ */
+final class CatalogLookup {
+
+    static final Function<SelfDescriptionMeta, Stream<String>> BY_ID =
+            meta -> Stream.of(meta.getId(), meta.getSubjectId());
+
+    static final Function<SelfDescriptionMeta, Stream<String>> BY_HASH =
+            meta -> Stream.of(meta.getSdHash());
+
+    @FunctionalInterface
+    interface ChunkFetcher {
+        Mono<GXFSCatalogListResponse<SelfDescriptionItem>> fetch(String[] chunk);
+    }
+
+    private CatalogLookup() {
+    }
+
+    /**
+     * Look up the self-descriptions matching the given keys.
+     *
+     * @param keys ids or hashes to look up
+     * @param keysOf extracts the values of a self-description that may match a key
+     * @param fetcher requests the self-descriptions of a single chunk of keys
+     * @param chunkSize maximum number of keys per request
+     * @param parallelism maximum number of concurrent requests
+     * @return matching self-descriptions in the order of the keys and the keys without a match
+     */
+    static Mono<SelfDescriptionLookupResponse> lookup(String[] keys,
+                                                      Function<SelfDescriptionMeta, Stream<String>> keysOf,
+                                                      ChunkFetcher fetcher, int chunkSize, int parallelism) {
+        Map<String, Integer> positions = new LinkedHashMap<>();
+        for (String key : keys) {
+            positions.putIfAbsent(key, positions.size());
+        }
+        List<String> distinctKeys = new ArrayList<>(positions.keySet());
+        List<String[]> chunks = new ArrayList<>();
+        int size = Math.max(1, chunkSize);
+        for (int i = 0; i < distinctKeys.size(); i += size) {
+            chunks.add(distinctKeys.subList(i, Math.min(i + size, distinctKeys.size())).toArray(String[]::new));
+        }
+
+        return Flux.fromIterable(chunks)
+                .flatMap(fetcher::fetch, Math.max(1, parallelism))
+                .concatMapIterable(response -> response.getItems() == null
+                        ? Collections.<SelfDescriptionItem>emptyList() : response.getItems())
+                .collectList()
+                .map(items -> merge(items, positions, keysOf));
+    }
+
+    private static SelfDescriptionLookupResponse merge(List<SelfDescriptionItem> items,
+                                                       Map<String, Integer> positions,
+                                                       Function<SelfDescriptionMeta, Stream<String>> keysOf) {
+        boolean[] found = new boolean[positions.size()];
+        Map<SelfDescriptionItem, Integer> itemPositions = new IdentityHashMap<>();
+        for (SelfDescriptionItem item : items) {
+            int position = item.getMeta() == null ? positions.size() : keysOf.apply(item.getMeta())
+                    .filter(Objects::nonNull)
+                    .map(positions::get)
+                    .filter(Objects::nonNull)
+                    .findFirst()
+                    .orElse(positions.size());
+            if (position < found.length) {
+                found[position] = true;
+            }
+            itemPositions.put(item, position);
+        }
+
+        List<SelfDescriptionItem> orderedItems = new ArrayList<>(items);
+        // stable sort, hence multiple items of the same key keep the order of the catalog
+        orderedItems.sort(Comparator.comparing(itemPositions::get));
+
+        List<String> missing = new ArrayList<>();
+        int position = 0;
+        for (String key : positions.keySet()) {
+            if (!found[position++]) {
+                missing.add(key);
+            }
+        }
+
+        SelfDescriptionLookupResponse response = new SelfDescriptionLookupResponse();
+        response.setItems(orderedItems);
+        response.setTotalCount(orderedItems.size());
+        response.setMissing(missing);
+        return response;
+    }
+}
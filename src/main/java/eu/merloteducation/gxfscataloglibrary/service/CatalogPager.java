@@ -0,0 +1,83 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.GXFSCatalogListResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Walks all offset/limit pages of a catalog list endpoint. The first page determines the total number of pages,
+ * the following pages are requested ahead of consumption up to the given prefetch depth while items are only
+ * handed out in catalog order. As the total count may be outdated, paging ends at the first page that holds fewer
+ * items than requested.
+ */
+final class CatalogPager {
+
+    static final int DEFAULT_PAGE_SIZE = 100;
+
+    static final int DEFAULT_PREFETCH = 1;
+
+    @FunctionalInterface
+    interface PageFetcher<T> {
+        Mono<GXFSCatalogListResponse<T>> fetch(int offset, int limit);
+    }
+
+    private CatalogPager() {
+    }
+
+    /**
+     * Return all items of the paged endpoint.
+     *
+     * @param fetcher requests a single page
+     * @param pageSize number of items per page
+     * @param prefetch number of pages that are requested in addition to the page that is currently consumed
+     * @return flux of all items
+     * @param <T> item type
+     */
+    static <T> Flux<T> items(PageFetcher<T> fetcher, int pageSize, int prefetch) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive.");
+        }
+        if (prefetch < 0) {
+            throw new IllegalArgumentException("Prefetch depth must not be negative.");
+        }
+        return Mono.defer(() -> fetcher.fetch(0, pageSize))
+                .flatMapMany(firstPage -> {
+                    long pageCount = Math.max(1, ((long) firstPage.getTotalCount() + pageSize - 1) / pageSize);
+                    if (getItems(firstPage).size() < pageSize) {
+                        // already the last page, no matter what the total count says
+                        pageCount = 1;
+                    }
+                    return Flux.range(0, (int) Math.min(pageCount, Integer.MAX_VALUE / pageSize + 1L))
+                            .flatMapSequential(page -> page == 0
+                                            ? Mono.just(firstPage)
+                                            : fetcher.fetch(page * pageSize, pageSize),
+                                    prefetch + 1, 1)
+                            // cancels the prefetched requests of pages behind the end
+                            .takeUntil(page -> getItems(page).size() < pageSize);
+                })
+                .concatMapIterable(CatalogPager::getItems, 1);
+    }
+
+    private static <T> List<T> getItems(GXFSCatalogListResponse<T> page) {
+        return page.getItems() == null ? Collections.emptyList() : page.getItems();
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import eu.merloteducation.gxfscataloglibrary.models.client.QueryRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the OpenCypher queries sent to the catalog. Values are passed as query parameters instead of being
+ * concatenated into the statement, so the statement of a query only depends on the participant type and sort field
+ * and repeated queries can use the query plan cache of the catalog. Statements are built once per template and kept
+ * in memory. As labels and property names cannot be parameterized, participant types must be plain identifiers and
+ * sort fields must be contained in the configured allow-list.
+ */
+@Service
+public class CatalogQueryBuilder {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    private static final int MAXIMUM_CACHED_STATEMENTS = 1000;
+
+    private final Set<String> sortFields;
+
+    private final Cache<String, String> statements = Caffeine.newBuilder()
+            .maximumSize(MAXIMUM_CACHED_STATEMENTS)
+            .build();
+
+    public CatalogQueryBuilder(
+            @Value("${gxfscatalog-library.query.sort-fields:legalName,name,uri}") List<String> sortFields) {
+        for (String sortField : sortFields) {
+            if (!IDENTIFIER.matcher(sortField).matches()) {
+                throw new IllegalArgumentException("Invalid sort field in configuration: " + sortField);
+            }
+        }
+        this.sortFields = Set.copyOf(sortFields);
+    }
+
+    /**
+     * Query for a page of participant uris sorted by the given field.
+     *
+     * @param participantType type of the participant to query for, e.g. LegalPerson or MerlotOrganisation
+     * @param sortField field of the participant to sort by
+     * @param offset paging offset
+     * @param size page size
+     * @return query with parameters
+     */
+    public QueryRequest sortedParticipantUriPage(String participantType, String sortField, long offset, long size) {
+        checkSortField(sortField);
+        String statement = getStatement("sortedUris", participantType, sortField, () ->
+                matchParticipantType(participantType)
+                        + " return p.uri ORDER BY toLower(p." + sortField + ")"
+                        + " SKIP $offset LIMIT $size");
+        return new QueryRequest(statement, Map.of("offset", offset, "size", size));
+    }
+
+    /**
+     * Query for a page of participant uris sorted by the given field, excluding the given uris.
+     *
+     * @param participantType type of the participant to query for, e.g. LegalPerson or MerlotOrganisation
+     * @param sortField field of the participant to sort by
+     * @param excludedUris list of uris to exclude
+     * @param offset paging offset
+     * @param size page size
+     * @return query with parameters
+     */
+    public QueryRequest sortedParticipantUriPageWithExcludedUris(String participantType, String sortField,
+                                                                 List<String> excludedUris, long offset, long size) {
+        checkSortField(sortField);
+        String statement = getStatement("sortedUrisExcluded", participantType, sortField, () ->
+                matchParticipantType(participantType)
+                        + " WHERE NOT p.uri IN $excludedUris"
+                        + " return p.uri ORDER BY toLower(p." + sortField + ")"
+                        + " SKIP $offset LIMIT $size");
+        return new QueryRequest(statement, Map.of(
+                "excludedUris", List.copyOf(excludedUris),
+                "offset", offset,
+                "size", size));
+    }
+
+    /**
+     * Query for a page of participant uris sorted by the given field, continuing after the position of the given
+     * cursor. Unlike offset based paging, the catalog does not need to skip the rows of all previous pages, hence
+     * deep pages are as cheap as the first one. Participants are ordered by the lowercase sort field and their uri
+     * and participants without the sort field come first. One participant more than the page size is requested to
+     * tell whether there is a next page.
+     *
+     * @param participantType type of the participant to query for, e.g. LegalPerson or MerlotOrganisation
+     * @param sortField field of the participant to sort by
+     * @param cursor cursor of the previous page or null for the first page
+     * @param excludedUris list of uris to exclude
+     * @param size page size
+     * @return query with parameters
+     */
+    public QueryRequest sortedParticipantUriPageAfter(String participantType, String sortField, String cursor,
+                                                      List<String> excludedUris, int size) {
+        checkSortField(sortField);
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("excludedUris", excludedUris == null ? Collections.emptyList() : List.copyOf(excludedUris));
+        parameters.put("limit", size + 1L);
+        if (cursor == null) {
+            String statement = getStatement("sortedUrisKeyset", participantType, sortField, () ->
+                    matchSortKey(participantType, sortField)
+                            + " return p.uri, sortKey ORDER BY sortKey, p.uri LIMIT $limit");
+            return new QueryRequest(statement, parameters);
+        }
+
+        ParticipantUriCursor position = ParticipantUriCursor.decode(cursor, participantType, sortField);
+        parameters.put("sortKey", position.sortKey());
+        parameters.put("uri", position.uri());
+        String statement = getStatement("sortedUrisKeysetAfter", participantType, sortField, () ->
+                matchSortKey(participantType, sortField)
+                        + " WHERE sortKey > $sortKey OR (sortKey = $sortKey AND p.uri > $uri)"
+                        + " return p.uri, sortKey ORDER BY sortKey, p.uri LIMIT $limit");
+        return new QueryRequest(statement, parameters);
+    }
+
+    /**
+     * Query for the legal name of the participant with the given uri.
+     *
+     * @param participantType type of the participant to query for, e.g. LegalPerson or MerlotOrganisation
+     * @param participantUri uri of the participant
+     * @return query with parameters
+     */
+    public QueryRequest participantLegalNameByUri(String participantType, String participantUri) {
+        String statement = getStatement("legalName", participantType, null, () ->
+                matchParticipantType(participantType)
+                        + " WHERE p.uri = $uri"
+                        + " return p.legalName");
+        return new QueryRequest(statement, Collections.singletonMap("uri", participantUri));
+    }
+
+    /**
+     * Query for the uris and legal names of the participants with the given uris.
+     *
+     * @param participantType type of the participant to query for, e.g. LegalPerson or MerlotOrganisation
+     * @param participantUris uris of the participants
+     * @return query with parameters
+     */
+    public QueryRequest participantLegalNamesByUris(String participantType, List<String> participantUris) {
+        String statement = getStatement("legalNames", participantType, null, () ->
+                matchParticipantType(participantType)
+                        + " WHERE p.uri IN $uris"
+                        + " return p.uri, p.legalName");
+        return new QueryRequest(statement, Map.of("uris", List.copyOf(participantUris)));
+    }
+
+    /**
+     * Return the allowed sort fields.
+     *
+     * @return allowed sort fields
+     */
+    public Set<String> getSortFields() {
+        return sortFields;
+    }
+
+    private String getStatement(String template, String participantType, String sortField,
+                                Supplier<String> factory) {
+        if (participantType == null || !IDENTIFIER.matcher(participantType).matches()) {
+            throw new IllegalArgumentException("Invalid participant type: " + participantType);
+        }
+        return statements.get(template + ":" + participantType + ":" + sortField, key -> factory.get());
+    }
+
+    private void checkSortField(String sortField) {
+        if (sortField == null || !sortFields.contains(sortField)) {
+            throw new IllegalArgumentException("Sorting by " + sortField + " is not allowed, allowed fields are "
+                    + sortFields);
+        }
+    }
+
+    private static String matchParticipantType(String participantType) {
+        return "MATCH (p:" + participantType + ")";
+    }
+
+    private static String matchSortKey(String participantType, String sortField) {
+        return matchParticipantType(participantType)
+                + " WHERE NOT p.uri IN $excludedUris"
+                + " WITH p, coalesce(toLower(p." + sortField + "), '') AS sortKey";
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import com.apicatalog.jsonld.JsonLdError;
+import com.apicatalog.jsonld.document.JsonDocument;
+import com.apicatalog.jsonld.json.JsonCanonicalizer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiableCredential;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.PojoCredentialSubject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Opt-in cache of compliance attestations. Submitting the same credential subjects again, e.g. when republishing
+ * after a catalog outage, reuses the previously signed credentials together with their compliance credential
+ * instead of asking the compliance service again. An attestation is only reused if it still covers the integrity
+ * hashes of exactly the credentials that are handed out with it.
+ */
+@Service
+@Slf4j
+public class ComplianceCredentialCache {
+
+    // do not hand out attestations that are about to expire
+    private static final Duration EXPIRY_MARGIN = Duration.ofMinutes(5);
+
+    private static final int MAXIMUM_CACHED_ENTRIES = 10000;
+
+    private static final String INTEGRITY_PREFIX = "sha256-";
+
+    private final ObjectMapper objectMapper;
+
+    private final boolean enabled;
+
+    private final Duration maxTtl;
+
+    private final Cache<String, CachedAttestation> attestations;
+
+    private record CachedAttestation(List<String> credentials, String complianceCredential, Duration ttl) {
+    }
+
+    private static final class AttestationExpiry implements Expiry<String, CachedAttestation> {
+        @Override
+        public long expireAfterCreate(String key, CachedAttestation value, long currentTime) {
+            return value.ttl().toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedAttestation value, long currentTime, long currentDuration) {
+            return value.ttl().toNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedAttestation value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    public ComplianceCredentialCache(@Autowired ObjectMapper objectMapper,
+                                     @Value("${gxdch-services.compliance-cache.enabled:#{false}}") boolean enabled,
+                                     @Value("${gxdch-services.compliance-cache.max-ttl-ms:#{86400000}}") long maxTtlMs) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.maxTtl = Duration.ofMillis(maxTtlMs);
+        this.attestations = Caffeine.newBuilder()
+                .maximumSize(MAXIMUM_CACHED_ENTRIES)
+                .expireAfter(new AttestationExpiry())
+                .build();
+    }
+
+    /**
+     * Compute the cache key for a compliance request, i.e. a hash over the canonical form of the compliance relevant
+     * credential subjects, the credentials that are submitted alongside them and the signing identity.
+     *
+     * @param credentialSubjects compliance relevant credential subjects
+     * @param initialCredentials already signed credentials that are submitted as well
+     * @param issuer issuer of the credentials
+     * @param verificationMethod verification method of the signatures
+     * @return cache key or null if the cache is disabled or the input cannot be canonicalized
+     */
+    public String getKey(List<PojoCredentialSubject> credentialSubjects,
+                         List<ExtendedVerifiableCredential> initialCredentials,
+                         String issuer, String verificationMethod) {
+        if (!enabled) {
+            return null;
+        }
+        Map<String, Object> request = new HashMap<>();
+        request.put("issuer", issuer);
+        request.put("verificationMethod", verificationMethod);
+        request.put("credentialSubjects", credentialSubjects);
+        request.put("credentials", initialCredentials.stream().map(ExtendedVerifiableCredential::getJsonObject).toList());
+        try {
+            // converting to plain maps first lets the writer order all properties by their keys
+            byte[] canonical = objectMapper.writer()
+                    .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                    .writeValueAsBytes(objectMapper.convertValue(request, Object.class));
+            return sha256(canonical);
+        } catch (Exception e) {
+            log.info("Failed to compute compliance cache key: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Return the previously signed credentials and their compliance credential for the given key if the
+     * attestation is still valid and covers all of them as well as the given initial credentials.
+     *
+     * @param key cache key as returned by {@link #getKey}
+     * @param initialCredentials already signed credentials that are submitted as well
+     * @return signed credentials followed by the compliance credential or null if there is no valid attestation
+     */
+    public List<ExtendedVerifiableCredential> get(String key, List<ExtendedVerifiableCredential> initialCredentials) {
+        if (key == null) {
+            return null;
+        }
+        CachedAttestation cached = attestations.getIfPresent(key);
+        if (cached == null) {
+            return null;
+        }
+        List<ExtendedVerifiableCredential> credentials = new ArrayList<>(cached.credentials().stream()
+                .map(ExtendedVerifiableCredential::fromJson).toList());
+        ExtendedVerifiableCredential complianceCredential =
+                ExtendedVerifiableCredential.fromJson(cached.complianceCredential());
+
+        List<ExtendedVerifiableCredential> covered = new ArrayList<>(initialCredentials);
+        covered.addAll(credentials);
+        if (!coversCredentials(complianceCredential, covered)) {
+            log.info("Cached compliance credential does not cover the submitted credentials, discarding it");
+            attestations.invalidate(key);
+            return null;
+        }
+        credentials.add(complianceCredential);
+        return credentials;
+    }
+
+    /**
+     * Store the attestation of the given credentials. Attestations that do not cover all submitted credentials are
+     * not stored, as they could never be reused.
+     *
+     * @param key cache key as returned by {@link #getKey}
+     * @param initialCredentials already signed credentials that were submitted as well
+     * @param credentials credentials signed for this request
+     * @param complianceCredential compliance credential attesting all submitted credentials
+     */
+    public void put(String key, List<ExtendedVerifiableCredential> initialCredentials,
+                    List<ExtendedVerifiableCredential> credentials,
+                    ExtendedVerifiableCredential complianceCredential) {
+        if (key == null) {
+            return;
+        }
+        List<ExtendedVerifiableCredential> covered = new ArrayList<>(initialCredentials);
+        covered.addAll(credentials);
+        if (!coversCredentials(complianceCredential, covered)) {
+            log.info("Compliance credential does not cover the submitted credentials, not caching it");
+            return;
+        }
+
+        // the attestation is only as valid as the shortest living credential it covers
+        Duration ttl = maxTtl;
+        try {
+            for (ExtendedVerifiableCredential credential : covered) {
+                ttl = shortenToExpiration(ttl, credential.getExpirationDate());
+            }
+            ttl = shortenToExpiration(ttl, complianceCredential.getExpirationDate());
+        } catch (RuntimeException e) {
+            log.info("Not caching compliance credential with unreadable expiration date: {}", e.getMessage());
+            return;
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            return;
+        }
+        attestations.put(key, new CachedAttestation(
+                credentials.stream().map(ExtendedVerifiableCredential::toJson).toList(),
+                complianceCredential.toJson(), ttl));
+    }
+
+    /**
+     * Remove all cached attestations.
+     */
+    public void invalidateAll() {
+        attestations.invalidateAll();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Compute the integrity hash of the given credential in the format of the compliance service, i.e. the
+     * SHA-256 hash of its JSON canonicalization (RFC 8785).
+     *
+     * @param credential credential to hash
+     * @return integrity hash
+     */
+    static String getIntegrity(ExtendedVerifiableCredential credential) {
+        try {
+            String canonical = JsonCanonicalizer.canonize(JsonDocument.of(new StringReader(credential.toJson()))
+                    .getJsonContent().orElseThrow());
+            return INTEGRITY_PREFIX + sha256(canonical.getBytes(StandardCharsets.UTF_8));
+        } catch (JsonLdError e) {
+            throw new IllegalArgumentException("Failed to canonicalize credential " + credential.getId(), e);
+        }
+    }
+
+    private static boolean coversCredentials(ExtendedVerifiableCredential complianceCredential,
+                                             List<ExtendedVerifiableCredential> credentials) {
+        Set<String> attestedHashes = new HashSet<>();
+        Object subjects = complianceCredential.getJsonObject().get("credentialSubject");
+        for (Object subject : subjects instanceof List<?> list ? list : Collections.singletonList(subjects)) {
+            if (subject instanceof Map<?, ?> map && map.get("gx:integrity") instanceof String integrity) {
+                attestedHashes.add(integrity);
+            }
+        }
+        try {
+            return credentials.stream().allMatch(credential -> attestedHashes.contains(getIntegrity(credential)));
+        } catch (IllegalArgumentException e) {
+            log.info("Failed to compute credential integrity: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private static Duration shortenToExpiration(Duration ttl, Date expirationDate) {
+        if (expirationDate == null) {
+            return ttl;
+        }
+        Duration untilExpiry = Duration.between(Instant.now(), expirationDate.toInstant()).minus(EXPIRY_MARGIN);
+        return untilExpiry.compareTo(ttl) < 0 ? untilExpiry : ttl;
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM.", e);
+        }
+    }
+}
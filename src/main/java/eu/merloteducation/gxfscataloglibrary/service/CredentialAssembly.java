@@ -0,0 +1,332 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiableCredential;
+import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiablePresentation;
+import eu.merloteducation.gxfscataloglibrary.models.exception.ClearingHouseException;
+import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialPresentationException;
+import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialSignatureException;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.PojoCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.participants.GxLegalParticipantCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.participants.GxLegalRegistrationNumberCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.serviceofferings.GxServiceOfferingCredentialSubject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static eu.merloteducation.gxfscataloglibrary.service.GxfsCatalogService.URN_UUID_PREFIX;
+
+/**
+ * Steps of assembling participant and service offering presentations that do not involve any request, shared by
+ * the blocking and the non-blocking catalog service. The services only differ in how they contact the clearing
+ * house and did:web documents and how they schedule the signatures.
+ */
+@Slf4j
+final class CredentialAssembly {
+
+    private static final String TYPE_NOT_FOUND_MESSAGE = "Could not find %s in list of credential subjects.";
+
+    /**
+     * Credential subjects of a presentation, split into the ones checked by the compliance service and the rest.
+     *
+     * @param issuer issuer of the credentials
+     * @param complianceCsList credential subjects that are relevant for the compliance service
+     * @param remainingCsList credential subjects that are only signed
+     */
+    record CredentialSubjects(String issuer, List<PojoCredentialSubject> complianceCsList,
+                              List<PojoCredentialSubject> remainingCsList) {
+    }
+
+    private final GxfsSignerService gxfsSignerService;
+
+    private final CachedDocumentLoader documentLoader;
+
+    private final ComplianceCredentialCache complianceCredentialCache;
+
+    private final boolean enforceCompliance;
+
+    private final boolean enforceNotary;
+
+    CredentialAssembly(GxfsSignerService gxfsSignerService, CachedDocumentLoader documentLoader,
+                       ComplianceCredentialCache complianceCredentialCache, boolean enforceCompliance,
+                       boolean enforceNotary) {
+        this.gxfsSignerService = gxfsSignerService;
+        this.documentLoader = documentLoader;
+        this.complianceCredentialCache = complianceCredentialCache;
+        this.enforceCompliance = enforceCompliance;
+        this.enforceNotary = enforceNotary;
+    }
+
+    static <T extends PojoCredentialSubject> List<PojoCredentialSubject> findAllCredentialSubjectsByType(
+            List<PojoCredentialSubject> credentialSubjects, Class<T> type) {
+        List<PojoCredentialSubject> matchingCsList = new ArrayList<>();
+        for (PojoCredentialSubject cs : credentialSubjects) {
+            if (type.isInstance(cs)) {
+                matchingCsList.add(cs);
+            }
+        }
+        return matchingCsList;
+    }
+
+    /**
+     * Split the credential subjects of a participant. At least one legal participant and one legal registration
+     * number are required, the participant id is taken from the first legal participant.
+     *
+     * @param credentialSubjects credential subjects of the participant
+     * @return split credential subjects
+     * @throws CredentialPresentationException a required credential subject is missing
+     */
+    CredentialSubjects splitParticipant(List<PojoCredentialSubject> credentialSubjects)
+            throws CredentialPresentationException {
+        // make sure there is at least one legal participant CS
+        List<PojoCredentialSubject> participantCsList =
+                findAllCredentialSubjectsByType(credentialSubjects, GxLegalParticipantCredentialSubject.class);
+        if (participantCsList.isEmpty()) {
+            throw new CredentialPresentationException(
+                    String.format(TYPE_NOT_FOUND_MESSAGE, GxLegalParticipantCredentialSubject.TYPE));
+        }
+
+        // make sure there is at least one legal registration number CS
+        List<PojoCredentialSubject> registrationNumberCsList =
+                findAllCredentialSubjectsByType(credentialSubjects, GxLegalRegistrationNumberCredentialSubject.class);
+        if (registrationNumberCsList.isEmpty()) {
+            throw new CredentialPresentationException(
+                    String.format(TYPE_NOT_FOUND_MESSAGE, GxLegalRegistrationNumberCredentialSubject.TYPE));
+        }
+
+        // get id of participant from first participant cs
+        String participantId = participantCsList.stream()
+                .map(PojoCredentialSubject::getId)
+                .filter(Objects::nonNull)
+                .findFirst().orElse("");
+
+        // collect all credentials that are relevant for the compliance service
+        List<PojoCredentialSubject> complianceCsList = Stream
+                .concat(participantCsList.stream(), registrationNumberCsList.stream()).toList();
+
+        // remove compliance credentials from overall list
+        List<PojoCredentialSubject> nonCompliantCsList = new ArrayList<>(credentialSubjects);
+        nonCompliantCsList.removeAll(participantCsList);
+        nonCompliantCsList.removeAll(registrationNumberCsList);
+
+        return new CredentialSubjects(participantId, complianceCsList, nonCompliantCsList);
+    }
+
+    /**
+     * Split the credential subjects of a service offering. At least one service offering is required, the
+     * provider id is taken from the first service offering.
+     *
+     * @param credentialSubjects credential subjects of the offering
+     * @param participantCredentials credentials of the participant submitting the offering
+     * @return split credential subjects
+     * @throws CredentialPresentationException a required credential subject or credential is missing
+     */
+    CredentialSubjects splitServiceOffering(List<PojoCredentialSubject> credentialSubjects,
+                                            List<ExtendedVerifiableCredential> participantCredentials)
+            throws CredentialPresentationException {
+        // make sure there is at least one service offering CS
+        List<PojoCredentialSubject> offeringCredentialSubjects =
+                findAllCredentialSubjectsByType(credentialSubjects, GxServiceOfferingCredentialSubject.class);
+        if (offeringCredentialSubjects.isEmpty()) {
+            throw new CredentialPresentationException(
+                    String.format(TYPE_NOT_FOUND_MESSAGE, GxServiceOfferingCredentialSubject.TYPE));
+        }
+
+        if (enforceCompliance && participantCredentials.isEmpty()) {
+            throw new CredentialPresentationException(
+                    "No participant credentials were provided, which are needed to achieve compliance.");
+        }
+
+        String providerId = offeringCredentialSubjects.stream()
+                .map(cs -> ((GxServiceOfferingCredentialSubject) cs).getProvidedBy().getId())
+                .filter(Objects::nonNull)
+                .findFirst().orElse("");
+
+        // remove credentials for compliance from overall list
+        List<PojoCredentialSubject> nonCompliantCsList = new ArrayList<>(credentialSubjects);
+        nonCompliantCsList.removeAll(offeringCredentialSubjects);
+
+        return new CredentialSubjects(providerId, offeringCredentialSubjects, nonCompliantCsList);
+    }
+
+    /**
+     * Return whether a credential of the given credential subject is sent to the compliance service.
+     *
+     * @param cs credential subject
+     * @return true for legal participants, legal registration numbers and service offerings
+     */
+    static boolean isComplianceRelevant(PojoCredentialSubject cs) {
+        return cs instanceof GxLegalRegistrationNumberCredentialSubject
+                || cs instanceof GxLegalParticipantCredentialSubject
+                || cs instanceof GxServiceOfferingCredentialSubject;
+    }
+
+    ExtendedVerifiableCredential getSignedVc(PojoCredentialSubject cs,
+                                             String issuer,
+                                             String verificationMethod,
+                                             PrivateKey prk,
+                                             List<X509Certificate> certificates)
+            throws CredentialPresentationException, CredentialSignatureException {
+        // create credential from pojo CS and sign it
+        ExtendedVerifiableCredential credential = gxfsSignerService.createVerifiableCredential(
+                cs,
+                URI.create(issuer),
+                URI.create(URN_UUID_PREFIX + UUID.randomUUID())); // set vc id to random UUID
+        gxfsSignerService
+                .signVerifiableCredential(credential, verificationMethod, prk, certificates); // sign vc
+        return credential;
+    }
+
+    /**
+     * Clean up a registration number credential signed by the notary.
+     *
+     * @param credential credential returned by the notary
+     * @return the given credential
+     */
+    ExtendedVerifiableCredential cleanUpNotaryCredential(ExtendedVerifiableCredential credential) {
+        // remove @context from proof as it is wrong
+        Map<String, Object> proofObj = credential.getLdProof().getJsonObject();
+        proofObj.remove("@context");
+        credential.setJsonObjectKeyValue("proof", proofObj);
+        // resolve contexts through the library loader instead of enabling network access on the default one
+        credential.setDocumentLoader(documentLoader);
+        return credential;
+    }
+
+    /**
+     * Return the error to signal if the notary failed, or nothing if the registration number is signed by ourselves.
+     *
+     * @param e error of the notary or null if the notary did not sign the registration number
+     * @return error if the notary is enforced
+     */
+    Optional<CredentialPresentationException> getNotaryError(ClearingHouseException e) {
+        if (!enforceNotary) {
+            return Optional.empty();
+        }
+        return Optional.of(e == null
+                ? new CredentialPresentationException(
+                        "Given registration number credential subject failed GXDCH Notary check")
+                : new CredentialPresentationException("Error from Notary: " + e.getMessage()));
+    }
+
+    /**
+     * Return the error to signal if the compliance service failed, or nothing if the presentation is published
+     * without compliance credential.
+     *
+     * @param e error of the compliance service or null if the compliance service did not attest compliance
+     * @return error if compliance is enforced
+     */
+    Optional<CredentialPresentationException> getComplianceError(ClearingHouseException e) {
+        if (!enforceCompliance) {
+            return Optional.empty();
+        }
+        return Optional.of(e == null
+                ? new CredentialPresentationException("Provided credential subjects failed GXDCH compliance check.")
+                : new CredentialPresentationException("Error from compliance: " + e.getMessage()));
+    }
+
+    String getComplianceCacheKey(List<PojoCredentialSubject> csList,
+                                 List<ExtendedVerifiableCredential> initialCredentials,
+                                 String issuer, String verificationMethod) {
+        return complianceCredentialCache.getKey(csList, initialCredentials, issuer, verificationMethod);
+    }
+
+    ExtendedVerifiablePresentation getReusableComplianceVp(String complianceCacheKey,
+                                                           List<ExtendedVerifiableCredential> initialCredentials) {
+        List<ExtendedVerifiableCredential> cachedVcs = complianceCredentialCache.get(complianceCacheKey,
+                initialCredentials);
+        if (cachedVcs == null) {
+            return null;
+        }
+        log.info("Reusing previous compliance attestation of identical credential subjects");
+        cachedVcs.forEach(vc -> vc.setDocumentLoader(documentLoader));
+        return createComplianceVp(initialCredentials, cachedVcs);
+    }
+
+    /**
+     * Set up a presentation for the compliance service.
+     *
+     * @param initialCredentials credentials placed in front of the signed ones
+     * @param signedVcs credentials signed for this request
+     * @return presentation with a random id
+     */
+    ExtendedVerifiablePresentation createComplianceVp(List<ExtendedVerifiableCredential> initialCredentials,
+                                                      List<ExtendedVerifiableCredential> signedVcs) {
+        List<ExtendedVerifiableCredential> complianceVcs = new ArrayList<>(initialCredentials);
+        complianceVcs.addAll(signedVcs);
+        return gxfsSignerService.createVerifiablePresentation(
+                complianceVcs, // insert credentials into vp
+                URI.create(URN_UUID_PREFIX + UUID.randomUUID())); // set vp id to random UUID
+    }
+
+    /**
+     * Add the result of the compliance service to the presentation and remember it for identical requests.
+     *
+     * @param complianceVp presentation that was checked
+     * @param initialCredentials credentials placed in front of the signed ones
+     * @param complianceCacheKey key of the checked credential subjects
+     * @param complianceResult compliance credential or null if compliance was not attested
+     */
+    void addComplianceResult(ExtendedVerifiablePresentation complianceVp,
+                             List<ExtendedVerifiableCredential> initialCredentials,
+                             String complianceCacheKey, ExtendedVerifiableCredential complianceResult) {
+        if (complianceResult == null) {
+            log.warn("Compliance was not attested for the given VP.");
+            return;
+        }
+        log.info("Received compliance credential result: {}", complianceResult);
+        complianceResult.setDocumentLoader(documentLoader);
+        List<ExtendedVerifiableCredential> updatedVcs
+                = new ArrayList<>(complianceVp.getVerifiableCredentials());
+        // initial credentials are placed in front of the credentials signed for this request
+        complianceCredentialCache.put(complianceCacheKey, initialCredentials,
+                updatedVcs.subList(initialCredentials.size(), updatedVcs.size()), complianceResult);
+        updatedVcs.add(complianceResult);
+        complianceVp.setVerifiableCredentials(updatedVcs);
+    }
+
+    /**
+     * Add the remaining credentials to the given presentation and sign it for catalog storage.
+     *
+     * @param vp presentation containing the compliance relevant credentials
+     * @param excludedCredentials credentials to leave out of the presentation
+     * @param signedVcs remaining signed credentials
+     * @param verificationMethod method that can be used to verify the signature
+     * @param prk private key for signing
+     * @param certificates certificates to check the signature against
+     * @throws CredentialSignatureException exception during the signature of the presentation
+     */
+    void completeVp(ExtendedVerifiablePresentation vp, List<ExtendedVerifiableCredential> excludedCredentials,
+                    List<ExtendedVerifiableCredential> signedVcs, String verificationMethod, PrivateKey prk,
+                    List<X509Certificate> certificates) throws CredentialSignatureException {
+        // copy credential list as it is likely immutable
+        List<ExtendedVerifiableCredential> credentialList = new ArrayList<>(vp.getVerifiableCredentials());
+        credentialList.removeAll(excludedCredentials);
+        credentialList.addAll(signedVcs);
+
+        // update credentials in vp
+        vp.setVerifiableCredentials(credentialList);
+
+        // sign verifiable presentation for catalog storage
+        gxfsSignerService.signVerifiablePresentation(vp, verificationMethod, prk, certificates);
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.CredentialSubjectTypeRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Fills the {@link CredentialSubjectTypeRegistry} on startup with the credential subject classes of the library and
+ * of the additionally configured packages, so the classpath is not scanned while handling the first request.
+ */
+@Service
+@Slf4j
+public class CredentialSubjectTypeScanner {
+
+    public CredentialSubjectTypeScanner(
+            @Value("${gxfscatalog-library.credential-subjects.packages:}") List<String> packages) {
+        for (String basePackage : packages) {
+            if (!basePackage.isBlank()) {
+                CredentialSubjectTypeRegistry.registerPackage(basePackage.trim());
+            }
+        }
+        log.info("Registered credential subject types {}", CredentialSubjectTypeRegistry.getRegisteredTypes().keySet());
+    }
+}
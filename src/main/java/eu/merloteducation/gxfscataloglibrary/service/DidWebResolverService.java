@@ -0,0 +1,312 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialSignatureException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Resolver for did:web verification methods. DID documents and the x5u certificate chains referenced by them are
+ * cached in memory for as long as the HTTP cache headers of the respective response allow, capped by a configurable
+ * maximum. Failed lookups are cached for a short time as well, so that an unreachable DID does not cause a request
+ * on every signature. Concurrent lookups of the same document or certificate share a single in-flight request.
+ */
+@Service
+@Slf4j
+public class DidWebResolverService {
+
+    static final String DID_WEB_PREFIX = "did:web:";
+
+    private static final long MAXIMUM_CACHED_ENTRIES = 1000;
+
+    private record CachedResponse<T>(T body, String error, Duration ttl) {
+        boolean failed() {
+            return error != null;
+        }
+    }
+
+    private static final class ResponseExpiry<T> implements Expiry<String, CachedResponse<T>> {
+        @Override
+        public long expireAfterCreate(String key, CachedResponse<T> value, long currentTime) {
+            return value.ttl().toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedResponse<T> value, long currentTime, long currentDuration) {
+            return value.ttl().toNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedResponse<T> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    private final WebClient webClient;
+
+    private final Duration maxTtl;
+
+    private final Duration negativeTtl;
+
+    private final AsyncCache<String, CachedResponse<JsonNode>> didDocuments;
+
+    private final AsyncCache<String, CachedResponse<String>> certificates;
+
+    private final GxfsCatalogMetrics metrics;
+
+    public DidWebResolverService(@Autowired WebClient webClient,
+                                 @Value("${gxfscatalog-library.did-web.max-ttl-ms:#{3600000}}") long maxTtlMs,
+                                 @Value("${gxfscatalog-library.did-web.negative-ttl-ms:#{30000}}") long negativeTtlMs,
+                                 @Autowired GxfsCatalogMetrics metrics) {
+        this.webClient = webClient;
+        this.metrics = metrics;
+        this.maxTtl = Duration.ofMillis(maxTtlMs);
+        this.negativeTtl = Duration.ofMillis(negativeTtlMs);
+        this.didDocuments = Caffeine.newBuilder()
+                .maximumSize(MAXIMUM_CACHED_ENTRIES)
+                .expireAfter(new ResponseExpiry<JsonNode>())
+                .recordStats()
+                .buildAsync();
+        this.certificates = Caffeine.newBuilder()
+                .maximumSize(MAXIMUM_CACHED_ENTRIES)
+                .expireAfter(new ResponseExpiry<String>())
+                .recordStats()
+                .buildAsync();
+    }
+
+    /**
+     * Resolve the given did:web verification method to the string representation of the certificate chain
+     * referenced by its x5u entry.
+     *
+     * @param verificationMethod did:web including the reference to the verification method
+     * @throws CredentialSignatureException failed to resolve the did:web or its certificate
+     * @return string representation of the certificate chain
+     */
+    public String resolveCertificate(String verificationMethod) throws CredentialSignatureException {
+        JsonNode didDocument = resolveDidDocument(verificationMethod);
+        return lookup(certificates, getCertificateUrl(didDocument, verificationMethod), String.class);
+    }
+
+    /**
+     * Non-blocking variant of {@link #resolveCertificate(String)}.
+     *
+     * @param verificationMethod did:web including the reference to the verification method
+     * @return string representation of the certificate chain or a CredentialSignatureException
+     */
+    public Mono<String> resolveCertificateReactive(String verificationMethod) {
+        return resolveDidDocumentReactive(verificationMethod)
+                .flatMap(didDocument -> {
+                    try {
+                        return lookupReactive(certificates, getCertificateUrl(didDocument, verificationMethod),
+                                String.class);
+                    } catch (CredentialSignatureException e) {
+                        return Mono.error(e);
+                    }
+                });
+    }
+
+    private static String getCertificateUrl(JsonNode didDocument, String verificationMethod)
+            throws CredentialSignatureException {
+        JsonNode verificationMethods = didDocument.get("verificationMethod");
+        if (verificationMethods != null) {
+            for (JsonNode vm : verificationMethods) {
+                if (verificationMethod.equals(vm.path("id").asText())) {
+                    String certUrl = vm.path("publicKeyJwk").path("x5u").asText();
+                    if (certUrl.isEmpty()) {
+                        throw new CredentialSignatureException("Verification method " + verificationMethod +
+                                " does not reference a certificate.");
+                    }
+                    return certUrl;
+                }
+            }
+        }
+        throw new CredentialSignatureException("Could not find certificate for given verification method " +
+                verificationMethod);
+    }
+
+    /**
+     * Resolve the DID document of the given did:web.
+     *
+     * @param did did:web, optionally including a reference to a verification method
+     * @throws CredentialSignatureException failed to resolve the did:web
+     * @return did document json
+     */
+    public JsonNode resolveDidDocument(String did) throws CredentialSignatureException {
+        return lookup(didDocuments, getDidDocumentUriForDid(did), JsonNode.class);
+    }
+
+    /**
+     * Non-blocking variant of {@link #resolveDidDocument(String)}.
+     *
+     * @param did did:web, optionally including a reference to a verification method
+     * @return did document json or a CredentialSignatureException
+     */
+    public Mono<JsonNode> resolveDidDocumentReactive(String did) {
+        try {
+            return lookupReactive(didDocuments, getDidDocumentUriForDid(did), JsonNode.class);
+        } catch (CredentialSignatureException e) {
+            return Mono.error(e);
+        }
+    }
+
+    private static String getDidDocumentUriForDid(String did) throws CredentialSignatureException {
+        if (!did.startsWith(DID_WEB_PREFIX)) {
+            throw new CredentialSignatureException("Only did:web can be resolved, got " + did);
+        }
+        String didWeb = did
+                .replace(DID_WEB_PREFIX, "") // remove did type prefix
+                .replaceFirst("#.*", ""); // remove verification method reference
+        return getDidDocumentUri(didWeb);
+    }
+
+    /**
+     * Drop all cached documents and certificates, e.g. after a key rotation was announced.
+     */
+    public void invalidateAll() {
+        didDocuments.synchronous().invalidateAll();
+        certificates.synchronous().invalidateAll();
+    }
+
+    /**
+     * Return the hit and miss statistics of the DID document cache.
+     *
+     * @return cache statistics
+     */
+    public CacheStats getDidDocumentCacheStats() {
+        return didDocuments.synchronous().stats();
+    }
+
+    /**
+     * Return the hit and miss statistics of the certificate cache.
+     *
+     * @return cache statistics
+     */
+    public CacheStats getCertificateCacheStats() {
+        return certificates.synchronous().stats();
+    }
+
+    private <T> T lookup(AsyncCache<String, CachedResponse<T>> cache, String uri, Class<T> type)
+            throws CredentialSignatureException {
+        CachedResponse<T> response = cache.get(uri, (key, executor) -> fetch(key, type)).join();
+        if (response.failed()) {
+            throw new CredentialSignatureException("Error during did:web resolving: " + response.error());
+        }
+        return response.body();
+    }
+
+    private <T> Mono<T> lookupReactive(AsyncCache<String, CachedResponse<T>> cache, String uri, Class<T> type) {
+        // the cache completes the future on the web client threads, so nothing blocks here
+        return Mono.fromFuture(() -> cache.get(uri, (key, executor) -> fetch(key, type)))
+                .flatMap(response -> response.failed()
+                        ? Mono.error(new CredentialSignatureException("Error during did:web resolving: "
+                        + response.error()))
+                        : Mono.just(response.body()));
+    }
+
+    private <T> CompletableFuture<CachedResponse<T>> fetch(String uri, Class<T> type) {
+        log.debug("Fetching {}", uri);
+        return metrics.record(GxfsCatalogMetrics.DID_WEB_FETCH, webClient.get().uri(uri).retrieve().toEntity(type),
+                        "document", type == JsonNode.class ? "did-document" : "certificate")
+                .map(entity -> new CachedResponse<>(
+                        Objects.requireNonNull(entity.getBody(), "Failed to retrieve " + uri),
+                        null, getTtl(entity)))
+                .onErrorResume(e -> {
+                    log.warn("Failed to retrieve {}, caching failure for {}: {}", uri, negativeTtl, e.getMessage());
+                    return Mono.just(new CachedResponse<>(null, e.getMessage(), negativeTtl));
+                })
+                .toFuture();
+    }
+
+    /**
+     * Derive the time to live of a response from its Cache-Control or Expires header, capped by the maximum TTL.
+     *
+     * @param entity response entity
+     * @return time to live of the response
+     */
+    private Duration getTtl(ResponseEntity<?> entity) {
+        HttpHeaders headers = entity.getHeaders();
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl != null) {
+            for (String directive : cacheControl.toLowerCase(Locale.ROOT).split(",")) {
+                directive = directive.trim();
+                if (directive.equals("no-store") || directive.equals("no-cache")) {
+                    return Duration.ZERO;
+                }
+                if (directive.startsWith("max-age=")) {
+                    try {
+                        return min(Duration.ofSeconds(Long.parseLong(directive.substring("max-age=".length()))));
+                    } catch (NumberFormatException ignored) {
+                        // fall through to the expires header
+                    }
+                }
+            }
+        }
+        long expires = headers.getExpires();
+        if (expires > 0) {
+            return min(Duration.ofMillis(Math.max(0, expires - System.currentTimeMillis())));
+        }
+        return maxTtl;
+    }
+
+    private Duration min(Duration ttl) {
+        return ttl.compareTo(maxTtl) < 0 ? ttl : maxTtl;
+    }
+
+    /**
+     * Given the domain part of the did:web, return the resulting URI.
+     * See <a href="https://w3c-ccg.github.io/did-method-web/#read-resolve">did-web specification</a> for reference.
+     *
+     * @param didWeb did:web without prefix and key reference
+     * @return did web URI
+     */
+    static String getDidDocumentUri(String didWeb) {
+        boolean containsSubpath = didWeb.contains(":");
+        StringBuilder didDocumentUriBuilder = new StringBuilder();
+        didDocumentUriBuilder.append(didWeb
+                .replace(":", "/") // Replace ":" with "/" in the method specific identifier to
+                                                    // obtain the fully qualified domain name and optional path.
+                .replace("%3A", ":")); // If the domain contains a port percent decode the colon.
+
+        // Generate an HTTPS URL to the expected location of the DID document by prepending https://.
+        didDocumentUriBuilder.insert(0, "https://");
+        if (!containsSubpath) {
+            // If no path has been specified in the URL, append /.well-known.
+            didDocumentUriBuilder.append("/.well-known");
+        }
+        // Append /did.json to complete the URL.
+        didDocumentUriBuilder.append("/did.json");
+
+        return didDocumentUriBuilder.toString();
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import eu.merloteducation.gxfscataloglibrary.models.client.ClearingHouseEndpointState;
+import eu.merloteducation.gxfscataloglibrary.models.client.ClearingHouseEndpointState.CircuitState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of the health of the clearing house endpoints. For every base uri an exponentially weighted moving
+ * average of the latency and error rate is maintained and used to order the endpoints from healthiest to least
+ * healthy. Endpoints failing repeatedly are taken out of rotation by a circuit breaker, which lets a single probe
+ * request through once the cooldown has passed.
+ */
+@Service
+@Slf4j
+public class EndpointHealthManager {
+
+    // weight of the error rate relative to the latency when ranking endpoints
+    private static final double ERROR_RATE_PENALTY = 4.0;
+
+    private final int failureThreshold;
+
+    private final long cooldownMs;
+
+    private final double alpha;
+
+    private final Map<String, EndpointHealth> endpoints = new ConcurrentHashMap<>();
+
+    private static final class EndpointHealth {
+        private CircuitState circuitState = CircuitState.CLOSED;
+        private double latencyMs = -1;
+        private double errorRate;
+        private int consecutiveFailures;
+        private long requests;
+        private long failures;
+        private long openedAt;
+        private long probeStartedAt;
+        private boolean probeInFlight;
+    }
+
+    public EndpointHealthManager(@Value("${gxdch-services.circuit-breaker.failure-threshold:#{3}}") int failureThreshold,
+                                 @Value("${gxdch-services.circuit-breaker.cooldown-ms:#{30000}}") long cooldownMs,
+                                 @Value("${gxdch-services.health.ewma-alpha:#{0.2}}") double alpha) {
+        this.failureThreshold = failureThreshold;
+        this.cooldownMs = cooldownMs;
+        this.alpha = alpha;
+    }
+
+    /**
+     * Order the given clients by the health of their endpoints. Endpoints with a closed circuit come first, ordered
+     * by latency and error rate, endpoints without any measurements keep their configured order after those.
+     * Endpoints whose circuit is open are left out until their cooldown has passed, afterward they are appended
+     * as probe candidates.
+     *
+     * @param clients clients by base uri in configured order
+     * @return list of client entries in the order in which they should be tried
+     */
+    public <C> List<Map.Entry<String, C>> rank(Map<String, C> clients) {
+        long now = System.currentTimeMillis();
+        List<Map.Entry<String, C>> measured = new ArrayList<>();
+        List<Map.Entry<String, C>> unmeasured = new ArrayList<>();
+        List<Map.Entry<String, C>> probes = new ArrayList<>();
+        Map<String, Double> scores = new LinkedHashMap<>();
+
+        for (Map.Entry<String, C> entry : clients.entrySet()) {
+            EndpointHealth health = endpoints.get(entry.getKey());
+            if (health == null) {
+                unmeasured.add(entry);
+                continue;
+            }
+            synchronized (health) {
+                if (health.circuitState == CircuitState.CLOSED) {
+                    if (health.latencyMs < 0) {
+                        unmeasured.add(entry);
+                    } else {
+                        measured.add(entry);
+                        scores.put(entry.getKey(), health.latencyMs * (1 + ERROR_RATE_PENALTY * health.errorRate));
+                    }
+                } else if (now - health.openedAt >= cooldownMs) {
+                    probes.add(entry);
+                }
+            }
+        }
+
+        measured.sort(Comparator.comparingDouble(entry -> scores.get(entry.getKey())));
+        List<Map.Entry<String, C>> ranked = new ArrayList<>(measured);
+        ranked.addAll(unmeasured);
+        ranked.addAll(probes);
+        return ranked;
+    }
+
+    /**
+     * Check whether a request may be sent to the given endpoint. For endpoints with an open circuit only a single
+     * probe request is admitted once the cooldown has passed.
+     *
+     * @param baseUri base uri of the endpoint
+     * @return true if the request may be sent
+     */
+    public boolean tryAcquire(String baseUri) {
+        EndpointHealth health = endpoints.get(baseUri);
+        if (health == null) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (health) {
+            switch (health.circuitState) {
+                case CLOSED -> {
+                    return true;
+                }
+                case OPEN -> {
+                    if (now - health.openedAt < cooldownMs) {
+                        return false;
+                    }
+                    health.circuitState = CircuitState.HALF_OPEN;
+                    health.probeInFlight = true;
+                    health.probeStartedAt = now;
+                    log.info("Sending probe request to clearing house endpoint {}", baseUri);
+                    return true;
+                }
+                default -> {
+                    // admit another probe if the previous one never reported back
+                    if (health.probeInFlight && now - health.probeStartedAt < cooldownMs) {
+                        return false;
+                    }
+                    health.probeInFlight = true;
+                    health.probeStartedAt = now;
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Record a request to the given endpoint that was answered properly. Client errors count as proper answers,
+     * as they are caused by the request rather than by the endpoint.
+     *
+     * @param baseUri base uri of the endpoint
+     * @param latencyMs latency of the request
+     */
+    public void recordSuccess(String baseUri, long latencyMs) {
+        EndpointHealth health = endpoints.computeIfAbsent(baseUri, key -> new EndpointHealth());
+        synchronized (health) {
+            health.requests++;
+            health.latencyMs = health.latencyMs < 0 ? latencyMs : ewma(health.latencyMs, latencyMs);
+            health.errorRate = ewma(health.errorRate, 0);
+            health.consecutiveFailures = 0;
+            if (health.circuitState != CircuitState.CLOSED) {
+                log.info("Clearing house endpoint {} recovered, closing circuit", baseUri);
+            }
+            health.circuitState = CircuitState.CLOSED;
+            health.probeInFlight = false;
+        }
+    }
+
+    /**
+     * Record a failed request to the given endpoint, e.g. a timeout, a refused connection or a server error.
+     *
+     * @param baseUri base uri of the endpoint
+     * @param latencyMs time until the failure occurred
+     */
+    public void recordFailure(String baseUri, long latencyMs) {
+        EndpointHealth health = endpoints.computeIfAbsent(baseUri, key -> new EndpointHealth());
+        synchronized (health) {
+            health.requests++;
+            health.failures++;
+            // a failure takes at least as long as the slowest answer we have seen, so it never improves the rank
+            health.latencyMs = Math.max(health.latencyMs < 0 ? latencyMs : ewma(health.latencyMs, latencyMs),
+                    health.latencyMs);
+            health.errorRate = ewma(health.errorRate, 1);
+            health.consecutiveFailures++;
+            health.probeInFlight = false;
+            if (health.circuitState == CircuitState.HALF_OPEN
+                    || (health.circuitState == CircuitState.CLOSED && health.consecutiveFailures >= failureThreshold)) {
+                log.warn("Opening circuit for clearing house endpoint {} after {} consecutive failures",
+                        baseUri, health.consecutiveFailures);
+                health.circuitState = CircuitState.OPEN;
+                health.openedAt = System.currentTimeMillis();
+            }
+        }
+    }
+
+    /**
+     * Return a snapshot of the health of all endpoints that have been contacted so far.
+     *
+     * @return endpoint states by base uri
+     */
+    public Map<String, ClearingHouseEndpointState> getEndpointStates() {
+        Map<String, ClearingHouseEndpointState> states = new LinkedHashMap<>();
+        endpoints.forEach((baseUri, health) -> {
+            synchronized (health) {
+                states.put(baseUri, new ClearingHouseEndpointState(baseUri, health.circuitState,
+                        Math.max(0, health.latencyMs), health.errorRate, health.consecutiveFailures,
+                        health.requests, health.failures));
+            }
+        });
+        return states;
+    }
+
+    private double ewma(double average, double sample) {
+        return alpha * sample + (1 - alpha) * average;
+    }
+}
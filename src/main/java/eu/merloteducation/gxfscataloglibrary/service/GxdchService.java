@@ -17,20 +17,36 @@
 package eu.merloteducation.gxfscataloglibrary.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiableCredential;
 import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiablePresentation;
+import eu.merloteducation.gxfscataloglibrary.models.client.ClearingHouseEndpointState;
 import eu.merloteducation.gxfscataloglibrary.models.exception.ClearingHouseException;
 import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.participants.GxLegalRegistrationNumberCredentialSubject;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static eu.merloteducation.gxfscataloglibrary.service.GxfsCatalogService.URN_UUID_PREFIX;
 
@@ -44,43 +60,188 @@ public class GxdchService {
 
     private final ObjectMapper objectMapper;
 
+    private final RequestStrategy complianceStrategy;
+
+    private final RequestStrategy notaryStrategy;
+
+    private final double hedgePercentile;
+
+    private final long hedgeDelayMs;
+
+    private final LatencyWindow complianceLatencies = new LatencyWindow();
+
+    private final LatencyWindow notaryLatencies = new LatencyWindow();
+
+    private final ExecutorService requestExecutor;
+
+    private final EndpointHealthManager endpointHealthManager;
+
+    // last successfully retrieved Gaia-X terms and conditions, these change very rarely
+    private volatile JsonNode cachedGxTnCs;
+
+    private final AtomicBoolean gxTnCsRefreshInFlight = new AtomicBoolean();
+
+    // do not hand out notary credentials that are about to expire
+    private static final Duration NOTARY_EXPIRY_MARGIN = Duration.ofMinutes(5);
+
+    private static final int MAXIMUM_CACHED_NOTARY_CREDENTIALS = 10000;
+
+    private final Duration notaryCacheMaxTtl;
+
+    // notary credentials by normalized registration numbers, stored serialized as callers modify the credentials
+    private final Cache<String, CachedNotaryCredential> notaryCredentials;
+
+    private record CachedNotaryCredential(String json, Duration ttl) {
+    }
+
+    private static final class NotaryCredentialExpiry implements Expiry<String, CachedNotaryCredential> {
+        @Override
+        public long expireAfterCreate(String key, CachedNotaryCredential value, long currentTime) {
+            return value.ttl().toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedNotaryCredential value, long currentTime,
+                                      long currentDuration) {
+            return value.ttl().toNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedNotaryCredential value, long currentTime,
+                                    long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    /**
+     * Strategy for distributing a request over multiple clearing house endpoints.
+     */
+    public enum RequestStrategy {
+        /**
+         * Try one endpoint after another, moving on only once the previous endpoint failed.
+         */
+        SEQUENTIAL,
+        /**
+         * Start with the first endpoint and additionally start the next one whenever no answer arrived within
+         * the configured latency percentile or the previous endpoint failed. The first success wins.
+         */
+        HEDGED,
+        /**
+         * Send the request to all endpoints at once. The first success wins, the other requests are cancelled.
+         */
+        RACE
+    }
+
+    @FunctionalInterface
+    private interface ClearingHouseCall<C> {
+        ExtendedVerifiableCredential call(Map.Entry<String, C> clientEntry) throws ClearingHouseException;
+    }
+
+    @FunctionalInterface
+    private interface ClearingHouseErrorHandler {
+        ClearingHouseException handle(WebClientResponseException e);
+    }
+
+    private record Attempt(int index, ExtendedVerifiableCredential result, ClearingHouseException exception) {
+    }
+
+    /**
+     * Sliding window of the latencies of the most recent successful requests to a clearing house service.
+     */
+    private static final class LatencyWindow {
+        private static final int SIZE = 100;
+        private static final int MIN_SAMPLES = 10;
+        private final long[] samples = new long[SIZE];
+        private int count;
+        private int next;
+
+        synchronized void record(long latencyMs) {
+            samples[next] = latencyMs;
+            next = (next + 1) % SIZE;
+            count = Math.min(count + 1, SIZE);
+        }
+
+        synchronized long percentile(double percentile, long fallback) {
+            if (count < MIN_SAMPLES) {
+                return fallback;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile * count) - 1;
+            return sorted[Math.max(0, Math.min(count - 1, index))];
+        }
+    }
+
     public GxdchService(@Autowired Map<String, GxComplianceClient> gxComplianceClients,
                         @Autowired Map<String, GxRegistryClient> gxRegistryClients,
                         @Autowired Map<String, GxNotaryClient> gxNotaryClients,
-                        @Autowired ObjectMapper objectMapper) {
+                        @Autowired ObjectMapper objectMapper,
+                        @Autowired EndpointHealthManager endpointHealthManager,
+                        @Value("${gxdch-services.compliance-strategy:SEQUENTIAL}") RequestStrategy complianceStrategy,
+                        @Value("${gxdch-services.notary-strategy:SEQUENTIAL}") RequestStrategy notaryStrategy,
+                        @Value("${gxdch-services.hedge-percentile:#{0.95}}") double hedgePercentile,
+                        @Value("${gxdch-services.hedge-delay-ms:#{5000}}") long hedgeDelayMs,
+                        @Value("${gxdch-services.notary-cache-max-ttl-ms:#{604800000}}") long notaryCacheMaxTtlMs) {
         this.gxComplianceClients = gxComplianceClients;
         this.gxRegistryClients = gxRegistryClients;
         this.gxNotaryClients = gxNotaryClients;
         this.objectMapper = objectMapper;
+        this.endpointHealthManager = endpointHealthManager;
+        this.complianceStrategy = complianceStrategy;
+        this.notaryStrategy = notaryStrategy;
+        this.hedgePercentile = hedgePercentile;
+        this.hedgeDelayMs = hedgeDelayMs;
+        this.notaryCacheMaxTtl = Duration.ofMillis(notaryCacheMaxTtlMs);
+        this.notaryCredentials = Caffeine.newBuilder()
+                .maximumSize(MAXIMUM_CACHED_NOTARY_CREDENTIALS)
+                .expireAfter(new NotaryCredentialExpiry())
+                .build();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.requestExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "gxdch-request-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
-    public ExtendedVerifiableCredential checkCompliance(ExtendedVerifiablePresentation vp) throws ClearingHouseException {
-        // go through compliance service uris
-        // -> try one uri, then if timeout occurs (an exception is thrown) try next uri
-        List<ClearingHouseException> encounteredExceptions = new ArrayList<>();
-
-        for (Map.Entry<String, GxComplianceClient> clientEntry : gxComplianceClients.entrySet()) {
-            ExtendedVerifiableCredential vc = null;
-            try {
-                vc = checkCompliance(vp, clientEntry);
-            } catch (ClearingHouseException e) {
-                encounteredExceptions.add(e);
-            }
-            if (vc != null) {
-                return vc;
-            }
-        }
+    RequestStrategy getComplianceStrategy() {
+        return complianceStrategy;
+    }
 
-        if (!encounteredExceptions.isEmpty()) {
-            // currently we only consider the last exception
-            throw encounteredExceptions.get(encounteredExceptions.size() - 1);
-        }
+    RequestStrategy getNotaryStrategy() {
+        return notaryStrategy;
+    }
 
-        return null;
+    long getComplianceHedgeDelayMs() {
+        return complianceLatencies.percentile(hedgePercentile, hedgeDelayMs);
+    }
+
+    long getNotaryHedgeDelayMs() {
+        return notaryLatencies.percentile(hedgePercentile, hedgeDelayMs);
+    }
+
+    void recordComplianceLatency(long latencyMs) {
+        complianceLatencies.record(latencyMs);
+    }
+
+    void recordNotaryLatency(long latencyMs) {
+        notaryLatencies.record(latencyMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        requestExecutor.shutdownNow();
+    }
+
+    public ExtendedVerifiableCredential checkCompliance(ExtendedVerifiablePresentation vp) throws ClearingHouseException {
+        // go through compliance service uris according to the configured strategy
+        return requestWithStrategy(gxComplianceClients, clientEntry -> checkCompliance(vp, clientEntry),
+                this::toComplianceException, complianceStrategy, complianceLatencies);
     }
 
     private ExtendedVerifiableCredential checkCompliance(ExtendedVerifiablePresentation vp,
-                                                         Map.Entry<String, GxComplianceClient> clientEntry) throws ClearingHouseException {
+                                                         Map.Entry<String, GxComplianceClient> clientEntry) {
         log.info("Checking compliance with Compliance Service {}", clientEntry.getKey());
         log.info("VP: {}", vp);
         try {
@@ -88,63 +249,180 @@ public class GxdchService {
         } catch (WebClientResponseException e) {
             log.info("Failed to check compliance at Compliance Service {}: {} {}",
                     clientEntry.getKey(), e.getStatusCode(), e.getResponseBodyAsString());
-            handleComplianceErrorResponse(e);
+            throw e; // translated by the caller after recording the health of the endpoint
         }
-        return null;
     }
 
+    /**
+     * Retrieve the Gaia-X terms and conditions from the registries and update the cached version. If no registry
+     * can be reached, the previously retrieved terms and conditions are returned.
+     *
+     * @return terms and conditions or null if they were never retrieved successfully
+     */
     public JsonNode getGxTnCs() { // NOSONAR this does not always return the same value, regardless of sonar nagging
         // go through registry service uris
         // -> try one uri, then if timeout occurs (an exception is thrown) try next uri
-        for (Map.Entry<String, GxRegistryClient> clientEntry : gxRegistryClients.entrySet()) {
+        for (Map.Entry<String, GxRegistryClient> clientEntry : endpointHealthManager.rank(gxRegistryClients)) {
+            if (!endpointHealthManager.tryAcquire(clientEntry.getKey())) {
+                continue;
+            }
             JsonNode tnc = getGxTnCs(clientEntry);
             if (tnc != null) {
-                return tnc;
+                cachedGxTnCs = tnc;
+                return tnc.deepCopy();
             }
         }
 
+        JsonNode cached = cachedGxTnCs;
+        if (cached != null) {
+            log.info("No registry could be reached, using previously retrieved Gaia-X TnC");
+            return cached.deepCopy();
+        }
         return null;
     }
 
+    /**
+     * Return the cached Gaia-X terms and conditions without contacting any registry. If they have not been
+     * retrieved yet, a refresh is started in the background and null is returned.
+     *
+     * @return cached terms and conditions or null
+     */
+    public JsonNode getCachedGxTnCs() {
+        JsonNode cached = cachedGxTnCs;
+        if (cached == null) {
+            warmGxTnCs();
+            return null;
+        }
+        return cached.deepCopy();
+    }
+
+    /**
+     * Make sure the Gaia-X terms and conditions get cached without contacting any registry on the calling thread
+     * and without copying them. If they have not been retrieved yet, a refresh is started in the background.
+     */
+    public void warmGxTnCs() {
+        if (cachedGxTnCs == null && !gxRegistryClients.isEmpty()
+                && gxTnCsRefreshInFlight.compareAndSet(false, true)) {
+            requestExecutor.execute(this::refreshGxTnCs);
+        }
+    }
+
+    /**
+     * Periodically refresh the cached Gaia-X terms and conditions in the background.
+     */
+    @Scheduled(fixedDelayString = "${gxdch-services.tnc-refresh-interval-ms:86400000}")
+    public void refreshGxTnCs() {
+        if (gxRegistryClients.isEmpty()) {
+            gxTnCsRefreshInFlight.set(false);
+            return;
+        }
+        try {
+            getGxTnCs();
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh Gaia-X TnC: {}", e.getMessage());
+        } finally {
+            gxTnCsRefreshInFlight.set(false);
+        }
+    }
+
     private JsonNode getGxTnCs(Map.Entry<String, GxRegistryClient> clientEntry) {
         log.info("Retrieving Gaia-X TnC at Registry {}", clientEntry.getKey());
+        long start = System.nanoTime();
         try {
-            return clientEntry.getValue().getGxTermsAndConditions();
+            JsonNode tnc = clientEntry.getValue().getGxTermsAndConditions();
+            endpointHealthManager.recordSuccess(clientEntry.getKey(), elapsedMs(start));
+            return tnc;
         } catch (WebClientResponseException e) {
+            recordResponse(clientEntry.getKey(), e, elapsedMs(start));
             log.info("Failed to retrieve Gaia-X TnC at Registry {}: {} {}",
                     clientEntry.getKey(), e.getStatusCode(), e.getResponseBodyAsString());
+        } catch (RuntimeException e) {
+            endpointHealthManager.recordFailure(clientEntry.getKey(), elapsedMs(start));
+            log.info("Failed to reach Registry {}: {}", clientEntry.getKey(), e.getMessage());
         }
         return null;
     }
 
+    /**
+     * Let the notary attest the given registration number. Attested registration numbers are cached until shortly
+     * before the expiration of the notary credential, hence unchanged registration numbers are not sent again.
+     *
+     * @param registrationNumber registration number credential subject
+     * @return notary credential or null if no notary is configured
+     * @throws ClearingHouseException the notary refused the registration number or could not be reached
+     */
     public ExtendedVerifiableCredential verifyRegistrationNumber(GxLegalRegistrationNumberCredentialSubject registrationNumber) throws ClearingHouseException {
-        // go through notary service uris
-        // -> try one uri, then if timeout occurs (an exception is thrown) try next uri
-        List<ClearingHouseException> encounteredExceptions = new ArrayList<>();
-
-        for (Map.Entry<String, GxNotaryClient> clientEntry : gxNotaryClients.entrySet()) {
-            ExtendedVerifiableCredential vc = null;
-            try {
-                vc = verifyRegistrationNumber(registrationNumber, clientEntry);
-            } catch (ClearingHouseException e) {
-                encounteredExceptions.add(e);
-            }
-            if (vc != null) {
-                return vc;
-            }
+        ExtendedVerifiableCredential cached = getCachedNotaryCredential(registrationNumber);
+        if (cached != null) {
+            return cached;
         }
 
-        if (!encounteredExceptions.isEmpty()) {
-            // currently we only consider the last exception
-            throw encounteredExceptions.get(encounteredExceptions.size() - 1);
+        // go through notary service uris according to the configured strategy
+        ExtendedVerifiableCredential credential = requestWithStrategy(gxNotaryClients,
+                clientEntry -> verifyRegistrationNumber(registrationNumber, clientEntry),
+                this::toNotaryException, notaryStrategy, notaryLatencies);
+        if (credential != null) {
+            cacheNotaryCredential(registrationNumber, credential);
         }
+        return credential;
+    }
 
-        return null;
+    ExtendedVerifiableCredential getCachedNotaryCredential(GxLegalRegistrationNumberCredentialSubject registrationNumber) {
+        CachedNotaryCredential cached = notaryCredentials.getIfPresent(getRegistrationNumberCacheKey(registrationNumber));
+        if (cached == null) {
+            return null;
+        }
+        log.info("Reusing notary credential for registration number of {}", registrationNumber.getId());
+        return ExtendedVerifiableCredential.fromJson(cached.json());
+    }
+
+    /**
+     * Remove all cached notary credentials, e.g. after the notary revoked a registration number.
+     */
+    public void invalidateNotaryCredentials() {
+        notaryCredentials.invalidateAll();
+    }
+
+    void cacheNotaryCredential(GxLegalRegistrationNumberCredentialSubject registrationNumber,
+                               ExtendedVerifiableCredential credential) {
+        Duration ttl = notaryCacheMaxTtl;
+        try {
+            Date expirationDate = credential.getExpirationDate();
+            if (expirationDate != null) {
+                Duration untilExpiry = Duration.between(Instant.now(), expirationDate.toInstant())
+                        .minus(NOTARY_EXPIRY_MARGIN);
+                if (untilExpiry.compareTo(ttl) < 0) {
+                    ttl = untilExpiry;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.info("Not caching notary credential with unreadable expiration date: {}", e.getMessage());
+            return;
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            return;
+        }
+        notaryCredentials.put(getRegistrationNumberCacheKey(registrationNumber),
+                new CachedNotaryCredential(credential.toJson(), ttl));
+    }
+
+    private static String getRegistrationNumberCacheKey(GxLegalRegistrationNumberCredentialSubject cs) {
+        return String.join("|",
+                Objects.requireNonNullElse(cs.getId(), ""),
+                normalizeIdentifier(cs.getVatID()),
+                normalizeIdentifier(cs.getLeiCode()),
+                normalizeIdentifier(cs.getEori()),
+                normalizeIdentifier(cs.getEuid()),
+                normalizeIdentifier(cs.getTaxID()));
+    }
+
+    private static String normalizeIdentifier(String identifier) {
+        return identifier == null ? "" : identifier.replaceAll("\\s", "").toUpperCase(Locale.ROOT);
     }
 
     private ExtendedVerifiableCredential verifyRegistrationNumber(
             GxLegalRegistrationNumberCredentialSubject registrationNumber,
-            Map.Entry<String, GxNotaryClient> clientEntry) throws ClearingHouseException {
+            Map.Entry<String, GxNotaryClient> clientEntry) {
         log.info("Verifying registration number at Notary {}", clientEntry.getKey());
         log.debug("Registration number: {}", registrationNumber);
         try {
@@ -153,18 +431,178 @@ public class GxdchService {
         } catch (WebClientResponseException e) {
             log.info("Failed to verify registration number at Notary {}: {} {}",
                     clientEntry.getKey(), e.getStatusCode(), e.getResponseBodyAsString());
-            handleNotaryErrorResponse(e);
+            throw e; // translated by the caller after recording the health of the endpoint
         }
-        return null;
     }
 
-    private void handleComplianceErrorResponse(WebClientResponseException e)
+    /**
+     * Send a request to the given clearing house endpoints according to the given strategy and return the first
+     * successful result. If no endpoint succeeds, the exception of the last failing endpoint (in endpoint order)
+     * is thrown, or null is returned if no endpoint failed with an exception.
+     *
+     * @param clients clearing house clients by base uri
+     * @param call request to send to a single endpoint
+     * @param errorHandler translation of error responses into exceptions
+     * @param strategy strategy for distributing the request
+     * @param latencies latency window of the respective service for hedging
+     * @return first successful result or null
+     * @throws ClearingHouseException all endpoints failed
+     */
+    private <C> ExtendedVerifiableCredential requestWithStrategy(Map<String, C> clients, ClearingHouseCall<C> call,
+                                                                 ClearingHouseErrorHandler errorHandler,
+                                                                 RequestStrategy strategy, LatencyWindow latencies)
             throws ClearingHouseException {
+        // try the healthiest endpoints first and skip those with an open circuit
+        List<Map.Entry<String, C>> entries = endpointHealthManager.rank(clients);
+        if (entries.isEmpty() && !clients.isEmpty()) {
+            throw new ClearingHouseException("No clearing house endpoint is currently available.");
+        }
+        ClearingHouseException[] encounteredExceptions = new ClearingHouseException[entries.size()];
+
+        if (strategy == RequestStrategy.SEQUENTIAL || entries.size() <= 1) {
+            // try one uri, then if an exception is thrown try next uri
+            for (int i = 0; i < entries.size(); i++) {
+                Attempt attempt = attempt(i, entries.get(i), call, errorHandler, latencies);
+                if (attempt.result() != null) {
+                    return attempt.result();
+                }
+                encounteredExceptions[i] = attempt.exception();
+            }
+            return throwLastException(encounteredExceptions);
+        }
+
+        CompletionService<Attempt> completionService = new ExecutorCompletionService<>(requestExecutor);
+        List<Future<Attempt>> futures = new ArrayList<>();
+        int next = 0;
+        int initial = strategy == RequestStrategy.RACE ? entries.size() : 1;
+        while (next < initial) {
+            int index = next++;
+            futures.add(completionService.submit(() ->
+                    attempt(index, entries.get(index), call, errorHandler, latencies)));
+        }
+        int running = futures.size();
+
+        try {
+            while (running > 0) {
+                Future<Attempt> done;
+                if (next < entries.size()) {
+                    long hedgeDelay = latencies.percentile(hedgePercentile, hedgeDelayMs);
+                    done = completionService.poll(hedgeDelay, TimeUnit.MILLISECONDS);
+                } else {
+                    done = completionService.take();
+                }
+
+                if (done == null) {
+                    // no answer within the hedge delay, additionally ask the next endpoint
+                    int index = next++;
+                    log.info("No answer from clearing house within hedge delay, also trying {}",
+                            entries.get(index).getKey());
+                    futures.add(completionService.submit(() ->
+                    attempt(index, entries.get(index), call, errorHandler, latencies)));
+                    running++;
+                    continue;
+                }
+
+                running--;
+                Attempt attempt = done.get();
+                if (attempt.result() != null) {
+                    return attempt.result();
+                }
+                encounteredExceptions[attempt.index()] = attempt.exception();
+                if (next < entries.size()) {
+                    // the endpoint failed, do not wait for the hedge delay to try the next one
+                    int index = next++;
+                    futures.add(completionService.submit(() ->
+                    attempt(index, entries.get(index), call, errorHandler, latencies)));
+                    running++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClearingHouseException("Interrupted while waiting for clearing house.");
+        } catch (ExecutionException e) {
+            throw new ClearingHouseException(e.getCause().getMessage());
+        } finally {
+            // cancel the requests that lost the race
+            futures.forEach(future -> future.cancel(true));
+        }
+
+        return throwLastException(encounteredExceptions);
+    }
+
+    private <C> Attempt attempt(int index, Map.Entry<String, C> clientEntry, ClearingHouseCall<C> call,
+                                ClearingHouseErrorHandler errorHandler, LatencyWindow latencies) {
+        if (!endpointHealthManager.tryAcquire(clientEntry.getKey())) {
+            return new Attempt(index, null, new ClearingHouseException(
+                    "Circuit for " + clientEntry.getKey() + " is open."));
+        }
+        long start = System.nanoTime();
+        try {
+            ExtendedVerifiableCredential result = call.call(clientEntry);
+            endpointHealthManager.recordSuccess(clientEntry.getKey(), elapsedMs(start));
+            if (result != null) {
+                latencies.record(elapsedMs(start));
+            }
+            return new Attempt(index, result, null);
+        } catch (ClearingHouseException e) {
+            endpointHealthManager.recordSuccess(clientEntry.getKey(), elapsedMs(start));
+            return new Attempt(index, null, e);
+        } catch (WebClientResponseException e) {
+            recordResponse(clientEntry.getKey(), e, elapsedMs(start));
+            return new Attempt(index, null, errorHandler.handle(e));
+        } catch (RuntimeException e) {
+            if (!Thread.currentThread().isInterrupted()) {
+                // a request cancelled after losing a race says nothing about the endpoint
+                endpointHealthManager.recordFailure(clientEntry.getKey(), elapsedMs(start));
+            }
+            log.info("Failed to reach clearing house {}: {}", clientEntry.getKey(), e.getMessage());
+            return new Attempt(index, null,
+                    new ClearingHouseException("Failed to reach " + clientEntry.getKey() + ": " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Record an error response of an endpoint. Server errors and rate limiting count as failures of the endpoint,
+     * other error responses are caused by the request and show that the endpoint itself is healthy.
+     */
+    void recordResponse(String baseUri, WebClientResponseException e, long latencyMs) {
+        if (e.getStatusCode().is5xxServerError() || e.getStatusCode().value() == 429) {
+            endpointHealthManager.recordFailure(baseUri, latencyMs);
+        } else {
+            endpointHealthManager.recordSuccess(baseUri, latencyMs);
+        }
+    }
+
+    static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Return the health of all clearing house endpoints that have been contacted so far.
+     *
+     * @return endpoint states by base uri
+     */
+    public Map<String, ClearingHouseEndpointState> getEndpointStates() {
+        return endpointHealthManager.getEndpointStates();
+    }
+
+    private static ExtendedVerifiableCredential throwLastException(ClearingHouseException[] encounteredExceptions)
+            throws ClearingHouseException {
+        // currently we only consider the last exception
+        for (int i = encounteredExceptions.length - 1; i >= 0; i--) {
+            if (encounteredExceptions[i] != null) {
+                throw encounteredExceptions[i];
+            }
+        }
+        return null;
+    }
+
+    ClearingHouseException toComplianceException(WebClientResponseException e) {
         JsonNode errorResponse;
         try {
             errorResponse = objectMapper.readTree(e.getResponseBodyAsString());
         } catch (Exception ignored) {
-            throw new ClearingHouseException("Unknown error");
+            return new ClearingHouseException("Unknown error");
         }
 
         JsonNode errorMessage = errorResponse.get("message");
@@ -180,12 +618,11 @@ public class GxdchService {
             errorText = errorMessage.toString(); // get node as json string
         }
 
-        throw new ClearingHouseException(errorText);
+        return new ClearingHouseException(errorText);
     }
 
-    private void handleNotaryErrorResponse(WebClientResponseException e)
-            throws ClearingHouseException {
-        throw new ClearingHouseException(e.getResponseBodyAsString());
+    ClearingHouseException toNotaryException(WebClientResponseException e) {
+        return new ClearingHouseException(e.getResponseBodyAsString());
     }
 
 
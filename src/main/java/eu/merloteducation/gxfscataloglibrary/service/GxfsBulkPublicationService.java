@@ -0,0 +1,197 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiableCredential;
+import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialPresentationException;
+import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialSignatureException;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.PojoCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.SelfDescriptionMeta;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.SelfDescriptionPublicationProgress;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.SelfDescriptionPublicationResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Service for publishing large numbers of service offerings. The publication of each offering is split into
+ * signing, compliance check, final signing and catalog storage, and these stages are pipelined with separate
+ * concurrency limits, as the compliance service and the catalog have different capacities.
+ */
+@Service
+@Slf4j
+public class GxfsBulkPublicationService {
+
+    private final GxfsCatalogService gxfsCatalogService;
+
+    private final int signingConcurrency;
+
+    private final int complianceConcurrency;
+
+    private final int catalogConcurrency;
+
+    private static final class PublicationItem {
+        private final long index;
+        private final List<PojoCredentialSubject> credentialSubjects;
+        private GxfsCatalogService.ServiceOfferingDraft draft;
+        private SelfDescriptionMeta meta;
+        private Exception error;
+
+        private PublicationItem(long index, List<PojoCredentialSubject> credentialSubjects) {
+            this.index = index;
+            this.credentialSubjects = credentialSubjects;
+        }
+    }
+
+    @FunctionalInterface
+    private interface PublicationStage {
+        void run(PublicationItem item) throws CredentialPresentationException, CredentialSignatureException;
+    }
+
+    public GxfsBulkPublicationService(@Autowired GxfsCatalogService gxfsCatalogService,
+                                      @Value("${gxfscatalog-library.bulk.signing-concurrency:#{0}}") int signingConcurrency,
+                                      @Value("${gxfscatalog-library.bulk.compliance-concurrency:#{4}}") int complianceConcurrency,
+                                      @Value("${gxfscatalog-library.bulk.catalog-concurrency:#{8}}") int catalogConcurrency) {
+        this.gxfsCatalogService = gxfsCatalogService;
+        this.signingConcurrency = signingConcurrency > 0 ? signingConcurrency
+                : Runtime.getRuntime().availableProcessors();
+        this.complianceConcurrency = complianceConcurrency;
+        this.catalogConcurrency = catalogConcurrency;
+    }
+
+    /**
+     * Given a stream of credential subject lists (one per service offering), publish all offerings to the catalog
+     * using the default verification method and key and wait for the results.
+     *
+     * @param offerings stream of credential subject lists, one per service offering
+     * @param participantCredentials list of credentials of the provider of the offerings
+     * @param progressListener listener that is called after each completed offering, may be null
+     * @return list of results in the order of the given offerings
+     */
+    public List<SelfDescriptionPublicationResult> publishServiceOfferings(
+            Stream<List<PojoCredentialSubject>> offerings,
+            List<ExtendedVerifiableCredential> participantCredentials,
+            Consumer<SelfDescriptionPublicationProgress> progressListener) {
+        return publishServiceOfferings(offerings, participantCredentials, null, null, progressListener);
+    }
+
+    /**
+     * Given a stream of credential subject lists (one per service offering), publish all offerings to the catalog
+     * using the given verification method and key and wait for the results.
+     *
+     * @param offerings stream of credential subject lists, one per service offering
+     * @param participantCredentials list of credentials of the provider of the offerings
+     * @param verificationMethod method that can be used to verify the signature
+     * @param privateKey private key for signing
+     * @param progressListener listener that is called after each completed offering, may be null
+     * @return list of results in the order of the given offerings
+     */
+    public List<SelfDescriptionPublicationResult> publishServiceOfferings(
+            Stream<List<PojoCredentialSubject>> offerings,
+            List<ExtendedVerifiableCredential> participantCredentials,
+            String verificationMethod, String privateKey,
+            Consumer<SelfDescriptionPublicationProgress> progressListener) {
+        return publishServiceOfferings(Flux.fromStream(offerings), participantCredentials,
+                verificationMethod, privateKey, progressListener).collectList().block();
+    }
+
+    /**
+     * Given a publisher of credential subject lists (one per service offering), publish all offerings to the catalog.
+     * Offerings are only requested from the given publisher as fast as the pipeline processes them. A failing
+     * offering does not abort the publication, its error is reported in the corresponding result instead.
+     *
+     * @param offerings publisher of credential subject lists, one per service offering
+     * @param participantCredentials list of credentials of the provider of the offerings
+     * @param verificationMethod method that can be used to verify the signature or null for the default
+     * @param privateKey private key for signing or null for the default
+     * @param progressListener listener that is called after each completed offering, may be null
+     * @return flux of results in the order of the given offerings
+     */
+    public Flux<SelfDescriptionPublicationResult> publishServiceOfferings(
+            Flux<List<PojoCredentialSubject>> offerings,
+            List<ExtendedVerifiableCredential> participantCredentials,
+            String verificationMethod, String privateKey,
+            Consumer<SelfDescriptionPublicationProgress> progressListener) {
+        AtomicLong submitted = new AtomicLong();
+        AtomicLong published = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+
+        return offerings
+                .index()
+                .map(tuple -> new PublicationItem(tuple.getT1(), tuple.getT2()))
+                .doOnNext(item -> submitted.incrementAndGet())
+                .flatMapSequential(item -> runStage(item, i -> i.draft = gxfsCatalogService.prepareServiceOffering(
+                        i.credentialSubjects, participantCredentials, verificationMethod, privateKey)),
+                        signingConcurrency)
+                .flatMapSequential(item -> runStage(item,
+                        i -> gxfsCatalogService.attestServiceOfferingCompliance(i.draft)),
+                        complianceConcurrency)
+                .flatMapSequential(item -> runStage(item,
+                        i -> gxfsCatalogService.completeServiceOffering(i.draft)),
+                        signingConcurrency)
+                .flatMapSequential(item -> runStage(item,
+                        i -> i.meta = gxfsCatalogService.publishServiceOffering(i.draft)),
+                        catalogConcurrency)
+                .map(item -> {
+                    if (item.error == null) {
+                        published.incrementAndGet();
+                    } else {
+                        failed.incrementAndGet();
+                        log.warn("Failed to publish offering {}: {}", item.index, item.error.getMessage());
+                    }
+                    if (progressListener != null) {
+                        progressListener.accept(new SelfDescriptionPublicationProgress(
+                                submitted.get(), published.get(), failed.get()));
+                    }
+                    return toResult(item);
+                });
+    }
+
+    private Mono<PublicationItem> runStage(PublicationItem item, PublicationStage stage) {
+        if (item.error != null) {
+            return Mono.just(item);
+        }
+        // all stages block on signing or web requests, hence they must not run on the event loop
+        return Mono.fromCallable(() -> {
+                    stage.run(item);
+                    return item;
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(Exception.class, e -> {
+                    item.error = e;
+                    item.draft = null;
+                    return Mono.just(item);
+                });
+    }
+
+    private static SelfDescriptionPublicationResult toResult(PublicationItem item) {
+        SelfDescriptionPublicationResult result = new SelfDescriptionPublicationResult();
+        result.setIndex(item.index);
+        result.setMeta(item.meta);
+        result.setError(item.error);
+        return result;
+    }
+}
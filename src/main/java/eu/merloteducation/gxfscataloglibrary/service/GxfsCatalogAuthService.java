@@ -18,23 +18,53 @@ package eu.merloteducation.gxfscataloglibrary.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import io.netty.util.internal.StringUtil;
-import lombok.Getter;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Manages the access token used for requests to the catalog. Tokens are refreshed ahead of their expiry as announced
+ * by the identity provider, using the refresh token grant while the refresh token is valid and the configured grant
+ * otherwise. Concurrent refreshes, e.g. of several requests rejected with the same token, share a single token request
+ * and after a failed token request no further request is made until the retry delay passed.
+ */
 @Service
 public class GxfsCatalogAuthService {
 
+    // lifetime assumed if the identity provider does not announce one, which was the former refresh interval
+    private static final Duration DEFAULT_TOKEN_LIFETIME = Duration.ofSeconds(120);
+
+    private static final long MINIMUM_RETRY_DELAY_MS = 100;
+
+    private record TokenState(String accessToken, String refreshToken, long refreshAtNanos,
+                              long refreshTokenExpiresAtNanos) {
+        boolean isDue(long nowNanos) {
+            return nowNanos - refreshAtNanos >= 0;
+        }
+
+        boolean isRefreshTokenValid(long nowNanos) {
+            return refreshToken != null && refreshTokenExpiresAtNanos - nowNanos > 0;
+        }
+    }
+
+    private record FailedRequest(Throwable error, long failedAtNanos) {
+    }
+
     private final Logger logger = LoggerFactory.getLogger(GxfsCatalogAuthService.class);
     private final WebClient webClient;
     private final String keycloakTokenUri;
@@ -44,12 +74,17 @@ public class GxfsCatalogAuthService {
     private final String grantType;
     private final String keycloakGXFScatalogUser;
     private final String keycloakGXFScatalogPass;
+    private final Duration expiryMargin;
+    private final Duration retryDelay;
+    private final GxfsCatalogMetrics metrics;
 
-    @Getter
-    private String authToken;
-    private String refreshToken;
+    private final AtomicReference<TokenState> tokenState = new AtomicReference<>();
+    private final AtomicReference<Mono<TokenState>> pendingRequest = new AtomicReference<>();
+    private final AtomicReference<Disposable> scheduledRefresh = new AtomicReference<>();
+    private volatile FailedRequest lastFailure;
+    private volatile boolean stopped;
 
-    private boolean active = false;
+    private final boolean active;
 
     public GxfsCatalogAuthService(@Value("${keycloak.token-uri:#{null}}") String keycloakTokenUri,
                                   @Value("${keycloak.logout-uri:#{null}}") String keycloakLogoutUri,
@@ -58,7 +93,10 @@ public class GxfsCatalogAuthService {
                                   @Value("${keycloak.authorization-grant-type:#{null}}") String grantType,
                                   @Value("${keycloak.gxfscatalog-user:#{null}}") String keycloakGXFScatalogUser,
                                   @Value("${keycloak.gxfscatalog-pass:#{null}}") String keycloakGXFScatalogPass,
-                                  @Autowired WebClient webClient) {
+                                  @Value("${gxfscatalog-library.auth.expiry-margin-ms:#{30000}}") long expiryMarginMs,
+                                  @Value("${gxfscatalog-library.auth.retry-delay-ms:#{5000}}") long retryDelayMs,
+                                  @Autowired WebClient webClient,
+                                  @Autowired GxfsCatalogMetrics metrics) {
         this.keycloakTokenUri = keycloakTokenUri;
         this.keycloakLogoutUri = keycloakLogoutUri;
         this.clientId = clientId;
@@ -66,51 +104,208 @@ public class GxfsCatalogAuthService {
         this.grantType = grantType;
         this.keycloakGXFScatalogUser = keycloakGXFScatalogUser;
         this.keycloakGXFScatalogPass = keycloakGXFScatalogPass;
+        this.expiryMargin = Duration.ofMillis(Math.max(0, expiryMarginMs));
+        this.retryDelay = Duration.ofMillis(Math.max(MINIMUM_RETRY_DELAY_MS, retryDelayMs));
         this.webClient = webClient;
+        this.metrics = metrics;
 
-        if (!(StringUtil.isNullOrEmpty(this.keycloakGXFScatalogUser)
-                || StringUtil.isNullOrEmpty(this.keycloakGXFScatalogPass))) {
-            this.active = true;
+        this.active = !(StringUtil.isNullOrEmpty(this.keycloakGXFScatalogUser)
+                || StringUtil.isNullOrEmpty(this.keycloakGXFScatalogPass));
+        if (this.active) {
+            // the first login runs in the background, requests made before it finished wait for it
             this.refreshLogin();
         } else {
             logger.warn("No valid credentials found for the catalog user. Requests to the catalog will not work.");
         }
     }
 
-    @Scheduled(fixedDelay = 120 * 1000)
+    @PreDestroy
+    public void shutdown() {
+        stopped = true;
+        Disposable refresh = scheduledRefresh.getAndSet(null);
+        if (refresh != null) {
+            refresh.dispose();
+        }
+    }
+
+    /**
+     * Return the current access token without checking its expiry.
+     *
+     * @return access token or null if no token was obtained yet
+     */
+    public String getAuthToken() {
+        TokenState state = tokenState.get();
+        return state == null ? null : state.accessToken();
+    }
+
+    /**
+     * Whether the current access token must be refreshed before it is used, i.e. no token was obtained yet or the
+     * token is about to expire.
+     *
+     * @return true if the token needs to be refreshed
+     */
+    public boolean isAuthTokenExpired() {
+        if (!active) {
+            return false;
+        }
+        TokenState state = tokenState.get();
+        return state == null || state.isDue(System.nanoTime());
+    }
+
+    /**
+     * Return a valid access token, refreshing it if it is about to expire.
+     *
+     * @return access token, empty if no catalog credentials are configured
+     */
+    public Mono<String> getValidAuthToken() {
+        return Mono.defer(() -> isAuthTokenExpired()
+                ? refreshAuthToken(getAuthToken())
+                : Mono.justOrEmpty(getAuthToken()));
+    }
+
+    /**
+     * Return an access token other than the given one, e.g. after the given token was rejected by the catalog. If the
+     * token was already replaced in the meantime, the current token is returned without a new token request. All
+     * callers refreshing at the same time share the same token request.
+     *
+     * @param staleToken token to replace
+     * @return new access token, empty if no catalog credentials are configured
+     */
+    public Mono<String> refreshAuthToken(String staleToken) {
+        if (!active) {
+            return Mono.empty();
+        }
+        return Mono.defer(() -> {
+            long now = System.nanoTime();
+            TokenState state = tokenState.get();
+            if (state != null && !Objects.equals(state.accessToken(), staleToken) && !state.isDue(now)) {
+                return Mono.just(state.accessToken());
+            }
+            FailedRequest failure = lastFailure;
+            if (failure != null && now - failure.failedAtNanos() < retryDelay.toNanos()) {
+                // do not hammer the identity provider, the scheduled retry will request a new token
+                return Mono.error(new IllegalStateException("Authentication token is not available", failure.error()));
+            }
+            return requestTokenShared().map(TokenState::accessToken);
+        });
+    }
+
+    /**
+     * Request a new access token in the background, e.g. after the catalog user was changed in the identity
+     * provider. Tokens are refreshed automatically before they expire, hence calling this is usually not needed.
+     */
     public void refreshLogin() {
-        // maybe compute delay dynamically from token
         if (active) {
-            try {
-                loginAsGXFSCatalog();
-            } catch (WebClientRequestException | WebClientResponseException e) {
-                logger.warn("Failed to refresh authentication token", e);
-            }
+            requestTokenShared().subscribe(state -> { }, error -> { });
+        }
+    }
+
+    private Mono<TokenState> requestTokenShared() {
+        Sinks.One<TokenState> sink = Sinks.one();
+        Mono<TokenState> request = sink.asMono();
+        Mono<TokenState> pending = pendingRequest.compareAndExchange(null, request);
+        if (pending != null) {
+            return pending;
+        }
+        requestToken().subscribe(state -> {
+            tokenState.set(state);
+            lastFailure = null;
+            pendingRequest.compareAndSet(request, null);
+            // tokens that are due immediately are refreshed on demand, the schedule must not spin
+            scheduleRefresh(Duration.ofNanos(Math.max(retryDelay.toNanos(),
+                    state.refreshAtNanos() - System.nanoTime())));
+            sink.tryEmitValue(state);
+        }, error -> {
+            logger.warn("Failed to refresh authentication token", error);
+            lastFailure = new FailedRequest(error, System.nanoTime());
+            pendingRequest.compareAndSet(request, null);
+            scheduleRefresh(retryDelay);
+            sink.tryEmitError(error);
+        });
+        return request;
+    }
+
+    private void scheduleRefresh(Duration delay) {
+        if (stopped) {
+            return;
+        }
+        Disposable refresh = Mono.delay(delay)
+                .flatMap(tick -> requestTokenShared())
+                .subscribe(state -> { }, error -> { });
+        Disposable previous = scheduledRefresh.getAndSet(refresh);
+        if (previous != null && previous != refresh) {
+            previous.dispose();
+        }
+    }
+
+    private Mono<TokenState> requestToken() {
+        TokenState previous = tokenState.get();
+        if (previous != null && previous.isRefreshTokenValid(System.nanoTime())) {
+            return requestToken("refresh_token", refreshTokenGrant(previous.refreshToken()))
+                    .onErrorResume(WebClientResponseException.class, e -> {
+                        logger.info("Refresh token was rejected, logging in again");
+                        return requestToken(grantType, loginGrant());
+                    });
         }
+        return requestToken(grantType, loginGrant())
+                .doOnNext(state -> {
+                    // end the previous session, a new one was started with the login
+                    if (previous != null) {
+                        logoutAsGXFSCatalog(previous.refreshToken());
+                    }
+                });
     }
 
-    private void loginAsGXFSCatalog() {
+    private Mono<TokenState> requestToken(String grant, MultiValueMap<String, String> form) {
+        return metrics.record(GxfsCatalogMetrics.TOKEN_REFRESH, Mono.defer(() -> {
+                    long requestedAt = System.nanoTime();
+                    return webClient.post()
+                            .uri(keycloakTokenUri)
+                            .body(BodyInserters.fromValue(form))
+                            .retrieve()
+                            .bodyToMono(JsonNode.class)
+                            .filter(result -> result.hasNonNull("access_token"))
+                            .switchIfEmpty(Mono.error(() ->
+                                    new IllegalStateException("Token response did not contain an access token")))
+                            .map(result -> toTokenState(result, requestedAt));
+                }), "grant", grant);
+    }
+
+    private TokenState toTokenState(JsonNode result, long requestedAt) {
+        Duration lifetime = result.hasNonNull("expires_in")
+                ? Duration.ofSeconds(result.get("expires_in").asLong()) : DEFAULT_TOKEN_LIFETIME;
+        // refresh ahead of the expiry, but never later than after half of the lifetime for short-lived tokens
+        Duration refreshAfter = lifetime.minus(expiryMargin);
+        if (refreshAfter.compareTo(lifetime.dividedBy(2)) < 0) {
+            refreshAfter = lifetime.dividedBy(2);
+        }
+        String refreshToken = result.hasNonNull("refresh_token") ? result.get("refresh_token").asText() : null;
+        // a refresh token without announced lifetime is tried until the identity provider rejects it
+        long refreshTokenLifetime = result.hasNonNull("refresh_expires_in")
+                && result.get("refresh_expires_in").asLong() > 0
+                ? Duration.ofSeconds(result.get("refresh_expires_in").asLong()).minus(expiryMargin).toNanos()
+                : Long.MAX_VALUE / 2;
+        return new TokenState(result.get("access_token").asText(), refreshToken,
+                requestedAt + refreshAfter.toNanos(), requestedAt + refreshTokenLifetime);
+    }
+
+    private MultiValueMap<String, String> loginGrant() {
         MultiValueMap<String, String> map = new LinkedMultiValueMap<>();
         map.add("username", keycloakGXFScatalogUser);
         map.add("password", keycloakGXFScatalogPass);
         map.add("client_id", clientId);
         map.add("client_secret", clientSecret);
         map.add("grant_type", grantType);
+        return map;
+    }
 
-        JsonNode loginResult = webClient.post()
-                .uri(keycloakTokenUri)
-                .body(BodyInserters.fromValue(map))
-                .retrieve()
-                .bodyToMono(JsonNode.class)
-                .block();
-        if (loginResult != null && loginResult.has("access_token")) {
-            String previousRefreshToken = this.refreshToken;
-            // store new tokens
-            this.authToken = loginResult.get("access_token").asText();
-            this.refreshToken = loginResult.get("refresh_token").asText();
-            // end previous session
-            logoutAsGXFSCatalog(previousRefreshToken);
-        }
+    private MultiValueMap<String, String> refreshTokenGrant(String refreshToken) {
+        MultiValueMap<String, String> map = new LinkedMultiValueMap<>();
+        map.add("client_id", clientId);
+        map.add("client_secret", clientSecret);
+        map.add("grant_type", "refresh_token");
+        map.add("refresh_token", refreshToken);
+        return map;
     }
 
     private void logoutAsGXFSCatalog(String refreshToken) {
@@ -0,0 +1,161 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+
+/**
+ * Records the duration and outcome of calls to external services and of the signing stages. If Micrometer is on the
+ * classpath and a MeterRegistry bean is present, the recordings are published as timers, counters and observations,
+ * otherwise {@link #NOOP} is used, which records nothing.
+ * <p>
+ * Tags are given as alternating keys and values and must only have few distinct values, e.g. endpoints, operations
+ * or credential types, but no ids.
+ */
+public interface GxfsCatalogMetrics {
+
+    String KEY_LOADING = "key.load";
+
+    String DID_WEB_FETCH = "did-web.fetch";
+
+    String CREDENTIAL_CREATION = "credential.create";
+
+    String CREDENTIAL_SIGNING = "credential.sign";
+
+    String SIGNATURE_CHECK = "credential.check";
+
+    String CLIENT_REQUESTS = "client.requests";
+
+    String TOKEN_REFRESH = "token.refresh";
+
+    String RESPONSE_FILTER_BYTES = "response-filter.bytes";
+
+    String SERVICE = "service";
+
+    String ENDPOINT = "endpoint";
+
+    String OPERATION = "operation";
+
+    String OUTCOME = "outcome";
+
+    String CREDENTIAL_TYPE = "credential.type";
+
+    String MATERIAL = "material";
+
+    String DIRECTION = "direction";
+
+    /**
+     * Timing of a synchronous stage, to be closed when the stage has finished. The stage counts as failed unless
+     * {@link #success()} was called before closing.
+     */
+    interface Timing extends AutoCloseable {
+
+        /**
+         * Mark the stage as successful.
+         */
+        void success();
+
+        @Override
+        void close();
+    }
+
+    GxfsCatalogMetrics NOOP = new GxfsCatalogMetrics() {
+
+        private static final Timing NOOP_TIMING = new Timing() {
+            @Override
+            public void success() {
+                // nothing to record
+            }
+
+            @Override
+            public void close() {
+                // nothing to record
+            }
+        };
+
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public Timing start(String name, String... tags) {
+            return NOOP_TIMING;
+        }
+
+        @Override
+        public <T> Mono<T> record(String name, Mono<T> call, String... tags) {
+            return call;
+        }
+
+        @Override
+        public void count(String name, long amount, String... tags) {
+            // nothing to record
+        }
+
+        @Override
+        public ExchangeFilterFunction exchangeFilter(String service, String endpoint) {
+            return (request, next) -> next.exchange(request);
+        }
+    };
+
+    /**
+     * Return whether recordings are published at all, so callers can skip collecting the values to record.
+     *
+     * @return true if recordings are published
+     */
+    boolean isEnabled();
+
+    /**
+     * Start the timing of a synchronous stage.
+     *
+     * @param name name of the stage
+     * @param tags alternating tag keys and values
+     * @return timing to close when the stage has finished
+     */
+    Timing start(String name, String... tags);
+
+    /**
+     * Record the duration and outcome of each subscription to the given call.
+     *
+     * @param name name of the call
+     * @param call call to record
+     * @param tags alternating tag keys and values
+     * @param <T> type of the result
+     * @return recorded call
+     */
+    <T> Mono<T> record(String name, Mono<T> call, String... tags);
+
+    /**
+     * Add the given amount to a counter.
+     *
+     * @param name name of the counter
+     * @param amount amount to add
+     * @param tags alternating tag keys and values
+     */
+    void count(String name, long amount, String... tags);
+
+    /**
+     * Return a web client filter recording the duration and outcome of requests by operation, i.e. method and uri
+     * template.
+     *
+     * @param service name of the called service, e.g. catalog or compliance
+     * @param endpoint base uri of the called endpoint
+     * @return web client filter
+     */
+    ExchangeFilterFunction exchangeFilter(String service, String endpoint);
+}
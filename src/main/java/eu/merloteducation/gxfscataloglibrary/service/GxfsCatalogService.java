@@ -17,11 +17,10 @@
 package eu.merloteducation.gxfscataloglibrary.service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import eu.merloteducation.gxfscataloglibrary.models.client.QueryLanguage;
 import eu.merloteducation.gxfscataloglibrary.models.client.QueryRequest;
+import eu.merloteducation.gxfscataloglibrary.models.client.SelfDescriptionFilter;
 import eu.merloteducation.gxfscataloglibrary.models.client.SelfDescriptionStatus;
 import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiableCredential;
 import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiablePresentation;
@@ -30,33 +29,26 @@ import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialPresenta
 import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialSignatureException;
 import eu.merloteducation.gxfscataloglibrary.models.participants.ParticipantItem;
 import eu.merloteducation.gxfscataloglibrary.models.query.GXFSQueryLegalNameItem;
+import eu.merloteducation.gxfscataloglibrary.models.query.GXFSQueryUriCursorPage;
 import eu.merloteducation.gxfscataloglibrary.models.query.GXFSQueryUriItem;
+import eu.merloteducation.gxfscataloglibrary.models.query.GXFSQueryUriSortKeyItem;
 import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.*;
 import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.participants.GxLegalParticipantCredentialSubject;
 import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.participants.GxLegalRegistrationNumberCredentialSubject;
-import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.serviceofferings.GxServiceOfferingCredentialSubject;
-import foundation.identity.jsonld.ConfigurableDocumentLoader;
-import io.netty.util.internal.StringUtil;
+import eu.merloteducation.gxfscataloglibrary.service.SigningExecutor.CredentialTask;
 import lombok.extern.slf4j.Slf4j;
-import org.bouncycastle.asn1.pkcs.PrivateKeyInfo;
-import org.bouncycastle.openssl.PEMParser;
-import org.bouncycastle.openssl.jcajce.JcaPEMKeyConverter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.io.*;
-import java.net.URI;
-import java.nio.charset.StandardCharsets;
 import java.security.PrivateKey;
-import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.stream.Stream;
 
 @Service
@@ -69,44 +61,63 @@ public class GxfsCatalogService {
 
     private final String defaultPrivateKey;
 
-    private final boolean enforceCompliance;
-
-    private final boolean enforceNotary;
-
     private final GxfsCatalogClient gxfsCatalogClient;
 
-    private final GxfsSignerService gxfsSignerService;
-
     private final GxdchService gxdchService;
 
-    private final WebClient webClient;
+    private final DidWebResolverService didWebResolverService;
 
     private final ObjectMapper objectMapper;
 
-    private static final String TYPE_NOT_FOUND_MESSAGE = "Could not find %s in list of credential subjects.";
+    private final KeyMaterialRegistry keyMaterialRegistry;
+
+    private final SigningExecutor signingExecutor;
+
+    private final CatalogQueryBuilder catalogQueryBuilder;
+
+    private final ParticipantLegalNameCache participantLegalNameCache;
+
+    private final CredentialAssembly credentialAssembly;
+
+    private final int lookupChunkSize;
+
+    private final int lookupParallelism;
 
     static final String URN_UUID_PREFIX = "urn:uuid:";
 
     public GxfsCatalogService(@Autowired GxfsCatalogClient gxfsCatalogClient,
                               @Autowired GxfsSignerService gxfsSignerService,
                               @Autowired GxdchService gxdchService,
-                              @Autowired WebClient webClient,
+                              @Autowired DidWebResolverService didWebResolverService,
                               @Autowired ObjectMapper objectMapper,
+                              @Autowired CachedDocumentLoader documentLoader,
+                              @Autowired KeyMaterialRegistry keyMaterialRegistry,
+                              @Autowired SigningExecutor signingExecutor,
+                              @Autowired ComplianceCredentialCache complianceCredentialCache,
+                              @Autowired CatalogQueryBuilder catalogQueryBuilder,
+                              @Autowired ParticipantLegalNameCache participantLegalNameCache,
                               @Value("${gxfscatalog.verification-method:#{null}}") String defaultVerificationMethod,
                               @Value("${gxfscatalog.cert-path:#{null}}") String defaultCertPath,
                               @Value("${gxfscatalog.private-key-path:#{null}}") String defaultPrivateKey,
                               @Value("${gxdch-services.enforce-compliance:#{false}}") boolean enforceCompliance,
-                              @Value("${gxdch-services.enforce-notary:#{false}}") boolean enforceNotary) {
+                              @Value("${gxdch-services.enforce-notary:#{false}}") boolean enforceNotary,
+                              @Value("${gxfscatalog-library.lookup.chunk-size:#{50}}") int lookupChunkSize,
+                              @Value("${gxfscatalog-library.lookup.parallelism:#{4}}") int lookupParallelism) {
         this.gxfsCatalogClient = gxfsCatalogClient;
-        this.gxfsSignerService = gxfsSignerService;
         this.gxdchService = gxdchService;
-        this.webClient = webClient;
+        this.didWebResolverService = didWebResolverService;
         this.objectMapper = objectMapper;
+        this.keyMaterialRegistry = keyMaterialRegistry;
+        this.signingExecutor = signingExecutor;
+        this.catalogQueryBuilder = catalogQueryBuilder;
+        this.participantLegalNameCache = participantLegalNameCache;
+        this.credentialAssembly = new CredentialAssembly(gxfsSignerService, documentLoader, complianceCredentialCache,
+                enforceCompliance, enforceNotary);
         this.defaultVerificationMethod = defaultVerificationMethod;
         this.defaultCertPath = defaultCertPath;
         this.defaultPrivateKey = defaultPrivateKey;
-        this.enforceCompliance = enforceCompliance;
-        this.enforceNotary = enforceNotary;
+        this.lookupChunkSize = lookupChunkSize;
+        this.lookupParallelism = lookupParallelism;
     }
 
     /**
@@ -147,18 +158,7 @@ public class GxfsCatalogService {
      * @return list of SD items that match the ids
      */
     public GXFSCatalogListResponse<SelfDescriptionItem> getSelfDescriptionsByIds(String[] ids) {
-        return this.gxfsCatalogClient.getSelfDescriptionList(
-                null,
-                null,
-                null,
-                null,
-                new SelfDescriptionStatus[]{SelfDescriptionStatus.ACTIVE},
-                ids,
-                null,
-                true,
-                true,
-                0,
-                ids.length);
+        return lookupSelfDescriptionsByIds(ids);
     }
 
     /**
@@ -171,18 +171,7 @@ public class GxfsCatalogService {
      */
     public GXFSCatalogListResponse<SelfDescriptionItem> getSelfDescriptionsByIds(String[] ids,
                                                                                  SelfDescriptionStatus[] selfDescriptionStatuses) {
-        return this.gxfsCatalogClient.getSelfDescriptionList(
-                null,
-                null,
-                null,
-                null,
-                selfDescriptionStatuses,
-                ids,
-                null,
-                true,
-                true,
-                0,
-                ids.length);
+        return lookupSelfDescriptionsByIds(ids, selfDescriptionStatuses);
     }
 
     /**
@@ -194,18 +183,7 @@ public class GxfsCatalogService {
      * @return list of SD items that match the hashes
      */
     public GXFSCatalogListResponse<SelfDescriptionItem> getSelfDescriptionsByHashes(String[] hashes) {
-        return this.gxfsCatalogClient.getSelfDescriptionList(
-                null,
-                null,
-                null,
-                null,
-                new SelfDescriptionStatus[]{SelfDescriptionStatus.ACTIVE},
-                null,
-                hashes,
-                true,
-                true,
-                0,
-                hashes.length);
+        return lookupSelfDescriptionsByHashes(hashes);
     }
 
     /**
@@ -218,18 +196,151 @@ public class GxfsCatalogService {
      */
     public GXFSCatalogListResponse<SelfDescriptionItem> getSelfDescriptionsByHashes(String[] hashes,
                                                                                     SelfDescriptionStatus[] selfDescriptionStatuses) {
-        return this.gxfsCatalogClient.getSelfDescriptionList(
-                null,
-                null,
-                null,
-                null,
-                selfDescriptionStatuses,
-                null,
-                hashes,
-                true,
-                true,
-                0,
-                hashes.length);
+        return lookupSelfDescriptionsByHashes(hashes, selfDescriptionStatuses);
+    }
+
+    /**
+     * Like {@link #getSelfDescriptionsByIds(String[])}, but additionally report the ids without a matching
+     * self-description.
+     *
+     * @param ids array of ids to query the catalog for
+     * @return list of SD items that match the ids in the order of the ids, ids without match are listed as missing
+     */
+    public SelfDescriptionLookupResponse lookupSelfDescriptionsByIds(String[] ids) {
+        return lookupSelfDescriptionsByIds(ids, new SelfDescriptionStatus[]{SelfDescriptionStatus.ACTIVE});
+    }
+
+    /**
+     * Like {@link #getSelfDescriptionsByIds(String[], SelfDescriptionStatus[])}, but additionally report the ids
+     * without a matching self-description. Large lists of ids are split into chunks that are requested concurrently.
+     *
+     * @param ids array of ids to query the catalog for
+     * @param selfDescriptionStatuses array of wanted SD statuses
+     * @return list of SD items that match the ids in the order of the ids, ids without match are listed as missing
+     */
+    public SelfDescriptionLookupResponse lookupSelfDescriptionsByIds(String[] ids,
+                                                                     SelfDescriptionStatus[] selfDescriptionStatuses) {
+        return CatalogLookup.lookup(ids, CatalogLookup.BY_ID, chunk -> blockingPage(() ->
+                        this.gxfsCatalogClient.getSelfDescriptionList(
+                                null,
+                                null,
+                                null,
+                                null,
+                                selfDescriptionStatuses,
+                                chunk,
+                                null,
+                                true,
+                                true,
+                                0,
+                                chunk.length)),
+                lookupChunkSize, lookupParallelism).block();
+    }
+
+    /**
+     * Like {@link #getSelfDescriptionsByHashes(String[])}, but additionally report the hashes without a matching
+     * self-description.
+     *
+     * @param hashes array of hashes to query the catalog for
+     * @return list of SD items that match the hashes in the order of the hashes, hashes without match are listed as missing
+     */
+    public SelfDescriptionLookupResponse lookupSelfDescriptionsByHashes(String[] hashes) {
+        return lookupSelfDescriptionsByHashes(hashes, new SelfDescriptionStatus[]{SelfDescriptionStatus.ACTIVE});
+    }
+
+    /**
+     * Like {@link #getSelfDescriptionsByHashes(String[], SelfDescriptionStatus[])}, but additionally report the hashes
+     * without a matching self-description. Large lists of hashes are split into chunks that are requested concurrently.
+     *
+     * @param hashes array of hashes to query the catalog for
+     * @param selfDescriptionStatuses array of wanted SD statuses
+     * @return list of SD items that match the hashes in the order of the hashes, hashes without match are listed as missing
+     */
+    public SelfDescriptionLookupResponse lookupSelfDescriptionsByHashes(String[] hashes,
+                                                                        SelfDescriptionStatus[] selfDescriptionStatuses) {
+        return CatalogLookup.lookup(hashes, CatalogLookup.BY_HASH, chunk -> blockingPage(() ->
+                        this.gxfsCatalogClient.getSelfDescriptionList(
+                                null,
+                                null,
+                                null,
+                                null,
+                                selfDescriptionStatuses,
+                                null,
+                                chunk,
+                                true,
+                                true,
+                                0,
+                                chunk.length)),
+                lookupChunkSize, lookupParallelism).block();
+    }
+
+    /**
+     * Stream all self-descriptions in the catalog that match the given filter. The catalog is walked page by page
+     * using the default page size, the next page is already requested while the current one is consumed.
+     * The stream should be closed if it is not consumed completely.
+     *
+     * @param filter filter for the self-descriptions
+     * @return stream of all matching SD items
+     */
+    public Stream<SelfDescriptionItem> streamSelfDescriptions(SelfDescriptionFilter filter) {
+        return streamSelfDescriptions(filter, CatalogPager.DEFAULT_PAGE_SIZE, CatalogPager.DEFAULT_PREFETCH);
+    }
+
+    /**
+     * Stream all self-descriptions in the catalog that match the given filter. The catalog is walked page by page,
+     * up to prefetch pages are already requested while the current one is consumed.
+     * The stream should be closed if it is not consumed completely.
+     *
+     * @param filter filter for the self-descriptions
+     * @param pageSize number of items to request per page
+     * @param prefetch number of pages to request ahead of consumption
+     * @return stream of all matching SD items
+     */
+    public Stream<SelfDescriptionItem> streamSelfDescriptions(SelfDescriptionFilter filter, int pageSize,
+                                                              int prefetch) {
+        return CatalogPager.<SelfDescriptionItem>items((offset, limit) -> blockingPage(() ->
+                        this.gxfsCatalogClient.getSelfDescriptionList(
+                                filter.getUploadTimerange(),
+                                filter.getStatusTimerange(),
+                                filter.getIssuers(),
+                                filter.getValidators(),
+                                filter.getStatuses(),
+                                filter.getIds(),
+                                filter.getHashes(),
+                                filter.isWithMeta(),
+                                filter.isWithContent(),
+                                offset,
+                                limit)),
+                        pageSize, prefetch)
+                .toStream(pageSize);
+    }
+
+    /**
+     * Stream all participants in the catalog using the default page size, the next page is already requested while
+     * the current one is consumed. The stream should be closed if it is not consumed completely.
+     *
+     * @return stream of all participant items
+     */
+    public Stream<ParticipantItem> streamParticipants() {
+        return streamParticipants(CatalogPager.DEFAULT_PAGE_SIZE, CatalogPager.DEFAULT_PREFETCH);
+    }
+
+    /**
+     * Stream all participants in the catalog, up to prefetch pages are already requested while the current one is
+     * consumed. The stream should be closed if it is not consumed completely.
+     *
+     * @param pageSize number of items to request per page
+     * @param prefetch number of pages to request ahead of consumption
+     * @return stream of all participant items
+     */
+    public Stream<ParticipantItem> streamParticipants(int pageSize, int prefetch) {
+        return CatalogPager.<ParticipantItem>items((offset, limit) -> blockingPage(() ->
+                        this.gxfsCatalogClient.getParticipants(offset, limit)), pageSize, prefetch)
+                .toStream(pageSize);
+    }
+
+    private static <T> Mono<GXFSCatalogListResponse<T>> blockingPage(Callable<GXFSCatalogListResponse<T>> request) {
+        // the client blocks, hence prefetched pages are requested on separate threads
+        return Mono.fromCallable(request).subscribeOn(Schedulers.boundedElastic());
     }
 
     /**
@@ -245,7 +356,8 @@ public class GxfsCatalogService {
     public SelfDescriptionMeta addServiceOffering(
             List<PojoCredentialSubject> credentialSubjects, List<ExtendedVerifiableCredential> participantCredentials)
             throws CredentialPresentationException, CredentialSignatureException {
-        return addServiceOffering(credentialSubjects, participantCredentials, defaultVerificationMethod, getDefaultPrivateKey());
+        return addServiceOffering(credentialSubjects, participantCredentials, defaultVerificationMethod,
+                keyMaterialRegistry.getPrivateKeyFromPath(defaultPrivateKey));
     }
 
     /**
@@ -263,7 +375,8 @@ public class GxfsCatalogService {
     public SelfDescriptionMeta addServiceOffering(
             List<PojoCredentialSubject> credentialSubjects, List<ExtendedVerifiableCredential> participantCredentials, String verificationMethod)
         throws CredentialPresentationException, CredentialSignatureException {
-        return addServiceOffering(credentialSubjects, participantCredentials, verificationMethod, getDefaultPrivateKey());
+        return addServiceOffering(credentialSubjects, participantCredentials, verificationMethod,
+                keyMaterialRegistry.getPrivateKeyFromPath(defaultPrivateKey));
     }
 
     /**
@@ -283,55 +396,146 @@ public class GxfsCatalogService {
             List<ExtendedVerifiableCredential> participantCredentials,
             String verificationMethod, String privateKey)
             throws CredentialPresentationException, CredentialSignatureException {
+        return addServiceOffering(credentialSubjects, participantCredentials, verificationMethod,
+                keyMaterialRegistry.getPrivateKey(privateKey));
+    }
 
-        // make sure there is at least one service offering CS
-        List<PojoCredentialSubject> offeringCredentialSubjects =
-                findAllCredentialSubjectsByType(credentialSubjects, GxServiceOfferingCredentialSubject.class);
-        if (offeringCredentialSubjects.isEmpty()) {
-            throw new CredentialPresentationException(
-                    String.format(TYPE_NOT_FOUND_MESSAGE, GxServiceOfferingCredentialSubject.TYPE));
-        }
+    private SelfDescriptionMeta addServiceOffering(
+            List<PojoCredentialSubject> credentialSubjects,
+            List<ExtendedVerifiableCredential> participantCredentials,
+            String verificationMethod, PrivateKey prk)
+            throws CredentialPresentationException, CredentialSignatureException {
+        ServiceOfferingDraft draft =
+                prepareServiceOffering(credentialSubjects, participantCredentials, verificationMethod, prk);
+        attestServiceOfferingCompliance(draft);
+        completeServiceOffering(draft);
+        return publishServiceOffering(draft);
+    }
 
-        if (enforceCompliance && participantCredentials.isEmpty()) {
-            throw new CredentialPresentationException("No participant credentials were provided, which are needed to achieve compliance.");
+    /**
+     * Intermediate state of a service offering on its way into the catalog. Splitting the publication into stages
+     * allows bulk publications to run signing, compliance checks and catalog requests with separate concurrency.
+     */
+    static final class ServiceOfferingDraft {
+        private final List<PojoCredentialSubject> nonCompliantCsList;
+        private final List<ExtendedVerifiableCredential> participantCredentials;
+        private final String providerId;
+        private final String verificationMethod;
+        private final PrivateKey prk;
+        private final List<X509Certificate> certificates;
+        private final ExtendedVerifiablePresentation vp;
+        private final String complianceCacheKey;
+        private final boolean complianceReused;
+
+        private ServiceOfferingDraft(List<PojoCredentialSubject> nonCompliantCsList,
+                                     List<ExtendedVerifiableCredential> participantCredentials,
+                                     String providerId, String verificationMethod, PrivateKey prk,
+                                     List<X509Certificate> certificates, ExtendedVerifiablePresentation vp,
+                                     String complianceCacheKey, boolean complianceReused) {
+            this.nonCompliantCsList = nonCompliantCsList;
+            this.participantCredentials = participantCredentials;
+            this.providerId = providerId;
+            this.verificationMethod = verificationMethod;
+            this.prk = prk;
+            this.certificates = certificates;
+            this.vp = vp;
+            this.complianceCacheKey = complianceCacheKey;
+            this.complianceReused = complianceReused;
         }
+    }
 
-        String providerId = offeringCredentialSubjects.stream()
-                .map(cs -> ((GxServiceOfferingCredentialSubject) cs).getProvidedBy().getId())
-                .filter(Objects::nonNull)
-                .findFirst().orElse("");
+    /**
+     * First stage of a service offering publication: validate the credential subjects and sign the credentials
+     * that are relevant for the compliance service. If no verification method or key is given, the defaults are used.
+     *
+     * @param credentialSubjects list of credential subjects for this offering
+     * @param participantCredentials list of credentials of the provider of this offering
+     * @param verificationMethod method that can be used to verify the signature or null for the default
+     * @param privateKey private key for signing or null for the default
+     * @return draft of the service offering
+     * @throws CredentialPresentationException exception during the presentation of the offering
+     * @throws CredentialSignatureException exception during the signature of the offering
+     */
+    ServiceOfferingDraft prepareServiceOffering(List<PojoCredentialSubject> credentialSubjects,
+                                                List<ExtendedVerifiableCredential> participantCredentials,
+                                                String verificationMethod, String privateKey)
+            throws CredentialPresentationException, CredentialSignatureException {
+        return prepareServiceOffering(credentialSubjects, participantCredentials,
+                verificationMethod == null ? defaultVerificationMethod : verificationMethod,
+                privateKey == null ? keyMaterialRegistry.getPrivateKeyFromPath(defaultPrivateKey)
+                        : keyMaterialRegistry.getPrivateKey(privateKey));
+    }
 
-        PrivateKey prk = buildPrivateKey(privateKey);
-        List<X509Certificate> certificates = resolveCertificates(verificationMethod);
+    private ServiceOfferingDraft prepareServiceOffering(List<PojoCredentialSubject> credentialSubjects,
+                                                        List<ExtendedVerifiableCredential> participantCredentials,
+                                                        String verificationMethod, PrivateKey prk)
+            throws CredentialPresentationException, CredentialSignatureException {
 
-        // remove credentials for compliance from overall list
-        List<PojoCredentialSubject> nonCompliantCsList = new ArrayList<>(credentialSubjects);
-        nonCompliantCsList.removeAll(offeringCredentialSubjects);
+        CredentialAssembly.CredentialSubjects offering =
+                credentialAssembly.splitServiceOffering(credentialSubjects, participantCredentials);
 
-        // collect all credentials that are relevant for the compliance service
-        List<PojoCredentialSubject> complianceVcs = new ArrayList<>(offeringCredentialSubjects);
+        List<X509Certificate> certificates = resolveCertificates(verificationMethod);
 
-        // generate compliance vc potentially containing compliance credential
-        ExtendedVerifiablePresentation vp = getComplianceVp(complianceVcs, participantCredentials,
-                providerId, verificationMethod, prk, certificates);
+        // reuse a previous attestation of the same credential subjects or generate vp for the compliance service
+        String complianceCacheKey = credentialAssembly.getComplianceCacheKey(offering.complianceCsList(),
+                participantCredentials, offering.issuer(), verificationMethod);
+        ExtendedVerifiablePresentation vp =
+                credentialAssembly.getReusableComplianceVp(complianceCacheKey, participantCredentials);
+        boolean complianceReused = vp != null;
+        if (!complianceReused) {
+            vp = createComplianceVp(offering.complianceCsList(), participantCredentials,
+                    offering.issuer(), verificationMethod, prk, certificates);
+        }
 
-        // copy credential list as it is likely immutable
-        List<ExtendedVerifiableCredential> credentialList = new ArrayList<>(vp.getVerifiableCredentials());
-        credentialList.removeAll(participantCredentials); // remove participant credentials for catalog storage
+        return new ServiceOfferingDraft(offering.remainingCsList(), participantCredentials, offering.issuer(),
+                verificationMethod, prk, certificates, vp, complianceCacheKey, complianceReused);
+    }
 
-        // handle remaining (non-compliant) credentials
-        for (PojoCredentialSubject cs : nonCompliantCsList) {
-            ExtendedVerifiableCredential vc = getSignedVc(cs, providerId, verificationMethod, prk, certificates);
-            credentialList.add(vc);
+    /**
+     * Second stage of a service offering publication: check the draft against the compliance service and attach
+     * the compliance credential if successful.
+     *
+     * @param draft draft of the service offering
+     * @throws CredentialPresentationException compliance is enforced but was not attested
+     */
+    void attestServiceOfferingCompliance(ServiceOfferingDraft draft) throws CredentialPresentationException {
+        if (draft.complianceReused) {
+            return;
         }
+        attestCompliance(draft.vp, draft.participantCredentials, draft.complianceCacheKey);
+    }
 
-        // update credentials in vp
-        vp.setVerifiableCredentials(credentialList);
+    /**
+     * Third stage of a service offering publication: sign the remaining credentials and the presentation
+     * for catalog storage.
+     *
+     * @param draft draft of the service offering
+     * @throws CredentialPresentationException exception during the presentation of the offering
+     * @throws CredentialSignatureException exception during the signature of the offering
+     */
+    void completeServiceOffering(ServiceOfferingDraft draft)
+            throws CredentialPresentationException, CredentialSignatureException {
+        // handle remaining (non-compliant) credentials
+        List<CredentialTask> signingTasks = new ArrayList<>();
+        for (PojoCredentialSubject cs : draft.nonCompliantCsList) {
+            signingTasks.add(() -> credentialAssembly.getSignedVc(cs, draft.providerId, draft.verificationMethod,
+                    draft.prk, draft.certificates));
+        }
 
-        // sign verifiable presentation for catalog storage
-        gxfsSignerService.signVerifiablePresentation(vp, verificationMethod, prk, certificates);
+        // participant credentials are only needed for compliance, not for catalog storage
+        credentialAssembly.completeVp(draft.vp, draft.participantCredentials,
+                signingExecutor.runCredentialTasks(signingTasks), draft.verificationMethod, draft.prk,
+                draft.certificates);
+    }
 
-        return gxfsCatalogClient.postAddSelfDescription(vp);
+    /**
+     * Last stage of a service offering publication: send the signed presentation to the catalog.
+     *
+     * @param draft completed draft of the service offering
+     * @return catalog metadata of the created self-description
+     */
+    SelfDescriptionMeta publishServiceOffering(ServiceOfferingDraft draft) {
+        return gxfsCatalogClient.postAddSelfDescription(draft.vp);
     }
 
     /**
@@ -345,7 +549,8 @@ public class GxfsCatalogService {
      */
     public ParticipantItem addParticipant(List<PojoCredentialSubject> credentialSubjects)
             throws CredentialPresentationException, CredentialSignatureException {
-        return addParticipant(credentialSubjects, defaultVerificationMethod, getDefaultPrivateKey());
+        return evictLegalName(this.gxfsCatalogClient.postAddParticipant(getSignedParticipantVp(credentialSubjects,
+                defaultVerificationMethod, keyMaterialRegistry.getPrivateKeyFromPath(defaultPrivateKey))));
     }
 
     /**
@@ -362,7 +567,8 @@ public class GxfsCatalogService {
     public ParticipantItem addParticipant(List<PojoCredentialSubject> credentialSubjects,
                                           String verificationMethod)
         throws CredentialPresentationException, CredentialSignatureException {
-        return addParticipant(credentialSubjects, verificationMethod, getDefaultPrivateKey());
+        return evictLegalName(this.gxfsCatalogClient.postAddParticipant(getSignedParticipantVp(credentialSubjects,
+                verificationMethod, keyMaterialRegistry.getPrivateKeyFromPath(defaultPrivateKey))));
     }
 
     /**
@@ -379,8 +585,8 @@ public class GxfsCatalogService {
     public ParticipantItem addParticipant(List<PojoCredentialSubject> credentialSubjects,
                                           String verificationMethod, String privateKey)
             throws CredentialPresentationException, CredentialSignatureException {
-        return this.gxfsCatalogClient.postAddParticipant(
-                getSignedParticipantVp(credentialSubjects, verificationMethod, privateKey));
+        return evictLegalName(this.gxfsCatalogClient.postAddParticipant(getSignedParticipantVp(credentialSubjects,
+                verificationMethod, keyMaterialRegistry.getPrivateKey(privateKey))));
     }
 
     /**
@@ -396,7 +602,8 @@ public class GxfsCatalogService {
      */
     public ParticipantItem updateParticipant(List<PojoCredentialSubject> credentialSubjects)
             throws CredentialPresentationException, CredentialSignatureException {
-        return updateParticipant(credentialSubjects, defaultVerificationMethod, getDefaultPrivateKey());
+        return updateParticipant(credentialSubjects, defaultVerificationMethod,
+                keyMaterialRegistry.getPrivateKeyFromPath(defaultPrivateKey));
     }
 
     /**
@@ -415,7 +622,8 @@ public class GxfsCatalogService {
     public ParticipantItem updateParticipant(List<PojoCredentialSubject> credentialSubjects,
                                              String verificationMethod)
         throws CredentialPresentationException, CredentialSignatureException {
-        return updateParticipant(credentialSubjects, verificationMethod, getDefaultPrivateKey());
+        return updateParticipant(credentialSubjects, verificationMethod,
+                keyMaterialRegistry.getPrivateKeyFromPath(defaultPrivateKey));
     }
 
     /**
@@ -434,6 +642,12 @@ public class GxfsCatalogService {
     public ParticipantItem updateParticipant(List<PojoCredentialSubject> credentialSubjects,
                                              String verificationMethod, String privateKey)
             throws CredentialPresentationException, CredentialSignatureException {
+        return updateParticipant(credentialSubjects, verificationMethod, keyMaterialRegistry.getPrivateKey(privateKey));
+    }
+
+    private ParticipantItem updateParticipant(List<PojoCredentialSubject> credentialSubjects,
+                                              String verificationMethod, PrivateKey prk)
+            throws CredentialPresentationException, CredentialSignatureException {
 
         String subjectId
                 = findAllCredentialSubjectsByType(credentialSubjects, GxLegalParticipantCredentialSubject.class)
@@ -442,11 +656,16 @@ public class GxfsCatalogService {
                 .findFirst().orElse("");
 
         ExtendedVerifiablePresentation vp
-                = getSignedParticipantVp(credentialSubjects, verificationMethod, privateKey);
+                = getSignedParticipantVp(credentialSubjects, verificationMethod, prk);
 
-        return this.gxfsCatalogClient.putUpdateParticipant(
+        return evictLegalName(this.gxfsCatalogClient.putUpdateParticipant(
                 subjectId,
-                vp);
+                vp));
+    }
+
+    private ParticipantItem evictLegalName(ParticipantItem participantItem) {
+        participantLegalNameCache.invalidate(participantItem == null ? null : participantItem.getId());
+        return participantItem;
     }
 
     /**
@@ -456,16 +675,14 @@ public class GxfsCatalogService {
      * uris as IDs and requesting SDs with these IDs.
      *
      * @param participantType type of the participant to query for, e.g. LegalPerson or MerlotOrganisation
-     * @param sortField field of the participant to sort by
+     * @param sortField field of the participant to sort by, must be one of the configured sort fields
      * @param offset paging offset
      * @param size page size
      * @return list of participant uris corresponding to the paging parameters
      */
     public GXFSCatalogListResponse<GXFSQueryUriItem> getSortedParticipantUriPage(
             String participantType, String sortField, long offset, long size) {
-        QueryRequest query = new QueryRequest(getMatchParticipantTypeString(participantType)
-                + " return p.uri ORDER BY toLower(p." + sortField + ")"
-                + " SKIP " + offset + " LIMIT " + size);
+        QueryRequest query = catalogQueryBuilder.sortedParticipantUriPage(participantType, sortField, offset, size);
         GXFSCatalogListResponse<Map<String, Object>> response = this.gxfsCatalogClient.postQuery(
             QueryLanguage.OPENCYPHER,
             5,
@@ -482,7 +699,7 @@ public class GxfsCatalogService {
      * uris as IDs and requesting SDs with these IDs.
      *
      * @param participantType type of the participant to query for, e.g. LegalPerson or MerlotOrganisation
-     * @param sortField field of the participant to sort by
+     * @param sortField field of the participant to sort by, must be one of the configured sort fields
      * @param excludedUris list of uris to exclude
      * @param offset paging offset
      * @param size page size
@@ -490,11 +707,8 @@ public class GxfsCatalogService {
      */
     public GXFSCatalogListResponse<GXFSQueryUriItem> getSortedParticipantUriPageWithExcludedUris(
         String participantType, String sortField, List<String> excludedUris, long offset, long size) {
-        String excludedUrisString = listToString(excludedUris);
-        QueryRequest query = new QueryRequest(getMatchParticipantTypeString(participantType)
-            + " WHERE NOT p.uri IN " + excludedUrisString
-            + " return p.uri ORDER BY toLower(p." + sortField + ")"
-            + " SKIP " + offset + " LIMIT " + size);
+        QueryRequest query = catalogQueryBuilder.sortedParticipantUriPageWithExcludedUris(participantType, sortField,
+            excludedUris, offset, size);
         GXFSCatalogListResponse<Map<String, Object>> response = this.gxfsCatalogClient.postQuery(
             QueryLanguage.OPENCYPHER,
             5,
@@ -504,6 +718,34 @@ public class GxfsCatalogService {
         return objectMapper.convertValue(response, new TypeReference<GXFSCatalogListResponse<GXFSQueryUriItem>>() {});
     }
 
+    /**
+     * Return a page of participant URIs sorted by some field, starting after the given cursor. In contrast to
+     * {@link #getSortedParticipantUriPageWithExcludedUris(String, String, List, long, long)} the cost of a page does
+     * not grow with its position, so this is preferable for walking through large listings. Participants are
+     * ordered by the lowercase sort field and their uri.
+     *
+     * @param participantType type of the participant to query for, e.g. LegalPerson or MerlotOrganisation
+     * @param sortField field of the participant to sort by, must be one of the configured sort fields
+     * @param cursor next cursor of the previous page or null for the first page
+     * @param excludedUris list of uris to exclude, may be empty
+     * @param size page size
+     * @return page of participant uris and the cursor of the next page, which is null on the last page
+     */
+    public GXFSQueryUriCursorPage getSortedParticipantUriPageAfter(String participantType, String sortField,
+                                                                   String cursor, List<String> excludedUris,
+                                                                   int size) {
+        QueryRequest query = catalogQueryBuilder.sortedParticipantUriPageAfter(participantType, sortField, cursor,
+                excludedUris, size);
+        GXFSCatalogListResponse<Map<String, Object>> response = this.gxfsCatalogClient.postQuery(
+            QueryLanguage.OPENCYPHER,
+            5,
+            false,
+            query);
+
+        return ParticipantUriCursor.toPage(participantType, sortField, size, objectMapper.convertValue(response,
+                new TypeReference<GXFSCatalogListResponse<GXFSQueryUriSortKeyItem>>() {}));
+    }
+
     /**
      * Given the uri of a participant, return (a list containing) the legal name of the participant.
      *
@@ -513,9 +755,7 @@ public class GxfsCatalogService {
      */
     public GXFSCatalogListResponse<GXFSQueryLegalNameItem> getParticipantLegalNameByUri(
         String participantType, String participantUri) {
-        QueryRequest query = new QueryRequest(getMatchParticipantTypeString(participantType)
-            + " WHERE p.uri = \"" + participantUri + "\""
-            + " return p.legalName");
+        QueryRequest query = catalogQueryBuilder.participantLegalNameByUri(participantType, participantUri);
 
         GXFSCatalogListResponse<Map<String, Object>> response = this.gxfsCatalogClient.postQuery(
             QueryLanguage.OPENCYPHER,
@@ -527,21 +767,24 @@ public class GxfsCatalogService {
         });
     }
 
-    private String listToString(List<String> stringList) {
-        StringBuilder result = new StringBuilder("[");
-
-        for (int i = 0; i < stringList.size(); i++) {
-            result.append("\"").append(stringList.get(i)).append("\"");
-
-            // Add a comma if it's not the last element
-            if (i < stringList.size() - 1) {
-                result.append(", ");
-            }
-        }
-
-        result.append("]");
-
-        return result.toString();
+    /**
+     * Given the uris of a number of participants, return their legal names. Uris are resolved in chunks with a single
+     * query each and the results are cached shortly, hence this is preferable to querying the legal names one by one.
+     *
+     * @param participantType type of the participants to query for, e.g. LegalPerson or MerlotOrganisation
+     * @param participantUris uris of the participants
+     * @return map from uri to legal name in the order of the given uris, uris without legal name are omitted
+     */
+    public Map<String, String> getParticipantLegalNamesByUris(String participantType,
+                                                              Collection<String> participantUris) {
+        return participantLegalNameCache.getLegalNames(participantType, participantUris, (type, uris) ->
+                blockingPage(() -> this.gxfsCatalogClient.<Map<String, Object>>postQuery(
+                        QueryLanguage.OPENCYPHER,
+                        5,
+                        true,
+                        catalogQueryBuilder.participantLegalNamesByUris(type, uris)))
+                        .map(response -> ParticipantLegalNameCache.toLegalNames(objectMapper, response)))
+                .block();
     }
 
     /**
@@ -562,7 +805,7 @@ public class GxfsCatalogService {
         if (verificationMethod.equals(defaultVerificationMethod)) {
             log.info("Using default verificationMethod {}, skipping web request.", verificationMethod);
             try {
-                return buildCertficates(getDefaultCertificate());
+                return keyMaterialRegistry.getCertificatesFromPath(defaultCertPath);
             } catch (CredentialSignatureException e) {
                 log.warn("Failed to load default certificate, will skip validation.");
                 return Collections.emptyList();
@@ -570,213 +813,42 @@ public class GxfsCatalogService {
         }
 
         // at this point we have an unknown did:web, try to resolve it
-        try {
-            JsonNode didDocument = requestDidDocument(verificationMethod);
-            ArrayNode verificationMethods = (ArrayNode) didDocument.get("verificationMethod");
-            for (JsonNode vm : verificationMethods) {
-                String vmId = vm.get("id").asText();
-                if (vmId.equals(verificationMethod)) {
-                    return buildCertficates(requestCertificate(vm));
-                }
-            }
-            throw new CredentialSignatureException("Could not find certificate for given verification method " +
-                    verificationMethod);
-        } catch (NullPointerException | WebClientResponseException e) {
-            throw new CredentialSignatureException("Error during did:web resolving: " + e.getMessage());
-        }
-    }
-
-    /**
-     * Request the did.json document for a given did:web
-     *
-     * @param verificationMethod did:web
-     * @return did document json
-     */
-    private JsonNode requestDidDocument(String verificationMethod) {
-        // resolve did:web certificate
-        String didWeb = verificationMethod
-                .replace("did:web:", "") // remove did type prefix
-                .replaceFirst("#.*", ""); // remove verification method reference
-        String didDocumentUri = getDidDocumentUri(didWeb);
-        JsonNode didDocument = webClient.get().uri(didDocumentUri).retrieve().bodyToMono(JsonNode.class).block();
-        return Objects.requireNonNull(didDocument, "Failed to retrieve did-document at " + didDocumentUri);
-    }
-
-    /**
-     * Given the domain part of the did:web, return the resulting URI.
-     * See <a href="https://w3c-ccg.github.io/did-method-web/#read-resolve">did-web specification</a> for reference.
-     *
-     * @param didWeb did:web without prefix and key reference
-     * @return did web URI
-     */
-    private static String getDidDocumentUri(String didWeb) {
-        boolean containsSubpath = didWeb.contains(":");
-        StringBuilder didDocumentUriBuilder = new StringBuilder();
-        didDocumentUriBuilder.append(didWeb
-                .replace(":", "/") // Replace ":" with "/" in the method specific identifier to
-                                                    // obtain the fully qualified domain name and optional path.
-                .replace("%3A", ":")); // If the domain contains a port percent decode the colon.
-
-        // Generate an HTTPS URL to the expected location of the DID document by prepending https://.
-        didDocumentUriBuilder.insert(0, "https://");
-        if (!containsSubpath) {
-            // If no path has been specified in the URL, append /.well-known.
-            didDocumentUriBuilder.append("/.well-known");
-        }
-        // Append /did.json to complete the URL.
-        didDocumentUriBuilder.append("/did.json");
-
-        return didDocumentUriBuilder.toString();
-    }
-
-    /**
-     * Request the certificate that is linked in the given verification method entry of a did.json document.
-     *
-     * @param didDocumentEntry verification method entry of did.json
-     * @return string representation of corresponding certificate
-     */
-    private String requestCertificate(JsonNode didDocumentEntry) {
-        // resolve did:web certificate
-        String certUrl = didDocumentEntry.get("publicKeyJwk").get("x5u").asText();
-        String certificate = webClient.get().uri(certUrl)
-                .retrieve().bodyToMono(String.class).block();
-        return Objects.requireNonNull(certificate, "Failed to retrieve certificate at " + certUrl);
-    }
-
-    /**
-     * Given a string representation of the private key, convert it to it's the object representation.
-     *
-     * @param prk string representation of the private key
-     * @throws CredentialSignatureException failed to decode private key
-     * @return PrivateKey object
-     */
-    private PrivateKey buildPrivateKey(String prk) throws CredentialSignatureException {
-        try {
-            PEMParser pemParser = new PEMParser(new StringReader(prk));
-            JcaPEMKeyConverter converter = new JcaPEMKeyConverter();
-            PrivateKeyInfo privateKeyInfo = PrivateKeyInfo.getInstance(pemParser.readObject());
-            return converter.getPrivateKey(privateKeyInfo);
-        } catch (IOException e) {
-            throw new CredentialSignatureException("Failed to parse private key. " + e.getMessage());
-        }
-    }
-
-    /**
-     * Given a string representation of the certificates, convert them to a list of their object representations.
-     *
-     * @param certs string representation of the certificates
-     * @throws CredentialSignatureException failed to decode certificate
-     * @return list of X509 certificate objects
-     */
-    private List<X509Certificate> buildCertficates(String certs) throws CredentialSignatureException {
-        try {
-            ByteArrayInputStream certStream = new ByteArrayInputStream(certs.getBytes(StandardCharsets.UTF_8));
-            CertificateFactory certFactory = CertificateFactory.getInstance("X.509");
-            return (List<X509Certificate>) certFactory.generateCertificates(certStream);
-        } catch (CertificateException e) {
-            throw new CredentialSignatureException("Failed to parse certificate. " + e.getMessage());
-        }
+        return keyMaterialRegistry.getCertificates(didWebResolverService.resolveCertificate(verificationMethod));
     }
 
-    /**
-     * Load the default private key corresponding to the defaultVerificationMethod.
-     *
-     * @return string representation of private key
-     * @throws CredentialSignatureException error during loading of private key
-     */
-    private String getDefaultPrivateKey() throws CredentialSignatureException {
-        try (InputStream privateKeyStream = StringUtil.isNullOrEmpty(defaultPrivateKey) ?
-                GxfsCatalogService.class.getClassLoader().getResourceAsStream("prk.ss.pem")
-                : new FileInputStream(defaultPrivateKey)) {
-            return privateKeyStream == null ? null :
-                    new String(privateKeyStream.readAllBytes(), StandardCharsets.UTF_8);
-        } catch (IOException e) {
-            throw new CredentialSignatureException("Failed to read default private key. " + e.getMessage());
-        }
+    public <T extends PojoCredentialSubject> List<PojoCredentialSubject> findAllCredentialSubjectsByType(
+            List<PojoCredentialSubject> credentialSubjects, Class<T> type) {
+        return CredentialAssembly.findAllCredentialSubjectsByType(credentialSubjects, type);
     }
 
     /**
-     * Load the default certificate corresponding to the defaultVerificationMethod.
+     * Ask the notary to attest the given registration number.
      *
-     * @return string representation of certificate
-     * @throws CredentialSignatureException error during loading of private key
+     * @param cs registration number credential subject
+     * @return cleaned up credential of the notary or null if the registration number is to be signed by ourselves
+     * @throws CredentialPresentationException the notary did not attest the registration number but is enforced
      */
-    private String getDefaultCertificate() throws CredentialSignatureException {
-        try (InputStream certificateStream = StringUtil.isNullOrEmpty(defaultCertPath) ?
-                GxfsCatalogService.class.getClassLoader().getResourceAsStream("cert.ss.pem")
-                : new FileInputStream(defaultCertPath)) {
-            return new String(Objects.requireNonNull(certificateStream,
-                    "Certificate input stream is null.").readAllBytes(),
-                    StandardCharsets.UTF_8);
-        } catch (IOException | NullPointerException e) {
-            throw new CredentialSignatureException("Failed to read default certificate. " + e.getMessage());
-        }
-    }
-
-    private String getMatchParticipantTypeString(String participantType) {
-        return "MATCH (p:" + participantType + ")";
-    }
-
-    public <T extends PojoCredentialSubject> List<PojoCredentialSubject> findAllCredentialSubjectsByType(
-            List<PojoCredentialSubject> credentialSubjects, Class<T> type) {
-        List<PojoCredentialSubject> matchingCsList = new ArrayList<>();
-        for (PojoCredentialSubject cs : credentialSubjects) {
-            if (type.isInstance(cs)) {
-                matchingCsList.add(cs);
-            }
-        }
-        return matchingCsList;
-    }
-
-    private ExtendedVerifiableCredential getSignedRegistrationNumberVc(GxLegalRegistrationNumberCredentialSubject cs,
-                                                                       String issuer,
-                                                                       String verificationMethod,
-                                                                       PrivateKey prk,
-                                                                       List<X509Certificate> certificates)
-            throws CredentialPresentationException, CredentialSignatureException {
+    private ExtendedVerifiableCredential getNotaryRegistrationNumberVc(GxLegalRegistrationNumberCredentialSubject cs)
+            throws CredentialPresentationException {
         // let notary sign registration number
         ExtendedVerifiableCredential credential = null;
+        ClearingHouseException notaryException = null;
         try {
             credential = gxdchService.verifyRegistrationNumber(cs);
         } catch (ClearingHouseException e) {
-            if (enforceNotary) {
-                throw new CredentialPresentationException("Error from Notary: " + e.getMessage());
-            }
+            notaryException = e;
         }
-        if (credential == null) {
-            // if notary did not sign and we enforce, throw exception
-            if (enforceNotary) {
-                throw new CredentialPresentationException("Given registration number credential subject failed GXDCH Notary check");
-            }
-            // else notary has not attested registration number, we sign it ourselves
-            credential = getSignedVc(cs, issuer, verificationMethod, prk, certificates);
-        } else {
+        if (credential != null) {
             // notary has signed but we need to clean up the result
-            // remove @context from proof as it is wrong
-            Map<String, Object> proofObj = credential.getLdProof().getJsonObject();
-            proofObj.remove("@context");
-            credential.setJsonObjectKeyValue("proof", proofObj);
-            // patch for context, make it resolvable as it is disabled by default
-            ((ConfigurableDocumentLoader) credential.getDocumentLoader()).setEnableHttp(true);
-            ((ConfigurableDocumentLoader) credential.getDocumentLoader()).setEnableHttps(true);
+            return credentialAssembly.cleanUpNotaryCredential(credential);
         }
-        return credential;
-    }
-
-    private ExtendedVerifiableCredential getSignedVc(PojoCredentialSubject cs,
-                                                     String issuer,
-                                                     String verificationMethod,
-                                                     PrivateKey prk,
-                                                     List<X509Certificate> certificates)
-            throws CredentialPresentationException, CredentialSignatureException {
-        // create credential from pojo CS and sign it
-        ExtendedVerifiableCredential credential = gxfsSignerService.createVerifiableCredential(
-                cs,
-                URI.create(issuer),
-                URI.create(URN_UUID_PREFIX + UUID.randomUUID())); // set vc id to random UUID
-        gxfsSignerService
-                .signVerifiableCredential(credential, verificationMethod, prk, certificates); // sign vc
-        return credential;
+        // if notary did not sign and we enforce, throw exception
+        Optional<CredentialPresentationException> notaryError = credentialAssembly.getNotaryError(notaryException);
+        if (notaryError.isPresent()) {
+            throw notaryError.get();
+        }
+        // else notary has not attested registration number, we sign it ourselves
+        return null;
     }
 
     private ExtendedVerifiablePresentation getComplianceVp(List<PojoCredentialSubject> csList,
@@ -786,113 +858,99 @@ public class GxfsCatalogService {
                                                            PrivateKey prk,
                                                            List<X509Certificate> certificates)
             throws CredentialSignatureException, CredentialPresentationException {
+        String complianceCacheKey = credentialAssembly.getComplianceCacheKey(csList, initialCredentials, issuer,
+                verificationMethod);
+        ExtendedVerifiablePresentation reusedVp =
+                credentialAssembly.getReusableComplianceVp(complianceCacheKey, initialCredentials);
+        if (reusedVp != null) {
+            return reusedVp;
+        }
+        ExtendedVerifiablePresentation complianceVp = createComplianceVp(csList, initialCredentials, issuer,
+                verificationMethod, prk, certificates);
+        attestCompliance(complianceVp, initialCredentials, complianceCacheKey);
+        return complianceVp;
+    }
+
+    private ExtendedVerifiablePresentation createComplianceVp(List<PojoCredentialSubject> csList,
+                                                              List<ExtendedVerifiableCredential> initialCredentials,
+                                                              String issuer,
+                                                              String verificationMethod,
+                                                              PrivateKey prk,
+                                                              List<X509Certificate> certificates)
+            throws CredentialSignatureException, CredentialPresentationException {
 
-        List<ExtendedVerifiableCredential> complianceVcs = new ArrayList<>(initialCredentials);
-        // iterate over given CS and handle them if relevant
+        // iterate over given CS and handle them if relevant, the notary is asked before dispatching the signing tasks
+        // so that its requests do not occupy the signing threads
+        List<CredentialTask> signingTasks = new ArrayList<>();
         for (PojoCredentialSubject cs : csList) {
             if (cs instanceof GxLegalRegistrationNumberCredentialSubject registrationNumberCs) {
-                complianceVcs.add(
-                        getSignedRegistrationNumberVc(registrationNumberCs, issuer, verificationMethod, prk, certificates)
-                );
-            } else if (cs instanceof GxLegalParticipantCredentialSubject
-                    || cs instanceof GxServiceOfferingCredentialSubject) {
-                complianceVcs.add(getSignedVc(cs, issuer, verificationMethod, prk, certificates));
+                ExtendedVerifiableCredential notaryCredential = getNotaryRegistrationNumberVc(registrationNumberCs);
+                if (notaryCredential != null) {
+                    signingTasks.add(() -> notaryCredential);
+                } else {
+                    signingTasks.add(() -> credentialAssembly.getSignedVc(cs, issuer, verificationMethod, prk,
+                            certificates));
+                }
+            } else if (CredentialAssembly.isComplianceRelevant(cs)) {
+                signingTasks.add(() -> credentialAssembly.getSignedVc(cs, issuer, verificationMethod, prk,
+                        certificates));
             }
         }
 
         // set up a VP for the compliance service
-        ExtendedVerifiablePresentation complianceVp = gxfsSignerService.createVerifiablePresentation(
-                complianceVcs, // insert credentials into vp
-                URI.create(URN_UUID_PREFIX + UUID.randomUUID())); // set vp id to random UUID
+        return credentialAssembly.createComplianceVp(initialCredentials,
+                signingExecutor.runCredentialTasks(signingTasks));
+    }
 
+    private void attestCompliance(ExtendedVerifiablePresentation complianceVp,
+                                  List<ExtendedVerifiableCredential> initialCredentials,
+                                  String complianceCacheKey)
+            throws CredentialPresentationException {
         // verify compliance with compliance service
         ExtendedVerifiableCredential complianceResult = null;
+        ClearingHouseException complianceException = null;
         try {
             complianceResult = gxdchService.checkCompliance(complianceVp);
         } catch (ClearingHouseException e) {
-            if (enforceCompliance) {
-                throw new CredentialPresentationException("Error from compliance: " + e.getMessage());
-            }
+            complianceException = e;
         }
 
         if (complianceResult == null) {
-            if (enforceCompliance) {
-                throw new CredentialPresentationException("Provided credential subjects failed GXDCH compliance check.");
+            Optional<CredentialPresentationException> complianceError =
+                    credentialAssembly.getComplianceError(complianceException);
+            if (complianceError.isPresent()) {
+                throw complianceError.get();
             }
-            log.warn("Compliance was not attested for the given VP.");
-        } else {
-            log.info("Received compliance credential result: {}", complianceResult);
-            ((ConfigurableDocumentLoader) complianceResult.getDocumentLoader()).setEnableHttp(true);
-            ((ConfigurableDocumentLoader) complianceResult.getDocumentLoader()).setEnableHttps(true);
-            List<ExtendedVerifiableCredential> updatedVcs
-                    = new ArrayList<>(complianceVp.getVerifiableCredentials());
-            updatedVcs.add(complianceResult);
-            complianceVp.setVerifiableCredentials(updatedVcs);
         }
-
-        return complianceVp;
+        credentialAssembly.addComplianceResult(complianceVp, initialCredentials, complianceCacheKey,
+                complianceResult);
     }
 
     private ExtendedVerifiablePresentation getSignedParticipantVp(List<PojoCredentialSubject> credentialSubjects,
-                                                                  String verificationMethod, String privateKey)
+                                                                  String verificationMethod, PrivateKey prk)
             throws CredentialPresentationException, CredentialSignatureException {
-        // make sure there is at least one legal participant CS
-        List<PojoCredentialSubject> participantCsList =
-                findAllCredentialSubjectsByType(credentialSubjects, GxLegalParticipantCredentialSubject.class);
-        if (participantCsList.isEmpty()) {
-            throw new CredentialPresentationException(
-                    String.format(TYPE_NOT_FOUND_MESSAGE, GxLegalParticipantCredentialSubject.TYPE));
-        }
-
-        // make sure there is at least one legal registration number CS
-        List<PojoCredentialSubject> registrationNumberCsList =
-                findAllCredentialSubjectsByType(credentialSubjects, GxLegalRegistrationNumberCredentialSubject.class);
-        if (registrationNumberCsList.isEmpty()) {
-            throw new CredentialPresentationException(
-                    String.format(TYPE_NOT_FOUND_MESSAGE, GxLegalRegistrationNumberCredentialSubject.TYPE));
-        }
+        CredentialAssembly.CredentialSubjects participant = credentialAssembly.splitParticipant(credentialSubjects);
 
-        // create private key and certificate instances
-        PrivateKey prk = buildPrivateKey(privateKey);
+        // resolve certificate instances
         List<X509Certificate> certificates = resolveCertificates(verificationMethod);
 
         // if needed incorporate Gaia-X TnC into SD, currently it is not enforced by the compliance service
-        gxdchService.getGxTnCs();
-
-        // get id of participant from first participant cs
-        String participantId = participantCsList.stream()
-                .map(PojoCredentialSubject::getId)
-                .filter(Objects::nonNull)
-                .findFirst().orElse("");
-
-        // collect all credentials that are relevant for the compliance service
-        List<PojoCredentialSubject> complianceVcs = Stream
-                .concat(participantCsList.stream(), registrationNumberCsList.stream()).toList();
-
-        // remove compliance credentials from overall list
-        List<PojoCredentialSubject> nonCompliantCsList = new ArrayList<>(credentialSubjects);
-        nonCompliantCsList.removeAll(participantCsList);
-        nonCompliantCsList.removeAll(registrationNumberCsList);
+        gxdchService.warmGxTnCs(); // served from cache, refreshed in the background
 
         // create vp with compliance relevant credentials plus attestation if successful
         ExtendedVerifiablePresentation vp
-                = getComplianceVp(complianceVcs, Collections.emptyList(),
-                participantId, verificationMethod, prk, certificates);
-
-        // copy credential list as it is likely immutable
-        List<ExtendedVerifiableCredential> credentialList = new ArrayList<>(vp.getVerifiableCredentials());
+                = getComplianceVp(participant.complianceCsList(), Collections.emptyList(),
+                participant.issuer(), verificationMethod, prk, certificates);
 
         // handle other (non-compliant) credentials
-        for (PojoCredentialSubject cs : nonCompliantCsList) {
-            ExtendedVerifiableCredential vc = getSignedVc(cs, participantId, verificationMethod, prk, certificates);
-            credentialList.add(vc);
+        List<CredentialTask> signingTasks = new ArrayList<>();
+        for (PojoCredentialSubject cs : participant.remainingCsList()) {
+            signingTasks.add(() -> credentialAssembly.getSignedVc(cs, participant.issuer(), verificationMethod, prk,
+                    certificates));
         }
 
-        // update credential list in vp
-        vp.setVerifiableCredentials(credentialList);
-
-        // sign verifiable presentation for catalog storage
-        gxfsSignerService.signVerifiablePresentation(vp, verificationMethod, prk, certificates);
+        credentialAssembly.completeVp(vp, Collections.emptyList(), signingExecutor.runCredentialTasks(signingTasks),
+                verificationMethod, prk, certificates);
         return vp;
     }
 }
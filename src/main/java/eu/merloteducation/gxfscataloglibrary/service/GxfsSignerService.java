@@ -26,6 +26,8 @@ import com.danubetech.verifiablecredentials.VerifiablePresentation;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiableCredential;
 import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiablePresentation;
 import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialPresentationException;
@@ -41,16 +43,19 @@ import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
 import java.net.URI;
 import java.security.*;
 import java.security.cert.X509Certificate;
+import java.security.interfaces.RSAKey;
 import java.security.interfaces.RSAPublicKey;
 import java.time.Instant;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 public class GxfsSignerService {
@@ -58,8 +63,51 @@ public class GxfsSignerService {
 
     private final ObjectMapper mapper;
 
-    public GxfsSignerService(@Autowired ObjectMapper mapper) {
+    private final CachedDocumentLoader documentLoader;
+
+    private final VerificationPolicy verificationPolicy;
+
+    private final double verificationSampleRate;
+
+    private final GxfsCatalogMetrics metrics;
+
+    // keys are compared by identity, parsed key material is held by the KeyMaterialRegistry
+    private final Cache<PrivateKey, PrivateKeySigner<?>> privateKeySigners = Caffeine.newBuilder()
+            .weakKeys()
+            .build();
+
+    private final Cache<X509Certificate, PublicKeyVerifier<?>> publicKeyVerifiers = Caffeine.newBuilder()
+            .weakKeys()
+            .build();
+
+    /**
+     * Policy for checking a freshly created signature against the certificates of the verification method.
+     */
+    public enum VerificationPolicy {
+        /**
+         * Verify the proof against the given certificates until one of them matches.
+         */
+        ALWAYS,
+        /**
+         * Only check that the private key belongs to one of the given certificates, without verifying the proof.
+         */
+        LEAF,
+        /**
+         * Check the key like {@link #LEAF} and additionally verify the proof for a sampled share of signatures.
+         */
+        SAMPLED
+    }
+
+    public GxfsSignerService(@Autowired ObjectMapper mapper,
+                             @Autowired CachedDocumentLoader documentLoader,
+                             @Value("${gxfscatalog-library.signing.verification-policy:ALWAYS}") VerificationPolicy verificationPolicy,
+                             @Value("${gxfscatalog-library.signing.verification-sample-rate:#{0.1}}") double verificationSampleRate,
+                             @Autowired GxfsCatalogMetrics metrics) {
         this.mapper = mapper;
+        this.documentLoader = documentLoader;
+        this.verificationPolicy = verificationPolicy;
+        this.verificationSampleRate = verificationSampleRate;
+        this.metrics = metrics;
         mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
 
         Security.addProvider(new BouncyCastleProvider());
@@ -77,15 +125,18 @@ public class GxfsSignerService {
     public ExtendedVerifiableCredential createVerifiableCredential(PojoCredentialSubject credentialSubject,
                                                                    URI issuer,
                                                                    URI id) throws CredentialPresentationException {
-        try {
+        try (GxfsCatalogMetrics.Timing timing = metrics.start(GxfsCatalogMetrics.CREDENTIAL_CREATION,
+                GxfsCatalogMetrics.CREDENTIAL_TYPE, credentialSubject.getType())) {
             CredentialSubject cs = CredentialSubject.fromJson(mapper.writeValueAsString(credentialSubject));
-            return ExtendedVerifiableCredential.fromMap(VerifiableCredential
+            ExtendedVerifiableCredential vc = ExtendedVerifiableCredential.fromMap(VerifiableCredential
                     .builder()
                     .id(id)
                     .issuanceDate(Date.from(Instant.now()))
                     .credentialSubject(cs)
                     .issuer(issuer)
                     .build().getJsonObject());
+            timing.success();
+            return vc;
         } catch (JsonProcessingException e) {
             throw new CredentialPresentationException(e.getMessage());
         }
@@ -124,7 +175,7 @@ public class GxfsSignerService {
         try {
             logger.debug("Signing VC");
             LdProof vcProof = sign(vc, verificationMethod, prk);
-            check(vc, vcProof, certs);
+            check(vc, vcProof, prk, certs);
             vc.setJsonObjectKeyValue("proof", vc.getLdProof().getJsonObject());
             logger.debug("Signed");
         } catch (IOException | GeneralSecurityException | JsonLDException e) {
@@ -149,7 +200,7 @@ public class GxfsSignerService {
         try {
             logger.debug("Signing VP");
             LdProof vpProof = sign(vp, verificationMethod, prk);
-            check(vp, vpProof, certs);
+            check(vp, vpProof, prk, certs);
             vp.setJsonObjectKeyValue("proof", vp.getLdProof().getJsonObject());
             logger.debug("Signed");
         } catch (IOException | GeneralSecurityException | JsonLDException e) {
@@ -169,39 +220,122 @@ public class GxfsSignerService {
      */
     private LdProof sign(JsonLDObject credential, String verificationMethod, PrivateKey prk)
             throws IOException, GeneralSecurityException, JsonLDException {
-        KeyPair kp = new KeyPair(null, prk);
-        PrivateKeySigner<?> privateKeySigner = new RSA_PS256_PrivateKeySigner(kp);
+        // canonicalize against the in-memory contexts instead of fetching them on every signature
+        credential.setDocumentLoader(documentLoader);
 
-        JsonWebSignature2020LdSigner signer = new JsonWebSignature2020LdSigner(privateKeySigner);
+        // the ld signer holds per-signature state, hence only the underlying key signer is shared
+        JsonWebSignature2020LdSigner signer = new JsonWebSignature2020LdSigner(getPrivateKeySigner(prk));
 
         signer.setCreated(new Date());
         signer.setProofPurpose(LDSecurityKeywords.JSONLD_TERM_ASSERTIONMETHOD);
         signer.setVerificationMethod(URI.create(verificationMethod));
 
-        return signer.sign(credential);
+        try (GxfsCatalogMetrics.Timing timing = metrics.start(GxfsCatalogMetrics.CREDENTIAL_SIGNING,
+                GxfsCatalogMetrics.CREDENTIAL_TYPE, getCredentialType(credential))) {
+            LdProof proof = signer.sign(credential);
+            timing.success();
+            return proof;
+        }
     }
 
     /**
-     * Given a credential and proof, check if the signature is valid.
+     * Given a credential and proof, check if the signature is valid according to the configured verification policy.
      *
      * @param credential credential to check
      * @param proof      proof
+     * @param prk        private key the proof was created with
      * @param certs      certificates to validate the proof against
      * @throws IOException              IOException
      * @throws GeneralSecurityException GeneralSecurityException
      * @throws JsonLDException          JsonLDException
      */
-    private void check(JsonLDObject credential, LdProof proof, List<X509Certificate> certs)
+    private void check(JsonLDObject credential, LdProof proof, PrivateKey prk, List<X509Certificate> certs)
+            throws IOException, GeneralSecurityException, JsonLDException {
+        if (certs.isEmpty()) {
+            return;
+        }
+
+        try (GxfsCatalogMetrics.Timing timing = metrics.start(GxfsCatalogMetrics.SIGNATURE_CHECK,
+                GxfsCatalogMetrics.CREDENTIAL_TYPE, getCredentialType(credential),
+                "policy", verificationPolicy.name())) {
+            checkCertificates(credential, proof, prk, certs);
+            timing.success();
+        }
+    }
+
+    private void checkCertificates(JsonLDObject credential, LdProof proof, PrivateKey prk,
+                                   List<X509Certificate> certs)
             throws IOException, GeneralSecurityException, JsonLDException {
-        boolean certificateMatches = false;
+        if (verificationPolicy != VerificationPolicy.ALWAYS) {
+            X509Certificate leaf = findMatchingCertificate(prk, certs);
+            if (leaf != null) {
+                boolean sampled = verificationPolicy == VerificationPolicy.SAMPLED
+                        && ThreadLocalRandom.current().nextDouble() < verificationSampleRate;
+                if (sampled && !verify(credential, proof, leaf)) {
+                    throw new GeneralSecurityException("No matching certificates for this signature.");
+                }
+                return;
+            }
+            if (certs.stream().allMatch(cert -> cert.getPublicKey() instanceof RSAKey)
+                    && prk instanceof RSAKey) {
+                throw new GeneralSecurityException("No matching certificates for this signature.");
+            }
+            // key types cannot be compared directly, fall back to full verification
+        }
+
         for (X509Certificate cert : certs) {
-            PublicKey puk = cert.getPublicKey();
-            PublicKeyVerifier<?> pkVerifier = new RSA_PS256_PublicKeyVerifier((RSAPublicKey) puk);
-            JsonWebSignature2020LdVerifier verifier = new JsonWebSignature2020LdVerifier(pkVerifier);
-            certificateMatches |= verifier.verify(credential, proof);
+            if (verify(credential, proof, cert)) {
+                return;
+            }
         }
-        if (!certs.isEmpty() && !certificateMatches) {
-            throw new GeneralSecurityException("No matching certificates for this signature.");
+        throw new GeneralSecurityException("No matching certificates for this signature.");
+    }
+
+    /**
+     * Return the type of the credential subject of a credential or the type of a presentation, to tag recordings.
+     *
+     * @param credential credential or presentation
+     * @return type
+     */
+    private static String getCredentialType(JsonLDObject credential) {
+        if (credential instanceof VerifiableCredential vc) {
+            return vc.getCredentialSubject() == null ? null : vc.getCredentialSubject().getType();
+        }
+        return credential.getType();
+    }
+
+    private boolean verify(JsonLDObject credential, LdProof proof, X509Certificate cert)
+            throws IOException, GeneralSecurityException, JsonLDException {
+        JsonWebSignature2020LdVerifier verifier = new JsonWebSignature2020LdVerifier(getPublicKeyVerifier(cert));
+        return verifier.verify(credential, proof);
+    }
+
+    /**
+     * Find the certificate whose public key belongs to the given private key by comparing the RSA moduli.
+     *
+     * @param prk   private key
+     * @param certs certificates to search
+     * @return matching certificate or null if none matches
+     */
+    private static X509Certificate findMatchingCertificate(PrivateKey prk, List<X509Certificate> certs) {
+        if (!(prk instanceof RSAKey rsaPrivateKey)) {
+            return null;
+        }
+        for (X509Certificate cert : certs) {
+            if (cert.getPublicKey() instanceof RSAKey rsaPublicKey
+                    && rsaPublicKey.getModulus().equals(rsaPrivateKey.getModulus())) {
+                return cert;
+            }
         }
+        return null;
+    }
+
+    private PrivateKeySigner<?> getPrivateKeySigner(PrivateKey prk) {
+        return privateKeySigners.get(prk, key -> new RSA_PS256_PrivateKeySigner(new KeyPair(null, key)));
+    }
+
+    private PublicKeyVerifier<?> getPublicKeyVerifier(X509Certificate cert) {
+        return publicKeyVerifiers.get(cert,
+                key -> new RSA_PS256_PublicKeyVerifier((RSAPublicKey) key.getPublicKey()));
     }
 }
@@ -0,0 +1,247 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialSignatureException;
+import io.netty.util.internal.StringUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.asn1.pkcs.PrivateKeyInfo;
+import org.bouncycastle.openssl.PEMParser;
+import org.bouncycastle.openssl.jcajce.JcaPEMKeyConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of parsed private keys and certificates. Each PEM is only parsed once and then served from memory,
+ * keyed by the path it was loaded from or by the hash of its content. Keys and certificates loaded from a file
+ * are reloaded as soon as the modification time of the file changes.
+ */
+@Service
+@Slf4j
+public class KeyMaterialRegistry {
+
+    static final String DEFAULT_PRIVATE_KEY_RESOURCE = "prk.ss.pem";
+
+    static final String DEFAULT_CERTIFICATE_RESOURCE = "cert.ss.pem";
+
+    private static final long MAXIMUM_CACHED_PEMS = 256;
+
+    private static final Duration CACHED_PEM_EXPIRY = Duration.ofHours(1);
+
+    private record FileKeyMaterial<T>(T material, FileTime lastModified) {
+    }
+
+    private final Cache<String, PrivateKey> privateKeysByHash = Caffeine.newBuilder()
+            .maximumSize(MAXIMUM_CACHED_PEMS)
+            .expireAfterAccess(CACHED_PEM_EXPIRY)
+            .build();
+
+    private final Cache<String, List<X509Certificate>> certificatesByHash = Caffeine.newBuilder()
+            .maximumSize(MAXIMUM_CACHED_PEMS)
+            .expireAfterAccess(CACHED_PEM_EXPIRY)
+            .build();
+
+    private final Map<String, FileKeyMaterial<PrivateKey>> privateKeysByPath = new ConcurrentHashMap<>();
+
+    private final Map<String, FileKeyMaterial<List<X509Certificate>>> certificatesByPath = new ConcurrentHashMap<>();
+
+    private final GxfsCatalogMetrics metrics;
+
+    public KeyMaterialRegistry(@Autowired GxfsCatalogMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Given a string representation of the private key, return its object representation.
+     *
+     * @param prk string representation of the private key
+     * @throws CredentialSignatureException failed to decode private key
+     * @return PrivateKey object
+     */
+    public PrivateKey getPrivateKey(String prk) throws CredentialSignatureException {
+        String hash = hashPem(prk);
+        PrivateKey privateKey = privateKeysByHash.getIfPresent(hash);
+        if (privateKey == null) {
+            privateKey = buildPrivateKey(prk);
+            privateKeysByHash.put(hash, privateKey);
+        }
+        return privateKey;
+    }
+
+    /**
+     * Given a string representation of the certificates, return a list of their object representations.
+     *
+     * @param certs string representation of the certificates
+     * @throws CredentialSignatureException failed to decode certificate
+     * @return list of X509 certificate objects
+     */
+    public List<X509Certificate> getCertificates(String certs) throws CredentialSignatureException {
+        String hash = hashPem(certs);
+        List<X509Certificate> certificates = certificatesByHash.getIfPresent(hash);
+        if (certificates == null) {
+            certificates = buildCertificates(certs);
+            certificatesByHash.put(hash, certificates);
+        }
+        return certificates;
+    }
+
+    /**
+     * Return the private key stored at the given path. If no path is given, the private key bundled with the
+     * library is used.
+     *
+     * @param path path to the private key PEM
+     * @throws CredentialSignatureException failed to read or decode private key
+     * @return PrivateKey object
+     */
+    public PrivateKey getPrivateKeyFromPath(String path) throws CredentialSignatureException {
+        if (StringUtil.isNullOrEmpty(path)) {
+            FileKeyMaterial<PrivateKey> bundled = privateKeysByPath.get(DEFAULT_PRIVATE_KEY_RESOURCE);
+            if (bundled == null) {
+                bundled = new FileKeyMaterial<>(buildPrivateKey(
+                        readClasspathResource(DEFAULT_PRIVATE_KEY_RESOURCE, "default private key")), null);
+                privateKeysByPath.put(DEFAULT_PRIVATE_KEY_RESOURCE, bundled);
+            }
+            return bundled.material();
+        }
+
+        FileTime lastModified = getLastModifiedTime(path, "private key");
+        FileKeyMaterial<PrivateKey> cached = privateKeysByPath.get(path);
+        if (cached == null || !lastModified.equals(cached.lastModified())) {
+            log.info("Loading private key from {}", path);
+            cached = new FileKeyMaterial<>(buildPrivateKey(readFile(path, "private key")), lastModified);
+            privateKeysByPath.put(path, cached);
+        }
+        return cached.material();
+    }
+
+    /**
+     * Return the certificates stored at the given path. If no path is given, the certificate bundled with the
+     * library is used.
+     *
+     * @param path path to the certificate PEM
+     * @throws CredentialSignatureException failed to read or decode certificate
+     * @return list of X509 certificate objects
+     */
+    public List<X509Certificate> getCertificatesFromPath(String path) throws CredentialSignatureException {
+        if (StringUtil.isNullOrEmpty(path)) {
+            FileKeyMaterial<List<X509Certificate>> bundled = certificatesByPath.get(DEFAULT_CERTIFICATE_RESOURCE);
+            if (bundled == null) {
+                bundled = new FileKeyMaterial<>(buildCertificates(
+                        readClasspathResource(DEFAULT_CERTIFICATE_RESOURCE, "default certificate")), null);
+                certificatesByPath.put(DEFAULT_CERTIFICATE_RESOURCE, bundled);
+            }
+            return bundled.material();
+        }
+
+        FileTime lastModified = getLastModifiedTime(path, "certificate");
+        FileKeyMaterial<List<X509Certificate>> cached = certificatesByPath.get(path);
+        if (cached == null || !lastModified.equals(cached.lastModified())) {
+            log.info("Loading certificate from {}", path);
+            cached = new FileKeyMaterial<>(buildCertificates(readFile(path, "certificate")), lastModified);
+            certificatesByPath.put(path, cached);
+        }
+        return cached.material();
+    }
+
+    private PrivateKey buildPrivateKey(String prk) throws CredentialSignatureException {
+        try (GxfsCatalogMetrics.Timing timing = metrics.start(GxfsCatalogMetrics.KEY_LOADING,
+                GxfsCatalogMetrics.MATERIAL, "private-key")) {
+            PEMParser pemParser = new PEMParser(new StringReader(prk));
+            JcaPEMKeyConverter converter = new JcaPEMKeyConverter();
+            PrivateKeyInfo privateKeyInfo = PrivateKeyInfo.getInstance(pemParser.readObject());
+            PrivateKey privateKey = converter.getPrivateKey(privateKeyInfo);
+            timing.success();
+            return privateKey;
+        } catch (IOException e) {
+            throw new CredentialSignatureException("Failed to parse private key. " + e.getMessage());
+        }
+    }
+
+    private List<X509Certificate> buildCertificates(String certs) throws CredentialSignatureException {
+        try (GxfsCatalogMetrics.Timing timing = metrics.start(GxfsCatalogMetrics.KEY_LOADING,
+                GxfsCatalogMetrics.MATERIAL, "certificate")) {
+            ByteArrayInputStream certStream = new ByteArrayInputStream(certs.getBytes(StandardCharsets.UTF_8));
+            CertificateFactory certFactory = CertificateFactory.getInstance("X.509");
+            List<X509Certificate> certificates =
+                    List.copyOf((List<X509Certificate>) certFactory.generateCertificates(certStream));
+            timing.success();
+            return certificates;
+        } catch (CertificateException e) {
+            throw new CredentialSignatureException("Failed to parse certificate. " + e.getMessage());
+        }
+    }
+
+    private String readClasspathResource(String resource, String description) throws CredentialSignatureException {
+        try (InputStream resourceStream = KeyMaterialRegistry.class.getClassLoader().getResourceAsStream(resource)) {
+            return new String(Objects.requireNonNull(resourceStream,
+                    "Resource " + resource + " is missing.").readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException | NullPointerException e) {
+            throw new CredentialSignatureException("Failed to read " + description + ". " + e.getMessage());
+        }
+    }
+
+    private String readFile(String path, String description) throws CredentialSignatureException {
+        try {
+            return Files.readString(Path.of(path), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new CredentialSignatureException("Failed to read " + description + ". " + e.getMessage());
+        }
+    }
+
+    private FileTime getLastModifiedTime(String path, String description) throws CredentialSignatureException {
+        try {
+            return Files.getLastModifiedTime(Path.of(path));
+        } catch (IOException e) {
+            throw new CredentialSignatureException("Failed to read " + description + ". " + e.getMessage());
+        }
+    }
+
+    private static String hashPem(String pem) throws CredentialSignatureException {
+        if (pem == null) {
+            throw new CredentialSignatureException("No key material was provided.");
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(pem.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM.", e);
+        }
+    }
+}
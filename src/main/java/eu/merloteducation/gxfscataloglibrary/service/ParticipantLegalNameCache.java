@@ -0,0 +1,180 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import eu.merloteducation.gxfscataloglibrary.models.query.GXFSQueryUriLegalNameItem;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.GXFSCatalogListResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Short-lived cache of participant legal names. Uris that are not cached yet are resolved in chunks, each with a
+ * single catalog query. Uris without a legal name are remembered as well, so repeatedly rendering the same list of
+ * participants does not cause any catalog request until the entries expire.
+ */
+@Service
+public class ParticipantLegalNameCache {
+
+    private static final int MAXIMUM_CACHED_ENTRIES = 10000;
+
+    private final Cache<String, Optional<String>> legalNames;
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final int chunkSize;
+
+    private final int parallelism;
+
+    public ParticipantLegalNameCache(
+            @Value("${gxfscatalog-library.legal-names.cache-ttl-ms:#{60000}}") long cacheTtlMs,
+            @Value("${gxfscatalog-library.lookup.chunk-size:#{50}}") int chunkSize,
+            @Value("${gxfscatalog-library.lookup.parallelism:#{4}}") int parallelism) {
+        this.legalNames = Caffeine.newBuilder()
+                .maximumSize(MAXIMUM_CACHED_ENTRIES)
+                .expireAfterWrite(Duration.ofMillis(Math.max(0, cacheTtlMs)))
+                .build();
+        this.chunkSize = Math.max(1, chunkSize);
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Return the legal names of the given participants, resolving the ones that are not cached with the loader.
+     *
+     * @param participantType type of the participants
+     * @param participantUris uris of the participants
+     * @param loader resolves the legal names of a chunk of uris of the given type
+     * @return map from uri to legal name in the order of the given uris, uris without legal name are omitted
+     */
+    Mono<Map<String, String>> getLegalNames(String participantType, Collection<String> participantUris,
+                                            BiFunction<String, List<String>, Mono<Map<String, String>>> loader) {
+        Set<String> uris = new LinkedHashSet<>(participantUris);
+        Map<String, Optional<String>> cached = legalNames.getAllPresent(uris.stream()
+                .map(uri -> getKey(participantType, uri)).toList());
+        List<String> missing = uris.stream()
+                .filter(uri -> !cached.containsKey(getKey(participantType, uri)))
+                .toList();
+
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < missing.size(); i += chunkSize) {
+            chunks.add(missing.subList(i, Math.min(i + chunkSize, missing.size())));
+        }
+
+        return Flux.fromIterable(chunks)
+                .flatMap(chunk -> {
+                    long invalidationsAtStart = invalidations.get();
+                    return loader.apply(participantType, chunk)
+                            .defaultIfEmpty(Collections.emptyMap())
+                            .doOnNext(loaded -> store(participantType, chunk, loaded, invalidationsAtStart));
+                }, parallelism)
+                .collect(HashMap<String, String>::new, Map::putAll)
+                .map(loaded -> {
+                    Map<String, String> result = new LinkedHashMap<>();
+                    for (String uri : uris) {
+                        String legalName = cached.getOrDefault(getKey(participantType, uri), Optional.empty())
+                                .orElse(loaded.get(uri));
+                        if (legalName != null) {
+                            result.put(uri, legalName);
+                        }
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * Drop all cached legal names, e.g. after participants were updated.
+     */
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        legalNames.invalidateAll();
+    }
+
+    /**
+     * Drop the cached legal names of the given participant for all participant types, e.g. after it was added or
+     * updated. If the uri is unknown, all cached legal names are dropped.
+     *
+     * @param participantUri uri of the participant
+     */
+    public void invalidate(String participantUri) {
+        if (participantUri == null) {
+            invalidateAll();
+            return;
+        }
+        String suffix = " " + participantUri;
+        invalidations.incrementAndGet();
+        legalNames.asMap().keySet().removeIf(key -> key.endsWith(suffix));
+    }
+
+    /**
+     * Map the response of a {@link CatalogQueryBuilder#participantLegalNamesByUris(String, List)} query to the
+     * legal names of the participants.
+     *
+     * @param objectMapper mapper to convert the response items with
+     * @param response query response
+     * @return map from uri to legal name, uris without legal name are omitted
+     */
+    static Map<String, String> toLegalNames(ObjectMapper objectMapper,
+                                            GXFSCatalogListResponse<Map<String, Object>> response) {
+        GXFSCatalogListResponse<GXFSQueryUriLegalNameItem> items = objectMapper.convertValue(response,
+                new TypeReference<>() {});
+        Map<String, String> legalNames = new HashMap<>();
+        if (items != null && items.getItems() != null) {
+            for (GXFSQueryUriLegalNameItem item : items.getItems()) {
+                if (item.getUri() != null && item.getLegalName() != null) {
+                    legalNames.put(item.getUri(), item.getLegalName());
+                }
+            }
+        }
+        return legalNames;
+    }
+
+    /**
+     * Cache the legal names of a loaded chunk unless a participant was invalidated since the chunk started loading,
+     * as the chunk may then hold its previous legal name. The entries are put before checking, so an invalidation
+     * running concurrently either removes them itself or is detected here.
+     *
+     * @param participantType type of the participants
+     * @param uris uris of the chunk
+     * @param loaded loaded legal names of the chunk
+     * @param invalidationsAtStart number of invalidations when the chunk started loading
+     */
+    private void store(String participantType, List<String> uris, Map<String, String> loaded,
+                       long invalidationsAtStart) {
+        Map<String, Optional<String>> entries = new HashMap<>();
+        for (String uri : uris) {
+            entries.put(getKey(participantType, uri), Optional.ofNullable(loaded.get(uri)));
+        }
+        legalNames.putAll(entries);
+        if (invalidations.get() != invalidationsAtStart) {
+            legalNames.invalidateAll(entries.keySet());
+        }
+    }
+
+    private static String getKey(String participantType, String uri) {
+        return participantType + " " + uri;
+    }
+}
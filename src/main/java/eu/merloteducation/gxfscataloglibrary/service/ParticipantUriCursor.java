@@ -0,0 +1,101 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import eu.merloteducation.gxfscataloglibrary.models.query.GXFSQueryUriCursorPage;
+import eu.merloteducation.gxfscataloglibrary.models.query.GXFSQueryUriItem;
+import eu.merloteducation.gxfscataloglibrary.models.query.GXFSQueryUriSortKeyItem;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.GXFSCatalogListResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Position within a keyset paginated participant listing, i.e. the sort key and uri of the last participant of a
+ * page. The cursor handed out to callers is the url-safe base64 encoding of the position together with participant
+ * type and sort field, so a cursor cannot be applied to a different listing by accident.
+ */
+record ParticipantUriCursor(String participantType, String sortField, String sortKey, String uri) {
+
+    private static final char SEPARATOR = '\u0000';
+
+    /**
+     * Encode this position as opaque cursor.
+     *
+     * @return cursor
+     */
+    String encode() {
+        String plain = String.join(String.valueOf(SEPARATOR), participantType, sortField, sortKey, uri);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode the given cursor of a listing of the given participant type and sort field.
+     *
+     * @param cursor cursor as returned by {@link #encode()}
+     * @param participantType type of the participants of the listing
+     * @param sortField field the listing is sorted by
+     * @return decoded position
+     */
+    static ParticipantUriCursor decode(String cursor, String participantType, String sortField) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split(String.valueOf(SEPARATOR), -1);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid participant cursor", e);
+        }
+        if (parts.length != 4 || !parts[0].equals(participantType) || !parts[1].equals(sortField)) {
+            throw new IllegalArgumentException("Participant cursor does not belong to a listing of "
+                    + participantType + " sorted by " + sortField);
+        }
+        return new ParticipantUriCursor(parts[0], parts[1], parts[2], parts[3]);
+    }
+
+    /**
+     * Build a page from the response of a keyset query that requested one participant more than the page size.
+     *
+     * @param participantType type of the participants of the listing
+     * @param sortField field the listing is sorted by
+     * @param size page size
+     * @param response response of the query
+     * @return page of uris with the cursor of the next page
+     */
+    static GXFSQueryUriCursorPage toPage(String participantType, String sortField, int size,
+                                        GXFSCatalogListResponse<GXFSQueryUriSortKeyItem> response) {
+        List<GXFSQueryUriSortKeyItem> rows = response == null || response.getItems() == null
+                ? Collections.emptyList() : response.getItems();
+        List<GXFSQueryUriItem> items = new ArrayList<>();
+        for (GXFSQueryUriSortKeyItem row : rows.subList(0, Math.min(size, rows.size()))) {
+            GXFSQueryUriItem item = new GXFSQueryUriItem();
+            item.setUri(row.getUri());
+            items.add(item);
+        }
+
+        GXFSQueryUriCursorPage page = new GXFSQueryUriCursorPage();
+        page.setItems(items);
+        page.setTotalCount(items.size());
+        if (rows.size() > size) {
+            GXFSQueryUriSortKeyItem last = rows.get(size - 1);
+            page.setNextCursor(new ParticipantUriCursor(participantType, sortField,
+                    last.getSortKey() == null ? "" : last.getSortKey(), last.getUri()).encode());
+        }
+        return page;
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiableCredential;
+import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiablePresentation;
+import eu.merloteducation.gxfscataloglibrary.models.exception.ClearingHouseException;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.participants.GxLegalRegistrationNumberCredentialSubject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
+import static eu.merloteducation.gxfscataloglibrary.service.GxfsCatalogService.URN_UUID_PREFIX;
+
+/**
+ * Non-blocking variant of the {@link GxdchService} for the compliance and notary services. It shares the request
+ * strategies, endpoint health, latency statistics and notary credential cache with the blocking service.
+ */
+@Service
+@Slf4j
+public class ReactiveGxdchService {
+
+    private final Map<String, ReactiveGxComplianceClient> gxComplianceClients;
+
+    private final Map<String, ReactiveGxNotaryClient> gxNotaryClients;
+
+    private final GxdchService gxdchService;
+
+    private final EndpointHealthManager endpointHealthManager;
+
+    public ReactiveGxdchService(@Autowired Map<String, ReactiveGxComplianceClient> gxComplianceClients,
+                                @Autowired Map<String, ReactiveGxNotaryClient> gxNotaryClients,
+                                @Autowired GxdchService gxdchService,
+                                @Autowired EndpointHealthManager endpointHealthManager) {
+        this.gxComplianceClients = gxComplianceClients;
+        this.gxNotaryClients = gxNotaryClients;
+        this.gxdchService = gxdchService;
+        this.endpointHealthManager = endpointHealthManager;
+    }
+
+    /**
+     * Let the compliance service attest the given presentation.
+     *
+     * @param vp presentation to check
+     * @return compliance credential, empty if no compliance service is configured or a ClearingHouseException
+     */
+    public Mono<ExtendedVerifiableCredential> checkCompliance(ExtendedVerifiablePresentation vp) {
+        return requestWithStrategy(gxComplianceClients,
+                clientEntry -> {
+                    log.info("Checking compliance with Compliance Service {}", clientEntry.getKey());
+                    return clientEntry.getValue().postCredentialOffer(URN_UUID_PREFIX + UUID.randomUUID(), vp);
+                },
+                gxdchService::toComplianceException, gxdchService.getComplianceStrategy(),
+                gxdchService.getComplianceHedgeDelayMs(), gxdchService::recordComplianceLatency);
+    }
+
+    /**
+     * Let the notary attest the given registration number. Attested registration numbers are served from the
+     * notary credential cache of the {@link GxdchService}.
+     *
+     * @param registrationNumber registration number credential subject
+     * @return notary credential, empty if no notary is configured or a ClearingHouseException
+     */
+    public Mono<ExtendedVerifiableCredential> verifyRegistrationNumber(
+            GxLegalRegistrationNumberCredentialSubject registrationNumber) {
+        return Mono.defer(() -> {
+            ExtendedVerifiableCredential cached = gxdchService.getCachedNotaryCredential(registrationNumber);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            return requestWithStrategy(gxNotaryClients,
+                    clientEntry -> {
+                        log.info("Verifying registration number at Notary {}", clientEntry.getKey());
+                        return clientEntry.getValue().postRegistrationNumber(URN_UUID_PREFIX + UUID.randomUUID(),
+                                registrationNumber);
+                    },
+                    gxdchService::toNotaryException, gxdchService.getNotaryStrategy(),
+                    gxdchService.getNotaryHedgeDelayMs(), gxdchService::recordNotaryLatency)
+                    // cache before the caller gets to modify the credential
+                    .doOnNext(credential -> gxdchService.cacheNotaryCredential(registrationNumber, credential));
+        });
+    }
+
+    /**
+     * Return the cached Gaia-X terms and conditions, see {@link GxdchService#getCachedGxTnCs()}. This never
+     * contacts a registry on the calling thread.
+     *
+     * @return cached terms and conditions or null
+     */
+    public JsonNode getCachedGxTnCs() {
+        return gxdchService.getCachedGxTnCs();
+    }
+
+    /**
+     * Make sure the Gaia-X terms and conditions get cached, see {@link GxdchService#warmGxTnCs()}.
+     */
+    public void warmGxTnCs() {
+        gxdchService.warmGxTnCs();
+    }
+
+    /**
+     * Send a request to the given clearing house endpoints according to the strategy. Sequential requests try one
+     * endpoint after another, racing requests subscribe to all endpoints at once and hedged requests subscribe to
+     * the next endpoint once the hedge delay passed since the previous request started or the previous request
+     * failed, whichever happens first. The first result wins and the remaining requests are cancelled.
+     *
+     * @param clients clients by base uri
+     * @param call request to send to a single endpoint
+     * @param errorHandler translation of error responses into exceptions
+     * @param strategy strategy for distributing the request
+     * @param hedgeDelayMs delay between hedged requests
+     * @param latencyRecorder recorder for the latency of successful requests
+     * @return first successful result, empty if there are no endpoints or the last encountered exception
+     */
+    private <C> Mono<ExtendedVerifiableCredential> requestWithStrategy(
+            Map<String, C> clients,
+            Function<Map.Entry<String, C>, Mono<ExtendedVerifiableCredential>> call,
+            Function<WebClientResponseException, ClearingHouseException> errorHandler,
+            GxdchService.RequestStrategy strategy, long hedgeDelayMs, LongConsumer latencyRecorder) {
+        return Mono.defer(() -> {
+            // try the healthiest endpoints first and skip those with an open circuit
+            List<Map.Entry<String, C>> entries = endpointHealthManager.rank(clients);
+            if (entries.isEmpty()) {
+                return clients.isEmpty() ? Mono.empty()
+                        : Mono.error(new ClearingHouseException("No clearing house endpoint is currently available."));
+            }
+            AtomicReference<ClearingHouseException> lastException = new AtomicReference<>();
+            List<Mono<ExtendedVerifiableCredential>> attempts = new ArrayList<>();
+            Mono<Void> previousStarted = null;
+            Mono<Void> previousFailed = null;
+            for (int i = 0; i < entries.size(); i++) {
+                Mono<ExtendedVerifiableCredential> attempt =
+                        attempt(entries.get(i), call, errorHandler, latencyRecorder, lastException);
+                if (strategy == GxdchService.RequestStrategy.HEDGED) {
+                    Sinks.Empty<Void> started = Sinks.empty();
+                    Sinks.Empty<Void> failed = Sinks.empty();
+                    attempt = attempt
+                            .doOnSubscribe(subscription -> started.tryEmitEmpty())
+                            .doOnSuccess(result -> {
+                                // attempts never fail, an empty completion means the endpoint had no result
+                                if (result == null) {
+                                    failed.tryEmitEmpty();
+                                }
+                            });
+                    if (i > 0) {
+                        attempt = previousStarted
+                                .then(Mono.firstWithSignal(Mono.delay(Duration.ofMillis(hedgeDelayMs)).then(),
+                                        previousFailed))
+                                .then(attempt);
+                    }
+                    previousStarted = started.asMono();
+                    previousFailed = failed.asMono();
+                }
+                attempts.add(attempt);
+            }
+
+            Mono<ExtendedVerifiableCredential> result;
+            if (strategy == GxdchService.RequestStrategy.SEQUENTIAL || attempts.size() == 1) {
+                result = Flux.concat(attempts).next();
+            } else {
+                // attempts never fail, hence this only signals an error if all of them completed empty
+                result = Mono.firstWithValue(attempts)
+                        .onErrorResume(NoSuchElementException.class, e -> Mono.empty());
+            }
+            return result.switchIfEmpty(Mono.defer(() -> lastException.get() == null
+                    ? Mono.empty() : Mono.error(lastException.get())));
+        });
+    }
+
+    private <C> Mono<ExtendedVerifiableCredential> attempt(
+            Map.Entry<String, C> clientEntry,
+            Function<Map.Entry<String, C>, Mono<ExtendedVerifiableCredential>> call,
+            Function<WebClientResponseException, ClearingHouseException> errorHandler,
+            LongConsumer latencyRecorder, AtomicReference<ClearingHouseException> lastException) {
+        String baseUri = clientEntry.getKey();
+        return Mono.defer(() -> {
+            if (!endpointHealthManager.tryAcquire(baseUri)) {
+                lastException.set(new ClearingHouseException("Circuit for " + baseUri + " is open."));
+                return Mono.empty();
+            }
+            long start = System.nanoTime();
+            return call.apply(clientEntry)
+                    .doOnSuccess(result -> {
+                        endpointHealthManager.recordSuccess(baseUri, GxdchService.elapsedMs(start));
+                        if (result != null) {
+                            latencyRecorder.accept(GxdchService.elapsedMs(start));
+                        }
+                    })
+                    .onErrorResume(WebClientResponseException.class, e -> {
+                        gxdchService.recordResponse(baseUri, e, GxdchService.elapsedMs(start));
+                        log.info("Failed request to clearing house {}: {} {}",
+                                baseUri, e.getStatusCode(), e.getResponseBodyAsString());
+                        lastException.set(errorHandler.apply(e));
+                        return Mono.empty();
+                    })
+                    .onErrorResume(e -> {
+                        endpointHealthManager.recordFailure(baseUri, GxdchService.elapsedMs(start));
+                        log.info("Failed to reach clearing house {}: {}", baseUri, e.getMessage());
+                        lastException.set(new ClearingHouseException("Failed to reach " + baseUri + ": "
+                                + e.getMessage()));
+                        return Mono.empty();
+                    });
+        });
+    }
+}
@@ -0,0 +1,751 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.merloteducation.gxfscataloglibrary.models.client.QueryLanguage;
+import eu.merloteducation.gxfscataloglibrary.models.client.SelfDescriptionFilter;
+import eu.merloteducation.gxfscataloglibrary.models.client.SelfDescriptionStatus;
+import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiableCredential;
+import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiablePresentation;
+import eu.merloteducation.gxfscataloglibrary.models.exception.ClearingHouseException;
+import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialPresentationException;
+import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialSignatureException;
+import eu.merloteducation.gxfscataloglibrary.models.participants.ParticipantItem;
+import eu.merloteducation.gxfscataloglibrary.models.query.GXFSQueryLegalNameItem;
+import eu.merloteducation.gxfscataloglibrary.models.query.GXFSQueryUriCursorPage;
+import eu.merloteducation.gxfscataloglibrary.models.query.GXFSQueryUriItem;
+import eu.merloteducation.gxfscataloglibrary.models.query.GXFSQueryUriSortKeyItem;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.*;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.participants.GxLegalParticipantCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.participants.GxLegalRegistrationNumberCredentialSubject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.*;
+import java.util.concurrent.Callable;
+
+/**
+ * Non-blocking variant of the {@link GxfsCatalogService}. Requests to the catalog, the clearing house and did:web
+ * documents do not block the calling thread, while the CPU-bound creation and signature of credentials runs on the
+ * shared signing executor. Errors are signalled with the same exceptions as in the blocking service.
+ */
+@Service
+@Slf4j
+public class ReactiveGxfsCatalogService {
+
+    private final String defaultVerificationMethod;
+
+    private final String defaultCertPath;
+
+    private final String defaultPrivateKey;
+
+    private final ReactiveGxfsCatalogClient gxfsCatalogClient;
+
+    private final ReactiveGxdchService gxdchService;
+
+    private final DidWebResolverService didWebResolverService;
+
+    private final ObjectMapper objectMapper;
+
+    private final KeyMaterialRegistry keyMaterialRegistry;
+
+    private final Scheduler signingScheduler;
+
+    private final CatalogQueryBuilder catalogQueryBuilder;
+
+    private final ParticipantLegalNameCache participantLegalNameCache;
+
+    private final CredentialAssembly credentialAssembly;
+
+    private final int lookupChunkSize;
+
+    private final int lookupParallelism;
+
+    private record ComplianceLookup(String cacheKey, ExtendedVerifiablePresentation reusedVp) {
+    }
+
+    public ReactiveGxfsCatalogService(@Autowired ReactiveGxfsCatalogClient gxfsCatalogClient,
+                                      @Autowired GxfsSignerService gxfsSignerService,
+                                      @Autowired ReactiveGxdchService gxdchService,
+                                      @Autowired DidWebResolverService didWebResolverService,
+                                      @Autowired ObjectMapper objectMapper,
+                                      @Autowired CachedDocumentLoader documentLoader,
+                                      @Autowired KeyMaterialRegistry keyMaterialRegistry,
+                                      @Autowired SigningExecutor signingExecutor,
+                                      @Autowired ComplianceCredentialCache complianceCredentialCache,
+                                      @Autowired CatalogQueryBuilder catalogQueryBuilder,
+                                      @Autowired ParticipantLegalNameCache participantLegalNameCache,
+                                      @Value("${gxfscatalog.verification-method:#{null}}") String defaultVerificationMethod,
+                                      @Value("${gxfscatalog.cert-path:#{null}}") String defaultCertPath,
+                                      @Value("${gxfscatalog.private-key-path:#{null}}") String defaultPrivateKey,
+                                      @Value("${gxdch-services.enforce-compliance:#{false}}") boolean enforceCompliance,
+                                      @Value("${gxdch-services.enforce-notary:#{false}}") boolean enforceNotary,
+                                      @Value("${gxfscatalog-library.lookup.chunk-size:#{50}}") int lookupChunkSize,
+                                      @Value("${gxfscatalog-library.lookup.parallelism:#{4}}") int lookupParallelism) {
+        this.gxfsCatalogClient = gxfsCatalogClient;
+        this.gxdchService = gxdchService;
+        this.didWebResolverService = didWebResolverService;
+        this.objectMapper = objectMapper;
+        this.keyMaterialRegistry = keyMaterialRegistry;
+        this.signingScheduler = signingExecutor.getScheduler();
+        this.catalogQueryBuilder = catalogQueryBuilder;
+        this.participantLegalNameCache = participantLegalNameCache;
+        this.credentialAssembly = new CredentialAssembly(gxfsSignerService, documentLoader, complianceCredentialCache,
+                enforceCompliance, enforceNotary);
+        this.defaultVerificationMethod = defaultVerificationMethod;
+        this.defaultCertPath = defaultCertPath;
+        this.defaultPrivateKey = defaultPrivateKey;
+        this.lookupChunkSize = lookupChunkSize;
+        this.lookupParallelism = lookupParallelism;
+    }
+
+    /**
+     * Non-blocking variant of {@link GxfsCatalogService#revokeSelfDescriptionByHash(String)}.
+     *
+     * @param sdHash hash of the SD
+     * @return SD meta response of the catalog
+     */
+    public Mono<SelfDescriptionMeta> revokeSelfDescriptionByHash(String sdHash) {
+        return this.gxfsCatalogClient.postRevokeSelfDescriptionByHash(sdHash);
+    }
+
+    /**
+     * Non-blocking variant of {@link GxfsCatalogService#deleteSelfDescriptionByHash(String)}.
+     *
+     * @param sdHash hash of the SD
+     * @return completion of the deletion
+     */
+    public Mono<Void> deleteSelfDescriptionByHash(String sdHash) {
+        return this.gxfsCatalogClient.deleteSelfDescriptionByHash(sdHash);
+    }
+
+    /**
+     * Non-blocking variant of {@link GxfsCatalogService#getParticipantById(String)}.
+     *
+     * @param participantId hash of the SD
+     * @return catalog content of the participant
+     */
+    public Mono<ParticipantItem> getParticipantById(String participantId) {
+        return this.gxfsCatalogClient.getParticipantById(participantId);
+    }
+
+    /**
+     * Non-blocking variant of {@link GxfsCatalogService#getSelfDescriptionsByIds(String[])}.
+     *
+     * @param ids array of ids to query the catalog for
+     * @return list of SD items that match the ids
+     */
+    public Mono<GXFSCatalogListResponse<SelfDescriptionItem>> getSelfDescriptionsByIds(String[] ids) {
+        return lookupSelfDescriptionsByIds(ids).map(response -> response);
+    }
+
+    /**
+     * Non-blocking variant of {@link GxfsCatalogService#getSelfDescriptionsByIds(String[], SelfDescriptionStatus[])}.
+     *
+     * @param ids array of ids to query the catalog for
+     * @param selfDescriptionStatuses array of wanted SD statuses
+     * @return list of SD items that match the ids
+     */
+    public Mono<GXFSCatalogListResponse<SelfDescriptionItem>> getSelfDescriptionsByIds(
+            String[] ids, SelfDescriptionStatus[] selfDescriptionStatuses) {
+        return lookupSelfDescriptionsByIds(ids, selfDescriptionStatuses).map(response -> response);
+    }
+
+    /**
+     * Non-blocking variant of {@link GxfsCatalogService#getSelfDescriptionsByHashes(String[])}.
+     *
+     * @param hashes array of hashes to query the catalog for
+     * @return list of SD items that match the hashes
+     */
+    public Mono<GXFSCatalogListResponse<SelfDescriptionItem>> getSelfDescriptionsByHashes(String[] hashes) {
+        return lookupSelfDescriptionsByHashes(hashes).map(response -> response);
+    }
+
+    /**
+     * Non-blocking variant of
+     * {@link GxfsCatalogService#getSelfDescriptionsByHashes(String[], SelfDescriptionStatus[])}.
+     *
+     * @param hashes array of hashes to query the catalog for
+     * @param selfDescriptionStatuses array of wanted SD statuses
+     * @return list of SD items that match the hashes
+     */
+    public Mono<GXFSCatalogListResponse<SelfDescriptionItem>> getSelfDescriptionsByHashes(
+            String[] hashes, SelfDescriptionStatus[] selfDescriptionStatuses) {
+        return lookupSelfDescriptionsByHashes(hashes, selfDescriptionStatuses).map(response -> response);
+    }
+
+    /**
+     * Non-blocking variant of {@link GxfsCatalogService#lookupSelfDescriptionsByIds(String[])}.
+     *
+     * @param ids array of ids to query the catalog for
+     * @return list of SD items that match the ids in the order of the ids, ids without match are listed as missing
+     */
+    public Mono<SelfDescriptionLookupResponse> lookupSelfDescriptionsByIds(String[] ids) {
+        return lookupSelfDescriptionsByIds(ids, new SelfDescriptionStatus[]{SelfDescriptionStatus.ACTIVE});
+    }
+
+    /**
+     * Non-blocking variant of
+     * {@link GxfsCatalogService#lookupSelfDescriptionsByIds(String[], SelfDescriptionStatus[])}.
+     *
+     * @param ids array of ids to query the catalog for
+     * @param selfDescriptionStatuses array of wanted SD statuses
+     * @return list of SD items that match the ids in the order of the ids, ids without match are listed as missing
+     */
+    public Mono<SelfDescriptionLookupResponse> lookupSelfDescriptionsByIds(
+            String[] ids, SelfDescriptionStatus[] selfDescriptionStatuses) {
+        return CatalogLookup.lookup(ids, CatalogLookup.BY_ID, chunk -> this.gxfsCatalogClient.getSelfDescriptionList(
+                        null,
+                        null,
+                        null,
+                        null,
+                        selfDescriptionStatuses,
+                        chunk,
+                        null,
+                        true,
+                        true,
+                        0,
+                        chunk.length),
+                lookupChunkSize, lookupParallelism);
+    }
+
+    /**
+     * Non-blocking variant of {@link GxfsCatalogService#lookupSelfDescriptionsByHashes(String[])}.
+     *
+     * @param hashes array of hashes to query the catalog for
+     * @return list of SD items that match the hashes in the order of the hashes, hashes without match are listed as missing
+     */
+    public Mono<SelfDescriptionLookupResponse> lookupSelfDescriptionsByHashes(String[] hashes) {
+        return lookupSelfDescriptionsByHashes(hashes, new SelfDescriptionStatus[]{SelfDescriptionStatus.ACTIVE});
+    }
+
+    /**
+     * Non-blocking variant of
+     * {@link GxfsCatalogService#lookupSelfDescriptionsByHashes(String[], SelfDescriptionStatus[])}.
+     *
+     * @param hashes array of hashes to query the catalog for
+     * @param selfDescriptionStatuses array of wanted SD statuses
+     * @return list of SD items that match the hashes in the order of the hashes, hashes without match are listed as missing
+     */
+    public Mono<SelfDescriptionLookupResponse> lookupSelfDescriptionsByHashes(
+            String[] hashes, SelfDescriptionStatus[] selfDescriptionStatuses) {
+        return CatalogLookup.lookup(hashes, CatalogLookup.BY_HASH, chunk -> this.gxfsCatalogClient.getSelfDescriptionList(
+                        null,
+                        null,
+                        null,
+                        null,
+                        selfDescriptionStatuses,
+                        null,
+                        chunk,
+                        true,
+                        true,
+                        0,
+                        chunk.length),
+                lookupChunkSize, lookupParallelism);
+    }
+
+    /**
+     * Non-blocking variant of {@link GxfsCatalogService#streamSelfDescriptions(SelfDescriptionFilter)}.
+     *
+     * @param filter filter for the self-descriptions
+     * @return flux of all matching SD items
+     */
+    public Flux<SelfDescriptionItem> streamSelfDescriptions(SelfDescriptionFilter filter) {
+        return streamSelfDescriptions(filter, CatalogPager.DEFAULT_PAGE_SIZE, CatalogPager.DEFAULT_PREFETCH);
+    }
+
+    /**
+     * Non-blocking variant of {@link GxfsCatalogService#streamSelfDescriptions(SelfDescriptionFilter, int, int)}.
+     * Pages are only requested as fast as the subscriber consumes the items.
+     *
+     * @param filter filter for the self-descriptions
+     * @param pageSize number of items to request per page
+     * @param prefetch number of pages to request ahead of consumption
+     * @return flux of all matching SD items
+     */
+    public Flux<SelfDescriptionItem> streamSelfDescriptions(SelfDescriptionFilter filter, int pageSize,
+                                                            int prefetch) {
+        return CatalogPager.items((offset, limit) -> this.gxfsCatalogClient.getSelfDescriptionList(
+                        filter.getUploadTimerange(),
+                        filter.getStatusTimerange(),
+                        filter.getIssuers(),
+                        filter.getValidators(),
+                        filter.getStatuses(),
+                        filter.getIds(),
+                        filter.getHashes(),
+                        filter.isWithMeta(),
+                        filter.isWithContent(),
+                        offset,
+                        limit),
+                pageSize, prefetch);
+    }
+
+    /**
+     * Non-blocking variant of {@link GxfsCatalogService#streamParticipants()}.
+     *
+     * @return flux of all participant items
+     */
+    public Flux<ParticipantItem> streamParticipants() {
+        return streamParticipants(CatalogPager.DEFAULT_PAGE_SIZE, CatalogPager.DEFAULT_PREFETCH);
+    }
+
+    /**
+     * Non-blocking variant of {@link GxfsCatalogService#streamParticipants(int, int)}.
+     * Pages are only requested as fast as the subscriber consumes the items.
+     *
+     * @param pageSize number of items to request per page
+     * @param prefetch number of pages to request ahead of consumption
+     * @return flux of all participant items
+     */
+    public Flux<ParticipantItem> streamParticipants(int pageSize, int prefetch) {
+        return CatalogPager.items(this.gxfsCatalogClient::getParticipants, pageSize, prefetch);
+    }
+
+    /**
+     * Non-blocking variant of {@link GxfsCatalogService#addServiceOffering(List, List)}.
+     *
+     * @param credentialSubjects List of credential subjects for this offering to insert into the catalog
+     * @param participantCredentials List of credential of the participant submitting this offering. Required to obtain compliance, pass empty list if not needed.
+     * @return SD meta response of the catalog or a CredentialPresentationException/CredentialSignatureException
+     */
+    public Mono<SelfDescriptionMeta> addServiceOffering(List<PojoCredentialSubject> credentialSubjects,
+                                                        List<ExtendedVerifiableCredential> participantCredentials) {
+        return addServiceOffering(credentialSubjects, participantCredentials, defaultVerificationMethod,
+                getDefaultPrivateKey());
+    }
+
+    /**
+     * Non-blocking variant of {@link GxfsCatalogService#addServiceOffering(List, List, String)}.
+     *
+     * @param credentialSubjects List of credential subjects for this offering to insert into the catalog
+     * @param participantCredentials List of credential of the participant submitting this offering. Required to obtain compliance, pass empty list if not needed.
+     * @param verificationMethod method (e.g. a particular did) that can be used to verify the signature
+     * @return SD meta response of the catalog or a CredentialPresentationException/CredentialSignatureException
+     */
+    public Mono<SelfDescriptionMeta> addServiceOffering(List<PojoCredentialSubject> credentialSubjects,
+                                                        List<ExtendedVerifiableCredential> participantCredentials,
+                                                        String verificationMethod) {
+        return addServiceOffering(credentialSubjects, participantCredentials, verificationMethod,
+                getDefaultPrivateKey());
+    }
+
+    /**
+     * Non-blocking variant of {@link GxfsCatalogService#addServiceOffering(List, List, String, String)}.
+     *
+     * @param credentialSubjects List of credential subjects for this offering to insert into the catalog
+     * @param participantCredentials List of credential of the participant submitting this offering. Required to obtain compliance, pass empty list if not needed.
+     * @param verificationMethod method (e.g. a particular did) that can be used to verify the signature
+     * @param privateKey string representation of private key to sign the SD with
+     * @return SD meta response of the catalog or a CredentialPresentationException/CredentialSignatureException
+     */
+    public Mono<SelfDescriptionMeta> addServiceOffering(List<PojoCredentialSubject> credentialSubjects,
+                                                        List<ExtendedVerifiableCredential> participantCredentials,
+                                                        String verificationMethod, String privateKey) {
+        return addServiceOffering(credentialSubjects, participantCredentials, verificationMethod,
+                getPrivateKey(privateKey));
+    }
+
+    private Mono<SelfDescriptionMeta> addServiceOffering(List<PojoCredentialSubject> credentialSubjects,
+                                                         List<ExtendedVerifiableCredential> participantCredentials,
+                                                         String verificationMethod, Mono<PrivateKey> privateKey) {
+        return privateKey.flatMap(prk -> Mono.fromCallable(() ->
+                        credentialAssembly.splitServiceOffering(credentialSubjects, participantCredentials))
+                .flatMap(offering -> resolveCertificates(verificationMethod)
+                        .flatMap(certificates -> getComplianceVp(offering.complianceCsList(), participantCredentials,
+                                offering.issuer(), verificationMethod, prk, certificates)
+                                // participant credentials are only needed for compliance, not for catalog storage
+                                .flatMap(vp -> completeVp(vp, participantCredentials, offering.remainingCsList(),
+                                        offering.issuer(), verificationMethod, prk, certificates)))))
+                .flatMap(gxfsCatalogClient::postAddSelfDescription);
+    }
+
+    /**
+     * Non-blocking variant of {@link GxfsCatalogService#addParticipant(List)}.
+     *
+     * @param credentialSubjects List of credential subjects for this participant to insert into the catalog
+     * @return catalog content of the participant or a CredentialPresentationException/CredentialSignatureException
+     */
+    public Mono<ParticipantItem> addParticipant(List<PojoCredentialSubject> credentialSubjects) {
+        return getSignedParticipantVp(credentialSubjects, defaultVerificationMethod, getDefaultPrivateKey())
+                .flatMap(gxfsCatalogClient::postAddParticipant)
+                .doOnNext(item -> participantLegalNameCache.invalidate(item.getId()));
+    }
+
+    /**
+     * Non-blocking variant of {@link GxfsCatalogService#addParticipant(List, String)}.
+     *
+     * @param credentialSubjects List of credential subjects for this participant to insert into the catalog
+     * @param verificationMethod method (e.g. a particular did) that can be used to verify the signature
+     * @return catalog content of the participant or a CredentialPresentationException/CredentialSignatureException
+     */
+    public Mono<ParticipantItem> addParticipant(List<PojoCredentialSubject> credentialSubjects,
+                                                String verificationMethod) {
+        return getSignedParticipantVp(credentialSubjects, verificationMethod, getDefaultPrivateKey())
+                .flatMap(gxfsCatalogClient::postAddParticipant)
+                .doOnNext(item -> participantLegalNameCache.invalidate(item.getId()));
+    }
+
+    /**
+     * Non-blocking variant of {@link GxfsCatalogService#addParticipant(List, String, String)}.
+     *
+     * @param credentialSubjects List of credential subjects for this participant to insert into the catalog
+     * @param verificationMethod method (e.g. a particular did) that can be used to verify the signature
+     * @param privateKey string representation of private key to sign the SD with
+     * @return catalog content of the participant or a CredentialPresentationException/CredentialSignatureException
+     */
+    public Mono<ParticipantItem> addParticipant(List<PojoCredentialSubject> credentialSubjects,
+                                                String verificationMethod, String privateKey) {
+        return getSignedParticipantVp(credentialSubjects, verificationMethod, getPrivateKey(privateKey))
+                .flatMap(gxfsCatalogClient::postAddParticipant)
+                .doOnNext(item -> participantLegalNameCache.invalidate(item.getId()));
+    }
+
+    /**
+     * Non-blocking variant of {@link GxfsCatalogService#updateParticipant(List)}.
+     *
+     * @param credentialSubjects List of credential subjects for this participant to insert into the catalog
+     * @return catalog content of the participant or a CredentialPresentationException/CredentialSignatureException
+     */
+    public Mono<ParticipantItem> updateParticipant(List<PojoCredentialSubject> credentialSubjects) {
+        return updateParticipant(credentialSubjects, defaultVerificationMethod, getDefaultPrivateKey());
+    }
+
+    /**
+     * Non-blocking variant of {@link GxfsCatalogService#updateParticipant(List, String)}.
+     *
+     * @param credentialSubjects List of credential subjects for this participant to insert into the catalog
+     * @param verificationMethod method (e.g. a particular did) that can be used to verify the signature
+     * @return catalog content of the participant or a CredentialPresentationException/CredentialSignatureException
+     */
+    public Mono<ParticipantItem> updateParticipant(List<PojoCredentialSubject> credentialSubjects,
+                                                   String verificationMethod) {
+        return updateParticipant(credentialSubjects, verificationMethod, getDefaultPrivateKey());
+    }
+
+    /**
+     * Non-blocking variant of {@link GxfsCatalogService#updateParticipant(List, String, String)}.
+     *
+     * @param credentialSubjects List of credential subjects for this participant to insert into the catalog
+     * @param verificationMethod method (e.g. a particular did) that can be used to verify the signature
+     * @param privateKey string representation of private key to sign the SD with
+     * @return catalog content of the participant or a CredentialPresentationException/CredentialSignatureException
+     */
+    public Mono<ParticipantItem> updateParticipant(List<PojoCredentialSubject> credentialSubjects,
+                                                   String verificationMethod, String privateKey) {
+        return updateParticipant(credentialSubjects, verificationMethod, getPrivateKey(privateKey));
+    }
+
+    private Mono<ParticipantItem> updateParticipant(List<PojoCredentialSubject> credentialSubjects,
+                                                    String verificationMethod, Mono<PrivateKey> privateKey) {
+        String subjectId
+                = CredentialAssembly.findAllCredentialSubjectsByType(credentialSubjects,
+                        GxLegalParticipantCredentialSubject.class)
+                .stream()
+                .map(PojoCredentialSubject::getId)
+                .findFirst().orElse("");
+
+        return getSignedParticipantVp(credentialSubjects, verificationMethod, privateKey)
+                .flatMap(vp -> gxfsCatalogClient.putUpdateParticipant(subjectId, vp))
+                .doOnNext(item -> participantLegalNameCache.invalidate(item.getId()));
+    }
+
+    /**
+     * Non-blocking variant of {@link GxfsCatalogService#getSortedParticipantUriPage(String, String, long, long)}.
+     *
+     * @param participantType type of the participant to query for, e.g. LegalPerson or MerlotOrganisation
+     * @param sortField field of the participant to sort by, must be one of the configured sort fields
+     * @param offset paging offset
+     * @param size page size
+     * @return list of participant uris corresponding to the paging parameters
+     */
+    public Mono<GXFSCatalogListResponse<GXFSQueryUriItem>> getSortedParticipantUriPage(
+            String participantType, String sortField, long offset, long size) {
+        return Mono.defer(() -> this.gxfsCatalogClient.<Map<String, Object>>postQuery(
+                        QueryLanguage.OPENCYPHER,
+                        5,
+                        true,
+                        catalogQueryBuilder.sortedParticipantUriPage(participantType, sortField, offset, size)))
+                .map(response -> objectMapper.convertValue(response,
+                        new TypeReference<GXFSCatalogListResponse<GXFSQueryUriItem>>() {}));
+    }
+
+    /**
+     * Non-blocking variant of
+     * {@link GxfsCatalogService#getSortedParticipantUriPageWithExcludedUris(String, String, List, long, long)}.
+     *
+     * @param participantType type of the participant to query for, e.g. LegalPerson or MerlotOrganisation
+     * @param sortField field of the participant to sort by, must be one of the configured sort fields
+     * @param excludedUris list of uris to exclude
+     * @param offset paging offset
+     * @param size page size
+     * @return list of participant uris corresponding to the paging parameters
+     */
+    public Mono<GXFSCatalogListResponse<GXFSQueryUriItem>> getSortedParticipantUriPageWithExcludedUris(
+            String participantType, String sortField, List<String> excludedUris, long offset, long size) {
+        return Mono.defer(() -> this.gxfsCatalogClient.<Map<String, Object>>postQuery(
+                        QueryLanguage.OPENCYPHER,
+                        5,
+                        true,
+                        catalogQueryBuilder.sortedParticipantUriPageWithExcludedUris(participantType,
+                                sortField, excludedUris, offset, size)))
+                .map(response -> objectMapper.convertValue(response,
+                        new TypeReference<GXFSCatalogListResponse<GXFSQueryUriItem>>() {}));
+    }
+
+    /**
+     * Non-blocking variant of
+     * {@link GxfsCatalogService#getSortedParticipantUriPageAfter(String, String, String, List, int)}.
+     *
+     * @param participantType type of the participant to query for, e.g. LegalPerson or MerlotOrganisation
+     * @param sortField field of the participant to sort by, must be one of the configured sort fields
+     * @param cursor next cursor of the previous page or null for the first page
+     * @param excludedUris list of uris to exclude, may be empty
+     * @param size page size
+     * @return page of participant uris and the cursor of the next page, which is null on the last page
+     */
+    public Mono<GXFSQueryUriCursorPage> getSortedParticipantUriPageAfter(String participantType, String sortField,
+                                                                         String cursor, List<String> excludedUris,
+                                                                         int size) {
+        return Mono.defer(() -> this.gxfsCatalogClient.<Map<String, Object>>postQuery(
+                        QueryLanguage.OPENCYPHER,
+                        5,
+                        false,
+                        catalogQueryBuilder.sortedParticipantUriPageAfter(participantType, sortField, cursor,
+                                excludedUris, size)))
+                .map(response -> ParticipantUriCursor.toPage(participantType, sortField, size,
+                        objectMapper.convertValue(response,
+                                new TypeReference<GXFSCatalogListResponse<GXFSQueryUriSortKeyItem>>() {})));
+    }
+
+    /**
+     * Non-blocking variant of {@link GxfsCatalogService#getParticipantLegalNameByUri(String, String)}.
+     *
+     * @param participantType type of the participant to query for, e.g. LegalPerson or MerlotOrganisation
+     * @param participantUri uri of the participant
+     * @return list containing the legal name of the participant
+     */
+    public Mono<GXFSCatalogListResponse<GXFSQueryLegalNameItem>> getParticipantLegalNameByUri(
+            String participantType, String participantUri) {
+        return Mono.defer(() -> this.gxfsCatalogClient.<Map<String, Object>>postQuery(
+                        QueryLanguage.OPENCYPHER,
+                        5,
+                        true,
+                        catalogQueryBuilder.participantLegalNameByUri(participantType, participantUri)))
+                .map(response -> objectMapper.convertValue(response,
+                        new TypeReference<GXFSCatalogListResponse<GXFSQueryLegalNameItem>>() {}));
+    }
+
+    /**
+     * Non-blocking variant of {@link GxfsCatalogService#getParticipantLegalNamesByUris(String, Collection)}.
+     *
+     * @param participantType type of the participants to query for, e.g. LegalPerson or MerlotOrganisation
+     * @param participantUris uris of the participants
+     * @return map from uri to legal name in the order of the given uris, uris without legal name are omitted
+     */
+    public Mono<Map<String, String>> getParticipantLegalNamesByUris(String participantType,
+                                                                    Collection<String> participantUris) {
+        return Mono.defer(() -> participantLegalNameCache.getLegalNames(participantType, participantUris,
+                (type, uris) -> this.gxfsCatalogClient.<Map<String, Object>>postQuery(
+                                QueryLanguage.OPENCYPHER,
+                                5,
+                                true,
+                                catalogQueryBuilder.participantLegalNamesByUris(type, uris))
+                        .map(response -> ParticipantLegalNameCache.toLegalNames(objectMapper, response))));
+    }
+
+    private <T> Mono<T> onSigningScheduler(Callable<T> task) {
+        return Mono.fromCallable(task).subscribeOn(signingScheduler);
+    }
+
+    private Mono<PrivateKey> getDefaultPrivateKey() {
+        return onSigningScheduler(() -> keyMaterialRegistry.getPrivateKeyFromPath(defaultPrivateKey));
+    }
+
+    private Mono<PrivateKey> getPrivateKey(String privateKey) {
+        return onSigningScheduler(() -> keyMaterialRegistry.getPrivateKey(privateKey));
+    }
+
+    /**
+     * Non-blocking variant of the certificate resolution of the {@link GxfsCatalogService}. Currently, only did:web
+     * is supported. If the given method is anything else, it will return an empty list.
+     *
+     * @param verificationMethod method to resolve
+     * @return list of certificates or a CredentialSignatureException
+     */
+    private Mono<List<X509Certificate>> resolveCertificates(String verificationMethod) {
+        return Mono.defer(() -> {
+            if (!verificationMethod.startsWith("did:web:")) {
+                log.warn("Failed to validate verificationMethod {} as it is not a did:web, will skip validation.",
+                        verificationMethod);
+                return Mono.just(Collections.emptyList());
+            }
+
+            if (verificationMethod.equals(defaultVerificationMethod)) {
+                log.info("Using default verificationMethod {}, skipping web request.", verificationMethod);
+                return onSigningScheduler(() -> keyMaterialRegistry.getCertificatesFromPath(defaultCertPath))
+                        .onErrorResume(CredentialSignatureException.class, e -> {
+                            log.warn("Failed to load default certificate, will skip validation.");
+                            return Mono.just(Collections.emptyList());
+                        });
+            }
+
+            // at this point we have an unknown did:web, try to resolve it
+            return didWebResolverService.resolveCertificateReactive(verificationMethod)
+                    .flatMap(certificates -> onSigningScheduler(() -> keyMaterialRegistry.getCertificates(certificates)));
+        });
+    }
+
+    private Mono<ExtendedVerifiableCredential> getSignedRegistrationNumberVc(
+            GxLegalRegistrationNumberCredentialSubject cs, String issuer, String verificationMethod,
+            PrivateKey prk, List<X509Certificate> certificates) {
+        // let notary sign registration number
+        return gxdchService.verifyRegistrationNumber(cs)
+                .onErrorResume(ClearingHouseException.class, e -> credentialAssembly.getNotaryError(e)
+                        .<Mono<ExtendedVerifiableCredential>>map(Mono::error)
+                        .orElseGet(Mono::empty))
+                // notary has signed but we need to clean up the result
+                .map(credentialAssembly::cleanUpNotaryCredential)
+                // if notary did not sign and we enforce, signal an exception
+                .switchIfEmpty(Mono.defer(() -> credentialAssembly.getNotaryError(null)
+                        .<Mono<ExtendedVerifiableCredential>>map(Mono::error)
+                        // else notary has not attested registration number, we sign it ourselves
+                        .orElseGet(() -> getSignedVc(cs, issuer, verificationMethod, prk, certificates))));
+    }
+
+    private Mono<ExtendedVerifiableCredential> getSignedVc(PojoCredentialSubject cs,
+                                                           String issuer,
+                                                           String verificationMethod,
+                                                           PrivateKey prk,
+                                                           List<X509Certificate> certificates) {
+        return onSigningScheduler(() -> credentialAssembly.getSignedVc(cs, issuer, verificationMethod, prk,
+                certificates));
+    }
+
+    private Mono<ExtendedVerifiablePresentation> getComplianceVp(List<PojoCredentialSubject> csList,
+                                                                 List<ExtendedVerifiableCredential> initialCredentials,
+                                                                 String issuer,
+                                                                 String verificationMethod,
+                                                                 PrivateKey prk,
+                                                                 List<X509Certificate> certificates) {
+        // reuse a previous attestation of the same credential subjects or let the compliance service attest them
+        return onSigningScheduler(() -> {
+            String complianceCacheKey = credentialAssembly.getComplianceCacheKey(csList, initialCredentials, issuer,
+                    verificationMethod);
+            return new ComplianceLookup(complianceCacheKey,
+                    credentialAssembly.getReusableComplianceVp(complianceCacheKey, initialCredentials));
+        }).flatMap(lookup -> lookup.reusedVp() != null
+                ? Mono.just(lookup.reusedVp())
+                : createComplianceVp(csList, initialCredentials, issuer, verificationMethod, prk, certificates)
+                        .flatMap(vp -> attestCompliance(vp, initialCredentials, lookup.cacheKey())));
+    }
+
+    private Mono<ExtendedVerifiablePresentation> createComplianceVp(List<PojoCredentialSubject> csList,
+                                                                    List<ExtendedVerifiableCredential> initialCredentials,
+                                                                    String issuer,
+                                                                    String verificationMethod,
+                                                                    PrivateKey prk,
+                                                                    List<X509Certificate> certificates) {
+        // sign the relevant CS concurrently but keep their order, so that the presentation does not depend on scheduling
+        return Flux.fromIterable(csList)
+                .filter(CredentialAssembly::isComplianceRelevant)
+                .flatMapSequential(cs -> cs instanceof GxLegalRegistrationNumberCredentialSubject registrationNumberCs
+                        ? getSignedRegistrationNumberVc(registrationNumberCs, issuer, verificationMethod, prk, certificates)
+                        : getSignedVc(cs, issuer, verificationMethod, prk, certificates))
+                .collectList()
+                // set up a VP for the compliance service
+                .map(signedVcs -> credentialAssembly.createComplianceVp(initialCredentials, signedVcs));
+    }
+
+    private Mono<ExtendedVerifiablePresentation> attestCompliance(ExtendedVerifiablePresentation complianceVp,
+                                                                  List<ExtendedVerifiableCredential> initialCredentials,
+                                                                  String complianceCacheKey) {
+        // verify compliance with compliance service
+        return gxdchService.checkCompliance(complianceVp)
+                .onErrorResume(ClearingHouseException.class, e -> credentialAssembly.getComplianceError(e)
+                        .<Mono<ExtendedVerifiableCredential>>map(Mono::error)
+                        .orElseGet(Mono::empty))
+                .flatMap(complianceResult -> onSigningScheduler(() -> {
+                    credentialAssembly.addComplianceResult(complianceVp, initialCredentials, complianceCacheKey,
+                            complianceResult);
+                    return complianceVp;
+                }))
+                .switchIfEmpty(Mono.defer(() -> credentialAssembly.getComplianceError(null)
+                        .<Mono<ExtendedVerifiablePresentation>>map(Mono::error)
+                        .orElseGet(() -> {
+                            credentialAssembly.addComplianceResult(complianceVp, initialCredentials,
+                                    complianceCacheKey, null);
+                            return Mono.just(complianceVp);
+                        })));
+    }
+
+    /**
+     * Sign the remaining credential subjects, add them to the given presentation and sign it for catalog storage.
+     *
+     * @param vp presentation containing the compliance relevant credentials
+     * @param excludedCredentials credentials to leave out of the presentation
+     * @param csList remaining credential subjects
+     * @param issuer issuer of the credentials
+     * @param verificationMethod method that can be used to verify the signatures
+     * @param prk private key for signing
+     * @param certificates certificates to check the signatures against
+     * @return signed presentation
+     */
+    private Mono<ExtendedVerifiablePresentation> completeVp(ExtendedVerifiablePresentation vp,
+                                                            List<ExtendedVerifiableCredential> excludedCredentials,
+                                                            List<PojoCredentialSubject> csList,
+                                                            String issuer,
+                                                            String verificationMethod,
+                                                            PrivateKey prk,
+                                                            List<X509Certificate> certificates) {
+        return Flux.fromIterable(csList)
+                .flatMapSequential(cs -> getSignedVc(cs, issuer, verificationMethod, prk, certificates))
+                .collectList()
+                .flatMap(signedVcs -> onSigningScheduler(() -> {
+                    credentialAssembly.completeVp(vp, excludedCredentials, signedVcs, verificationMethod, prk,
+                            certificates);
+                    return vp;
+                }));
+    }
+
+    private Mono<ExtendedVerifiablePresentation> getSignedParticipantVp(List<PojoCredentialSubject> credentialSubjects,
+                                                                        String verificationMethod,
+                                                                        Mono<PrivateKey> privateKey) {
+        return privateKey.flatMap(prk -> Mono.fromCallable(() ->
+                        credentialAssembly.splitParticipant(credentialSubjects))
+                .flatMap(participant -> {
+                    // if needed incorporate Gaia-X TnC into SD, currently it is not enforced by the compliance service
+                    gxdchService.warmGxTnCs(); // served from cache, refreshed in the background
+
+                    return resolveCertificates(verificationMethod)
+                            .flatMap(certificates -> getComplianceVp(participant.complianceCsList(),
+                                    Collections.emptyList(), participant.issuer(), verificationMethod, prk,
+                                    certificates)
+                                    .flatMap(vp -> completeVp(vp, Collections.emptyList(),
+                                            participant.remainingCsList(), participant.issuer(), verificationMethod,
+                                            prk, certificates)));
+                }));
+    }
+}
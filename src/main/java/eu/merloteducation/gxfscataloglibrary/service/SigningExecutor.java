@@ -0,0 +1,241 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiableCredential;
+import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialPresentationException;
+import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialSignatureException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread pool on which the credentials of a presentation are created and signed concurrently. The pool is owned by
+ * the library and deliberately not exposed as an executor bean, so the task executor auto-configured for the
+ * application is not replaced by it.
+ * <p>
+ * With virtual threads every task gets a new virtual thread and a semaphore caps how many of them sign at the same
+ * time, as virtual threads are not meant to be pooled. Otherwise a fixed pool of platform threads is used.
+ */
+@Service
+@Slf4j
+public class SigningExecutor {
+
+    private final ExecutorService executorService;
+
+    private final Scheduler scheduler;
+
+    public SigningExecutor(@Value("${gxfscatalog-library.signing.parallelism:#{0}}") int parallelism,
+                           @Value("${gxfscatalog-library.signing.virtual-threads:#{true}}") boolean virtualThreads) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        ExecutorService virtualThreadExecutor = virtualThreads ? getVirtualThreadExecutor() : null;
+        this.executorService = virtualThreadExecutor != null
+                ? new BoundedExecutorService(virtualThreadExecutor, threads)
+                : Executors.newFixedThreadPool(threads, getPlatformThreadFactory());
+        this.scheduler = Schedulers.fromExecutorService(executorService, "gxfsSigning");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.dispose();
+        executorService.shutdown();
+    }
+
+    /**
+     * Submit a signing task to the pool.
+     *
+     * @param task task to run
+     * @return future of the result of the task
+     * @param <T> result type
+     */
+    <T> Future<T> submit(Callable<T> task) {
+        return executorService.submit(task);
+    }
+
+    /**
+     * Return a scheduler running on the pool, e.g. to sign within a reactive pipeline.
+     *
+     * @return scheduler backed by the pool
+     */
+    Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Run the given independent credential tasks on the pool and return their results in the order of the given
+     * tasks, so that the resulting presentation (and its hash) does not depend on scheduling. If a task fails, the
+     * remaining tasks are cancelled.
+     *
+     * @param tasks tasks creating one credential each
+     * @return list of created credentials in task order
+     * @throws CredentialSignatureException a task failed to sign its credential
+     * @throws CredentialPresentationException a task failed to create its credential
+     */
+    List<ExtendedVerifiableCredential> runCredentialTasks(List<CredentialTask> tasks)
+            throws CredentialSignatureException, CredentialPresentationException {
+        if (tasks.size() <= 1) {
+            List<ExtendedVerifiableCredential> credentials = new ArrayList<>();
+            for (CredentialTask task : tasks) {
+                credentials.add(task.call());
+            }
+            return credentials;
+        }
+
+        List<Future<ExtendedVerifiableCredential>> futures = new ArrayList<>();
+        for (CredentialTask task : tasks) {
+            futures.add(submit(task::call));
+        }
+        try {
+            List<ExtendedVerifiableCredential> credentials = new ArrayList<>();
+            for (Future<ExtendedVerifiableCredential> future : futures) {
+                credentials.add(future.get());
+            }
+            return credentials;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CredentialSignatureException("Interrupted while signing credentials.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CredentialSignatureException signatureException) {
+                throw signatureException;
+            } else if (cause instanceof CredentialPresentationException presentationException) {
+                throw presentationException;
+            } else if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new CredentialSignatureException("Failed to sign credentials. " + cause.getMessage());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Task creating and signing a single credential.
+     */
+    @FunctionalInterface
+    interface CredentialTask {
+        ExtendedVerifiableCredential call() throws CredentialSignatureException, CredentialPresentationException;
+    }
+
+    /**
+     * Return an executor starting a new virtual thread per task if supported by the running JDK. The virtual thread
+     * API is accessed reflectively as the library targets Java 17.
+     *
+     * @return executor for virtual signing threads or null if virtual threads are not available
+     */
+    private static ExecutorService getVirtualThreadExecutor() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class)
+                    .invoke(builder, "gxfs-signing-", 0L);
+            ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            log.info("Virtual threads are not available, falling back to platform threads for signing.");
+            return null;
+        }
+    }
+
+    /**
+     * Return a factory for named platform daemon threads.
+     *
+     * @return thread factory for signing threads
+     */
+    private static ThreadFactory getPlatformThreadFactory() {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "gxfs-signing-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Executor service running each task on the delegate once one of a fixed number of permits is available.
+     */
+    private static final class BoundedExecutorService extends AbstractExecutorService {
+
+        private final ExecutorService delegate;
+
+        private final Semaphore permits;
+
+        private BoundedExecutorService(ExecutorService delegate, int maxConcurrentTasks) {
+            this.delegate = delegate;
+            this.permits = new Semaphore(maxConcurrentTasks);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            delegate.execute(() -> {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    // cancelled while waiting for a permit
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                try {
+                    command.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.config;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.GXFSCatalogListResponse;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.SelfDescriptionItem;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NestedJsonUnescaperTests {
+
+    private static String unescape(String body, int chunkSize) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        List<DataBuffer> chunks = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += chunkSize) {
+            int length = Math.min(chunkSize, bytes.length - i);
+            chunks.add(DefaultDataBufferFactory.sharedInstance.allocateBuffer(length).write(bytes, i, length));
+        }
+        DataBuffer joined = DataBufferUtils.join(NestedJsonUnescaper.unescape(Flux.fromIterable(chunks))).block();
+        if (joined == null) {
+            return "";
+        }
+        String result = joined.toString(StandardCharsets.UTF_8);
+        DataBufferUtils.release(joined);
+        return result;
+    }
+
+    private static void assertUnescaped(String expected, String body) {
+        // splitting into single bytes makes sure the state is carried across buffers
+        assertEquals(expected, unescape(body, 1));
+        assertEquals(expected, unescape(body, 4096));
+    }
+
+    @Test
+    void nestedContentUnescaped() {
+        assertUnescaped("{\"meta\": {\"content\": {\"id\":\"http://example.edu/sd\",\"name\":\"a \\\"quoted\\\" name\"}}}",
+                "{\"meta\": {\"content\": \"{\\\"id\\\":\\\"http://example.edu/sd\\\",\\\"name\\\":\\\"a \\\\\\\"quoted\\\\\\\" name\\\"}\"}}");
+    }
+
+    @Test
+    void nestedSelfDescriptionUnescaped() {
+        assertUnescaped("{\"id\": \"1\", \"selfDescription\" : {\"a\":1}}",
+                "{\"id\": \"1\", \"selfDescription\" : \"{\\\"a\\\":1}\"}");
+    }
+
+    @Test
+    void otherFieldsUntouched() {
+        String body = "{\"name\": \"{\\\"a\\\":1}\", \"content\": \"plain \\\"text\\\"\", \"x\": [\"content\", \"{}\"]}";
+        assertUnescaped(body, body);
+    }
+
+    @Test
+    void unicodeEscapesDecoded() {
+        assertUnescaped("{\"content\": {\"name\":\"B\u00fccher \ud83d\udcda\"}}",
+                "{\"content\": \"{\\\"name\\\":\\\"B\\u00fccher \\ud83d\\udcda\\\"}\"}");
+    }
+
+    @Test
+    void emptyBody() {
+        assertUnescaped("", "");
+    }
+
+    @Test
+    void unescapedBodyParsesIntoItems() throws Exception {
+        String body = """
+                {
+                    "totalCount": 1,
+                    "items": [
+                        {
+                            "meta": {
+                                "content": "{\\"id\\":\\"http://example.edu/verifiablePresentation/self-description1\\"}",
+                                "sdHash": "1234"
+                            }
+                        }
+                    ]
+                }
+                """;
+        GXFSCatalogListResponse<SelfDescriptionItem> response = new ObjectMapper().readValue(unescape(body, 7),
+                new TypeReference<>() {});
+        assertEquals("1234", response.getItems().get(0).getMeta().getSdHash());
+        assertNotNull(response.getItems().get(0).getMeta().getContent().getId());
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import com.apicatalog.jsonld.JsonLdError;
+import com.apicatalog.jsonld.document.Document;
+import com.apicatalog.jsonld.document.JsonDocument;
+import com.apicatalog.jsonld.loader.DocumentLoader;
+import com.apicatalog.jsonld.loader.DocumentLoaderOptions;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachedDocumentLoaderTests {
+
+    @TempDir
+    private Path contextDirectory;
+
+    @Test
+    void builtinContextServedOffline() throws JsonLdError {
+        CachedDocumentLoader loader = new CachedDocumentLoader(null, false, 3600000, new ObjectMapper());
+        URI credentialsContext = URI.create("https://www.w3.org/2018/credentials/v1");
+
+        assertTrue(loader.isCached(credentialsContext));
+        assertNotNull(loader.loadDocument(credentialsContext, new DocumentLoaderOptions()));
+    }
+
+    @Test
+    void bundledContextsServedOffline() throws JsonLdError {
+        CachedDocumentLoader loader = new CachedDocumentLoader(null, false, 3600000, new ObjectMapper());
+
+        for (String context : List.of(
+                "https://registry.lab.gaia-x.eu/development/api/trusted-shape-registry/v1/shapes/jsonld/trustframework#",
+                "http://w3id.org/gaia-x/merlot#",
+                "http://www.w3.org/2006/vcard/ns#",
+                "https://w3id.org/security/suites/jws-2020/v1")) {
+            assertTrue(loader.isCached(URI.create(context)), context);
+            assertNotNull(loader.loadDocument(URI.create(context), new DocumentLoaderOptions()));
+        }
+    }
+
+    @Test
+    void concurrentMissesFetchOnce() throws InterruptedException, ExecutionException {
+        CountDownLatch fetchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFetch = new CountDownLatch(1);
+        AtomicInteger fetches = new AtomicInteger();
+        DocumentLoader remoteLoader = (url, options) -> {
+            fetches.incrementAndGet();
+            fetchStarted.countDown();
+            try {
+                releaseFetch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return JsonDocument.of(new StringReader("{\"@context\": {\"ex\": \"https://example.com/ns#\"}}"));
+        };
+        CachedDocumentLoader loader = new CachedDocumentLoader(null, true, 3600000, new ObjectMapper(),
+                remoteLoader);
+        URI context = URI.create("https://example.com/remote/context");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Document>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> loader.loadDocument(context, new DocumentLoaderOptions())));
+            }
+            assertTrue(fetchStarted.await(5, TimeUnit.SECONDS));
+            // give the remaining requests time to join the running fetch
+            Thread.sleep(100);
+            releaseFetch.countDown();
+            for (Future<Document> result : results) {
+                assertNotNull(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, fetches.get());
+        assertTrue(loader.isCached(context));
+    }
+
+    @Test
+    void unknownContextOfflineFails() {
+        CachedDocumentLoader loader = new CachedDocumentLoader(null, false, 3600000, new ObjectMapper());
+        URI unknownContext = URI.create("https://example.com/unknown/context");
+
+        assertFalse(loader.isCached(unknownContext));
+        assertThrows(JsonLdError.class, () -> loader.loadDocument(unknownContext, new DocumentLoaderOptions()));
+    }
+
+    @Test
+    void directoryContextServedOffline() throws IOException, JsonLdError {
+        Files.writeString(contextDirectory.resolve("index.json"), """
+                {
+                  "https://example.com/shapes/trustframework#": "trustframework.jsonld"
+                }
+                """);
+        Files.writeString(contextDirectory.resolve("trustframework.jsonld"), """
+                {
+                  "@context": {
+                    "gx": "https://example.com/shapes/trustframework#"
+                  }
+                }
+                """);
+
+        CachedDocumentLoader loader = new CachedDocumentLoader(contextDirectory.toString(), false, 3600000,
+                new ObjectMapper());
+        URI context = URI.create("https://example.com/shapes/trustframework#");
+
+        assertTrue(loader.isCached(context));
+        assertNotNull(loader.loadDocument(context, new DocumentLoaderOptions()));
+    }
+}
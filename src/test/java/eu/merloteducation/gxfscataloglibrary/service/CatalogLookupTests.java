@@ -0,0 +1,122 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.GXFSCatalogListResponse;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.SelfDescriptionItem;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.SelfDescriptionLookupResponse;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.SelfDescriptionMeta;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogLookupTests {
+
+    private final List<List<String>> requestedChunks = new CopyOnWriteArrayList<>();
+
+    private static SelfDescriptionItem item(String hash) {
+        SelfDescriptionItem item = new SelfDescriptionItem();
+        item.setMeta(new SelfDescriptionMeta());
+        item.getMeta().setSdHash(hash);
+        return item;
+    }
+
+    // knows all hashes except "missing", answers in reverse order
+    private CatalogLookup.ChunkFetcher fetcher() {
+        return chunk -> {
+            requestedChunks.add(Arrays.asList(chunk));
+            GXFSCatalogListResponse<SelfDescriptionItem> response = new GXFSCatalogListResponse<>();
+            List<SelfDescriptionItem> items = new ArrayList<>(Arrays.stream(chunk)
+                    .filter(hash -> !hash.equals("missing"))
+                    .map(CatalogLookupTests::item)
+                    .toList());
+            Collections.reverse(items);
+            response.setItems(items);
+            response.setTotalCount(items.size());
+            return Mono.just(response);
+        };
+    }
+
+    private static List<String> hashes(SelfDescriptionLookupResponse response) {
+        return response.getItems().stream().map(item -> item.getMeta().getSdHash()).toList();
+    }
+
+    @Test
+    void resultInInputOrder() {
+        SelfDescriptionLookupResponse response = CatalogLookup.lookup(new String[]{"c", "a", "missing", "b", "d"},
+                CatalogLookup.BY_HASH, fetcher(), 2, 2).block();
+
+        assertNotNull(response);
+        assertEquals(List.of("c", "a", "b", "d"), hashes(response));
+        assertEquals(4, response.getTotalCount());
+        assertEquals(List.of("missing"), response.getMissing());
+        assertEquals(3, requestedChunks.size());
+        assertTrue(requestedChunks.containsAll(List.of(List.of("c", "a"), List.of("missing", "b"), List.of("d"))));
+    }
+
+    @Test
+    void duplicateKeysRequestedOnce() {
+        SelfDescriptionLookupResponse response = CatalogLookup.lookup(new String[]{"a", "a", "b"},
+                CatalogLookup.BY_HASH, fetcher(), 10, 1).block();
+
+        assertNotNull(response);
+        assertEquals(List.of("a", "b"), hashes(response));
+        assertEquals(List.of(List.of("a", "b")), requestedChunks);
+    }
+
+    @Test
+    void noKeys() {
+        SelfDescriptionLookupResponse response = CatalogLookup.lookup(new String[]{},
+                CatalogLookup.BY_HASH, fetcher(), 10, 1).block();
+
+        assertNotNull(response);
+        assertEquals(Collections.emptyList(), response.getItems());
+        assertEquals(Collections.emptyList(), response.getMissing());
+        assertTrue(requestedChunks.isEmpty());
+    }
+
+    @Test
+    void parallelismIsCapped() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CatalogLookup.ChunkFetcher delegate = fetcher();
+        CatalogLookup.ChunkFetcher fetcher = chunk -> Mono.defer(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    return delegate.fetch(chunk).delayElement(Duration.ofMillis(20));
+                })
+                .doFinally(signal -> running.decrementAndGet());
+
+        String[] keys = new String[20];
+        Arrays.setAll(keys, i -> "" + i);
+        SelfDescriptionLookupResponse response = CatalogLookup.lookup(keys, CatalogLookup.BY_HASH, fetcher, 2, 3)
+                .block();
+
+        assertNotNull(response);
+        assertEquals(Arrays.asList(keys), hashes(response));
+        assertEquals(10, requestedChunks.size());
+        assertTrue(maxRunning.get() <= 3);
+    }
+}
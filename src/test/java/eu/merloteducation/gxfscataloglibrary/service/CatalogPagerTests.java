@@ -0,0 +1,105 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.GXFSCatalogListResponse;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogPagerTests {
+
+    private final List<Integer> requestedOffsets = new CopyOnWriteArrayList<>();
+
+    private CatalogPager.PageFetcher<Integer> fetcher(int totalCount) {
+        return (offset, limit) -> {
+            requestedOffsets.add(offset);
+            GXFSCatalogListResponse<Integer> page = new GXFSCatalogListResponse<>();
+            page.setTotalCount(totalCount);
+            page.setItems(IntStream.range(offset, Math.min(offset + limit, totalCount)).boxed().toList());
+            return Mono.just(page);
+        };
+    }
+
+    @Test
+    void allPagesInOrder() {
+        List<Integer> items = CatalogPager.items(fetcher(10), 3, 2).collectList().block();
+        assertEquals(IntStream.range(0, 10).boxed().toList(), items);
+        assertEquals(List.of(0, 3, 6, 9), requestedOffsets);
+    }
+
+    @Test
+    void emptyCatalog() {
+        assertEquals(Collections.emptyList(), CatalogPager.items(fetcher(0), 3, 1).collectList().block());
+        assertEquals(List.of(0), requestedOffsets);
+    }
+
+    @Test
+    void shortPageEndsPaging() {
+        CatalogPager.PageFetcher<Integer> fetcher = (offset, limit) -> {
+            requestedOffsets.add(offset);
+            GXFSCatalogListResponse<Integer> page = new GXFSCatalogListResponse<>();
+            // total count is off, e.g. as items were deleted meanwhile
+            page.setTotalCount(100);
+            page.setItems(List.of(1, 2));
+            return Mono.just(page);
+        };
+        assertEquals(List.of(1, 2), CatalogPager.items(fetcher, 5, 1).collectList().block());
+        assertEquals(List.of(0), requestedOffsets);
+    }
+
+    @Test
+    void shortPageInBetweenEndsPaging() {
+        CatalogPager.PageFetcher<Integer> fetcher = (offset, limit) -> {
+            requestedOffsets.add(offset);
+            GXFSCatalogListResponse<Integer> page = new GXFSCatalogListResponse<>();
+            page.setTotalCount(100);
+            page.setItems(IntStream.range(offset, offset + (offset == 0 ? limit : 2)).boxed().toList());
+            return Mono.just(page);
+        };
+        assertEquals(IntStream.range(0, 7).boxed().toList(), CatalogPager.items(fetcher, 5, 0).collectList().block());
+        assertEquals(List.of(0, 5), requestedOffsets);
+    }
+
+    @Test
+    void prefetchIsBounded() {
+        try (Stream<Integer> stream = CatalogPager.items(fetcher(100), 10, 1).toStream(1)) {
+            Iterator<Integer> iterator = stream.iterator();
+            assertEquals(0, iterator.next());
+            // the current page, the prefetched one and at most one page buffered for hand-over
+            assertTrue(requestedOffsets.size() <= 3);
+            for (int i = 1; i < 11; i++) {
+                assertEquals(i, iterator.next());
+            }
+            assertTrue(requestedOffsets.size() <= 4);
+        }
+    }
+
+    @Test
+    void invalidPageSize() {
+        assertThrows(IllegalArgumentException.class, () -> CatalogPager.items(fetcher(10), 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> CatalogPager.items(fetcher(10), 1, -1));
+    }
+}
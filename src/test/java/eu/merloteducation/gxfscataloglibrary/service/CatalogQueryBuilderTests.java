@@ -0,0 +1,136 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import eu.merloteducation.gxfscataloglibrary.models.client.QueryRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogQueryBuilderTests {
+
+    private final CatalogQueryBuilder builder = new CatalogQueryBuilder(List.of("legalName", "name"));
+
+    @Test
+    void sortedParticipantUriPageUsesParameters() {
+        QueryRequest query = builder.sortedParticipantUriPage("LegalPerson", "legalName", 20, 10);
+
+        assertEquals("MATCH (p:LegalPerson) return p.uri ORDER BY toLower(p.legalName) SKIP $offset LIMIT $size",
+                query.getStatement());
+        assertEquals(Map.of("offset", 20L, "size", 10L), query.getParameters());
+    }
+
+    @Test
+    void sortedParticipantUriPageWithExcludedUrisUsesParameters() {
+        QueryRequest query = builder.sortedParticipantUriPageWithExcludedUris("LegalPerson", "name",
+                List.of("did:web:a", "did:web:\"b\""), 0, 10);
+
+        assertEquals("MATCH (p:LegalPerson) WHERE NOT p.uri IN $excludedUris return p.uri "
+                + "ORDER BY toLower(p.name) SKIP $offset LIMIT $size", query.getStatement());
+        assertEquals(List.of("did:web:a", "did:web:\"b\""), query.getParameters().get("excludedUris"));
+    }
+
+    @Test
+    void participantLegalNameByUriUsesParameters() {
+        QueryRequest query = builder.participantLegalNameByUri("LegalPerson", "did:web:a\" OR true //");
+
+        assertEquals("MATCH (p:LegalPerson) WHERE p.uri = $uri return p.legalName", query.getStatement());
+        assertEquals(Map.of("uri", "did:web:a\" OR true //"), query.getParameters());
+    }
+
+    @Test
+    void participantLegalNamesByUrisUsesParameters() {
+        QueryRequest query = builder.participantLegalNamesByUris("LegalPerson", List.of("did:web:a", "did:web:b"));
+
+        assertEquals("MATCH (p:LegalPerson) WHERE p.uri IN $uris return p.uri, p.legalName", query.getStatement());
+        assertEquals(Map.of("uris", List.of("did:web:a", "did:web:b")), query.getParameters());
+    }
+
+    @Test
+    void sortedParticipantUriPageAfterStartsWithoutCursor() {
+        QueryRequest query = builder.sortedParticipantUriPageAfter("LegalPerson", "legalName", null,
+                List.of("did:web:x"), 10);
+
+        assertEquals("MATCH (p:LegalPerson) WHERE NOT p.uri IN $excludedUris"
+                + " WITH p, coalesce(toLower(p.legalName), '') AS sortKey"
+                + " return p.uri, sortKey ORDER BY sortKey, p.uri LIMIT $limit", query.getStatement());
+        assertEquals(Map.of("excludedUris", List.of("did:web:x"), "limit", 11L), query.getParameters());
+    }
+
+    @Test
+    void sortedParticipantUriPageAfterContinuesAfterCursor() {
+        String cursor = new ParticipantUriCursor("LegalPerson", "legalName", "some name", "did:web:a").encode();
+
+        QueryRequest query = builder.sortedParticipantUriPageAfter("LegalPerson", "legalName", cursor,
+                List.of(), 10);
+
+        assertEquals("MATCH (p:LegalPerson) WHERE NOT p.uri IN $excludedUris"
+                + " WITH p, coalesce(toLower(p.legalName), '') AS sortKey"
+                + " WHERE sortKey > $sortKey OR (sortKey = $sortKey AND p.uri > $uri)"
+                + " return p.uri, sortKey ORDER BY sortKey, p.uri LIMIT $limit", query.getStatement());
+        assertEquals(Map.of("excludedUris", List.of(), "limit", 11L, "sortKey", "some name", "uri", "did:web:a"),
+                query.getParameters());
+    }
+
+    @Test
+    void sortedParticipantUriPageAfterRejectsInvalidCursor() {
+        String foreignCursor = new ParticipantUriCursor("LegalPerson", "name", "some name", "did:web:a").encode();
+        List<String> excludedUris = List.of();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> builder.sortedParticipantUriPageAfter("LegalPerson", "legalName", foreignCursor,
+                        excludedUris, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> builder.sortedParticipantUriPageAfter("LegalPerson", "legalName", "not a cursor!",
+                        excludedUris, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> builder.sortedParticipantUriPageAfter("LegalPerson", "legalName", null, excludedUris, 0));
+    }
+
+    @Test
+    void statementsAreReused() {
+        QueryRequest first = builder.sortedParticipantUriPage("LegalPerson", "legalName", 0, 10);
+        QueryRequest second = builder.sortedParticipantUriPage("LegalPerson", "legalName", 10, 10);
+
+        assertSame(first.getStatement(), second.getStatement());
+    }
+
+    @Test
+    void sortFieldNotAllowed() {
+        assertThrows(IllegalArgumentException.class,
+                () -> builder.sortedParticipantUriPage("LegalPerson", "uri", 0, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> builder.sortedParticipantUriPage("LegalPerson", "legalName) DETACH DELETE p //", 0, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> builder.sortedParticipantUriPage("LegalPerson", null, 0, 10));
+    }
+
+    @Test
+    void participantTypeNotAllowed() {
+        assertThrows(IllegalArgumentException.class,
+                () -> builder.participantLegalNameByUri("LegalPerson) DETACH DELETE p //", "did:web:a"));
+    }
+
+    @Test
+    void invalidSortFieldConfiguration() {
+        List<String> sortFields = List.of("name)");
+        assertThrows(IllegalArgumentException.class, () -> new CatalogQueryBuilder(sortFields));
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiableCredential;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.PojoCredentialSubject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComplianceCredentialCacheTests {
+
+    private static final String ISSUER = "did:web:example.com";
+
+    private static final String VERIFICATION_METHOD = "did:web:example.com#JWK2020";
+
+    private ComplianceCredentialCache complianceCredentialCache;
+
+    @BeforeEach
+    public void setUp() {
+        complianceCredentialCache = new ComplianceCredentialCache(new ObjectMapper(), true, 3600000);
+    }
+
+    private List<PojoCredentialSubject> credentialSubjects(String id) {
+        PojoCredentialSubject cs = new PojoCredentialSubject();
+        cs.setId(id);
+        return List.of(cs);
+    }
+
+    private ExtendedVerifiableCredential credential(String id) {
+        return ExtendedVerifiableCredential.fromJson("""
+                {
+                  "@context": ["https://www.w3.org/2018/credentials/v1"],
+                  "type": ["VerifiableCredential"],
+                  "id": "%s",
+                  "issuer": "did:web:example.com",
+                  "issuanceDate": "2024-05-16T09:40:50.997Z",
+                  "credentialSubject": {"id": "https://example.com/subject"}
+                }
+                """.formatted(id));
+    }
+
+    private ExtendedVerifiableCredential complianceCredential(List<String> integrities) {
+        ExtendedVerifiableCredential credential = credential("urn:uuid:compliance");
+        credential.setJsonObjectKeyValue("credentialSubject", integrities.stream()
+                .map(integrity -> Map.of("type", "gx:compliance", "gx:integrity", integrity))
+                .toList());
+        return credential;
+    }
+
+    @Test
+    void sameSubjectsSameKey() {
+        String key = complianceCredentialCache.getKey(credentialSubjects("a"), Collections.emptyList(),
+                ISSUER, VERIFICATION_METHOD);
+        assertNotNull(key);
+        assertEquals(key, complianceCredentialCache.getKey(credentialSubjects("a"), Collections.emptyList(),
+                ISSUER, VERIFICATION_METHOD));
+        assertNotEquals(key, complianceCredentialCache.getKey(credentialSubjects("b"), Collections.emptyList(),
+                ISSUER, VERIFICATION_METHOD));
+        assertNotEquals(key, complianceCredentialCache.getKey(credentialSubjects("a"), Collections.emptyList(),
+                "did:web:other.com", VERIFICATION_METHOD));
+    }
+
+    @Test
+    void coveringAttestationReused() {
+        String key = complianceCredentialCache.getKey(credentialSubjects("a"), Collections.emptyList(),
+                ISSUER, VERIFICATION_METHOD);
+        ExtendedVerifiableCredential vc = credential("urn:uuid:1");
+        ExtendedVerifiableCredential compliance =
+                complianceCredential(List.of(ComplianceCredentialCache.getIntegrity(vc)));
+
+        complianceCredentialCache.put(key, Collections.emptyList(), List.of(vc), compliance);
+
+        List<ExtendedVerifiableCredential> cached = complianceCredentialCache.get(key, Collections.emptyList());
+        assertNotNull(cached);
+        assertEquals(2, cached.size());
+        assertEquals(vc.getId(), cached.get(0).getId());
+        assertEquals(compliance.getId(), cached.get(1).getId());
+    }
+
+    @Test
+    void attestationMustCoverInitialCredentials() {
+        ExtendedVerifiableCredential participantVc = credential("urn:uuid:participant");
+        ExtendedVerifiableCredential vc = credential("urn:uuid:1");
+        String key = complianceCredentialCache.getKey(credentialSubjects("a"), List.of(participantVc),
+                ISSUER, VERIFICATION_METHOD);
+
+        // the attestation only covers the offering but not the participant credential submitted with it
+        complianceCredentialCache.put(key, List.of(participantVc), List.of(vc),
+                complianceCredential(List.of(ComplianceCredentialCache.getIntegrity(vc))));
+        assertNull(complianceCredentialCache.get(key, List.of(participantVc)));
+
+        complianceCredentialCache.put(key, List.of(participantVc), List.of(vc),
+                complianceCredential(List.of(ComplianceCredentialCache.getIntegrity(participantVc),
+                        ComplianceCredentialCache.getIntegrity(vc))));
+        assertNotNull(complianceCredentialCache.get(key, List.of(participantVc)));
+    }
+
+    @Test
+    void modifiedCredentialNotCovered() {
+        ExtendedVerifiableCredential vc = credential("urn:uuid:1");
+        String integrity = ComplianceCredentialCache.getIntegrity(vc);
+        vc.setJsonObjectKeyValue("issuanceDate", "2024-05-17T09:40:50.997Z");
+
+        assertNotEquals(integrity, ComplianceCredentialCache.getIntegrity(vc));
+    }
+
+    @Test
+    void expiredAttestationNotCached() {
+        String key = complianceCredentialCache.getKey(credentialSubjects("a"), Collections.emptyList(),
+                ISSUER, VERIFICATION_METHOD);
+        ExtendedVerifiableCredential vc = credential("urn:uuid:1");
+        ExtendedVerifiableCredential compliance =
+                complianceCredential(List.of(ComplianceCredentialCache.getIntegrity(vc)));
+        compliance.setJsonObjectKeyValue("expirationDate", "2024-08-14T09:40:50.997Z");
+
+        complianceCredentialCache.put(key, Collections.emptyList(), List.of(vc), compliance);
+        assertNull(complianceCredentialCache.get(key, Collections.emptyList()));
+    }
+
+    @Test
+    void disabledCache() {
+        ComplianceCredentialCache disabledCache = new ComplianceCredentialCache(new ObjectMapper(), false, 3600000);
+        assertFalse(disabledCache.isEnabled());
+        assertNull(disabledCache.getKey(credentialSubjects("a"), Collections.emptyList(),
+                ISSUER, VERIFICATION_METHOD));
+        assertNull(disabledCache.get(null, Collections.emptyList()));
+    }
+}
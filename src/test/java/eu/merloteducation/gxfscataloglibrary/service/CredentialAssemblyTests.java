@@ -0,0 +1,116 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiableCredential;
+import eu.merloteducation.gxfscataloglibrary.models.exception.ClearingHouseException;
+import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialPresentationException;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.PojoCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.datatypes.NodeKindIRITypeId;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.participants.GxLegalParticipantCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.participants.GxLegalRegistrationNumberCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.serviceofferings.GxServiceOfferingCredentialSubject;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CredentialAssemblyTests {
+
+    private final CredentialAssembly assembly = new CredentialAssembly(null, null, null, false, false);
+
+    private final CredentialAssembly enforcingAssembly = new CredentialAssembly(null, null, null, true, true);
+
+    @Test
+    void splitParticipant() throws CredentialPresentationException {
+        GxLegalParticipantCredentialSubject participant = new GxLegalParticipantCredentialSubject();
+        participant.setId("did:web:participant");
+        GxLegalRegistrationNumberCredentialSubject registrationNumber =
+                new GxLegalRegistrationNumberCredentialSubject();
+        PojoCredentialSubject other = new PojoCredentialSubject();
+
+        CredentialAssembly.CredentialSubjects split =
+                assembly.splitParticipant(List.of(other, registrationNumber, participant));
+
+        assertEquals("did:web:participant", split.issuer());
+        assertEquals(List.of(participant, registrationNumber), split.complianceCsList());
+        assertEquals(List.of(other), split.remainingCsList());
+    }
+
+    @Test
+    void splitParticipantWithoutRegistrationNumber() {
+        List<PojoCredentialSubject> credentialSubjects = List.of(new GxLegalParticipantCredentialSubject());
+
+        CredentialPresentationException e = assertThrows(CredentialPresentationException.class,
+                () -> assembly.splitParticipant(credentialSubjects));
+        assertTrue(e.getMessage().contains(GxLegalRegistrationNumberCredentialSubject.TYPE));
+    }
+
+    @Test
+    void splitServiceOffering() throws CredentialPresentationException {
+        GxServiceOfferingCredentialSubject offering = new GxServiceOfferingCredentialSubject();
+        offering.setProvidedBy(new NodeKindIRITypeId("did:web:provider"));
+        PojoCredentialSubject other = new PojoCredentialSubject();
+
+        CredentialAssembly.CredentialSubjects split =
+                assembly.splitServiceOffering(List.of(offering, other), Collections.emptyList());
+
+        assertEquals("did:web:provider", split.issuer());
+        assertEquals(List.of(offering), split.complianceCsList());
+        assertEquals(List.of(other), split.remainingCsList());
+    }
+
+    @Test
+    void splitServiceOfferingRequiresParticipantCredentialsForCompliance() {
+        GxServiceOfferingCredentialSubject offering = new GxServiceOfferingCredentialSubject();
+        offering.setProvidedBy(new NodeKindIRITypeId("did:web:provider"));
+        List<PojoCredentialSubject> credentialSubjects = List.of(offering);
+        List<ExtendedVerifiableCredential> participantCredentials = Collections.emptyList();
+
+        assertThrows(CredentialPresentationException.class,
+                () -> enforcingAssembly.splitServiceOffering(credentialSubjects, participantCredentials));
+        assertThrows(CredentialPresentationException.class,
+                () -> assembly.splitServiceOffering(List.of(new PojoCredentialSubject()), participantCredentials));
+    }
+
+    @Test
+    void clearingHouseErrorsOnlyWhenEnforced() {
+        ClearingHouseException e = new ClearingHouseException("unavailable");
+
+        assertTrue(assembly.getNotaryError(e).isEmpty());
+        assertTrue(assembly.getNotaryError(null).isEmpty());
+        assertTrue(assembly.getComplianceError(e).isEmpty());
+        assertTrue(assembly.getComplianceError(null).isEmpty());
+
+        assertEquals("Error from Notary: unavailable",
+                enforcingAssembly.getNotaryError(e).orElseThrow().getMessage());
+        assertTrue(enforcingAssembly.getNotaryError(null).isPresent());
+        assertEquals("Error from compliance: unavailable",
+                enforcingAssembly.getComplianceError(e).orElseThrow().getMessage());
+        assertTrue(enforcingAssembly.getComplianceError(null).isPresent());
+    }
+
+    @Test
+    void complianceRelevantCredentialSubjects() {
+        assertTrue(CredentialAssembly.isComplianceRelevant(new GxLegalParticipantCredentialSubject()));
+        assertTrue(CredentialAssembly.isComplianceRelevant(new GxLegalRegistrationNumberCredentialSubject()));
+        assertTrue(CredentialAssembly.isComplianceRelevant(new GxServiceOfferingCredentialSubject()));
+        assertFalse(CredentialAssembly.isComplianceRelevant(new PojoCredentialSubject()));
+    }
+}
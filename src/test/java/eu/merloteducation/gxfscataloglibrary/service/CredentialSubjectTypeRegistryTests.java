@@ -0,0 +1,126 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.merloteducation.gxfscataloglibrary.models.credentials.CastableCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.CredentialSubjectTypeRegistry;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.PojoCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.participants.GxLegalParticipantCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.participants.GxLegalRegistrationNumberCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.serviceofferings.GxServiceOfferingCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.merlot.participants.MerlotLegalParticipantCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.merlot.serviceofferings.MerlotServiceOfferingCredentialSubject;
+import lombok.Getter;
+import lombok.Setter;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CredentialSubjectTypeRegistryTests {
+
+    @Getter
+    @Setter
+    public static class CustomCredentialSubject extends PojoCredentialSubject {
+        public static final String TYPE = "custom:Thing";
+
+        public static final Map<String, String> CONTEXT = Map.of("custom", "https://example.com/custom#");
+
+        private String name;
+    }
+
+    public static class ExtendedParticipantCredentialSubject extends GxLegalParticipantCredentialSubject {
+        public static final Map<String, String> CONTEXT = Map.of(
+                "gx", "https://example.com/overridden#",
+                "ext", "https://example.com/ext#");
+    }
+
+    @Test
+    void libraryTypesAreRegistered() {
+        assertEquals(GxLegalParticipantCredentialSubject.class,
+                CredentialSubjectTypeRegistry.getPojoClass(GxLegalParticipantCredentialSubject.TYPE));
+        assertEquals(GxLegalRegistrationNumberCredentialSubject.class,
+                CredentialSubjectTypeRegistry.getPojoClass(GxLegalRegistrationNumberCredentialSubject.TYPE));
+        assertEquals(GxServiceOfferingCredentialSubject.class,
+                CredentialSubjectTypeRegistry.getPojoClass(GxServiceOfferingCredentialSubject.TYPE));
+        assertEquals(MerlotLegalParticipantCredentialSubject.class,
+                CredentialSubjectTypeRegistry.getPojoClass(MerlotLegalParticipantCredentialSubject.TYPE));
+        assertEquals(MerlotServiceOfferingCredentialSubject.class,
+                CredentialSubjectTypeRegistry.getPojoClass(MerlotServiceOfferingCredentialSubject.TYPE));
+        assertNull(CredentialSubjectTypeRegistry.getPojoClass(PojoCredentialSubject.TYPE));
+        assertNull(CredentialSubjectTypeRegistry.getPojoClass("unknown:Type"));
+    }
+
+    @Test
+    void typeAndContextMatchConstants() {
+        assertEquals(GxLegalParticipantCredentialSubject.TYPE,
+                CredentialSubjectTypeRegistry.getType(GxLegalParticipantCredentialSubject.class));
+        assertEquals(GxLegalParticipantCredentialSubject.CONTEXT,
+                CredentialSubjectTypeRegistry.getContext(GxLegalParticipantCredentialSubject.class));
+        assertNull(CredentialSubjectTypeRegistry.getType(String.class));
+        assertTrue(CredentialSubjectTypeRegistry.getContext(String.class).isEmpty());
+    }
+
+    @Test
+    void contextsOfHierarchyAreMerged() {
+        Map<String, String> context = CredentialSubjectTypeRegistry.getContext(
+                ExtendedParticipantCredentialSubject.class);
+
+        assertEquals("https://example.com/overridden#", context.get("gx"));
+        assertEquals("https://example.com/ext#", context.get("ext"));
+        GxLegalParticipantCredentialSubject.CONTEXT.keySet().forEach(key -> assertTrue(context.containsKey(key)));
+        assertEquals(GxLegalParticipantCredentialSubject.TYPE,
+                CredentialSubjectTypeRegistry.getType(ExtendedParticipantCredentialSubject.class));
+    }
+
+    @Test
+    void customTypeCanBeRegistered() throws JsonProcessingException {
+        CredentialSubjectTypeRegistry.register(CustomCredentialSubject.class);
+
+        CustomCredentialSubject custom = new CustomCredentialSubject();
+        custom.setId("did:web:custom");
+        custom.setName("Custom");
+        assertEquals(CustomCredentialSubject.TYPE, custom.getType());
+        assertEquals(CustomCredentialSubject.CONTEXT, custom.getContext());
+
+        String json = new ObjectMapper().writeValueAsString(custom);
+        PojoCredentialSubject pojo = CastableCredentialSubject.fromJson(json).toPojo();
+        CustomCredentialSubject resolved = assertInstanceOf(CustomCredentialSubject.class, pojo);
+        assertEquals("did:web:custom", resolved.getId());
+        assertEquals("Custom", resolved.getName());
+    }
+
+    @Test
+    void castableCredentialSubjectDispatchesToRegisteredPojo() throws JsonProcessingException {
+        GxLegalParticipantCredentialSubject participantCs = new GxLegalParticipantCredentialSubject();
+        participantCs.setId("1234");
+        participantCs.setName("Test");
+
+        PojoCredentialSubject pojo = CastableCredentialSubject.fromPojo(participantCs).toPojo();
+
+        GxLegalParticipantCredentialSubject resolved = assertInstanceOf(GxLegalParticipantCredentialSubject.class, pojo);
+        assertEquals("Test", resolved.getName());
+    }
+
+    @Test
+    void registeringClassWithoutTypeFails() {
+        assertThrows(IllegalArgumentException.class,
+                () -> CredentialSubjectTypeRegistry.register(ExtendedParticipantCredentialSubject.class));
+    }
+}
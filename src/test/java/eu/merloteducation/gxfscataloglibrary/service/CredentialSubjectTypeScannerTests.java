@@ -0,0 +1,53 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.CredentialSubjectTypeRegistry;
+import eu.merloteducation.gxfscataloglibrary.service.customtypes.ScannedCredentialSubject;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CredentialSubjectTypeScannerTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withInitializer(context -> context.getBeanFactory()
+                    .setConversionService(ApplicationConversionService.getSharedInstance()))
+            .withUserConfiguration(CredentialSubjectTypeScanner.class);
+
+    @Test
+    void configuredPackagesAreRegistered() {
+        contextRunner
+                .withPropertyValues("gxfscatalog-library.credential-subjects.packages="
+                        + "eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx, "
+                        + ScannedCredentialSubject.class.getPackageName())
+                .run(context -> {
+                    assertNull(context.getStartupFailure());
+                    assertEquals(ScannedCredentialSubject.class,
+                            CredentialSubjectTypeRegistry.getPojoClass(ScannedCredentialSubject.TYPE));
+                });
+    }
+
+    @Test
+    void noConfiguredPackages() {
+        contextRunner.run(context -> {
+            assertNull(context.getStartupFailure());
+            assertFalse(CredentialSubjectTypeRegistry.getRegisteredTypes().isEmpty());
+        });
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import com.github.tomakehurst.wiremock.junit5.WireMockTest;
+import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialSignatureException;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.IntStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@WireMockTest(httpsPort = 8103, httpsEnabled = true)
+class DidWebResolverServiceTests {
+
+    private static final String VERIFICATION_METHOD = "did:web:localhost%3A8103:1234#JWK2020";
+
+    private DidWebResolverService didWebResolverService;
+
+    private String cert;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        SslContext context = SslContextBuilder.forClient()
+                .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                .build();
+        WebClient webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create().secure(t -> t.sslContext(context))))
+                .build();
+        didWebResolverService = new DidWebResolverService(webClient, 3600000, 30000, GxfsCatalogMetrics.NOOP);
+
+        String didJson;
+        try (InputStream didStream =
+                     DidWebResolverServiceTests.class.getClassLoader().getResourceAsStream("exampledid.json")) {
+            didJson = new String(didStream.readAllBytes(), StandardCharsets.UTF_8)
+                    .replace("localhost%3A8101", "localhost%3A8103")
+                    .replace("localhost:8101", "localhost:8103");
+        }
+        try (InputStream certStream =
+                     DidWebResolverServiceTests.class.getClassLoader().getResourceAsStream("cert.ss.pem")) {
+            cert = new String(certStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        stubFor(get("/1234/did.json")
+                .willReturn(ok()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(didJson)));
+        stubFor(get("/1234/somecert.pem")
+                .willReturn(ok()
+                        .withHeader("Cache-Control", "max-age=0")
+                        .withBody(cert)));
+    }
+
+    @Test
+    void didDocumentCached() throws CredentialSignatureException {
+        assertEquals(cert, didWebResolverService.resolveCertificate(VERIFICATION_METHOD));
+        assertEquals(cert, didWebResolverService.resolveCertificate(VERIFICATION_METHOD));
+
+        verify(1, getRequestedFor(urlEqualTo("/1234/did.json")));
+        assertEquals(1, didWebResolverService.getDidDocumentCacheStats().hitCount());
+        assertEquals(1, didWebResolverService.getDidDocumentCacheStats().missCount());
+    }
+
+    @Test
+    void cacheHeadersHonoured() throws CredentialSignatureException {
+        didWebResolverService.resolveCertificate(VERIFICATION_METHOD);
+        didWebResolverService.resolveCertificate(VERIFICATION_METHOD);
+
+        // certificate response is marked as not cacheable
+        verify(2, getRequestedFor(urlEqualTo("/1234/somecert.pem")));
+    }
+
+    @Test
+    void failuresCachedNegatively() {
+        stubFor(get("/missing/did.json").willReturn(notFound()));
+
+        String missingDid = "did:web:localhost%3A8103:missing#JWK2020";
+        assertThrows(CredentialSignatureException.class, () -> didWebResolverService.resolveCertificate(missingDid));
+        assertThrows(CredentialSignatureException.class, () -> didWebResolverService.resolveCertificate(missingDid));
+
+        verify(1, getRequestedFor(urlEqualTo("/missing/did.json")));
+    }
+
+    @Test
+    void unknownVerificationMethod() {
+        assertThrows(CredentialSignatureException.class,
+                () -> didWebResolverService.resolveCertificate("did:web:localhost%3A8103:1234#someotherkey"));
+    }
+
+    @Test
+    void concurrentLookupsCollapsed() throws ExecutionException, InterruptedException {
+        stubFor(get("/slow/did.json")
+                .willReturn(ok()
+                        .withHeader("Content-Type", "application/json")
+                        .withFixedDelay(500)
+                        .withBody("{\"id\": \"did:web:localhost%3A8103:slow\"}")));
+
+        CompletableFuture<?>[] lookups = IntStream.range(0, 8)
+                .mapToObj(i -> CompletableFuture.runAsync(() -> {
+                    try {
+                        didWebResolverService.resolveDidDocument("did:web:localhost%3A8103:slow");
+                    } catch (CredentialSignatureException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(lookups).get();
+
+        verify(1, getRequestedFor(urlEqualTo("/slow/did.json")));
+    }
+
+    @Test
+    void didDocumentUri() {
+        assertEquals("https://example.com/.well-known/did.json",
+                DidWebResolverService.getDidDocumentUri("example.com"));
+        assertEquals("https://localhost:8103/1234/did.json",
+                DidWebResolverService.getDidDocumentUri("localhost%3A8103:1234"));
+    }
+}
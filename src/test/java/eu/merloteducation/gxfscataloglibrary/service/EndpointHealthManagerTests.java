@@ -0,0 +1,126 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import eu.merloteducation.gxfscataloglibrary.models.client.ClearingHouseEndpointState.CircuitState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EndpointHealthManagerTests {
+
+    private static final String FIRST = "https://example.com/1";
+    private static final String SECOND = "https://example.com/2";
+    private static final String THIRD = "https://example.com/3";
+
+    private EndpointHealthManager endpointHealthManager;
+
+    private Map<String, String> clients;
+
+    @BeforeEach
+    public void setUp() {
+        endpointHealthManager = new EndpointHealthManager(3, 200, 0.5);
+        clients = new LinkedHashMap<>();
+        clients.put(FIRST, "first");
+        clients.put(SECOND, "second");
+        clients.put(THIRD, "third");
+    }
+
+    private List<String> rankedUris() {
+        return endpointHealthManager.rank(clients).stream().map(Map.Entry::getKey).toList();
+    }
+
+    @Test
+    void unmeasuredEndpointsKeepConfiguredOrder() {
+        assertEquals(List.of(FIRST, SECOND, THIRD), rankedUris());
+    }
+
+    @Test
+    void fasterEndpointsRankedFirst() {
+        endpointHealthManager.recordSuccess(FIRST, 500);
+        endpointHealthManager.recordSuccess(SECOND, 100);
+
+        assertEquals(List.of(SECOND, FIRST, THIRD), rankedUris());
+    }
+
+    @Test
+    void errorsLowerRank() {
+        endpointHealthManager.recordSuccess(FIRST, 100);
+        endpointHealthManager.recordSuccess(SECOND, 150);
+        endpointHealthManager.recordFailure(FIRST, 100);
+
+        assertEquals(List.of(SECOND, FIRST, THIRD), rankedUris());
+    }
+
+    @Test
+    void circuitOpensAfterConsecutiveFailures() {
+        endpointHealthManager.recordFailure(FIRST, 10);
+        endpointHealthManager.recordFailure(FIRST, 10);
+        assertTrue(endpointHealthManager.tryAcquire(FIRST));
+
+        endpointHealthManager.recordFailure(FIRST, 10);
+        assertFalse(endpointHealthManager.tryAcquire(FIRST));
+        assertEquals(CircuitState.OPEN, endpointHealthManager.getEndpointStates().get(FIRST).getCircuitState());
+        assertEquals(List.of(SECOND, THIRD), rankedUris());
+    }
+
+    @Test
+    void successResetsFailureCount() {
+        endpointHealthManager.recordFailure(FIRST, 10);
+        endpointHealthManager.recordFailure(FIRST, 10);
+        endpointHealthManager.recordSuccess(FIRST, 10);
+        endpointHealthManager.recordFailure(FIRST, 10);
+
+        assertEquals(CircuitState.CLOSED, endpointHealthManager.getEndpointStates().get(FIRST).getCircuitState());
+        assertEquals(1, endpointHealthManager.getEndpointStates().get(FIRST).getConsecutiveFailures());
+    }
+
+    @Test
+    void singleProbeAfterCooldown() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            endpointHealthManager.recordFailure(FIRST, 10);
+        }
+        Thread.sleep(300);
+
+        assertEquals(List.of(SECOND, THIRD, FIRST), rankedUris());
+        assertTrue(endpointHealthManager.tryAcquire(FIRST));
+        assertFalse(endpointHealthManager.tryAcquire(FIRST));
+        assertEquals(CircuitState.HALF_OPEN, endpointHealthManager.getEndpointStates().get(FIRST).getCircuitState());
+
+        endpointHealthManager.recordSuccess(FIRST, 10);
+        assertEquals(CircuitState.CLOSED, endpointHealthManager.getEndpointStates().get(FIRST).getCircuitState());
+        assertTrue(endpointHealthManager.tryAcquire(FIRST));
+    }
+
+    @Test
+    void failedProbeReopensCircuit() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            endpointHealthManager.recordFailure(FIRST, 10);
+        }
+        Thread.sleep(300);
+
+        assertTrue(endpointHealthManager.tryAcquire(FIRST));
+        endpointHealthManager.recordFailure(FIRST, 10);
+        assertEquals(CircuitState.OPEN, endpointHealthManager.getEndpointStates().get(FIRST).getCircuitState());
+        assertFalse(endpointHealthManager.tryAcquire(FIRST));
+    }
+}
@@ -148,4 +148,53 @@ class ExtendedCredentialTests {
                 evp.findFirstCredentialSubjectByType(GxServiceOfferingCredentialSubject.class);
         assertNull(foundOffering);
     }
-}
\ No newline at end of file
+
+    private ExtendedVerifiableCredential participantCredential(String id, String name) throws JsonProcessingException {
+        GxLegalParticipantCredentialSubject participantCs = new GxLegalParticipantCredentialSubject();
+        participantCs.setId(id);
+        participantCs.setName(name);
+        return ExtendedVerifiableCredential.fromMap(VerifiableCredential
+                .builder().id(URI.create(id + "#participant"))
+                .credentialSubject(CastableCredentialSubject.fromPojo(participantCs)).build().getJsonObject());
+    }
+
+    @Test
+    void extendedVpReusesCredentialSubjects() throws JsonProcessingException {
+        ExtendedVerifiablePresentation evp = new ExtendedVerifiablePresentation();
+        evp.setVerifiableCredentials(List.of(participantCredential("1234", "Test")));
+
+        List<GxLegalParticipantCredentialSubject> first =
+                evp.findAllCredentialSubjectsByType(GxLegalParticipantCredentialSubject.class);
+        List<GxLegalParticipantCredentialSubject> second =
+                evp.findAllCredentialSubjectsByType(GxLegalParticipantCredentialSubject.class);
+
+        assertSame(first, second);
+        assertSame(evp.getVerifiableCredentials(), evp.getVerifiableCredentials());
+        assertSame(first.get(0), evp.findFirstCredentialSubjectByType(GxLegalParticipantCredentialSubject.class));
+    }
+
+    @Test
+    void extendedVpIndexFollowsCredentialChanges() throws JsonProcessingException {
+        ExtendedVerifiablePresentation evp = new ExtendedVerifiablePresentation();
+        evp.setVerifiableCredentials(List.of(participantCredential("1234", "Test")));
+        assertEquals("Test",
+                evp.findFirstCredentialSubjectByType(GxLegalParticipantCredentialSubject.class).getName());
+
+        evp.setVerifiableCredentials(List.of(participantCredential("1234", "Changed"),
+                participantCredential("5678", "Other")));
+        assertEquals(2, evp.getVerifiableCredentials().size());
+        assertEquals("Changed",
+                evp.findFirstCredentialSubjectByType(GxLegalParticipantCredentialSubject.class).getName());
+
+        // credentials put into the json object directly are picked up as well
+        evp.getJsonObject().put(VerifiableCredential.DEFAULT_JSONLD_PREDICATE,
+                participantCredential("9999", "Direct").getJsonObject());
+        assertEquals(1, evp.getVerifiableCredentials().size());
+        assertEquals("Direct",
+                evp.findFirstCredentialSubjectByType(GxLegalParticipantCredentialSubject.class).getName());
+
+        evp.setJsonObjectKeyValue(VerifiableCredential.DEFAULT_JSONLD_PREDICATE, List.of());
+        assertTrue(evp.getVerifiableCredentials().isEmpty());
+        assertNull(evp.findFirstCredentialSubjectByType(GxLegalParticipantCredentialSubject.class));
+    }
+}
@@ -19,6 +19,7 @@ package eu.merloteducation.gxfscataloglibrary.service;
 import com.danubetech.verifiablecredentials.VerifiableCredential;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.merloteducation.gxfscataloglibrary.models.client.ClearingHouseEndpointState;
 import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiableCredential;
 import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiablePresentation;
 import eu.merloteducation.gxfscataloglibrary.models.exception.ClearingHouseException;
@@ -36,8 +37,12 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.net.URI;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -69,6 +74,30 @@ class GxdchServiceTests {
         ReflectionTestUtils.setField(gxdchService, "gxNotaryClients",
                 Map.of("https://example.com/1", new GxNotaryClientFake(),
                 "https://example.com/2", new GxNotaryClientFake()));
+        ReflectionTestUtils.setField(gxdchService, "complianceStrategy", GxdchService.RequestStrategy.SEQUENTIAL);
+        ReflectionTestUtils.setField(gxdchService, "notaryStrategy", GxdchService.RequestStrategy.SEQUENTIAL);
+        ReflectionTestUtils.setField(gxdchService, "endpointHealthManager",
+                new EndpointHealthManager(2, 60000, 0.2));
+        ReflectionTestUtils.setField(gxdchService, "cachedGxTnCs", null);
+        gxdchService.invalidateNotaryCredentials();
+    }
+
+    private GxComplianceClient slowComplianceClient(AtomicInteger calls) {
+        return (vcid, body) -> {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        };
+    }
+
+    private ExtendedVerifiablePresentation validVp() {
+        ExtendedVerifiablePresentation vp = new ExtendedVerifiablePresentation();
+        vp.setJsonObjectKeyValue("id", "valid");
+        return vp;
     }
 
     @Test
@@ -102,6 +131,56 @@ class GxdchServiceTests {
         assertNotNull(result);
     }
 
+    @Test
+    void getCachedTncAfterRefresh() {
+        gxdchService.refreshGxTnCs();
+        JsonNode result = gxdchService.getCachedGxTnCs();
+        assertNotNull(result);
+        assertEquals("22.10", result.get("version").asText());
+    }
+
+    @Test
+    void warmTncRefreshesInBackground() throws InterruptedException {
+        ReflectionTestUtils.setField(gxdchService, "cachedGxTnCs", null);
+        CountDownLatch retrieved = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        ReflectionTestUtils.setField(gxdchService, "gxRegistryClients",
+                Map.<String, GxRegistryClient>of("https://example.com/warm", () -> {
+                    calls.incrementAndGet();
+                    retrieved.countDown();
+                    return objectMapper.createObjectNode().put("version", "22.10");
+                }));
+
+        gxdchService.warmGxTnCs();
+        assertTrue(retrieved.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 50 && gxdchService.getCachedGxTnCs() == null; i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals("22.10", gxdchService.getCachedGxTnCs().get("version").asText());
+        gxdchService.warmGxTnCs();
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void getTncServedFromCacheOnRegistryError() {
+        assertNotNull(gxdchService.getGxTnCs());
+
+        AtomicInteger calls = new AtomicInteger();
+        ReflectionTestUtils.setField(gxdchService, "gxRegistryClients",
+                Map.<String, GxRegistryClient>of("https://example.com/1", () -> {
+                    calls.incrementAndGet();
+                    throw new IllegalStateException("Connection refused");
+                }));
+        JsonNode result = gxdchService.getGxTnCs();
+        assertEquals(1, calls.get());
+        assertNotNull(result);
+
+        // reading the cached version does not contact the registry
+        assertNotNull(gxdchService.getCachedGxTnCs());
+        assertEquals(1, calls.get());
+    }
+
     @Test
     void verifyRegistrationNumberSuccess() throws ClearingHouseException {
         GxLegalRegistrationNumberCredentialSubject cs = new GxLegalRegistrationNumberCredentialSubject();
@@ -119,5 +198,146 @@ class GxdchServiceTests {
         assertThrows(ClearingHouseException.class, () -> gxdchService.verifyRegistrationNumber(cs));
     }
 
+    @Test
+    void checkComplianceRaceFirstSuccessWins() throws ClearingHouseException {
+        AtomicInteger slowCalls = new AtomicInteger();
+        Map<String, GxComplianceClient> clients = new LinkedHashMap<>();
+        clients.put("https://example.com/slow", slowComplianceClient(slowCalls));
+        clients.put("https://example.com/fast", new GxComplianceClientFake());
+        ReflectionTestUtils.setField(gxdchService, "gxComplianceClients", clients);
+        ReflectionTestUtils.setField(gxdchService, "complianceStrategy", GxdchService.RequestStrategy.RACE);
+
+        long start = System.currentTimeMillis();
+        ExtendedVerifiableCredential result = gxdchService.checkCompliance(validVp());
+        assertNotNull(result);
+        assertEquals(1, slowCalls.get());
+        assertTrue(System.currentTimeMillis() - start < 4000);
+    }
+
+    @Test
+    void checkComplianceHedgedStartsNextEndpoint() throws ClearingHouseException {
+        AtomicInteger slowCalls = new AtomicInteger();
+        Map<String, GxComplianceClient> clients = new LinkedHashMap<>();
+        clients.put("https://example.com/slow", slowComplianceClient(slowCalls));
+        clients.put("https://example.com/fast", new GxComplianceClientFake());
+        ReflectionTestUtils.setField(gxdchService, "gxComplianceClients", clients);
+        ReflectionTestUtils.setField(gxdchService, "complianceStrategy", GxdchService.RequestStrategy.HEDGED);
+        ReflectionTestUtils.setField(gxdchService, "hedgeDelayMs", 100L);
+
+        long start = System.currentTimeMillis();
+        ExtendedVerifiableCredential result = gxdchService.checkCompliance(validVp());
+        assertNotNull(result);
+        assertTrue(System.currentTimeMillis() - start < 4000);
+    }
+
+    @Test
+    void checkComplianceHedgedAllFail() {
+        Map<String, GxComplianceClient> clients = new LinkedHashMap<>();
+        clients.put("https://example.com/1", new GxComplianceClientFake());
+        clients.put("https://example.com/2", new GxComplianceClientFake());
+        ReflectionTestUtils.setField(gxdchService, "gxComplianceClients", clients);
+        ReflectionTestUtils.setField(gxdchService, "complianceStrategy", GxdchService.RequestStrategy.HEDGED);
+
+        ExtendedVerifiablePresentation vp = new ExtendedVerifiablePresentation();
+        vp.setVerifiableCredentials(List.of(
+                ExtendedVerifiableCredential.fromMap(
+                        VerifiableCredential.builder()
+                                .issuer(URI.create("http://example.com")).build().getJsonObject())));
+        vp.setJsonObjectKeyValue("id", "badsignature");
+        assertThrows(ClearingHouseException.class, () -> gxdchService.checkCompliance(vp));
+    }
+
+    @Test
+    void verifyRegistrationNumberRace() throws ClearingHouseException {
+        ReflectionTestUtils.setField(gxdchService, "notaryStrategy", GxdchService.RequestStrategy.RACE);
+        GxLegalRegistrationNumberCredentialSubject cs = new GxLegalRegistrationNumberCredentialSubject();
+        cs.setLeiCode("1234");
+        cs.setId("valid");
+        assertNotNull(gxdchService.verifyRegistrationNumber(cs));
+
+        cs.setId("invalid");
+        assertThrows(ClearingHouseException.class, () -> gxdchService.verifyRegistrationNumber(cs));
+    }
+
+    @Test
+    void checkComplianceSkipsEndpointWithOpenCircuit() throws ClearingHouseException {
+        AtomicInteger brokenCalls = new AtomicInteger();
+        Map<String, GxComplianceClient> clients = new LinkedHashMap<>();
+        clients.put("https://example.com/broken", (vcid, body) -> {
+            brokenCalls.incrementAndGet();
+            throw new IllegalStateException("Connection refused");
+        });
+        clients.put("https://example.com/working", new GxComplianceClientFake());
+        ReflectionTestUtils.setField(gxdchService, "gxComplianceClients", clients);
+
+        for (int i = 0; i < 4; i++) {
+            assertNotNull(gxdchService.checkCompliance(validVp()));
+        }
+        // circuit opens after two failures, afterward the broken endpoint is no longer contacted
+        assertEquals(2, brokenCalls.get());
+        assertEquals(ClearingHouseEndpointState.CircuitState.OPEN,
+                gxdchService.getEndpointStates().get("https://example.com/broken").getCircuitState());
+    }
+
+    @Test
+    void clientErrorsDoNotOpenCircuit() {
+        ExtendedVerifiablePresentation vp = new ExtendedVerifiablePresentation();
+        vp.setVerifiableCredentials(List.of(
+                ExtendedVerifiableCredential.fromMap(
+                        VerifiableCredential.builder()
+                                .issuer(URI.create("http://example.com")).build().getJsonObject())));
+        vp.setJsonObjectKeyValue("id", "badsignature");
+        for (int i = 0; i < 3; i++) {
+            assertThrows(ClearingHouseException.class, () -> gxdchService.checkCompliance(vp));
+        }
+        assertEquals(ClearingHouseEndpointState.CircuitState.CLOSED,
+                gxdchService.getEndpointStates().get("https://example.com/1").getCircuitState());
+    }
+
+    @Test
+    void verifyRegistrationNumberCached() throws ClearingHouseException {
+        AtomicInteger calls = new AtomicInteger();
+        GxNotaryClient notaryClient = new GxNotaryClientFake();
+        ReflectionTestUtils.setField(gxdchService, "gxNotaryClients",
+                Map.<String, GxNotaryClient>of("https://example.com/1", (vcid, body) -> {
+                    calls.incrementAndGet();
+                    return notaryClient.postRegistrationNumber(vcid, body);
+                }));
+
+        GxLegalRegistrationNumberCredentialSubject cs = new GxLegalRegistrationNumberCredentialSubject();
+        cs.setLeiCode("1234abcd");
+        cs.setId("valid");
+        ExtendedVerifiableCredential first = gxdchService.verifyRegistrationNumber(cs);
+        first.getJsonObject().remove("proof");
+
+        // identifiers are compared normalized, modifications of previous results do not leak into the cache
+        cs.setLeiCode(" 1234ABCD");
+        ExtendedVerifiableCredential second = gxdchService.verifyRegistrationNumber(cs);
+        assertEquals(1, calls.get());
+        assertNotNull(second.getLdProof());
+
+        cs.setLeiCode("5678");
+        gxdchService.verifyRegistrationNumber(cs);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void expiredNotaryCredentialNotCached() throws ClearingHouseException {
+        AtomicInteger calls = new AtomicInteger();
+        GxNotaryClient notaryClient = new GxNotaryClientFake();
+        ReflectionTestUtils.setField(gxdchService, "gxNotaryClients",
+                Map.<String, GxNotaryClient>of("https://example.com/1", (vcid, body) -> {
+                    calls.incrementAndGet();
+                    ExtendedVerifiableCredential credential = notaryClient.postRegistrationNumber(vcid, body);
+                    credential.setJsonObjectKeyValue("expirationDate", "2024-05-16T10:00:00Z");
+                    return credential;
+                }));
 
+        GxLegalRegistrationNumberCredentialSubject cs = new GxLegalRegistrationNumberCredentialSubject();
+        cs.setLeiCode("1234");
+        cs.setId("valid");
+        gxdchService.verifyRegistrationNumber(cs);
+        gxdchService.verifyRegistrationNumber(cs);
+        assertEquals(2, calls.get());
+    }
 }
@@ -0,0 +1,123 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialPresentationException;
+import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialSignatureException;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.PojoCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.SelfDescriptionMeta;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.SelfDescriptionPublicationProgress;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.SelfDescriptionPublicationResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class GxfsBulkPublicationServiceTests {
+
+    @Mock
+    private GxfsCatalogService gxfsCatalogService;
+
+    private GxfsBulkPublicationService gxfsBulkPublicationService;
+
+    private List<PojoCredentialSubject> generateOffering(String id) {
+        PojoCredentialSubject cs = new PojoCredentialSubject();
+        cs.setId(id);
+        return List.of(cs);
+    }
+
+    @BeforeEach
+    public void setUp() throws CredentialPresentationException, CredentialSignatureException {
+        gxfsBulkPublicationService = new GxfsBulkPublicationService(gxfsCatalogService, 2, 2, 2);
+
+        lenient().when(gxfsCatalogService.prepareServiceOffering(
+                        argThat(csList -> csList != null && csList.get(0).getId().equals("broken")),
+                        anyList(), any(), any()))
+                .thenThrow(new CredentialPresentationException("broken offering"));
+        lenient().when(gxfsCatalogService.publishServiceOffering(any())).thenAnswer(invocation -> {
+            SelfDescriptionMeta meta = new SelfDescriptionMeta();
+            meta.setId("published");
+            return meta;
+        });
+    }
+
+    @Test
+    void publishAllOfferingsInOrder() throws CredentialPresentationException, CredentialSignatureException {
+        List<SelfDescriptionPublicationProgress> progress = Collections.synchronizedList(new ArrayList<>());
+
+        List<SelfDescriptionPublicationResult> results = gxfsBulkPublicationService.publishServiceOfferings(
+                IntStream.range(0, 20).mapToObj(i -> generateOffering("offering-" + i)),
+                Collections.emptyList(), progress::add);
+
+        assertEquals(20, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).getIndex());
+            assertTrue(results.get(i).isSuccessful());
+            assertEquals("published", results.get(i).getMeta().getId());
+        }
+        assertEquals(20, progress.size());
+        assertEquals(20, progress.get(19).getPublished());
+        assertEquals(0, progress.get(19).getFailed());
+        verify(gxfsCatalogService, times(20)).attestServiceOfferingCompliance(any());
+        verify(gxfsCatalogService, times(20)).completeServiceOffering(any());
+    }
+
+    @Test
+    void failingOfferingDoesNotAbortPublication() throws CredentialPresentationException, CredentialSignatureException {
+        List<SelfDescriptionPublicationProgress> progress = Collections.synchronizedList(new ArrayList<>());
+
+        List<SelfDescriptionPublicationResult> results = gxfsBulkPublicationService.publishServiceOfferings(
+                Stream.of(generateOffering("offering-0"), generateOffering("broken"), generateOffering("offering-2")),
+                Collections.emptyList(), progress::add);
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccessful());
+        assertFalse(results.get(1).isSuccessful());
+        assertInstanceOf(CredentialPresentationException.class, results.get(1).getError());
+        assertNull(results.get(1).getMeta());
+        assertTrue(results.get(2).isSuccessful());
+        assertEquals(1, progress.get(2).getFailed());
+        assertEquals(2, progress.get(2).getPublished());
+        verify(gxfsCatalogService, times(2)).publishServiceOffering(any());
+    }
+
+    @Test
+    void emptyPublication() throws CredentialPresentationException {
+        List<SelfDescriptionPublicationResult> results = gxfsBulkPublicationService.publishServiceOfferings(
+                Stream.empty(), Collections.emptyList(), null);
+
+        assertTrue(results.isEmpty());
+        verify(gxfsCatalogService, never()).attestServiceOfferingCompliance(any());
+    }
+}
@@ -19,6 +19,7 @@ package eu.merloteducation.gxfscataloglibrary.service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -27,11 +28,17 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.time.Duration;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 class GxfsCatalogAuthServiceTests {
@@ -64,6 +71,12 @@ class GxfsCatalogAuthServiceTests {
     private String keycloakTokenUri;
     private String keycloakLogoutUri;
 
+    @AfterEach
+    public void tearDown() {
+        if (gxfsCatalogAuthService != null) {
+            gxfsCatalogAuthService.shutdown();
+        }
+    }
 
     @BeforeEach
     public void setUp() throws JsonProcessingException {
@@ -101,7 +114,10 @@ class GxfsCatalogAuthServiceTests {
                 "password",
                 "user",
                 "pass",
-                webClient);
+                30000,
+                5000,
+                webClient,
+                GxfsCatalogMetrics.NOOP);
         gxfsCatalogAuthService.refreshLogin();
         assertNotNull(gxfsCatalogAuthService.getAuthToken());
         assertEquals("1234", gxfsCatalogAuthService.getAuthToken());
@@ -117,8 +133,102 @@ class GxfsCatalogAuthServiceTests {
                 "password",
                 "",
                 "",
-                webClient);
+                30000,
+                5000,
+                webClient,
+                GxfsCatalogMetrics.NOOP);
         gxfsCatalogAuthService.refreshLogin();
         assertNull(gxfsCatalogAuthService.getAuthToken());
+        assertFalse(gxfsCatalogAuthService.isAuthTokenExpired());
+        assertNull(gxfsCatalogAuthService.refreshAuthToken(null).block());
+    }
+
+    @Test
+    void testTokenNotExpiredBeforeExpiresIn() throws JsonProcessingException {
+        lenient().when(loginResponseSpec.bodyToMono(eq(JsonNode.class)))
+                .thenReturn(Mono.just(tokenResponse("1234", 60)));
+        gxfsCatalogAuthService = createActiveService();
+
+        assertFalse(gxfsCatalogAuthService.isAuthTokenExpired());
+        assertEquals("1234", gxfsCatalogAuthService.getValidAuthToken().block());
+        verify(webClient, times(1)).post();
+    }
+
+    @Test
+    void testRefreshReplacesStaleToken() throws JsonProcessingException {
+        lenient().when(loginResponseSpec.bodyToMono(eq(JsonNode.class)))
+                .thenReturn(Mono.just(tokenResponse("1234", 300)), Mono.just(tokenResponse("abcd", 300)));
+        gxfsCatalogAuthService = createActiveService();
+
+        assertEquals("abcd", gxfsCatalogAuthService.refreshAuthToken("1234").block());
+        assertEquals("abcd", gxfsCatalogAuthService.getAuthToken());
+        // the session is continued with the refresh token, hence it is not ended
+        verify(requestBodyUriSpec, never()).uri(eq(keycloakLogoutUri));
+    }
+
+    @Test
+    void testRefreshKeepsAlreadyReplacedToken() throws JsonProcessingException {
+        lenient().when(loginResponseSpec.bodyToMono(eq(JsonNode.class)))
+                .thenReturn(Mono.just(tokenResponse("1234", 300)));
+        gxfsCatalogAuthService = createActiveService();
+
+        assertEquals("1234", gxfsCatalogAuthService.refreshAuthToken("outdated").block());
+        verify(webClient, times(1)).post();
+    }
+
+    @Test
+    void testConcurrentRefreshesShareRequest() throws JsonProcessingException {
+        lenient().when(loginResponseSpec.bodyToMono(eq(JsonNode.class)))
+                .thenReturn(Mono.just(tokenResponse("1234", 300)),
+                        Mono.just(tokenResponse("abcd", 300)).delayElement(Duration.ofMillis(100)));
+        gxfsCatalogAuthService = createActiveService();
+
+        Tuple2<String, String> tokens = Mono.zip(gxfsCatalogAuthService.refreshAuthToken("1234"),
+                gxfsCatalogAuthService.refreshAuthToken("1234")).block();
+
+        assertNotNull(tokens);
+        assertEquals("abcd", tokens.getT1());
+        assertEquals("abcd", tokens.getT2());
+        verify(webClient, times(2)).post();
+    }
+
+    @Test
+    void testFailedRefreshIsNotRepeatedImmediately() throws JsonProcessingException {
+        lenient().when(loginResponseSpec.bodyToMono(eq(JsonNode.class)))
+                .thenReturn(Mono.just(tokenResponse("1234", 300)),
+                        Mono.error(new IllegalStateException("identity provider unavailable")));
+        gxfsCatalogAuthService = createActiveService();
+
+        Mono<String> refresh = gxfsCatalogAuthService.refreshAuthToken("1234");
+        assertThrows(IllegalStateException.class, refresh::block);
+        assertThrows(IllegalStateException.class, refresh::block);
+        assertEquals("1234", gxfsCatalogAuthService.getAuthToken());
+        verify(webClient, times(2)).post();
+    }
+
+    private GxfsCatalogAuthService createActiveService() {
+        return new GxfsCatalogAuthService(
+                keycloakTokenUri,
+                keycloakLogoutUri,
+                "client",
+                "secret",
+                "password",
+                "user",
+                "pass",
+                30000,
+                5000,
+                webClient,
+                GxfsCatalogMetrics.NOOP);
+    }
+
+    private static JsonNode tokenResponse(String accessToken, long expiresIn) throws JsonProcessingException {
+        return new ObjectMapper().readTree("""
+                {
+                    "access_token": "%s",
+                    "expires_in": %d,
+                    "refresh_token": "5678",
+                    "refresh_expires_in": 1800
+                }
+                """.formatted(accessToken, expiresIn));
     }
 }
@@ -27,6 +27,8 @@ import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiab
 import eu.merloteducation.gxfscataloglibrary.models.participants.ParticipantItem;
 import eu.merloteducation.gxfscataloglibrary.models.query.GXFSQueryLegalNameItem;
 import eu.merloteducation.gxfscataloglibrary.models.query.GXFSQueryUriItem;
+import eu.merloteducation.gxfscataloglibrary.models.query.GXFSQueryUriLegalNameItem;
+import eu.merloteducation.gxfscataloglibrary.models.query.GXFSQueryUriSortKeyItem;
 import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.*;
 import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.participants.GxLegalParticipantCredentialSubject;
 import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.participants.GxLegalRegistrationNumberCredentialSubject;
@@ -36,8 +38,6 @@ import org.springframework.web.reactive.function.client.WebClientResponseExcepti
 import java.net.URI;
 import java.time.Instant;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class GxfsCatalogClientFake implements GxfsCatalogClient {
 
@@ -137,18 +137,26 @@ public class GxfsCatalogClientFake implements GxfsCatalogClient {
         GXFSCatalogListResponse<SelfDescriptionItem> response = new GXFSCatalogListResponse<>();
         List<String> reqIds = ids == null ? Collections.emptyList() : Arrays.asList(ids);
         List<String> reqHashes = hashes == null ? Collections.emptyList() : Arrays.asList(hashes);
-        List<String> reqStatuses = Arrays.asList(statuses).stream().map(s -> s.getValue()).toList();
+        List<String> reqStatuses = statuses == null ? null
+                : Arrays.asList(statuses).stream().map(s -> s.getValue()).toList();
         List<SelfDescriptionItem> items = selfDescriptionItems.stream().filter(sdi ->
-                reqStatuses.contains(sdi.getMeta().getStatus()) &&
-                (reqIds.contains(sdi.getMeta().getId()) || reqHashes.contains(sdi.getMeta().getSdHash()))
+                (reqStatuses == null || reqStatuses.contains(sdi.getMeta().getStatus())) &&
+                ((ids == null && hashes == null) ||
+                        reqIds.contains(sdi.getMeta().getId()) || reqHashes.contains(sdi.getMeta().getSdHash()))
                 ).toList();
 
-        response.setItems(items);
+        response.setItems(getPage(items, offset, limit));
         response.setTotalCount(items.size());
 
         return response;
     }
 
+    private static <T> List<T> getPage(List<T> items, Integer offset, Integer limit) {
+        int from = offset == null ? 0 : Math.min(offset, items.size());
+        int to = limit == null ? items.size() : Math.min(from + limit, items.size());
+        return new ArrayList<>(items.subList(from, to));
+    }
+
     @Override
     public SelfDescriptionMeta postAddSelfDescription(ExtendedVerifiablePresentation body) {
         SelfDescriptionItem item;
@@ -187,8 +195,58 @@ public class GxfsCatalogClientFake implements GxfsCatalogClient {
         QueryRequest query) {
         String statement = query.getStatement();
 
-        if (statement.contains("return p.legalName")) {
-            String id = findId(statement);
+        Map<String, Object> parameters = query.getParameters() == null ? Collections.emptyMap() : query.getParameters();
+
+        if (statement.contains("return p.uri, sortKey")) {
+            List<String> excludedUris = (List<String>) parameters.getOrDefault("excludedUris", Collections.emptyList());
+            String afterSortKey = (String) parameters.get("sortKey");
+            String afterUri = (String) parameters.get("uri");
+            long limit = (Long) parameters.get("limit");
+
+            // the fake only knows the legal name, hence it is used as sort key for every sort field
+            List<GXFSQueryUriSortKeyItem> uris = participantItems.stream()
+                .filter(pi -> !excludedUris.contains(pi.getId()))
+                .map(pi -> {
+                    GxLegalParticipantCredentialSubject cs = pi.getSelfDescription()
+                            .findFirstCredentialSubjectByType(GxLegalParticipantCredentialSubject.class);
+                    GXFSQueryUriSortKeyItem uriItem = new GXFSQueryUriSortKeyItem();
+                    uriItem.setUri(pi.getId());
+                    uriItem.setSortKey(cs == null || cs.getName() == null ? "" : cs.getName().toLowerCase());
+                    return uriItem;
+                })
+                .sorted(Comparator.comparing(GXFSQueryUriSortKeyItem::getSortKey)
+                        .thenComparing(GXFSQueryUriSortKeyItem::getUri))
+                .filter(item -> afterSortKey == null || item.getSortKey().compareTo(afterSortKey) > 0
+                        || (item.getSortKey().equals(afterSortKey) && item.getUri().compareTo(afterUri) > 0))
+                .limit(limit)
+                .toList();
+
+            GXFSCatalogListResponse<GXFSQueryUriSortKeyItem> response = new GXFSCatalogListResponse<>();
+            response.setItems(uris);
+            response.setTotalCount(uris.size());
+            return (GXFSCatalogListResponse<T>) response;
+        } else if (statement.contains("return p.uri, p.legalName")) {
+            List<String> ids = (List<String>) parameters.getOrDefault("uris", Collections.emptyList());
+
+            List<GXFSQueryUriLegalNameItem> legalNames = participantItems.stream()
+                .filter(pi -> ids.contains(pi.getId()))
+                .map(pi -> {
+                    GxLegalParticipantCredentialSubject cs = pi.getSelfDescription()
+                            .findFirstCredentialSubjectByType(GxLegalParticipantCredentialSubject.class);
+                    GXFSQueryUriLegalNameItem legalNameItem = new GXFSQueryUriLegalNameItem();
+                    legalNameItem.setUri(pi.getId());
+                    if (cs != null) {
+                        legalNameItem.setLegalName(cs.getName());
+                    }
+                    return legalNameItem;
+                }).toList();
+
+            GXFSCatalogListResponse<GXFSQueryUriLegalNameItem> response = new GXFSCatalogListResponse<>();
+            response.setItems(legalNames);
+            response.setTotalCount(legalNames.size());
+            return (GXFSCatalogListResponse<T>) response;
+        } else if (statement.contains("return p.legalName")) {
+            String id = (String) parameters.get("uri");
 
             List<GXFSQueryLegalNameItem> legalNames = participantItems.stream().filter(pi -> pi.getId().equals(id))
                 .map(pi -> {
@@ -206,7 +264,7 @@ public class GxfsCatalogClientFake implements GxfsCatalogClient {
             response.setTotalCount(legalNames.size());
             return (GXFSCatalogListResponse<T>) response;
         } else if (statement.contains("return p.uri")) {
-            List<String> excludedUris = findListOfIds(query.getStatement());
+            List<String> excludedUris = (List<String>) parameters.getOrDefault("excludedUris", Collections.emptyList());
 
             List<GXFSQueryUriItem> uris = participantItems.stream().filter(pi -> !excludedUris.contains(pi.getId()))
                 .map(pi -> {
@@ -227,7 +285,7 @@ public class GxfsCatalogClientFake implements GxfsCatalogClient {
     @Override
     public GXFSCatalogListResponse<ParticipantItem> getParticipants(Integer offset, Integer limit) {
         GXFSCatalogListResponse<ParticipantItem> response = new GXFSCatalogListResponse<>();
-        response.setItems(participantItems);
+        response.setItems(getPage(participantItems, offset, limit));
         response.setTotalCount(participantItems.size());
         return response;
     }
@@ -272,37 +330,6 @@ public class GxfsCatalogClientFake implements GxfsCatalogClient {
         return item;
     }
 
-    private List<String> findListOfIds(String query){
-        String regex = "IN \\[([^\\]]*)\\] return";
-        Pattern pattern = Pattern.compile(regex);
-        Matcher matcher = pattern.matcher(query);
-
-        List<String> ids = new ArrayList<>();
-
-        if (matcher.find()){
-            String matched = matcher.group(1).replace("\"", "");
-
-            ids = Arrays.stream(matched.split(", ")).toList();
-        }
-
-        return ids;
-    }
-
-    private String findId(String query){
-        String regex = "p\\.uri\\s*=\\s*([^\\s]*)\\s*return";
-        Pattern pattern = Pattern.compile(regex);
-        Matcher matcher = pattern.matcher(query);
-
-        List<String> ids = new ArrayList<>();
-
-        while (matcher.find()) {
-            String id = matcher.group(1).replace("\"", "");;
-            ids.add(id);
-        }
-
-        return ids.get(0);
-    }
-
     private GxLegalParticipantCredentialSubject getLegalParticipantCredentialSubject(ExtendedVerifiablePresentation vp) {
         return vp.findFirstCredentialSubjectByType(GxLegalParticipantCredentialSubject.class);
     }
@@ -28,6 +28,7 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -84,6 +85,25 @@ class GxfsCatalogClientTests {
                 .withHeader("Authorization", equalTo("Bearer 1234")));
     }
 
+    @Test
+    void clientRequestRetriedWithRefreshedToken() {
+        lenient().when(gxfsCatalogAuthService.refreshAuthToken("1234")).thenReturn(Mono.just("abcd"));
+        stubFor(get("/self-descriptions/rejected")
+                .withHeader("Authorization", equalTo("Bearer 1234"))
+                .willReturn(unauthorized()));
+        stubFor(get("/self-descriptions/rejected")
+                .withHeader("Authorization", equalTo("Bearer abcd"))
+                .willReturn(ok()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"meta\": null}")));
+
+        assertNotNull(gxfsCatalogClient.getSelfDescriptionByHash("rejected"));
+        verify(1, getRequestedFor(urlEqualTo("/self-descriptions/rejected"))
+                .withHeader("Authorization", equalTo("Bearer 1234")));
+        verify(1, getRequestedFor(urlEqualTo("/self-descriptions/rejected"))
+                .withHeader("Authorization", equalTo("Bearer abcd")));
+    }
+
     @Test
     void clientRequestUnescapedJson() {
         GXFSCatalogListResponse<SelfDescriptionItem> items =  gxfsCatalogClient.getSelfDescriptionList(
@@ -0,0 +1,93 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import eu.merloteducation.gxfscataloglibrary.config.MicrometerGxfsCatalogMetrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GxfsCatalogMetricsTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final GxfsCatalogMetrics metrics = new MicrometerGxfsCatalogMetrics(meterRegistry, null);
+
+    @Test
+    void timingRecordsOutcome() {
+        try (GxfsCatalogMetrics.Timing timing = metrics.start(GxfsCatalogMetrics.CREDENTIAL_SIGNING)) {
+            timing.success();
+        }
+        try (GxfsCatalogMetrics.Timing ignored = metrics.start(GxfsCatalogMetrics.CREDENTIAL_SIGNING)) {
+            // failed before success was reported
+        }
+
+        assertEquals(1, getTimer(GxfsCatalogMetrics.CREDENTIAL_SIGNING, "success").count());
+        assertEquals(1, getTimer(GxfsCatalogMetrics.CREDENTIAL_SIGNING, "error").count());
+    }
+
+    @Test
+    void recordTagsNullValuesAsUnknown() {
+        assertEquals("did", metrics.record(GxfsCatalogMetrics.DID_WEB_FETCH, Mono.just("did"),
+                "document", null).block());
+
+        Timer timer = meterRegistry.find("gxfscatalog." + GxfsCatalogMetrics.DID_WEB_FETCH)
+                .tag("document", "unknown")
+                .tag(GxfsCatalogMetrics.OUTCOME, "success")
+                .timer();
+        assertNotNull(timer);
+        assertEquals(1, timer.count());
+    }
+
+    @Test
+    void recordErrors() {
+        Mono<String> failing = metrics.record(GxfsCatalogMetrics.TOKEN_REFRESH,
+                Mono.error(new IllegalStateException("unavailable")));
+
+        assertThrows(IllegalStateException.class, failing::block);
+        assertEquals(1, getTimer(GxfsCatalogMetrics.TOKEN_REFRESH, "error").count());
+    }
+
+    @Test
+    void countBytes() {
+        metrics.count(GxfsCatalogMetrics.RESPONSE_FILTER_BYTES, 10, GxfsCatalogMetrics.DIRECTION, "in");
+        metrics.count(GxfsCatalogMetrics.RESPONSE_FILTER_BYTES, 5, GxfsCatalogMetrics.DIRECTION, "in");
+
+        assertEquals(15, meterRegistry.get("gxfscatalog." + GxfsCatalogMetrics.RESPONSE_FILTER_BYTES)
+                .tag(GxfsCatalogMetrics.DIRECTION, "in")
+                .counter()
+                .count());
+    }
+
+    @Test
+    void noopDoesNotRecord() {
+        assertFalse(GxfsCatalogMetrics.NOOP.isEnabled());
+        assertEquals("value", GxfsCatalogMetrics.NOOP.record(GxfsCatalogMetrics.TOKEN_REFRESH,
+                Mono.just("value")).block());
+        try (GxfsCatalogMetrics.Timing timing = GxfsCatalogMetrics.NOOP.start(GxfsCatalogMetrics.KEY_LOADING)) {
+            timing.success();
+        }
+    }
+
+    private Timer getTimer(String name, String outcome) {
+        return meterRegistry.get("gxfscatalog." + name)
+                .tag(GxfsCatalogMetrics.OUTCOME, outcome)
+                .timer();
+    }
+}
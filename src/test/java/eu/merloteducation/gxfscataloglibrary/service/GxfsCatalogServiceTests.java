@@ -18,16 +18,19 @@ package eu.merloteducation.gxfscataloglibrary.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.tomakehurst.wiremock.junit5.WireMockTest;
+import eu.merloteducation.gxfscataloglibrary.models.client.SelfDescriptionFilter;
 import eu.merloteducation.gxfscataloglibrary.models.client.SelfDescriptionStatus;
 import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiablePresentation;
 import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialPresentationException;
 import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialSignatureException;
 import eu.merloteducation.gxfscataloglibrary.models.participants.ParticipantItem;
 import eu.merloteducation.gxfscataloglibrary.models.query.GXFSQueryLegalNameItem;
+import eu.merloteducation.gxfscataloglibrary.models.query.GXFSQueryUriCursorPage;
 import eu.merloteducation.gxfscataloglibrary.models.query.GXFSQueryUriItem;
 import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.GXFSCatalogListResponse;
 import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.PojoCredentialSubject;
 import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.SelfDescriptionItem;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.SelfDescriptionLookupResponse;
 import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.SelfDescriptionMeta;
 import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.datatypes.GxDataAccountExport;
 import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.datatypes.GxSOTermsAndConditions;
@@ -52,10 +55,12 @@ import javax.net.ssl.SSLException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -130,12 +135,20 @@ class GxfsCatalogServiceTests {
     public void setUp() throws SSLException {
         // reset catalog client fake between each test
         ReflectionTestUtils.setField(gxfsCatalogService, "gxfsCatalogClient", new GxfsCatalogClientFake());
+        ReflectionTestUtils.setField(gxfsCatalogService, "participantLegalNameCache",
+                new ParticipantLegalNameCache(60000, 2, 2));
         ReflectionTestUtils.setField(gxfsCatalogService, "gxdchService",
                 new GxdchService(
                         Map.of("http://example.com", new GxComplianceClientFake()),
                         Map.of("http://example.com", new GxRegistryClientFake()),
                         Map.of("http://example.com", new GxNotaryClientFake()),
-                        new ObjectMapper()
+                        new ObjectMapper(),
+                        new EndpointHealthManager(3, 30000, 0.2),
+                        GxdchService.RequestStrategy.SEQUENTIAL,
+                        GxdchService.RequestStrategy.SEQUENTIAL,
+                        0.95,
+                        5000,
+                        604800000
                 ));
 
         String didJson = "";
@@ -306,6 +319,48 @@ class GxfsCatalogServiceTests {
         assertEquals(1, items.getTotalCount());
     }
 
+    @Test
+    void lookupSelfDescriptionsByIdsOrderedWithMissing() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            gxfsCatalogService.addServiceOffering(List.of(generateOfferingCredentialSubject("" + i, "2345")),
+                    Collections.emptyList());
+        }
+        // chunk size of the test configuration is 2
+        SelfDescriptionLookupResponse items =
+                gxfsCatalogService.lookupSelfDescriptionsByIds(new String[]{"4", "missing", "0", "3", "1"});
+        assertEquals(List.of("4", "0", "3", "1"), items.getItems().stream().map(item -> item.getMeta().getId()).toList());
+        assertEquals(4, items.getTotalCount());
+        assertEquals(List.of("missing"), items.getMissing());
+    }
+
+    @Test
+    void streamSelfDescriptionsAllPages() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            gxfsCatalogService.addServiceOffering(List.of(generateOfferingCredentialSubject("" + i, "2345")),
+                    Collections.emptyList());
+        }
+        SelfDescriptionFilter filter = new SelfDescriptionFilter();
+        filter.setStatuses(new SelfDescriptionStatus[]{SelfDescriptionStatus.ACTIVE});
+
+        try (Stream<SelfDescriptionItem> items = gxfsCatalogService.streamSelfDescriptions(filter, 2, 1)) {
+            assertEquals(List.of("0", "1", "2", "3", "4"),
+                    items.map(item -> item.getMeta().getId()).toList());
+        }
+    }
+
+    @Test
+    void streamParticipantsAllPages() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            gxfsCatalogService.addParticipant(List.of(
+                    generateParticipantCredentialSubject("" + i, "MyParticipant" + i, i + "-regId"),
+                    generateRegistrationNumberCredentialSubject(i + "-regId")));
+        }
+
+        try (Stream<ParticipantItem> items = gxfsCatalogService.streamParticipants(2, 0)) {
+            assertEquals(List.of("0", "1", "2"), items.map(ParticipantItem::getId).toList());
+        }
+    }
+
     @Test
     void addValidServiceOffering() throws Exception {
         SelfDescriptionMeta meta =
@@ -554,4 +609,83 @@ class GxfsCatalogServiceTests {
         assertEquals("MyParticipant2", legalNames.getItems().get(0).getLegalName());
     }
 
+    @Test
+    void getSortedParticipantUriPageAfterWalksAllPages() throws Exception {
+        String[] names = {"delta", "Alpha", "charlie", "alpha", "bravo"};
+        for (int i = 0; i < names.length; i++) {
+            List<PojoCredentialSubject> participant = List.of(
+                    generateParticipantCredentialSubject("" + i, names[i], i + "-regId"),
+                    generateRegistrationNumberCredentialSubject(i + "-regId"));
+            gxfsCatalogService
+                .addParticipant(participant);
+        }
+
+        List<String> uris = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            GXFSQueryUriCursorPage page = gxfsCatalogService.getSortedParticipantUriPageAfter(
+                "LegalPerson", "legalName", cursor, List.of("2"), 2);
+            page.getItems().forEach(item -> uris.add(item.getUri()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        // equal sort keys are ordered by uri, the excluded participant is skipped
+        assertEquals(List.of("1", "3", "4", "0"), uris);
+        assertEquals(2, pages);
+    }
+
+    @Test
+    void getSortedParticipantUriPageAfterRejectsForeignCursor() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            List<PojoCredentialSubject> participant = List.of(
+                    generateParticipantCredentialSubject("" + i, "MyParticipant" + i, i + "-regId"),
+                    generateRegistrationNumberCredentialSubject(i + "-regId"));
+            gxfsCatalogService
+                .addParticipant(participant);
+        }
+
+        String cursor = gxfsCatalogService.getSortedParticipantUriPageAfter(
+            "LegalPerson", "legalName", null, Collections.emptyList(), 1).getNextCursor();
+        assertNotNull(cursor);
+        assertThrows(IllegalArgumentException.class, () -> gxfsCatalogService.getSortedParticipantUriPageAfter(
+            "LegalPerson", "name", cursor, Collections.emptyList(), 1));
+    }
+
+    @Test
+    void getParticipantLegalNamesByUris() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            List<PojoCredentialSubject> participant = List.of(
+                    generateParticipantCredentialSubject("" + i, "MyParticipant" + i, i + "-regId"),
+                    generateRegistrationNumberCredentialSubject(i + "-regId"));
+            gxfsCatalogService
+                .addParticipant(participant);
+        }
+
+        Map<String, String> legalNames = gxfsCatalogService.getParticipantLegalNamesByUris(
+            "LegalPerson", List.of("4", "unknown", "0", "2", "4"));
+
+        assertEquals(List.of("4", "0", "2"), new ArrayList<>(legalNames.keySet()));
+        assertEquals("MyParticipant4", legalNames.get("4"));
+        assertEquals("MyParticipant0", legalNames.get("0"));
+        assertEquals("MyParticipant2", legalNames.get("2"));
+    }
+
+    @Test
+    void getParticipantLegalNamesByUrisAfterUpdate() throws Exception {
+        gxfsCatalogService.addParticipant(List.of(
+                generateParticipantCredentialSubject("2345", "MyParticipant", "2345-regId"),
+                generateRegistrationNumberCredentialSubject("2345-regId")));
+        assertEquals(Map.of("2345", "MyParticipant"),
+                gxfsCatalogService.getParticipantLegalNamesByUris("LegalPerson", List.of("2345")));
+
+        gxfsCatalogService.updateParticipant(List.of(
+                generateParticipantCredentialSubject("2345", "MyNewParticipant", "2345-regId"),
+                generateRegistrationNumberCredentialSubject("2345-regId")));
+
+        assertEquals(Map.of("2345", "MyNewParticipant"),
+                gxfsCatalogService.getParticipantLegalNamesByUris("LegalPerson", List.of("2345")));
+    }
+
 }
@@ -22,6 +22,10 @@ import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiab
 import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialPresentationException;
 import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialSignatureException;
 import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.PojoCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.datatypes.GxVcard;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.datatypes.NodeKindIRITypeId;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.participants.GxLegalParticipantCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.merlot.participants.MerlotLegalParticipantCredentialSubject;
 import org.bouncycastle.asn1.pkcs.PrivateKeyInfo;
 import org.bouncycastle.openssl.PEMParser;
 import org.bouncycastle.openssl.jcajce.JcaPEMKeyConverter;
@@ -32,14 +36,18 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.io.*;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @ExtendWith(MockitoExtension.class)
 class GxfsSignerServiceTests {
@@ -53,7 +61,7 @@ class GxfsSignerServiceTests {
     @Test
     void loadExternalCertificates() throws
             CredentialPresentationException, CredentialSignatureException {
-        GxfsSignerService gxfsSignerService = new GxfsSignerService(new ObjectMapper());
+        GxfsSignerService gxfsSignerService = createSignerService(GxfsSignerService.VerificationPolicy.ALWAYS);
         PojoCredentialSubject cs = generateCredentialSubject();
         ExtendedVerifiableCredential vc = gxfsSignerService.createVerifiableCredential(
                 cs,
@@ -76,6 +84,101 @@ class GxfsSignerServiceTests {
         assertNotNull(vp);
     }
 
+    @Test
+    void leafPolicySignsWithMatchingKey() throws CredentialPresentationException, CredentialSignatureException {
+        GxfsSignerService gxfsSignerService = createSignerService(GxfsSignerService.VerificationPolicy.LEAF);
+        PojoCredentialSubject cs = generateCredentialSubject();
+        ExtendedVerifiableCredential vc = gxfsSignerService.createVerifiableCredential(
+                cs,
+                URI.create("did:web:issuer.example.com"),
+                URI.create(cs.getId()));
+        gxfsSignerService.signVerifiableCredential(
+                vc,
+                "did:web:compliance.lab.gaia-x.eu",
+                loadPrivateKey(),
+                loadCertificates());
+        assertNotNull(vc.getLdProof());
+    }
+
+    @Test
+    void leafPolicyRejectsForeignKey() throws CredentialPresentationException, NoSuchAlgorithmException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        PrivateKey foreignKey = generator.generateKeyPair().getPrivate();
+
+        for (GxfsSignerService.VerificationPolicy policy : GxfsSignerService.VerificationPolicy.values()) {
+            GxfsSignerService gxfsSignerService = createSignerService(policy);
+            PojoCredentialSubject cs = generateCredentialSubject();
+            ExtendedVerifiableCredential vc = gxfsSignerService.createVerifiableCredential(
+                    cs,
+                    URI.create("did:web:issuer.example.com"),
+                    URI.create(cs.getId()));
+            List<X509Certificate> certificates = loadCertificates();
+            assertThrows(CredentialSignatureException.class, () -> gxfsSignerService.signVerifiableCredential(
+                    vc,
+                    "did:web:compliance.lab.gaia-x.eu",
+                    foreignKey,
+                    certificates));
+        }
+    }
+
+    @Test
+    void signsGaiaxAndMerlotCredentialsOffline() throws CredentialPresentationException,
+            CredentialSignatureException {
+        // remote loading is disabled, hence all contexts must be served from the bundled ones
+        GxfsSignerService gxfsSignerService = createSignerService(GxfsSignerService.VerificationPolicy.ALWAYS);
+
+        GxLegalParticipantCredentialSubject participant = new GxLegalParticipantCredentialSubject();
+        participant.setId("did:web:participant.example.com");
+        participant.setName("Participant");
+        participant.setLegalRegistrationNumber(List.of(new NodeKindIRITypeId("did:web:participant.example.com#rn")));
+        GxVcard address = new GxVcard();
+        address.setCountryCode("DE");
+        address.setCountrySubdivisionCode("DE-BE");
+        address.setStreetAddress("Example Street 1");
+        address.setLocality("Berlin");
+        address.setPostalCode("12345");
+        participant.setLegalAddress(address);
+        participant.setHeadquarterAddress(address);
+        MerlotLegalParticipantCredentialSubject merlotParticipant = new MerlotLegalParticipantCredentialSubject();
+        merlotParticipant.setId("did:web:participant.example.com");
+        merlotParticipant.setLegalName("Participant");
+
+        List<ExtendedVerifiableCredential> vcs = new ArrayList<>();
+        for (PojoCredentialSubject cs : List.of(participant, merlotParticipant)) {
+            ExtendedVerifiableCredential vc = gxfsSignerService.createVerifiableCredential(
+                    cs,
+                    URI.create("did:web:issuer.example.com"),
+                    URI.create(cs.getId() + "#" + cs.getType()));
+            vc.setJsonObjectKeyValue("@context", List.of(
+                    "https://www.w3.org/2018/credentials/v1",
+                    "https://registry.lab.gaia-x.eu/development/api/trusted-shape-registry/v1/shapes/jsonld/trustframework#",
+                    "http://w3id.org/gaia-x/merlot#"));
+            gxfsSignerService.signVerifiableCredential(
+                    vc,
+                    "did:web:compliance.lab.gaia-x.eu",
+                    loadPrivateKey(),
+                    loadCertificates());
+            assertNotNull(vc.getLdProof());
+            vcs.add(vc);
+        }
+
+        ExtendedVerifiablePresentation vp = gxfsSignerService.createVerifiablePresentation(vcs,
+                URI.create("did:web:participant.example.com#vp"));
+        gxfsSignerService.signVerifiablePresentation(
+                vp,
+                "did:web:compliance.lab.gaia-x.eu",
+                loadPrivateKey(),
+                loadCertificates());
+        assertNotNull(vp.getLdProof());
+    }
+
+    private GxfsSignerService createSignerService(GxfsSignerService.VerificationPolicy policy) {
+        return new GxfsSignerService(new ObjectMapper(),
+                new CachedDocumentLoader(null, false, 3600000, new ObjectMapper()), policy, 1.0,
+                GxfsCatalogMetrics.NOOP);
+    }
+
     private PrivateKey loadPrivateKey() {
         try (InputStream privateKeyStream =
                      GxfsSignerServiceTests.class.getClassLoader().getResourceAsStream("prk.ss.pem")) {
@@ -0,0 +1,108 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialSignatureException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyMaterialRegistryTests {
+
+    @TempDir
+    private Path keyDirectory;
+
+    private KeyMaterialRegistry keyMaterialRegistry;
+
+    private String privateKey;
+
+    private String certificate;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        keyMaterialRegistry = new KeyMaterialRegistry(GxfsCatalogMetrics.NOOP);
+        privateKey = readResource("prk.ss.pem");
+        certificate = readResource("cert.ss.pem");
+    }
+
+    private String readResource(String name) throws IOException {
+        try (InputStream stream = KeyMaterialRegistryTests.class.getClassLoader().getResourceAsStream(name)) {
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void privateKeyParsedOnce() throws CredentialSignatureException {
+        PrivateKey first = keyMaterialRegistry.getPrivateKey(privateKey);
+        PrivateKey second = keyMaterialRegistry.getPrivateKey(new String(privateKey));
+        assertNotNull(first);
+        assertSame(first, second);
+    }
+
+    @Test
+    void certificatesParsedOnce() throws CredentialSignatureException {
+        List<X509Certificate> first = keyMaterialRegistry.getCertificates(certificate);
+        List<X509Certificate> second = keyMaterialRegistry.getCertificates(certificate);
+        assertFalse(first.isEmpty());
+        assertSame(first, second);
+    }
+
+    @Test
+    void invalidPrivateKey() {
+        assertThrows(CredentialSignatureException.class, () -> keyMaterialRegistry.getPrivateKey("garbage"));
+    }
+
+    @Test
+    void defaultKeyMaterialFromClasspath() throws CredentialSignatureException {
+        assertSame(keyMaterialRegistry.getPrivateKeyFromPath(""), keyMaterialRegistry.getPrivateKeyFromPath(null));
+        assertFalse(keyMaterialRegistry.getCertificatesFromPath("").isEmpty());
+    }
+
+    @Test
+    void privateKeyFileReloadedOnModification() throws IOException, CredentialSignatureException {
+        Path keyFile = keyDirectory.resolve("prk.pem");
+        Files.writeString(keyFile, privateKey);
+        Files.setLastModifiedTime(keyFile, FileTime.from(Instant.parse("2024-01-01T00:00:00Z")));
+
+        PrivateKey first = keyMaterialRegistry.getPrivateKeyFromPath(keyFile.toString());
+        assertSame(first, keyMaterialRegistry.getPrivateKeyFromPath(keyFile.toString()));
+
+        Files.setLastModifiedTime(keyFile, FileTime.from(Instant.parse("2024-01-02T00:00:00Z")));
+        PrivateKey reloaded = keyMaterialRegistry.getPrivateKeyFromPath(keyFile.toString());
+        assertNotSame(first, reloaded);
+        assertEquals(first, reloaded);
+    }
+
+    @Test
+    void missingKeyFile() {
+        String missingPath = keyDirectory.resolve("missing.pem").toString();
+        assertThrows(CredentialSignatureException.class, () -> keyMaterialRegistry.getPrivateKeyFromPath(missingPath));
+    }
+}
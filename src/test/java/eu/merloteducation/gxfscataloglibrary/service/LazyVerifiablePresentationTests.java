@@ -0,0 +1,169 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiablePresentation;
+import eu.merloteducation.gxfscataloglibrary.models.credentials.LazyVerifiablePresentation;
+import eu.merloteducation.gxfscataloglibrary.models.participants.ParticipantItem;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.SelfDescriptionMeta;
+import eu.merloteducation.gxfscataloglibrary.models.serialization.LazyVerifiablePresentationDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LazyVerifiablePresentationTests {
+
+    private static final String PRESENTATION = """
+            {
+                "@context": ["https://www.w3.org/2018/credentials/v1"],
+                "type": ["VerifiablePresentation"],
+                "id": "http://example.edu/verifiablePresentation/self-description1",
+                "verifiableCredential": {
+                    "@context": ["https://www.w3.org/2018/credentials/v1"],
+                    "type": ["VerifiableCredential"],
+                    "id": "did:web:someid",
+                    "credentialSubject": {
+                        "id": "did:web:subject"
+                    }
+                }
+            }
+            """;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void contentIsParsedOnFirstAccess() throws JsonProcessingException {
+        SelfDescriptionMeta meta = objectMapper.readValue("{\"id\": \"sd1\", \"content\": " + PRESENTATION + "}",
+                SelfDescriptionMeta.class);
+
+        assertFalse(getLazyContent(meta).isParsed());
+        ExtendedVerifiablePresentation content = meta.getContent();
+        assertTrue(getLazyContent(meta).isParsed());
+        assertEquals(URI.create("http://example.edu/verifiablePresentation/self-description1"), content.getId());
+        assertEquals(URI.create("did:web:someid"), content.getVerifiableCredential().getId());
+        assertSame(content, meta.getContent());
+    }
+
+    @Test
+    void contentAsJsonString() throws JsonProcessingException {
+        SelfDescriptionMeta meta = objectMapper.readValue("{\"content\": "
+                + objectMapper.writeValueAsString(PRESENTATION) + "}", SelfDescriptionMeta.class);
+
+        assertEquals(URI.create("did:web:someid"), meta.getContent().getVerifiableCredential().getId());
+    }
+
+    @Test
+    void missingContent() throws JsonProcessingException {
+        SelfDescriptionMeta meta = objectMapper.readValue("{\"id\": \"sd1\", \"content\": null}",
+                SelfDescriptionMeta.class);
+
+        assertNull(meta.getContent());
+        assertEquals("sd1", meta.getId());
+    }
+
+    @Test
+    void setContentKeepsInstance() {
+        ExtendedVerifiablePresentation content = new ExtendedVerifiablePresentation();
+        SelfDescriptionMeta meta = new SelfDescriptionMeta();
+        meta.setContent(content);
+
+        assertSame(content, meta.getContent());
+    }
+
+    @Test
+    void serializationRoundTrip() throws JsonProcessingException {
+        SelfDescriptionMeta meta = objectMapper.readValue("{\"id\": \"sd1\", \"content\": " + PRESENTATION + "}",
+                SelfDescriptionMeta.class);
+
+        JsonNode serialized = objectMapper.valueToTree(meta);
+        assertEquals(objectMapper.readTree(PRESENTATION), serialized.get("content"));
+        assertEquals("sd1", serialized.get("id").asText());
+
+        SelfDescriptionMeta copy = objectMapper.convertValue(serialized, SelfDescriptionMeta.class);
+        assertEquals(meta.getContent().getId(), copy.getContent().getId());
+    }
+
+    @Test
+    void unparsedContentIsSerializedWithoutParsing() throws JsonProcessingException {
+        SelfDescriptionMeta meta = objectMapper.readValue("{\"id\": \"sd1\", \"content\": " + PRESENTATION + "}",
+                SelfDescriptionMeta.class);
+
+        String serialized = objectMapper.writeValueAsString(meta);
+        assertFalse(getLazyContent(meta).isParsed());
+        assertEquals(objectMapper.readTree(PRESENTATION), objectMapper.readTree(serialized).get("content"));
+        assertEquals("sd1", objectMapper.readTree(serialized).get("id").asText());
+    }
+
+    @Test
+    void changesAreSerialized() throws JsonProcessingException {
+        SelfDescriptionMeta meta = objectMapper.readValue("{\"content\": " + PRESENTATION + "}",
+                SelfDescriptionMeta.class);
+        meta.getContent().setJsonObjectKeyValue("id", "http://example.edu/changed");
+
+        JsonNode serialized = objectMapper.valueToTree(meta);
+        assertEquals("http://example.edu/changed", serialized.get("content").get("id").asText());
+    }
+
+    @Test
+    void softCachingParsesEqualContent() {
+        LazyVerifiablePresentation lazy =
+                LazyVerifiablePresentation.fromJson(PRESENTATION.getBytes(StandardCharsets.UTF_8), true);
+
+        ExtendedVerifiablePresentation content = lazy.get();
+        assertTrue(lazy.isParsed());
+        assertEquals(content.getId(), lazy.get().getId());
+        assertEquals(content.getVerifiableCredential().getId(), lazy.get().getVerifiableCredential().getId());
+    }
+
+    @Test
+    void softCachingIsConfiguredPerMapper() throws JsonProcessingException {
+        ObjectMapper softCachingMapper =
+                LazyVerifiablePresentationDeserializer.withSoftCaching(new ObjectMapper(), true);
+        String json = "{\"content\": " + PRESENTATION + "}";
+
+        SelfDescriptionMeta softMeta = softCachingMapper.readValue(json, SelfDescriptionMeta.class);
+        SelfDescriptionMeta meta = objectMapper.readValue(json, SelfDescriptionMeta.class);
+
+        assertEquals(true, ReflectionTestUtils.getField(getLazyContent(softMeta), "softCaching"));
+        assertEquals(false, ReflectionTestUtils.getField(getLazyContent(meta), "softCaching"));
+    }
+
+    @Test
+    void participantSelfDescriptionIsParsedOnFirstAccess() throws JsonProcessingException {
+        ParticipantItem item = objectMapper.readValue("{\"id\": \"did:web:subject\", \"selfDescription\": "
+                + PRESENTATION + "}", ParticipantItem.class);
+
+        LazyVerifiablePresentation lazy =
+                (LazyVerifiablePresentation) ReflectionTestUtils.getField(item, "selfDescription");
+        assertNotNull(lazy);
+        assertFalse(lazy.isParsed());
+        assertEquals(URI.create("did:web:someid"), item.getSelfDescription().getVerifiableCredential().getId());
+        assertTrue(lazy.isParsed());
+    }
+
+    private static LazyVerifiablePresentation getLazyContent(SelfDescriptionMeta meta) {
+        LazyVerifiablePresentation lazy = (LazyVerifiablePresentation) ReflectionTestUtils.getField(meta, "content");
+        assertNotNull(lazy);
+        return lazy;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.GXFSCatalogListResponse;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParticipantLegalNameCacheTests {
+
+    private static final Map<String, String> CATALOG = Map.of(
+            "did:web:a", "Participant A",
+            "did:web:b", "Participant B",
+            "did:web:c", "Participant C");
+
+    private final List<List<String>> requestedChunks = new CopyOnWriteArrayList<>();
+
+    private final BiFunction<String, List<String>, Mono<Map<String, String>>> loader = (type, uris) -> {
+        requestedChunks.add(uris);
+        Map<String, String> legalNames = new HashMap<>();
+        for (String uri : uris) {
+            if (CATALOG.containsKey(uri)) {
+                legalNames.put(uri, CATALOG.get(uri));
+            }
+        }
+        return Mono.just(legalNames);
+    };
+
+    @Test
+    void resolvesInChunksAndKeepsOrder() {
+        ParticipantLegalNameCache cache = new ParticipantLegalNameCache(60000, 2, 2);
+
+        Map<String, String> legalNames = cache.getLegalNames("LegalPerson",
+                List.of("did:web:c", "did:web:x", "did:web:a", "did:web:b", "did:web:c"), loader).block();
+
+        assertNotNull(legalNames);
+        assertEquals(List.of("did:web:c", "did:web:a", "did:web:b"), new ArrayList<>(legalNames.keySet()));
+        assertEquals("Participant A", legalNames.get("did:web:a"));
+        assertEquals(2, requestedChunks.size());
+        assertTrue(requestedChunks.stream().allMatch(chunk -> chunk.size() <= 2));
+    }
+
+    @Test
+    void cachesHitsAndMisses() {
+        ParticipantLegalNameCache cache = new ParticipantLegalNameCache(60000, 10, 1);
+        cache.getLegalNames("LegalPerson", List.of("did:web:a", "did:web:x"), loader).block();
+
+        Map<String, String> legalNames = cache.getLegalNames("LegalPerson",
+                List.of("did:web:x", "did:web:a", "did:web:b"), loader).block();
+
+        assertEquals(Map.of("did:web:a", "Participant A", "did:web:b", "Participant B"), legalNames);
+        assertEquals(List.of(List.of("did:web:a", "did:web:x"), List.of("did:web:b")), requestedChunks);
+    }
+
+    @Test
+    void cacheIsSeparatedByType() {
+        ParticipantLegalNameCache cache = new ParticipantLegalNameCache(60000, 10, 1);
+        cache.getLegalNames("LegalPerson", List.of("did:web:a"), loader).block();
+        cache.getLegalNames("MerlotOrganisation", List.of("did:web:a"), loader).block();
+
+        assertEquals(2, requestedChunks.size());
+    }
+
+    @Test
+    void invalidateAll() {
+        ParticipantLegalNameCache cache = new ParticipantLegalNameCache(60000, 10, 1);
+        cache.getLegalNames("LegalPerson", List.of("did:web:a"), loader).block();
+        cache.invalidateAll();
+        cache.getLegalNames("LegalPerson", List.of("did:web:a"), loader).block();
+
+        assertEquals(2, requestedChunks.size());
+    }
+
+    @Test
+    void invalidateUriOfAllTypes() {
+        ParticipantLegalNameCache cache = new ParticipantLegalNameCache(60000, 10, 1);
+        cache.getLegalNames("LegalPerson", List.of("did:web:a", "did:web:b"), loader).block();
+        cache.getLegalNames("MerlotOrganisation", List.of("did:web:a"), loader).block();
+        requestedChunks.clear();
+
+        cache.invalidate("did:web:a");
+        cache.getLegalNames("LegalPerson", List.of("did:web:a", "did:web:b"), loader).block();
+        cache.getLegalNames("MerlotOrganisation", List.of("did:web:a"), loader).block();
+
+        assertEquals(List.of(List.of("did:web:a"), List.of("did:web:a")), requestedChunks);
+    }
+
+    @Test
+    void invalidateDuringLoadDropsLoadedName() {
+        ParticipantLegalNameCache cache = new ParticipantLegalNameCache(60000, 10, 1);
+        Sinks.One<Map<String, String>> pendingLoad = Sinks.one();
+        CompletableFuture<Map<String, String>> inFlight = cache.getLegalNames("LegalPerson", List.of("did:web:a"),
+                (type, uris) -> pendingLoad.asMono()).toFuture();
+
+        // participant is updated while its previous legal name is still being loaded
+        cache.invalidate("did:web:a");
+        pendingLoad.tryEmitValue(Map.of("did:web:a", "Previous Name"));
+        assertEquals("Previous Name", inFlight.join().get("did:web:a"));
+
+        Map<String, String> legalNames = cache.getLegalNames("LegalPerson", List.of("did:web:a"), loader).block();
+        assertNotNull(legalNames);
+        assertEquals("Participant A", legalNames.get("did:web:a"));
+        assertEquals(1, requestedChunks.size());
+    }
+
+    @Test
+    void toLegalNamesOmitsIncompleteItems() {
+        GXFSCatalogListResponse<Map<String, Object>> response = new GXFSCatalogListResponse<>();
+        Map<String, Object> withoutLegalName = new HashMap<>();
+        withoutLegalName.put("uri", "did:web:b");
+        withoutLegalName.put("legalName", null);
+        response.setItems(List.of(Map.of("uri", "did:web:a", "legalName", "Participant A"), withoutLegalName));
+
+        assertEquals(Map.of("did:web:a", "Participant A"),
+                ParticipantLegalNameCache.toLegalNames(new ObjectMapper(), response));
+    }
+
+    @Test
+    void noRequestWhenEverythingIsCached() {
+        ParticipantLegalNameCache cache = new ParticipantLegalNameCache(60000, 10, 1);
+
+        assertEquals(Collections.emptyMap(), cache.getLegalNames("LegalPerson", List.of(), loader).block());
+        assertTrue(requestedChunks.isEmpty());
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.merloteducation.gxfscataloglibrary.models.client.ClearingHouseEndpointState;
+import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiableCredential;
+import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiablePresentation;
+import eu.merloteducation.gxfscataloglibrary.models.exception.ClearingHouseException;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.participants.GxLegalRegistrationNumberCredentialSubject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReactiveGxdchServiceTests {
+
+    private EndpointHealthManager endpointHealthManager;
+
+    private GxdchService gxdchService;
+
+    private ReactiveGxdchService createService(Map<String, ReactiveGxComplianceClient> complianceClients,
+                                               Map<String, ReactiveGxNotaryClient> notaryClients,
+                                               GxdchService.RequestStrategy strategy) {
+        return createService(complianceClients, notaryClients, strategy, 100);
+    }
+
+    private ReactiveGxdchService createService(Map<String, ReactiveGxComplianceClient> complianceClients,
+                                               Map<String, ReactiveGxNotaryClient> notaryClients,
+                                               GxdchService.RequestStrategy strategy,
+                                               long hedgeDelayMs) {
+        gxdchService = new GxdchService(
+                Collections.emptyMap(),
+                Map.of("https://example.com/1", new GxRegistryClientFake()),
+                Collections.emptyMap(),
+                new ObjectMapper(),
+                endpointHealthManager,
+                strategy,
+                strategy,
+                0.95,
+                hedgeDelayMs,
+                604800000);
+        return new ReactiveGxdchService(complianceClients, notaryClients, gxdchService, endpointHealthManager);
+    }
+
+    private ReactiveGxComplianceClient complianceClient() {
+        GxComplianceClient client = new GxComplianceClientFake();
+        return (vcid, body) -> Mono.fromCallable(() -> client.postCredentialOffer(vcid, body));
+    }
+
+    private ReactiveGxNotaryClient notaryClient(AtomicInteger calls) {
+        GxNotaryClient client = new GxNotaryClientFake();
+        return (vcid, body) -> Mono.fromCallable(() -> {
+            calls.incrementAndGet();
+            return client.postRegistrationNumber(vcid, body);
+        });
+    }
+
+    private ExtendedVerifiablePresentation vp(String id) {
+        ExtendedVerifiablePresentation vp = new ExtendedVerifiablePresentation();
+        vp.setJsonObjectKeyValue("id", id);
+        return vp;
+    }
+
+    private static Throwable blockForError(Mono<?> mono) {
+        Exception e = assertThrows(Exception.class, mono::block);
+        return Exceptions.unwrap(e);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        endpointHealthManager = new EndpointHealthManager(2, 60000, 0.2);
+    }
+
+    @Test
+    void checkComplianceSuccess() {
+        ReactiveGxdchService service = createService(Map.of("https://example.com/1", complianceClient()),
+                Collections.emptyMap(), GxdchService.RequestStrategy.SEQUENTIAL);
+        assertNotNull(service.checkCompliance(vp("valid")).block());
+    }
+
+    @Test
+    void checkComplianceBad() {
+        ReactiveGxdchService service = createService(Map.of("https://example.com/1", complianceClient()),
+                Collections.emptyMap(), GxdchService.RequestStrategy.SEQUENTIAL);
+        assertInstanceOf(ClearingHouseException.class, blockForError(service.checkCompliance(vp("badsignature"))));
+    }
+
+    @Test
+    void checkComplianceNoEndpoints() {
+        ReactiveGxdchService service = createService(Collections.emptyMap(), Collections.emptyMap(),
+                GxdchService.RequestStrategy.SEQUENTIAL);
+        assertNull(service.checkCompliance(vp("valid")).block());
+    }
+
+    @Test
+    void checkComplianceRaceCancelsSlowEndpoint() {
+        AtomicInteger cancelled = new AtomicInteger();
+        Map<String, ReactiveGxComplianceClient> clients = new LinkedHashMap<>();
+        clients.put("https://example.com/slow", (vcid, body) -> Mono.<ExtendedVerifiableCredential>never()
+                .doOnCancel(cancelled::incrementAndGet));
+        clients.put("https://example.com/fast", complianceClient());
+        ReactiveGxdchService service = createService(clients, Collections.emptyMap(),
+                GxdchService.RequestStrategy.RACE);
+
+        assertNotNull(service.checkCompliance(vp("valid")).block(Duration.ofSeconds(5)));
+        assertEquals(1, cancelled.get());
+    }
+
+    @Test
+    void checkComplianceHedgedStartsNextEndpoint() {
+        Map<String, ReactiveGxComplianceClient> clients = new LinkedHashMap<>();
+        clients.put("https://example.com/slow", (vcid, body) -> Mono.never());
+        clients.put("https://example.com/fast", complianceClient());
+        ReactiveGxdchService service = createService(clients, Collections.emptyMap(),
+                GxdchService.RequestStrategy.HEDGED);
+
+        assertNotNull(service.checkCompliance(vp("valid")).block(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void checkComplianceHedgedStartsNextEndpointWhenPreviousFails() {
+        Map<String, ReactiveGxComplianceClient> clients = new LinkedHashMap<>();
+        clients.put("https://example.com/failing",
+                (vcid, body) -> Mono.error(new IllegalStateException("Connection refused")));
+        clients.put("https://example.com/working", complianceClient());
+        // the hedge delay exceeds the timeout, so the second endpoint is only reached in time after the failure
+        ReactiveGxdchService service = createService(clients, Collections.emptyMap(),
+                GxdchService.RequestStrategy.HEDGED, 60000);
+
+        assertNotNull(service.checkCompliance(vp("valid")).block(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void checkComplianceSkipsEndpointWithOpenCircuit() {
+        AtomicInteger brokenCalls = new AtomicInteger();
+        Map<String, ReactiveGxComplianceClient> clients = new LinkedHashMap<>();
+        clients.put("https://example.com/broken", (vcid, body) -> {
+            brokenCalls.incrementAndGet();
+            return Mono.error(new IllegalStateException("Connection refused"));
+        });
+        clients.put("https://example.com/working", complianceClient());
+        ReactiveGxdchService service = createService(clients, Collections.emptyMap(),
+                GxdchService.RequestStrategy.SEQUENTIAL);
+
+        for (int i = 0; i < 4; i++) {
+            assertNotNull(service.checkCompliance(vp("valid")).block());
+        }
+        // circuit opens after two failures, afterward the broken endpoint is no longer contacted
+        assertEquals(2, brokenCalls.get());
+        assertEquals(ClearingHouseEndpointState.CircuitState.OPEN,
+                endpointHealthManager.getEndpointStates().get("https://example.com/broken").getCircuitState());
+    }
+
+    @Test
+    void verifyRegistrationNumberSharesCache() throws ClearingHouseException {
+        AtomicInteger calls = new AtomicInteger();
+        ReactiveGxdchService service = createService(Collections.emptyMap(),
+                Map.of("https://example.com/1", notaryClient(calls)), GxdchService.RequestStrategy.SEQUENTIAL);
+
+        GxLegalRegistrationNumberCredentialSubject cs = new GxLegalRegistrationNumberCredentialSubject();
+        cs.setLeiCode("1234");
+        cs.setId("valid");
+        assertNotNull(service.verifyRegistrationNumber(cs).block());
+        assertNotNull(service.verifyRegistrationNumber(cs).block());
+        // the blocking service serves the credential attested through the reactive one
+        assertNotNull(gxdchService.verifyRegistrationNumber(cs));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void verifyRegistrationNumberInvalid() {
+        ReactiveGxdchService service = createService(Collections.emptyMap(),
+                Map.of("https://example.com/1", notaryClient(new AtomicInteger())),
+                GxdchService.RequestStrategy.RACE);
+
+        GxLegalRegistrationNumberCredentialSubject cs = new GxLegalRegistrationNumberCredentialSubject();
+        cs.setLeiCode("1234");
+        cs.setId("invalid");
+        assertInstanceOf(ClearingHouseException.class, blockForError(service.verifyRegistrationNumber(cs)));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import eu.merloteducation.gxfscataloglibrary.models.client.QueryLanguage;
+import eu.merloteducation.gxfscataloglibrary.models.client.QueryRequest;
+import eu.merloteducation.gxfscataloglibrary.models.client.SelfDescriptionStatus;
+import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiablePresentation;
+import eu.merloteducation.gxfscataloglibrary.models.participants.ParticipantItem;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.GXFSCatalogListResponse;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.SelfDescriptionItem;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.SelfDescriptionMeta;
+import reactor.core.publisher.Mono;
+
+// non-blocking view on the GxfsCatalogClientFake
+public class ReactiveGxfsCatalogClientFake implements ReactiveGxfsCatalogClient {
+
+    private final GxfsCatalogClientFake delegate = new GxfsCatalogClientFake();
+
+    @Override
+    public Mono<GXFSCatalogListResponse<SelfDescriptionItem>> getSelfDescriptionList(
+            String uploadTimerange, String statusTimerange, String[] issuers, String[] validators,
+            SelfDescriptionStatus[] statuses, String[] ids, String[] hashes, Boolean withMeta, Boolean withContent,
+            Integer offset, Integer limit) {
+        return Mono.fromCallable(() -> delegate.getSelfDescriptionList(uploadTimerange, statusTimerange, issuers,
+                validators, statuses, ids, hashes, withMeta, withContent, offset, limit));
+    }
+
+    @Override
+    public Mono<SelfDescriptionMeta> postAddSelfDescription(ExtendedVerifiablePresentation body) {
+        return Mono.fromCallable(() -> delegate.postAddSelfDescription(body));
+    }
+
+    @Override
+    public Mono<SelfDescriptionItem> getSelfDescriptionByHash(String sdHash) {
+        return Mono.fromCallable(() -> delegate.getSelfDescriptionByHash(sdHash));
+    }
+
+    @Override
+    public Mono<Void> deleteSelfDescriptionByHash(String sdHash) {
+        return Mono.fromRunnable(() -> delegate.deleteSelfDescriptionByHash(sdHash));
+    }
+
+    @Override
+    public Mono<SelfDescriptionMeta> postRevokeSelfDescriptionByHash(String sdHash) {
+        return Mono.fromCallable(() -> delegate.postRevokeSelfDescriptionByHash(sdHash));
+    }
+
+    @Override
+    public <T> Mono<GXFSCatalogListResponse<T>> postQuery(QueryLanguage queryLanguage, Integer timeout,
+                                                          Boolean withTotalCount, QueryRequest query) {
+        return Mono.fromCallable(() -> delegate.postQuery(queryLanguage, timeout, withTotalCount, query));
+    }
+
+    @Override
+    public Mono<GXFSCatalogListResponse<ParticipantItem>> getParticipants(Integer offset, Integer limit) {
+        return Mono.fromCallable(() -> delegate.getParticipants(offset, limit));
+    }
+
+    @Override
+    public Mono<ParticipantItem> postAddParticipant(ExtendedVerifiablePresentation body) {
+        return Mono.fromCallable(() -> delegate.postAddParticipant(body));
+    }
+
+    @Override
+    public Mono<ParticipantItem> getParticipantById(String participantId) {
+        return Mono.fromCallable(() -> delegate.getParticipantById(participantId));
+    }
+
+    @Override
+    public Mono<ParticipantItem> putUpdateParticipant(String participantId, ExtendedVerifiablePresentation body) {
+        return Mono.fromCallable(() -> delegate.putUpdateParticipant(participantId, body));
+    }
+
+    @Override
+    public Mono<ParticipantItem> deleteParticipant(String participantId) {
+        return Mono.fromCallable(() -> delegate.deleteParticipant(participantId));
+    }
+}
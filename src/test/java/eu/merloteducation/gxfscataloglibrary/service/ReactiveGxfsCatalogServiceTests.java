@@ -0,0 +1,270 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.junit5.WireMockTest;
+import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialPresentationException;
+import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialSignatureException;
+import eu.merloteducation.gxfscataloglibrary.models.participants.ParticipantItem;
+import eu.merloteducation.gxfscataloglibrary.models.query.GXFSQueryUriItem;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.GXFSCatalogListResponse;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.PojoCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.SelfDescriptionItem;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.SelfDescriptionMeta;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.datatypes.GxDataAccountExport;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.datatypes.GxSOTermsAndConditions;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.datatypes.GxVcard;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.datatypes.NodeKindIRITypeId;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.participants.GxLegalParticipantCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.participants.GxLegalRegistrationNumberCredentialSubject;
+import eu.merloteducation.gxfscataloglibrary.models.selfdescriptions.gx.serviceofferings.GxServiceOfferingCredentialSubject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ExtendWith(MockitoExtension.class)
+@EnableConfigurationProperties
+@WireMockTest(httpsPort = 8101, httpsEnabled = true)
+class ReactiveGxfsCatalogServiceTests {
+
+    @Autowired
+    private ReactiveGxfsCatalogService reactiveGxfsCatalogService;
+
+    @MockBean
+    private GxfsCatalogAuthService gxfsCatalogAuthService;
+
+    @MockBean
+    private ReactiveGxfsCatalogClient reactiveGxfsCatalogClient;
+
+    @MockBean
+    private ReactiveGxdchService reactiveGxdchService;
+
+    @MockBean
+    private GxfsWizardApiService gxfsWizardApiService;
+
+    private String privateKey;
+
+    private GxServiceOfferingCredentialSubject generateOfferingCredentialSubject(String id, String providedBy) {
+        GxServiceOfferingCredentialSubject cs = new GxServiceOfferingCredentialSubject();
+        cs.setId(id);
+        cs.setName("Some Offering");
+        cs.setProvidedBy(new NodeKindIRITypeId(providedBy));
+        GxSOTermsAndConditions tnc = new GxSOTermsAndConditions();
+        tnc.setUrl("http://example.com");
+        tnc.setHash("1234");
+        cs.setTermsAndConditions(List.of(tnc));
+        cs.setPolicy(List.of("policy"));
+        GxDataAccountExport accountExport = new GxDataAccountExport();
+        accountExport.setAccessType("digital");
+        accountExport.setRequestType("API");
+        accountExport.setFormatType("application/json");
+        cs.setDataAccountExport(List.of(accountExport));
+        return cs;
+    }
+
+    private List<PojoCredentialSubject> generateParticipant(String id, String name) {
+        GxLegalParticipantCredentialSubject participantCs = new GxLegalParticipantCredentialSubject();
+        participantCs.setId(id);
+        participantCs.setName(name);
+        participantCs.setLegalRegistrationNumber(List.of(new NodeKindIRITypeId(id + "-regId")));
+        GxVcard address = new GxVcard();
+        address.setCountryCode("DE");
+        address.setCountrySubdivisionCode("DE-BE");
+        address.setStreetAddress("Some Street 3");
+        address.setLocality("Berlin");
+        address.setPostalCode("12345");
+        participantCs.setHeadquarterAddress(address);
+        participantCs.setLegalAddress(address);
+
+        GxLegalRegistrationNumberCredentialSubject registrationNumberCs = new GxLegalRegistrationNumberCredentialSubject();
+        registrationNumberCs.setId(id + "-regId");
+        registrationNumberCs.setLeiCode("894500MQZ65CN32S9A66");
+        return List.of(participantCs, registrationNumberCs);
+    }
+
+    private static String readResource(String name) {
+        try (InputStream stream = ReactiveGxfsCatalogServiceTests.class.getClassLoader().getResourceAsStream(name)) {
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException | NullPointerException ignored) {
+            return "";
+        }
+    }
+
+    private static Throwable blockForError(Mono<?> mono) {
+        Exception e = assertThrows(Exception.class, mono::block);
+        return Exceptions.unwrap(e);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        // reset catalog client fake between each test
+        ReflectionTestUtils.setField(reactiveGxfsCatalogService, "gxfsCatalogClient",
+                new ReactiveGxfsCatalogClientFake());
+        EndpointHealthManager endpointHealthManager = new EndpointHealthManager(3, 30000, 0.2);
+        ReactiveGxComplianceClient complianceClient = (vcid, body) ->
+                Mono.fromCallable(() -> new GxComplianceClientFake().postCredentialOffer(vcid, body));
+        ReactiveGxNotaryClient notaryClient = (vcid, body) ->
+                Mono.fromCallable(() -> new GxNotaryClientFake().postRegistrationNumber(vcid, body));
+        ReflectionTestUtils.setField(reactiveGxfsCatalogService, "gxdchService",
+                new ReactiveGxdchService(
+                        Map.of("http://example.com", complianceClient),
+                        Map.of("http://example.com", notaryClient),
+                        new GxdchService(
+                                Collections.emptyMap(),
+                                Map.of("http://example.com", new GxRegistryClientFake()),
+                                Collections.emptyMap(),
+                                new ObjectMapper(),
+                                endpointHealthManager,
+                                GxdchService.RequestStrategy.SEQUENTIAL,
+                                GxdchService.RequestStrategy.SEQUENTIAL,
+                                0.95,
+                                5000,
+                                604800000),
+                        endpointHealthManager));
+
+        stubFor(get("/1234/did.json")
+                .willReturn(ok()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(readResource("exampledid.json"))));
+        String cert = readResource("cert.ss.pem");
+        stubFor(get("/1234/somecert.pem")
+                .willReturn(ok()
+                        .withBody(cert)));
+        stubFor(get("/.well-known/cert.pem")
+                .willReturn(ok()
+                        .withBody(cert)));
+
+        privateKey = readResource("prk.ss.pem");
+    }
+
+    @Test
+    void addValidServiceOffering() {
+        SelfDescriptionMeta meta = reactiveGxfsCatalogService
+                .addServiceOffering(List.of(generateOfferingCredentialSubject("1234", "2345")),
+                        Collections.emptyList())
+                .block();
+        assertNotNull(meta);
+
+        GXFSCatalogListResponse<SelfDescriptionItem> items =
+                reactiveGxfsCatalogService.getSelfDescriptionsByIds(new String[]{meta.getId()}).block();
+        assertNotNull(items);
+        assertEquals(1, items.getTotalCount());
+    }
+
+    @Test
+    void addInvalidServiceOffering() {
+        assertInstanceOf(CredentialPresentationException.class, blockForError(reactiveGxfsCatalogService
+                .addServiceOffering(Collections.emptyList(), Collections.emptyList())));
+    }
+
+    @Test
+    void addValidParticipant() {
+        ParticipantItem item = reactiveGxfsCatalogService
+                .addParticipant(generateParticipant("2345", "MyParticipant"))
+                .block();
+        assertNotNull(item);
+        assertNotNull(reactiveGxfsCatalogService.getParticipantById("2345").block());
+    }
+
+    @Test
+    void addValidParticipantValidExternalKey() {
+        ParticipantItem item = reactiveGxfsCatalogService
+                .addParticipant(generateParticipant("2345", "MyParticipant"),
+                        "did:web:localhost%3A8101:1234#JWK2020", privateKey)
+                .block();
+        assertNotNull(item);
+    }
+
+    @Test
+    void addValidParticipantExternalKeyMissingCert() {
+        assertInstanceOf(CredentialSignatureException.class, blockForError(reactiveGxfsCatalogService
+                .addParticipant(generateParticipant("2345", "MyParticipant"),
+                        "did:web:localhost%3A8101:1234#someotherkey", privateKey)));
+    }
+
+    @Test
+    void addInvalidParticipant() {
+        assertInstanceOf(CredentialPresentationException.class, blockForError(reactiveGxfsCatalogService
+                .addParticipant(Collections.emptyList())));
+    }
+
+    @Test
+    void updateExistingParticipant() {
+        reactiveGxfsCatalogService.addParticipant(generateParticipant("2345", "MyParticipant")).block();
+        ParticipantItem item = reactiveGxfsCatalogService
+                .updateParticipant(generateParticipant("2345", "MyNewParticipant"))
+                .block();
+        assertNotNull(item);
+    }
+
+    @Test
+    void getParticipantLegalNamesByUrisAfterUpdate() {
+        ReflectionTestUtils.setField(reactiveGxfsCatalogService, "participantLegalNameCache",
+                new ParticipantLegalNameCache(60000, 10, 1));
+        reactiveGxfsCatalogService.addParticipant(generateParticipant("2345", "MyParticipant")).block();
+        assertEquals(Map.of("2345", "MyParticipant"), reactiveGxfsCatalogService
+                .getParticipantLegalNamesByUris("LegalPerson", List.of("2345")).block());
+
+        reactiveGxfsCatalogService.updateParticipant(generateParticipant("2345", "MyNewParticipant")).block();
+
+        assertEquals(Map.of("2345", "MyNewParticipant"), reactiveGxfsCatalogService
+                .getParticipantLegalNamesByUris("LegalPerson", List.of("2345")).block());
+    }
+
+    @Test
+    void getMissingParticipantById() {
+        Throwable e = blockForError(reactiveGxfsCatalogService.getParticipantById("missing"));
+        assertInstanceOf(WebClientResponseException.class, e);
+        assertEquals(HttpStatus.NOT_FOUND, ((WebClientResponseException) e).getStatusCode());
+    }
+
+    @Test
+    void getParticipantsUriPage() {
+        for (int i = 0; i < 3; i++) {
+            reactiveGxfsCatalogService.addParticipant(generateParticipant("" + i, "MyParticipant" + i)).block();
+        }
+        GXFSCatalogListResponse<GXFSQueryUriItem> uriPage = reactiveGxfsCatalogService
+                .getSortedParticipantUriPage("LegalPerson", "legalName", 0, 3)
+                .block();
+
+        assertNotNull(uriPage);
+        assertEquals(3, uriPage.getTotalCount());
+        assertEquals(3, uriPage.getItems().size());
+    }
+}
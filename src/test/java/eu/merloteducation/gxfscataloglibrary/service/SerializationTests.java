@@ -18,6 +18,7 @@ package eu.merloteducation.gxfscataloglibrary.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import eu.merloteducation.gxfscataloglibrary.models.serialization.*;
 import org.junit.jupiter.api.BeforeEach;
@@ -25,7 +26,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @ExtendWith(MockitoExtension.class)
@@ -155,4 +159,66 @@ class SerializationTests {
         assertEquals(5, deserialized);
     }
 
+    public static class TypedValues {
+        @JsonDeserialize(using = StringDeserializer.class)
+        public String name;
+
+        @JsonDeserialize(using = UriDeserializer.class)
+        public String url;
+
+        @JsonDeserialize(using = IntegerDeserializer.class)
+        public int count;
+
+        public String trailing;
+    }
+
+    @Test
+    void deserializeTypeValuesWithinObject() throws JsonProcessingException {
+        String typedValues = """
+                {
+                    "name": {
+                        "@value": "somename",
+                        "extra": {"nested": [1, {"@value": "ignored"}]},
+                        "@type": "xsd:string"
+                    },
+                    "url": {"@type": "xsd:anyURI", "@value": "https://example.com"},
+                    "count": {"@type": "xsd:integer", "@value": 7},
+                    "trailing": "end"
+                }
+                """;
+        TypedValues deserialized = objectMapper.readValue(typedValues, TypedValues.class);
+        assertEquals("somename", deserialized.name);
+        assertEquals("https://example.com", deserialized.url);
+        assertEquals(7, deserialized.count);
+        assertEquals("end", deserialized.trailing);
+    }
+
+    @Test
+    void deserializeUnexpectedTypeValues() throws JsonProcessingException {
+        String typedValues = """
+                {
+                    "name": {"@type": "xsd:anyURI", "@value": "somename"},
+                    "url": ["https://example.com"],
+                    "count": {"@type": "xsd:string", "@value": 7},
+                    "trailing": "end"
+                }
+                """;
+        TypedValues deserialized = objectMapper.readValue(typedValues, TypedValues.class);
+        assertNull(deserialized.name);
+        assertNull(deserialized.url);
+        assertEquals(0, deserialized.count);
+        assertEquals("end", deserialized.trailing);
+    }
+
+    @Test
+    void deserializeTypeValuesFromBufferedContent() {
+        Map<String, Object> typedValues = Map.of(
+                "name", Map.of("@type", "xsd:string", "@value", "somename"),
+                "count", Map.of("@type", "xsd:integer", "@value", 7),
+                "trailing", "end");
+        TypedValues deserialized = objectMapper.convertValue(typedValues, TypedValues.class);
+        assertEquals("somename", deserialized.name);
+        assertEquals(7, deserialized.count);
+        assertEquals("end", deserialized.trailing);
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ *  Copyright 2024 Dataport. All rights reserved. Developed as part of the MERLOT project.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package eu.merloteducation.gxfscataloglibrary.service;
+
+import eu.merloteducation.gxfscataloglibrary.models.credentials.ExtendedVerifiableCredential;
+import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialPresentationException;
+import eu.merloteducation.gxfscataloglibrary.models.exception.CredentialSignatureException;
+import eu.merloteducation.gxfscataloglibrary.service.SigningExecutor.CredentialTask;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SigningExecutorTests {
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void keepsTaskOrderWhenTasksFinishOutOfOrder(boolean virtualThreads) throws Exception {
+        SigningExecutor signingExecutor = new SigningExecutor(2, virtualThreads);
+        ExtendedVerifiableCredential first = new ExtendedVerifiableCredential();
+        ExtendedVerifiableCredential second = new ExtendedVerifiableCredential();
+        CountDownLatch secondDone = new CountDownLatch(1);
+        try {
+            List<ExtendedVerifiableCredential> credentials = signingExecutor.runCredentialTasks(List.of(
+                    () -> {
+                        await(secondDone);
+                        return first;
+                    },
+                    () -> {
+                        secondDone.countDown();
+                        return second;
+                    }));
+
+            assertEquals(2, credentials.size());
+            assertSame(first, credentials.get(0));
+            assertSame(second, credentials.get(1));
+        } finally {
+            signingExecutor.shutdown();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void unwrapsSignatureException(boolean virtualThreads) {
+        SigningExecutor signingExecutor = new SigningExecutor(2, virtualThreads);
+        try {
+            List<CredentialTask> tasks = List.of(
+                    ExtendedVerifiableCredential::new,
+                    () -> {
+                        throw new CredentialSignatureException("signature failed");
+                    });
+
+            CredentialSignatureException e = assertThrows(CredentialSignatureException.class,
+                    () -> signingExecutor.runCredentialTasks(tasks));
+            assertEquals("signature failed", e.getMessage());
+        } finally {
+            signingExecutor.shutdown();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void unwrapsPresentationException(boolean virtualThreads) {
+        SigningExecutor signingExecutor = new SigningExecutor(2, virtualThreads);
+        try {
+            List<CredentialTask> tasks = List.of(
+                    ExtendedVerifiableCredential::new,
+                    () -> {
+                        throw new CredentialPresentationException("presentation failed");
+                    });
+
+            CredentialPresentationException e = assertThrows(CredentialPresentationException.class,
+                    () -> signingExecutor.runCredentialTasks(tasks));
+            assertEquals("presentation failed", e.getMessage());
+        } finally {
+            signingExecutor.shutdown();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void cancelsRemainingTasksAfterFailure(boolean virtualThreads) throws Exception {
+        SigningExecutor signingExecutor = new SigningExecutor(2, virtualThreads);
+        CountDownLatch blockingTaskStarted = new CountDownLatch(1);
+        CountDownLatch blockingTaskInterrupted = new CountDownLatch(1);
+        try {
+            List<CredentialTask> tasks = List.of(
+                    () -> {
+                        await(blockingTaskStarted);
+                        throw new CredentialSignatureException("signature failed");
+                    },
+                    () -> {
+                        blockingTaskStarted.countDown();
+                        try {
+                            new CountDownLatch(1).await();
+                        } catch (InterruptedException e) {
+                            blockingTaskInterrupted.countDown();
+                        }
+                        return new ExtendedVerifiableCredential();
+                    });
+
+            assertThrows(CredentialSignatureException.class, () -> signingExecutor.runCredentialTasks(tasks));
+            assertTrue(blockingTaskInterrupted.await(5, TimeUnit.SECONDS));
+        } finally {
+            signingExecutor.shutdown();
+        }
+    }
+
+    private static void await(CountDownLatch latch) throws CredentialSignatureException {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CredentialSignatureException("Interrupted while waiting for another task.");
+        }
+    }
+}